@@ -33,6 +33,9 @@ public class Asn1Buffer
     /** The buffer default size */
     private static final int DEFAULT_SIZE = 1024;
 
+    /** The biggest buffer kept when the buffer is cleared */
+    private static final int MAX_RETAINED_SIZE = 64 * DEFAULT_SIZE;
+
     /** The current position in the buffer */
     private int pos = 0;
 
@@ -121,6 +124,9 @@ public class Asn1Buffer
             newSize += DEFAULT_SIZE;
         }
 
+        // Grow at least twofold, so that a big PDU does not get copied over and over
+        newSize = Math.max( newSize, buffer.length * 2 );
+
         byte[] newBuffer = new byte[newSize];
         System.arraycopy( buffer, 0, newBuffer, newSize - buffer.length, buffer.length );
 
@@ -142,6 +148,20 @@ public class Asn1Buffer
     }
 
 
+    /**
+     * Copies the stored encoded PDU into a target buffer, starting at its current position,
+     * without any intermediate allocation. The target position is moved forward by
+     * {@link #getPos()} bytes.
+     *
+     * @param target The buffer to copy the PDU into. It must have at least {@link #getPos()}
+     * bytes remaining
+     */
+    public void copyTo( ByteBuffer target )
+    {
+        target.put( buffer, buffer.length - pos, pos );
+    }
+
+
     /**
      * @return The buffer size (ie the maximum number of bytes that can be
      * added to this bffder before it gets extended).
@@ -153,12 +173,12 @@ public class Asn1Buffer
 
 
     /**
-     * Clear the position, emptying the buffer. If it has grown, reallocate it
-     * to its initial size.
+     * Clear the position, emptying the buffer. If it has grown above 64 KB, reallocate it
+     * to its initial size, otherwise keep it for the next PDU.
      */
     public void clear()
     {
-        if ( buffer.length > DEFAULT_SIZE )
+        if ( buffer.length > MAX_RETAINED_SIZE )
         {
             buffer = new byte[DEFAULT_SIZE];
         }
@@ -94,6 +94,36 @@ public class Asn1BufferTest
         }
     }
 
+    @Test
+    public void testCopyTo()
+    {
+        Asn1Buffer buffer = new Asn1Buffer();
+
+        for ( int i = 0; i < 2000; i++ )
+        {
+            buffer.put( ( byte ) i );
+        }
+
+        ByteBuffer target = ByteBuffer.allocateDirect( 2001 );
+        target.put( ( byte ) 0x55 );
+        buffer.copyTo( target );
+        target.flip();
+
+        assertEquals( 2001, target.limit() );
+        assertEquals( 0x55, target.get( 0 ) );
+
+        for ( int i = 0; i < 2000; i++ )
+        {
+            assertEquals( ( byte ) ( 1999 - i ), target.get( i + 1 ) );
+        }
+
+        // The grown buffer is kept for the next PDU
+        buffer.clear();
+        assertEquals( 0, buffer.getPos() );
+        assertEquals( 2048, buffer.getSize() );
+    }
+
+
     @Test
     @Disabled
     public void testBytesPerf()
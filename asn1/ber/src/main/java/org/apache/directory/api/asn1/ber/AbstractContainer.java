@@ -21,6 +21,7 @@ package org.apache.directory.api.asn1.ber;
 
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.apache.directory.api.asn1.ber.grammar.Grammar;
 import org.apache.directory.api.asn1.ber.grammar.States;
@@ -71,6 +72,15 @@ public abstract class AbstractContainer implements Asn1Container
      * for constructed types */
     private boolean gathering = false;
 
+    /** A flag telling if the TLVs are recycled, and the values exposed as slices */
+    private boolean recycling = false;
+
+    /** The recycled TLVs, indexed by their depth in the PDU */
+    private TLV[] tlvPool;
+
+    /** The initial number of levels in the TLV pool */
+    private static final int TLV_POOL_SIZE = 16;
+
 
     /**
      * Creates a new instance of AbstractContainer with a starting state.
@@ -246,6 +256,72 @@ public abstract class AbstractContainer implements Asn1Container
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TLV newTLV()
+    {
+        if ( !recycling )
+        {
+            return new TLV( getNewTlvId() );
+        }
+
+        // The new TLV will be a child of the current parent. There can't be any
+        // other live TLV at the same depth, so we can reuse the previous one
+        int depth = 0;
+
+        for ( TLV parent = parentTLV; parent != null; parent = parent.getParent() )
+        {
+            depth++;
+        }
+
+        if ( depth >= tlvPool.length )
+        {
+            tlvPool = Arrays.copyOf( tlvPool, depth * 2 );
+        }
+
+        TLV recycled = tlvPool[depth];
+
+        if ( recycled == null )
+        {
+            recycled = new TLV( getNewTlvId() );
+            tlvPool[depth] = recycled;
+        }
+        else
+        {
+            recycled.recycle( getNewTlvId() );
+        }
+
+        return recycled;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRecycling()
+    {
+        return recycling;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setRecycling( boolean recycling )
+    {
+        this.recycling = recycling;
+
+        if ( recycling && ( tlvPool == null ) )
+        {
+            tlvPool = new TLV[TLV_POOL_SIZE];
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
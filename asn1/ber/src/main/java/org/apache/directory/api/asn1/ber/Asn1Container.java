@@ -160,6 +160,47 @@ public interface Asn1Container
     int getTlvId();
 
 
+    /**
+     * Gets a TLV for the next tag to decode, with a new id. When the container is in
+     * recycling mode, the TLV instances are reused from one tag to the other.
+     * By default, a new TLV is created for each tag.
+     *
+     * @return A TLV ready to be filled by the decoder
+     */
+    default TLV newTLV()
+    {
+        return new TLV( getNewTlvId() );
+    }
+
+
+    /**
+     * @return <code>true</code> if the container recycles its TLVs and lets the
+     * decoder expose the values as slices of the buffer being decoded. By default,
+     * the TLVs are not recycled.
+     */
+    default boolean isRecycling()
+    {
+        return false;
+    }
+
+
+    /**
+     * Sets the recycling mode. When enabled, the TLV instances are reused for each
+     * new tag, and a value fully contained in the decoded buffer is not copied :
+     * it's only valid while its action is executed, unless {@link org.apache.directory.api.asn1.ber.tlv.BerValue#getData()}
+     * is called, which creates a private copy.
+     * <br>
+     * The recycling mode is a hint : by default it's ignored, and the container
+     * keeps on creating a new TLV for each tag.
+     *
+     * @param recycling <code>true</code> to enable the recycling mode
+     */
+    default void setRecycling( boolean recycling )
+    {
+        // Not supported by default
+    }
+
+
     /**
      * @return The number of decoded bytes for this message. This is used
      * to control the PDU size and avoid PDU exceeding the maximum allowed
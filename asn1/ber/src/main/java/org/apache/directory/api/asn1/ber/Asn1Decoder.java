@@ -87,7 +87,7 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
         {
             byte octet = stream.get();
 
-            TLV tlv = new TLV( container.getNewTlvId() );
+            TLV tlv = container.newTLV();
             tlv.setTag( octet );
 
             // Store the current TLV in the container.
@@ -167,9 +167,9 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
 
         BerValue value = current.getValue();
 
-        if ( ( value != null ) && ( value.getData() != null ) )
+        if ( ( value != null ) && ( value.getLength() != 0 ) )
         {
-            return current.getExpectedLength() == value.getData().length;
+            return current.getExpectedLength() == value.getLength();
         }
         else
         {
@@ -531,6 +531,25 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
 
                 return END;
             }
+            else if ( container.isRecycling() )
+            {
+                // The whole value is available : expose it as a slice of the
+                // buffer, it will be consumed by the action before we move on
+                if ( stream.hasArray() )
+                {
+                    currentTlv.getValue().setSlice( stream.array(), stream.arrayOffset() + stream.position(), length );
+                    stream.position( stream.position() + length );
+                }
+                else
+                {
+                    // A direct (or read-only) buffer : read the value in the TLV's scratch array
+                    currentTlv.getValue().setSlice( stream, length );
+                }
+
+                container.setState( TLVStateEnum.TLV_STATE_DONE );
+
+                return MORE;
+            }
             else
             {
                 currentTlv.getValue().init( length );
@@ -570,10 +589,7 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
         }
         else
         {
-            int remaining = length - currentLength;
-            byte[] data = new byte[remaining];
-            stream.get( data, 0, remaining );
-            currentTlv.getValue().addData( data );
+            currentTlv.getValue().addData( stream, length - currentLength );
             container.setState( TLVStateEnum.TLV_STATE_DONE );
 
             return MORE;
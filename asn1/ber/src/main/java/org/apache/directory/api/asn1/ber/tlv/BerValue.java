@@ -22,6 +22,7 @@ package org.apache.directory.api.asn1.ber.tlv;
 
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.apache.directory.api.asn1.EncoderException;
 import org.apache.directory.api.asn1.util.Asn1Buffer;
@@ -45,6 +46,18 @@ public class BerValue
     /** The current position of the last byte in the data buffer */
     private int currentPos;
 
+    /** The position of the first byte of the value in the data buffer, when it's a slice */
+    private int offset;
+
+    /** Tells if the data buffer is a slice of the decoded PDU rather than a private copy */
+    private boolean slice;
+
+    /** A buffer reused to slice the values read from a buffer with no accessible array */
+    private byte[] scratch;
+
+    /** The biggest value we copy into the scratch buffer, bigger ones get their own byte[] */
+    public static final int MAX_SCRATCH_SIZE = 4096;
+
     /** The encoded byte for a TRUE value */
     public static final byte TRUE_VALUE = ( byte ) 0xFF;
 
@@ -135,6 +148,8 @@ public class BerValue
     {
         data = new byte[size];
         currentPos = 0;
+        offset = 0;
+        slice = false;
     }
 
 
@@ -145,6 +160,69 @@ public class BerValue
     {
         data = null;
         currentPos = 0;
+        offset = 0;
+        slice = false;
+    }
+
+
+    /**
+     * Makes the Value a view over a part of a byte[], without copying it. This
+     * is used by the decoder when the whole value is available in the buffer
+     * being decoded : the slice is only valid until the decoder moves to the
+     * next TLV, so any consumer which needs to keep the bytes must call
+     * {@link #getData()}, which will then create a private copy.
+     *
+     * @param array The byte[] containing the value
+     * @param offset The position of the value's first byte in the array
+     * @param length The value's length
+     */
+    public void setSlice( byte[] array, int offset, int length )
+    {
+        data = array;
+        this.offset = offset;
+        currentPos = length;
+        slice = true;
+    }
+
+
+    /**
+     * Makes the Value a slice over the next <code>length</code> bytes of a buffer which
+     * does not expose its backing array, like a direct buffer. The bytes are read once
+     * into a scratch array owned by this Value and reused from one value to the next, so
+     * that decoding a value does not allocate anything. Values bigger than
+     * {@link #MAX_SCRATCH_SIZE} are read into their own byte[], as they would be kept
+     * anyway. The buffer position is moved after the value.
+     *
+     * @param buffer The buffer containing the value at its current position
+     * @param length The value's length
+     */
+    public void setSlice( ByteBuffer buffer, int length )
+    {
+        if ( length > MAX_SCRATCH_SIZE )
+        {
+            init( length );
+            buffer.get( data, 0, length );
+            currentPos = length;
+
+            return;
+        }
+
+        if ( ( scratch == null ) || ( scratch.length < length ) )
+        {
+            scratch = new byte[Math.max( length, 64 )];
+        }
+
+        buffer.get( scratch, 0, length );
+        setSlice( scratch, 0, length );
+    }
+
+
+    /**
+     * @return <code>true</code> if the Value is a slice over the decoded PDU
+     */
+    public boolean isSlice()
+    {
+        return slice;
     }
 
 
@@ -155,10 +233,62 @@ public class BerValue
      */
     public byte[] getData()
     {
+        if ( slice )
+        {
+            // Materialize the slice, the caller may keep a reference on it
+            byte[] copy = new byte[currentPos];
+            System.arraycopy( data, offset, copy, 0, currentPos );
+            data = copy;
+            offset = 0;
+            slice = false;
+        }
+
         return data;
     }
 
 
+    /**
+     * @return The length of the value, 0 if there is no value
+     */
+    public int getLength()
+    {
+        if ( slice )
+        {
+            return currentPos;
+        }
+
+        return data == null ? 0 : data.length;
+    }
+
+
+    /**
+     * Get one of the value's bytes, without copying the value.
+     *
+     * @param index The position of the byte in the value
+     * @return The byte at the given position
+     */
+    public byte getByte( int index )
+    {
+        return data[offset + index];
+    }
+
+
+    /**
+     * Get the value as a UTF-8 String, without copying the value first.
+     *
+     * @return The decoded String, or an empty String if there is no value
+     */
+    public String getUtf8String()
+    {
+        if ( slice )
+        {
+            return Strings.utf8ToString( data, offset, currentPos );
+        }
+
+        return Strings.utf8ToString( data );
+    }
+
+
     /**
      * Set a block of bytes in the Value
      *
@@ -185,6 +315,19 @@ public class BerValue
     }
 
 
+    /**
+     * Append some bytes from a buffer to the data buffer.
+     *
+     * @param buffer The buffer containing the data to append.
+     * @param length The number of bytes to read from the buffer
+     */
+    public void addData( ByteBuffer buffer, int length )
+    {
+        buffer.get( data, currentPos, length );
+        currentPos += length;
+    }
+
+
     /**
      * Set a block of bytes in the Value
      *
@@ -205,7 +348,7 @@ public class BerValue
     public void addData( byte[] array )
     {
         System.arraycopy( array, 0, this.data, currentPos, array.length );
-        currentPos = array.length;
+        currentPos += array.length;
     }
 
 
@@ -1247,7 +1390,15 @@ public class BerValue
         if ( data != null )
         {
             sb.append( '[' );
-            sb.append( Asn1StringUtils.dumpBytes( data ) );
+            if ( slice )
+            {
+                sb.append( Asn1StringUtils.dumpBytes( Arrays.copyOfRange( data, offset, offset + currentPos ) ) );
+            }
+            else
+            {
+                sb.append( Asn1StringUtils.dumpBytes( data ) );
+            }
+
             sb.append( ']' );
         }
         else
@@ -175,6 +175,21 @@ public class TLV
     }
 
 
+    /**
+     * Reset the TLV so that it can be reused by the decoder for a new tag,
+     * giving it a new identifier. The parent and the value are cleared too.
+     *
+     * @param id the TLV's new id
+     */
+    public void recycle( int id )
+    {
+        reset();
+        this.id = id;
+        parent = null;
+        lengthBytesRead = 0;
+    }
+
+
     /**
      * @return Returns the tag.
      */
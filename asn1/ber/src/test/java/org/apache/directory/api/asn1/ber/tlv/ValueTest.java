@@ -21,6 +21,7 @@ package org.apache.directory.api.asn1.ber.tlv;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -787,5 +788,90 @@ public class ValueTest
         
         assertEquals( "0x03 0x03 0x06 0x00 0x40 ", Asn1StringUtils.dumpBytes( buffer.array() )  );
     }
-}
 
+    /**
+     * Test that a sliced value reads the underlying buffer without copying it,
+     * and that getData() returns a private copy
+     */
+    @Test
+    public void testSlice() throws Exception
+    {
+        byte[] pdu = new byte[]
+            { 0x04, 0x03, 'a', 'b', 'c', 0x02, 0x02, 0x01, 0x00 };
+
+        BerValue value = new BerValue();
+        value.setSlice( pdu, 2, 3 );
+
+        assertTrue( value.isSlice() );
+        assertEquals( 3, value.getLength() );
+        assertEquals( 'b', value.getByte( 1 ) );
+        assertEquals( "abc", value.getUtf8String() );
+
+        byte[] data = value.getData();
+
+        assertFalse( value.isSlice() );
+        assertEquals( 3, data.length );
+        pdu[2] = 'z';
+        assertEquals( "abc", value.getUtf8String() );
+
+        value.setSlice( pdu, 7, 2 );
+        assertEquals( 256, IntegerDecoder.parse( value ) );
+
+        value.reset();
+        assertEquals( 0, value.getLength() );
+    }
+
+
+    /**
+     * Test that a value read from a direct buffer is sliced over the reused scratch array
+     */
+    @Test
+    public void testSliceDirectBuffer() throws Exception
+    {
+        ByteBuffer pdu = ByteBuffer.allocateDirect( 9 );
+        pdu.put( new byte[]
+            { 0x04, 0x03, 'a', 'b', 'c', 0x02, 0x02, 0x01, 0x00 } );
+        pdu.position( 2 );
+
+        BerValue value = new BerValue();
+        value.setSlice( pdu, 3 );
+
+        assertTrue( value.isSlice() );
+        assertEquals( 5, pdu.position() );
+        assertEquals( "abc", value.getUtf8String() );
+
+        byte[] data = value.getData();
+
+        assertFalse( value.isSlice() );
+        assertEquals( 3, data.length );
+
+        pdu.position( 7 );
+        value.setSlice( pdu, 2 );
+        assertEquals( 256, IntegerDecoder.parse( value ) );
+
+        // A big value gets its own array
+        ByteBuffer big = ByteBuffer.allocateDirect( BerValue.MAX_SCRATCH_SIZE + 1 );
+        value.setSlice( big, big.remaining() );
+
+        assertFalse( value.isSlice() );
+        assertEquals( BerValue.MAX_SCRATCH_SIZE + 1, value.getData().length );
+        assertEquals( 0, big.remaining() );
+    }
+
+
+    /**
+     * Test that a value can be gathered in more than two chunks
+     */
+    @Test
+    public void testAddData()
+    {
+        BerValue value = new BerValue();
+        value.init( 6 );
+        value.addData( new byte[] { 'a', 'b' } );
+        value.addData( new byte[] { 'c', 'd' } );
+        value.addData( ByteBuffer.wrap( new byte[] { 'e', 'f', 'g' } ), 2 );
+
+        assertEquals( 6, value.getCurrentLength() );
+        assertEquals( "abcdef", value.getUtf8String() );
+    }
+}
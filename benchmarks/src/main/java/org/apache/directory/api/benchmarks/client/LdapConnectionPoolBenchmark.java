@@ -0,0 +1,134 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.api.benchmarks.client;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.ldap.client.api.DefaultPoolableLdapConnectionFactory;
+import org.apache.directory.ldap.client.api.LdapConcurrentConnectionPool;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.LdapConnectionPool;
+import org.apache.directory.ldap.client.api.ValidatingPoolableLdapConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures a borrow and release cycle on the commons-pool based LdapConnectionPool,
+ * with both poolable factories, and on the LdapConcurrentConnectionPool. The 
+ * connections are stubs, only the pool overhead is measured.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@Threads( 64 )
+@State( Scope.Benchmark )
+public class LdapConnectionPoolBenchmark
+{
+    /** The pool implementation */
+    @Param( { "default", "validating", "concurrent" } )
+    private String pool;
+
+    /** The number of pooled connections */
+    @Param( { "8", "64" } )
+    private int poolSize;
+
+    private LdapConnectionPool commonsPool;
+
+    private LdapConcurrentConnectionPool concurrentPool;
+
+
+    @Setup
+    public void setup()
+    {
+        StubLdapConnectionFactory factory = new StubLdapConnectionFactory();
+        GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+        poolConfig.setMaxTotal( poolSize );
+        poolConfig.setMaxIdle( poolSize );
+
+        switch ( pool )
+        {
+            case "default":
+                commonsPool = new LdapConnectionPool( new DefaultPoolableLdapConnectionFactory( factory ), poolConfig );
+                break;
+
+            case "validating":
+                commonsPool = new LdapConnectionPool( new ValidatingPoolableLdapConnectionFactory( factory ), poolConfig );
+                break;
+
+            default:
+                concurrentPool = new LdapConcurrentConnectionPool( factory, poolSize, -1L );
+                break;
+        }
+    }
+
+
+    @TearDown
+    public void tearDown()
+    {
+        if ( commonsPool != null )
+        {
+            commonsPool.close();
+        }
+
+        if ( concurrentPool != null )
+        {
+            concurrentPool.close();
+        }
+    }
+
+
+    @Benchmark
+    public LdapConnection borrowAndRelease() throws LdapException
+    {
+        LdapConnection connection;
+
+        if ( commonsPool != null )
+        {
+            connection = commonsPool.getConnection();
+            commonsPool.releaseConnection( connection );
+        }
+        else
+        {
+            connection = concurrentPool.getConnection();
+            concurrentPool.releaseConnection( connection );
+        }
+
+        return connection;
+    }
+}
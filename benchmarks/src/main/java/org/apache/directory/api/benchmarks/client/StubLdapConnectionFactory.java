@@ -0,0 +1,108 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.api.benchmarks.client;
+
+
+import java.lang.reflect.Proxy;
+
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.LdapConnectionFactory;
+
+
+/**
+ * A factory creating connected and authenticated connections that never talk to
+ * a server, so that the pool overhead can be measured alone.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class StubLdapConnectionFactory implements LdapConnectionFactory
+{
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapConnection bindConnection( LdapConnection connection )
+    {
+        return connection;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapConnection configureConnection( LdapConnection connection )
+    {
+        return connection;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapApiService getLdapApiService()
+    {
+        return null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapConnection newLdapConnection()
+    {
+        return newUnboundLdapConnection();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapConnection newUnboundLdapConnection()
+    {
+        return ( LdapConnection ) Proxy.newProxyInstance( LdapConnection.class.getClassLoader(), 
+            new Class<?>[] { LdapConnection.class }, 
+            ( proxy, method, args ) -> 
+            {
+                switch ( method.getName() )
+                {
+                    case "isConnected":
+                    case "isAuthenticated":
+                        return true;
+
+                    case "equals":
+                        return proxy == args[0];
+
+                    case "hashCode":
+                        return System.identityHashCode( proxy );
+
+                    case "toString":
+                        return "StubLdapConnection";
+
+                    default:
+                        return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                }
+            } );
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.codec;
+
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.FastResponseDecoder;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
+import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Compares the generic LDAP grammar with the {@link FastResponseDecoder}, on the
+ * responses the latter handles. Both decode a complete PDU, as the LdapProtocolDecoder
+ * does once the PDU has been framed :
+ * <pre>
+ * java -jar target/benchmarks.jar FastResponseDecoderBenchmark -prof gc
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class FastResponseDecoderBenchmark
+{
+    /** The response to decode */
+    @Param( { "bindResponse", "searchResultEntry", "searchResultDone" } )
+    private String message;
+
+    /** The decoder : the generic grammar, or the FastResponseDecoder */
+    @Param( { "grammar", "fast" } )
+    private String decoder;
+
+    private LdapMessageContainer<Message> container;
+
+    private boolean fast;
+
+    private byte[] pdu;
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        LdapApiService codec = LdapApiServiceFactory.getSingleton();
+        container = new LdapMessageContainer<>( codec );
+        fast = "fast".equals( decoder );
+
+        Message toEncode;
+
+        switch ( message )
+        {
+            case "bindResponse":
+                BindResponseImpl bindResponse = new BindResponseImpl( 1 );
+                bindResponse.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+                toEncode = bindResponse;
+                break;
+
+            case "searchResultEntry":
+                SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl( 2 );
+                searchResultEntry.setEntry( new DefaultEntry( "uid=jdoe,ou=people,dc=example,dc=com",
+                    "objectClass: top",
+                    "objectClass: person",
+                    "objectClass: organizationalPerson",
+                    "objectClass: inetOrgPerson",
+                    "cn: John Doe",
+                    "sn: Doe",
+                    "givenName: John",
+                    "uid: jdoe",
+                    "mail: john.doe@example.com",
+                    "telephoneNumber: +1 555 0100",
+                    "description: A person entry of a typical size, used to measure the decoder" ) );
+                toEncode = searchResultEntry;
+                break;
+
+            default:
+                SearchResultDoneImpl searchResultDone = new SearchResultDoneImpl( 2 );
+                searchResultDone.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+                toEncode = searchResultDone;
+                break;
+        }
+
+        Asn1Buffer buffer = new Asn1Buffer();
+        LdapEncoder.encodeMessage( buffer, codec, toEncode );
+        pdu = buffer.getBytes().array();
+    }
+
+
+    @Benchmark
+    public Message decode() throws Exception
+    {
+        ByteBuffer buffer = ByteBuffer.wrap( pdu );
+
+        if ( fast )
+        {
+            return FastResponseDecoder.decode( buffer, container );
+        }
+
+        Asn1Decoder.decode( buffer, container );
+
+        Message decoded = container.getMessage();
+        container.clean();
+
+        return decoded;
+    }
+}
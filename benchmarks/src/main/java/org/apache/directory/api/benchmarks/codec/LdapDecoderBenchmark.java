@@ -0,0 +1,165 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.codec;
+
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
+import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.AliasDerefMode;
+import org.apache.directory.api.ldap.model.message.BindRequestImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the allocations done to decode some representative LDAP PDUs, with and
+ * without the container's recycling mode (TLVs reused from one tag to the other,
+ * values read as slices of the decoded buffer), from a heap or a direct buffer. Run
+ * it with the GC profiler :
+ * <pre>
+ * java -jar target/benchmarks.jar LdapDecoderBenchmark -prof gc
+ * </pre>
+ * and look at the <em>gc.alloc.rate.norm</em> lines.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class LdapDecoderBenchmark
+{
+    /** The message to decode */
+    @Param( { "bindRequest", "searchRequest", "searchResultEntry", "searchResultDone" } )
+    private String message;
+
+    /** Whether the container recycles its TLVs */
+    @Param( { "false", "true" } )
+    private boolean recycling;
+
+    /** Whether the PDU is read from a direct buffer */
+    @Param( { "false", "true" } )
+    private boolean direct;
+
+    private LdapMessageContainer<Message> container;
+
+    private ByteBuffer pdu;
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        LdapApiService codec = LdapApiServiceFactory.getSingleton();
+        container = new LdapMessageContainer<>( codec );
+        container.setRecycling( recycling );
+
+        Message toEncode;
+
+        switch ( message )
+        {
+            case "bindRequest":
+                BindRequestImpl bindRequest = new BindRequestImpl();
+                bindRequest.setName( "uid=admin,ou=system" );
+                bindRequest.setCredentials( "secret" );
+                toEncode = bindRequest;
+                break;
+
+            case "searchRequest":
+                SearchRequestImpl searchRequest = new SearchRequestImpl();
+                searchRequest.setBase( new Dn( "ou=people,dc=example,dc=com" ) );
+                searchRequest.setFilter( "(&(objectClass=person)(|(cn=john*)(mail=*@example.com)))" );
+                searchRequest.setScope( SearchScope.SUBTREE );
+                searchRequest.setDerefAliases( AliasDerefMode.NEVER_DEREF_ALIASES );
+                searchRequest.addAttributes( "cn", "sn", "mail" );
+                toEncode = searchRequest;
+                break;
+
+            case "searchResultEntry":
+                SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl();
+                searchResultEntry.setEntry( new DefaultEntry( "uid=jdoe,ou=people,dc=example,dc=com",
+                    "objectClass: top",
+                    "objectClass: person",
+                    "objectClass: organizationalPerson",
+                    "objectClass: inetOrgPerson",
+                    "cn: John Doe",
+                    "sn: Doe",
+                    "givenName: John",
+                    "uid: jdoe",
+                    "mail: john.doe@example.com",
+                    "telephoneNumber: +1 555 0100",
+                    "description: A person entry of a typical size, used to measure the decoder" ) );
+                toEncode = searchResultEntry;
+                break;
+
+            default:
+                SearchResultDoneImpl searchResultDone = new SearchResultDoneImpl();
+                searchResultDone.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+                toEncode = searchResultDone;
+                break;
+        }
+
+        toEncode.setMessageId( 1 );
+
+        Asn1Buffer buffer = new Asn1Buffer();
+        LdapEncoder.encodeMessage( buffer, codec, toEncode );
+        ByteBuffer bytes = buffer.getBytes();
+        pdu = direct ? ByteBuffer.allocateDirect( bytes.remaining() ) : ByteBuffer.allocate( bytes.remaining() );
+        pdu.put( bytes );
+        pdu.flip();
+    }
+
+
+    @Benchmark
+    public Message decode() throws Exception
+    {
+        Asn1Decoder.decode( pdu.duplicate(), container );
+
+        Message decoded = container.getMessage();
+        container.clean();
+
+        return decoded;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.codec;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
+import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.protocol.mina.LdapProtocolEncoder;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+import org.apache.directory.api.ldap.model.message.AliasDerefMode;
+import org.apache.directory.api.ldap.model.message.BindRequestImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.filter.codec.ProtocolEncoderOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Compares the allocations done to encode a message, between the path the LdapProtocolEncoder
+ * used to follow (LdapEncoder.encodeMessage, then a copy of the PDU into a new heap ByteBuffer
+ * wrapped in an IoBuffer) and the current one (the PDU is copied once from the Asn1Buffer into
+ * an IoBuffer coming from MINA's allocator). Run it with the GC profiler to get the allocation
+ * rate per message :
+ * <pre>
+ * java -jar target/benchmarks.jar LdapEncoderBenchmark -prof gc
+ * </pre>
+ * and look at the <em>gc.alloc.rate.norm</em> lines.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class LdapEncoderBenchmark
+{
+    /** The message to encode */
+    @Param( { "bindRequest", "searchRequest", "searchResultEntry", "largeAddRequest" } )
+    private String message;
+
+    /** Whether MINA allocates direct buffers */
+    @Param( { "false", "true" } )
+    private boolean direct;
+
+    private LdapApiService codec;
+
+    private Message toEncode;
+
+    private Asn1Buffer asn1Buffer;
+
+    private LdapProtocolEncoder encoder;
+
+    private CapturingOutput output;
+
+
+    /**
+     * A ProtocolEncoderOutput keeping the last written buffer
+     */
+    private static final class CapturingOutput implements ProtocolEncoderOutput
+    {
+        private Object written;
+
+
+        @Override
+        public void write( Object encodedMessage )
+        {
+            written = encodedMessage;
+        }
+
+
+        @Override
+        public void mergeAll()
+        {
+            // Nothing to do
+        }
+
+
+        @Override
+        public WriteFuture flush()
+        {
+            return null;
+        }
+    }
+
+
+    private static Entry personEntry( String dn ) throws Exception
+    {
+        return new DefaultEntry( dn,
+            "objectClass: top",
+            "objectClass: person",
+            "objectClass: organizationalPerson",
+            "objectClass: inetOrgPerson",
+            "cn: John Doe",
+            "sn: Doe",
+            "givenName: John",
+            "uid: jdoe",
+            "mail: john.doe@example.com",
+            "telephoneNumber: +1 555 0100",
+            "description: A person entry of a typical size, used to measure the encoder" );
+    }
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        IoBuffer.setUseDirectBuffer( direct );
+        codec = LdapApiServiceFactory.getSingleton();
+        asn1Buffer = new Asn1Buffer();
+        encoder = new LdapProtocolEncoder( codec );
+        output = new CapturingOutput();
+
+        switch ( message )
+        {
+            case "bindRequest":
+                BindRequestImpl bindRequest = new BindRequestImpl();
+                bindRequest.setName( "uid=admin,ou=system" );
+                bindRequest.setCredentials( "secret" );
+                toEncode = bindRequest;
+                break;
+
+            case "searchRequest":
+                SearchRequestImpl searchRequest = new SearchRequestImpl();
+                searchRequest.setBase( new Dn( "ou=people,dc=example,dc=com" ) );
+                searchRequest.setFilter( "(&(objectClass=person)(|(cn=john*)(mail=*@example.com)))" );
+                searchRequest.setScope( SearchScope.SUBTREE );
+                searchRequest.setDerefAliases( AliasDerefMode.NEVER_DEREF_ALIASES );
+                searchRequest.addAttributes( "cn", "sn", "mail" );
+                toEncode = searchRequest;
+                break;
+
+            case "searchResultEntry":
+                SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl();
+                searchResultEntry.setEntry( personEntry( "uid=jdoe,ou=people,dc=example,dc=com" ) );
+                toEncode = searchResultEntry;
+                break;
+
+            default:
+                // An entry carrying a 256 KB photo
+                Entry entry = personEntry( "uid=jdoe,ou=people,dc=example,dc=com" );
+                entry.add( "jpegPhoto", new byte[256 * 1024] );
+                toEncode = new AddRequestImpl().setEntry( entry );
+                break;
+        }
+
+        toEncode.setMessageId( 1 );
+    }
+
+
+    /**
+     * The path the encoder used to follow
+     */
+    @Benchmark
+    public IoBuffer encodeMessage() throws Exception
+    {
+        try
+        {
+            LdapEncoder.encodeMessage( asn1Buffer, codec, toEncode );
+
+            return IoBuffer.wrap( asn1Buffer.getBytes() );
+        }
+        finally
+        {
+            asn1Buffer.clear();
+        }
+    }
+
+
+    /**
+     * The path the encoder currently follows
+     */
+    @Benchmark
+    public Object protocolEncoder() throws Exception
+    {
+        encoder.encode( null, toEncode, output );
+
+        return output.written;
+    }
+}
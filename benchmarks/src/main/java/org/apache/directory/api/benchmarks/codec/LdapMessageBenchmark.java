@@ -0,0 +1,292 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.codec;
+
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
+import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.AbandonRequestImpl;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+import org.apache.directory.api.ldap.model.message.AddResponseImpl;
+import org.apache.directory.api.ldap.model.message.AliasDerefMode;
+import org.apache.directory.api.ldap.model.message.BindRequestImpl;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.CompareRequestImpl;
+import org.apache.directory.api.ldap.model.message.CompareResponseImpl;
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.DeleteResponseImpl;
+import org.apache.directory.api.ldap.model.message.IntermediateResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ModifyDnRequestImpl;
+import org.apache.directory.api.ldap.model.message.ModifyDnResponseImpl;
+import org.apache.directory.api.ldap.model.message.ModifyRequestImpl;
+import org.apache.directory.api.ldap.model.message.ModifyResponseImpl;
+import org.apache.directory.api.ldap.model.message.OpaqueExtendedRequest;
+import org.apache.directory.api.ldap.model.message.OpaqueExtendedResponse;
+import org.apache.directory.api.ldap.model.message.ReferralImpl;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultReferenceImpl;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.message.UnbindRequestImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.api.util.Strings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the encoding (LdapEncoder.encodeMessage) and the decoding (Asn1Decoder.decode,
+ * through the LDAP grammar) of every LDAP message type, each one carrying typical values :
+ * <pre>
+ * java -jar target/benchmarks.jar LdapMessageBenchmark
+ * java -jar target/benchmarks.jar LdapMessageBenchmark -p message=searchResultEntry,searchRequest
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class LdapMessageBenchmark
+{
+    /** An OID no extended operation nor intermediate response factory is registered for */
+    private static final String OPAQUE_OID = "1.3.6.1.4.1.18060.0.9.9";
+
+    /** The message to encode and decode */
+    @Param( {
+        "abandonRequest", "addRequest", "addResponse", "bindRequest", "bindResponse",
+        "compareRequest", "compareResponse", "delRequest", "delResponse", "extendedRequest",
+        "extendedResponse", "intermediateResponse", "modifyRequest", "modifyResponse",
+        "modifyDnRequest", "modifyDnResponse", "searchRequest", "searchResultDone",
+        "searchResultEntry", "searchResultReference", "unbindRequest" } )
+    private String message;
+
+    private LdapApiService codec;
+
+    private LdapMessageContainer<Message> container;
+
+    private Message toEncode;
+
+    private Asn1Buffer buffer;
+
+    private byte[] pdu;
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        codec = LdapApiServiceFactory.getSingleton();
+        container = new LdapMessageContainer<>( codec );
+        buffer = new Asn1Buffer();
+        toEncode = createMessage( message );
+        toEncode.setMessageId( 1 );
+
+        LdapEncoder.encodeMessage( buffer, codec, toEncode );
+        pdu = buffer.getBytes().array();
+    }
+
+
+    private static Message createMessage( String type ) throws Exception
+    {
+        Dn dn = new Dn( "uid=jdoe,ou=people,dc=example,dc=com" );
+
+        switch ( type )
+        {
+            case "abandonRequest":
+                return new AbandonRequestImpl( 12 );
+
+            case "addRequest":
+                AddRequestImpl addRequest = new AddRequestImpl();
+                addRequest.setEntry( new DefaultEntry( dn,
+                    "objectClass: top",
+                    "objectClass: person",
+                    "objectClass: inetOrgPerson",
+                    "cn: John Doe",
+                    "sn: Doe",
+                    "uid: jdoe",
+                    "mail: john.doe@example.com" ) );
+                return addRequest;
+
+            case "addResponse":
+                return withResult( new AddResponseImpl() );
+
+            case "bindRequest":
+                BindRequestImpl bindRequest = new BindRequestImpl();
+                bindRequest.setName( "uid=admin,ou=system" );
+                bindRequest.setCredentials( "secret" );
+                return bindRequest;
+
+            case "bindResponse":
+                return withResult( new BindResponseImpl() );
+
+            case "compareRequest":
+                CompareRequestImpl compareRequest = new CompareRequestImpl();
+                compareRequest.setName( dn );
+                compareRequest.setAttributeId( "mail" );
+                compareRequest.setAssertionValue( "john.doe@example.com" );
+                return compareRequest;
+
+            case "compareResponse":
+                CompareResponseImpl compareResponse = new CompareResponseImpl();
+                compareResponse.getLdapResult().setResultCode( ResultCodeEnum.COMPARE_TRUE );
+                return compareResponse;
+
+            case "delRequest":
+                DeleteRequestImpl deleteRequest = new DeleteRequestImpl();
+                deleteRequest.setName( dn );
+                return deleteRequest;
+
+            case "delResponse":
+                return withResult( new DeleteResponseImpl() );
+
+            // The extended operations and the intermediate response use an OID no factory
+            // is registered for, so that their value is processed as an opaque byte[]
+            case "extendedRequest":
+                return new OpaqueExtendedRequest( OPAQUE_OID, Strings.getBytesUtf8( "request" ) );
+
+            case "extendedResponse":
+                OpaqueExtendedResponse extendedResponse = new OpaqueExtendedResponse( OPAQUE_OID );
+                extendedResponse.setResponseValue( Strings.getBytesUtf8( "response" ) );
+                return withResult( extendedResponse );
+
+            case "intermediateResponse":
+                IntermediateResponseImpl intermediateResponse = new IntermediateResponseImpl( OPAQUE_OID );
+                intermediateResponse.setResponseValue( Strings.getBytesUtf8( "intermediate" ) );
+                return intermediateResponse;
+
+            case "modifyRequest":
+                ModifyRequestImpl modifyRequest = new ModifyRequestImpl();
+                modifyRequest.setName( dn );
+                modifyRequest.replace( "mail", "jdoe@example.com" );
+                modifyRequest.add( "description", "A new description" );
+                modifyRequest.remove( "telephoneNumber" );
+                return modifyRequest;
+
+            case "modifyResponse":
+                return withResult( new ModifyResponseImpl() );
+
+            case "modifyDnRequest":
+                ModifyDnRequestImpl modifyDnRequest = new ModifyDnRequestImpl();
+                modifyDnRequest.setName( dn );
+                modifyDnRequest.setNewRdn( new Rdn( "uid=john.doe" ) );
+                modifyDnRequest.setDeleteOldRdn( true );
+                modifyDnRequest.setNewSuperior( new Dn( "ou=users,dc=example,dc=com" ) );
+                return modifyDnRequest;
+
+            case "modifyDnResponse":
+                return withResult( new ModifyDnResponseImpl() );
+
+            case "searchRequest":
+                SearchRequestImpl searchRequest = new SearchRequestImpl();
+                searchRequest.setBase( new Dn( "ou=people,dc=example,dc=com" ) );
+                searchRequest.setFilter( "(&(objectClass=person)(|(cn=john*)(mail=*@example.com)))" );
+                searchRequest.setScope( SearchScope.SUBTREE );
+                searchRequest.setDerefAliases( AliasDerefMode.NEVER_DEREF_ALIASES );
+                searchRequest.addAttributes( "cn", "sn", "mail" );
+                return searchRequest;
+
+            case "searchResultDone":
+                return withResult( new SearchResultDoneImpl() );
+
+            case "searchResultEntry":
+                SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl();
+                searchResultEntry.setEntry( new DefaultEntry( dn,
+                    "objectClass: top",
+                    "objectClass: person",
+                    "objectClass: organizationalPerson",
+                    "objectClass: inetOrgPerson",
+                    "cn: John Doe",
+                    "sn: Doe",
+                    "givenName: John",
+                    "uid: jdoe",
+                    "mail: john.doe@example.com",
+                    "telephoneNumber: +1 555 0100" ) );
+                return searchResultEntry;
+
+            case "searchResultReference":
+                SearchResultReferenceImpl searchResultReference = new SearchResultReferenceImpl();
+                ReferralImpl referral = new ReferralImpl();
+                referral.addLdapUrl( "ldap://replica1.example.com/ou=people,dc=example,dc=com" );
+                referral.addLdapUrl( "ldap://replica2.example.com/ou=people,dc=example,dc=com" );
+                searchResultReference.setReferral( referral );
+                return searchResultReference;
+
+            case "unbindRequest":
+                return new UnbindRequestImpl();
+
+            default:
+                throw new IllegalArgumentException( type );
+        }
+    }
+
+
+    private static Message withResult( ResultResponse response )
+    {
+        response.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+
+        return response;
+    }
+
+
+    @Benchmark
+    public ByteBuffer encode() throws Exception
+    {
+        buffer.clear();
+
+        return LdapEncoder.encodeMessage( buffer, codec, toEncode );
+    }
+
+
+    @Benchmark
+    public Message decode() throws Exception
+    {
+        Asn1Decoder.decode( ByteBuffer.wrap( pdu ), container );
+
+        Message decoded = container.getMessage();
+        container.clean();
+
+        return decoded;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.model;
+
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the ancestry checks on deep trees, as done when scoping a subtree search
+ * or evaluating an ACL. The entry Dn is checked against its parent's Dn and against
+ * the Dn of its parent's sibling, both parsed separately. The rdnByRdn benchmarks
+ * compare the RDNs one by one, as Dn.isDescendantOf() did before using the suffixes
+ * hashes :
+ * <pre>
+ * java -jar target/benchmarks.jar DnAncestryBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class DnAncestryBenchmark
+{
+    /** The number of RDNs of the entry Dn */
+    @Param( { "4", "10", "20" } )
+    private int depth;
+
+    private Dn entry;
+
+    private Dn parent;
+
+    private Dn sibling;
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        SchemaManager schemaManager = new DefaultSchemaManager();
+        StringBuilder suffix = new StringBuilder( "dc=example,dc=com" );
+
+        for ( int i = 0; i < depth - 4; i++ )
+        {
+            suffix.insert( 0, "ou=level" + i + "," );
+        }
+
+        entry = new Dn( schemaManager, "uid=jdoe,ou=people," + suffix );
+        parent = new Dn( schemaManager, "ou=people," + suffix );
+        sibling = new Dn( schemaManager, "ou=groups," + suffix );
+    }
+
+
+    /**
+     * The former implementation of Dn.isDescendantOf()
+     */
+    private static boolean isDescendantOf( Dn dn, Dn ancestor )
+    {
+        if ( ancestor.size() > dn.size() )
+        {
+            return false;
+        }
+
+        List<Rdn> rdns = dn.getRdns();
+        List<Rdn> ancestorRdns = ancestor.getRdns();
+
+        for ( int i = ancestor.size() - 1; i >= 0; i-- )
+        {
+            Rdn nameRdn = ancestorRdns.get( ancestorRdns.size() - i - 1 );
+            Rdn ldapRdn = rdns.get( rdns.size() - i - 1 );
+
+            if ( !nameRdn.equals( ldapRdn ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    @Benchmark
+    public boolean descendant()
+    {
+        return entry.isDescendantOf( parent );
+    }
+
+
+    @Benchmark
+    public boolean notDescendant()
+    {
+        return entry.isDescendantOf( sibling );
+    }
+
+
+    @Benchmark
+    public boolean descendantRdnByRdn()
+    {
+        return isDescendantOf( entry, parent );
+    }
+
+
+    @Benchmark
+    public boolean notDescendantRdnByRdn()
+    {
+        return isDescendantOf( entry, sibling );
+    }
+}
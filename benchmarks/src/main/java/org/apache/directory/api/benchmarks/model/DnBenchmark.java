@@ -0,0 +1,114 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.model;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the Dn parsing, with and without a SchemaManager (in which case the
+ * Dn is also normalized), and the parent Dn computation :
+ * <pre>
+ * java -jar target/benchmarks.jar DnBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class DnBenchmark
+{
+    /** The Dn to parse */
+    @Param( {
+        "dc=example,dc=com",
+        "uid=jdoe,ou=people,dc=example,dc=com",
+        "cn=John Doe+mail=jdoe@example.com,ou=people,dc=example,dc=com",
+        "cn=Doe\\, John,ou=people,dc=example,dc=com",
+        "2.5.4.3=#4A6F686E20446F65,OU=People,DC=example,DC=com" } )
+    private String dn;
+
+    /** Whether the Dn is schema aware */
+    @Param( { "false", "true" } )
+    private boolean schemaAware;
+
+    private SchemaManager schemaManager;
+
+    private Dn parsed;
+
+
+    @Setup
+    public void setup()
+    {
+        if ( schemaAware )
+        {
+            schemaManager = new DefaultSchemaManager();
+        }
+
+        try
+        {
+            parsed = new Dn( schemaManager, dn );
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+
+    @Benchmark
+    public Dn parse() throws Exception
+    {
+        return new Dn( schemaManager, dn );
+    }
+
+
+    @Benchmark
+    public Dn parent()
+    {
+        return parsed.getParent();
+    }
+
+
+    @Benchmark
+    public String parentName()
+    {
+        return parsed.getParent().getNormName();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.model;
+
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.DnCache;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures a member expansion workload : the members of many groups are parsed as
+ * schema aware Dns, and the same people belong to many groups. The results are
+ * given per Dn, with and without a DnCache attached to the SchemaManager :
+ * <pre>
+ * java -jar target/benchmarks.jar DnCacheBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class DnCacheBenchmark
+{
+    /** The number of member values read */
+    private static final int MEMBERS = 10000;
+
+    /** The number of distinct people */
+    @Param( { "1000", "50000" } )
+    private int people;
+
+    /** The cache size, 0 for no cache */
+    @Param( { "0", "10000" } )
+    private int cacheSize;
+
+    private SchemaManager schemaManager;
+
+    private String[] members;
+
+
+    @Setup
+    public void setup()
+    {
+        schemaManager = new DefaultSchemaManager();
+
+        if ( cacheSize > 0 )
+        {
+            schemaManager.setDnCache( new DnCache( cacheSize ) );
+        }
+
+        // Some people are members of many more groups than others
+        Random random = new Random( 1 );
+        members = new String[MEMBERS];
+
+        for ( int i = 0; i < MEMBERS; i++ )
+        {
+            int person = ( int ) ( people * Math.pow( random.nextDouble(), 3 ) );
+            members[i] = "uid=user" + person + ",ou=People,dc=example,dc=com";
+        }
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation( MEMBERS )
+    public int expandMembers() throws Exception
+    {
+        int size = 0;
+
+        for ( String member : members )
+        {
+            size += new Dn( schemaManager, member ).size();
+        }
+
+        return size;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.model;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.filter.FilterEvaluator;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the evaluation of compiled filters against schema aware entries, as done
+ * when post-filtering cached entries or grepping a LDIF file. The filter is written
+ * with its most expensive assertion first, the evaluator is expected to run it last :
+ * <pre>
+ * java -jar target/benchmarks.jar FilterEvaluatorBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class FilterEvaluatorBenchmark
+{
+    /** The evaluated filter */
+    @Param(
+        {
+            "(cn=john doe)",
+            "(&(cn=*ohn*)(objectClass=person)(sn=smith))",
+            "(|(mail=*@example.org)(uid=jdoe))",
+            "(&(objectClass=inetOrgPerson)(!(employeeNumber=*)))"
+        } )
+    private String filter;
+
+    private FilterEvaluator evaluator;
+
+    private Entry entry;
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        SchemaManager schemaManager = new DefaultSchemaManager();
+
+        entry = new DefaultEntry( schemaManager, "uid=jdoe,ou=people,dc=example,dc=com",
+            "objectClass: top",
+            "objectClass: person",
+            "objectClass: organizationalPerson",
+            "objectClass: inetOrgPerson",
+            "uid: jdoe",
+            "cn: John Doe",
+            "sn: Doe",
+            "givenName: John",
+            "mail: jdoe@example.com",
+            "telephoneNumber: +1 408 555 1212",
+            "description: A test entry" );
+
+        evaluator = FilterEvaluator.compile( schemaManager, filter );
+    }
+
+
+    @Benchmark
+    public boolean evaluate()
+    {
+        return evaluator.evaluate( entry );
+    }
+}
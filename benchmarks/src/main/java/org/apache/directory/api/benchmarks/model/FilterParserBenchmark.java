@@ -0,0 +1,88 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.model;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.filter.ExprNode;
+import org.apache.directory.api.ldap.model.filter.FilterParser;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the FilterParser, with and without a SchemaManager :
+ * <pre>
+ * java -jar target/benchmarks.jar FilterParserBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class FilterParserBenchmark
+{
+    /** The filter to parse */
+    @Param( {
+        "(objectClass=*)",
+        "(uid=jdoe)",
+        "(&(objectClass=person)(|(cn=john*)(mail=*@example.com)))",
+        "(&(objectClass=inetOrgPerson)(!(cn=*doe*))(|(createTimestamp>=20190101000000Z)(createTimestamp<=20200101000000Z))(description=a*b*c*d)(cn:caseExactMatch:=John Doe))" } )
+    private String filter;
+
+    /** Whether the filter is schema aware */
+    @Param( { "false", "true" } )
+    private boolean schemaAware;
+
+    private SchemaManager schemaManager;
+
+
+    @Setup
+    public void setup()
+    {
+        if ( schemaAware )
+        {
+            schemaManager = new DefaultSchemaManager();
+        }
+    }
+
+
+    @Benchmark
+    public ExprNode parse() throws Exception
+    {
+        return FilterParser.parse( schemaManager, filter );
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.model;
+
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.ldif.LdifEntry;
+import org.apache.directory.api.ldap.model.ldif.LdifReader;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the LdifReader throughput, in entries per second, on an LDIF containing
+ * typical person entries, with and without a SchemaManager :
+ * <pre>
+ * java -jar target/benchmarks.jar LdifReaderBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class LdifReaderBenchmark
+{
+    /** The number of entries in the LDIF */
+    private static final int NB_ENTRIES = 1000;
+
+    /** Whether the entries are schema aware */
+    @Param( { "false", "true" } )
+    private boolean schemaAware;
+
+    private SchemaManager schemaManager;
+
+    private String ldif;
+
+
+    @Setup
+    public void setup()
+    {
+        if ( schemaAware )
+        {
+            schemaManager = new DefaultSchemaManager();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append( "version: 1\n\n" );
+
+        for ( int i = 0; i < NB_ENTRIES; i++ )
+        {
+            sb.append( "dn: uid=user" ).append( i ).append( ",ou=people,dc=example,dc=com\n" );
+            sb.append( "objectClass: top\n" );
+            sb.append( "objectClass: person\n" );
+            sb.append( "objectClass: organizationalPerson\n" );
+            sb.append( "objectClass: inetOrgPerson\n" );
+            sb.append( "uid: user" ).append( i ).append( '\n' );
+            sb.append( "cn: User " ).append( i ).append( '\n' );
+            sb.append( "sn: " ).append( i ).append( '\n' );
+            sb.append( "mail: user" ).append( i ).append( "@example.com\n" );
+            sb.append( "telephoneNumber: +1 555 " ).append( 1000 + i ).append( '\n' );
+            sb.append( "description:: QSBiYXNlNjQgZW5jb2RlZCBkZXNjcmlwdGlvbg==\n" );
+            sb.append( "userPassword: secret\n\n" );
+        }
+
+        ldif = sb.toString();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation( NB_ENTRIES )
+    public List<LdifEntry> read() throws Exception
+    {
+        try ( LdifReader reader = new LdifReader( schemaManager ) )
+        {
+            return reader.parseLdif( ldif );
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.model;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.PrepareString;
+import org.apache.directory.api.ldap.model.schema.normalizers.DeepTrimToLowerNormalizer;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the values normalization : the PrepareString steps used by the caseIgnoreMatch
+ * normalizer, the normalizer itself (which uses the ASCII fast path when it can), and the
+ * creation of a schema aware Value, which runs it :
+ * <pre>
+ * java -jar target/benchmarks.jar PrepareStringBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class PrepareStringBenchmark
+{
+    /** The value to normalize */
+    @Param( {
+        "jdoe",
+        "  John   DOE  ",
+        "A longer description, with mixed Case and    some extra   spaces, as often found in entries",
+        "Jérôme SStraße-Müller" } )
+    private String value;
+
+    private AttributeType attributeType;
+
+    private DeepTrimToLowerNormalizer normalizer = new DeepTrimToLowerNormalizer();
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        attributeType = new DefaultSchemaManager().lookupAttributeTypeRegistry( "cn" );
+    }
+
+
+    @Benchmark
+    public String prepareString() throws Exception
+    {
+        String normalized = PrepareString.normalize( PrepareString.mapIgnoreCase( value ) );
+        char[] chars = normalized.toCharArray();
+        PrepareString.checkProhibited( chars );
+
+        return PrepareString.insignificantSpacesStringValue( chars );
+    }
+
+
+    @Benchmark
+    public String normalizer() throws Exception
+    {
+        return normalizer.normalize( value );
+    }
+
+
+    @Benchmark
+    public String value() throws Exception
+    {
+        return new Value( attributeType, value ).getNormalized();
+    }
+}
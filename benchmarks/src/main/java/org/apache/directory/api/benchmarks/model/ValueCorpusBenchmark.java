@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.benchmarks.model;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the creation of schema aware Values over a corpus of realistic cn, mail
+ * and uid values, as found when loading a directory. The results are given per value :
+ * <pre>
+ * java -jar target/benchmarks.jar ValueCorpusBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ValueCorpusBenchmark
+{
+    /** The number of values in the corpus */
+    private static final int CORPUS_SIZE = 1000;
+
+    private static final String[] FIRST_NAMES =
+        { "John", "Mary", "Emmanuel", "Kiran", "Stefan", "Jérôme", "Ana", "Wei", "Olga", "Pierre-Yves" };
+
+    private static final String[] LAST_NAMES =
+        { "Doe", "Smith", "Lécharny", "Ayyagari", "Seelmann", "O'Brien", "García", "Zhang", "Ivanova", "Van Der Berg" };
+
+    /** The mail syntax is IA5String : no accent there */
+    private static final String[] MAIL_NAMES =
+        { "john", "mary", "emmanuel", "kiran", "stefan", "jerome", "ana", "wei", "olga", "pierre-yves" };
+
+    private static final String[] DOMAINS = { "example.com", "Apache.org", "mail.example.co.uk" };
+
+    /** The attribute the corpus is made of */
+    @Param( { "cn", "mail", "uid" } )
+    private String attribute;
+
+    private AttributeType attributeType;
+
+    private String[] corpus;
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        attributeType = new DefaultSchemaManager().lookupAttributeTypeRegistry( attribute );
+        corpus = new String[CORPUS_SIZE];
+
+        for ( int i = 0; i < CORPUS_SIZE; i++ )
+        {
+            String first = FIRST_NAMES[i % FIRST_NAMES.length];
+            String last = LAST_NAMES[( i / FIRST_NAMES.length ) % LAST_NAMES.length];
+
+            switch ( attribute )
+            {
+                case "cn":
+                    corpus[i] = first + " " + last;
+                    break;
+
+                case "mail":
+                    corpus[i] = MAIL_NAMES[i % MAIL_NAMES.length] + "." + i + "@" + DOMAINS[i % DOMAINS.length];
+                    break;
+
+                default:
+                    corpus[i] = "u" + first.charAt( 0 ) + i;
+                    break;
+            }
+        }
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation( CORPUS_SIZE )
+    public int values() throws Exception
+    {
+        int length = 0;
+
+        for ( String value : corpus )
+        {
+            length += new Value( attributeType, value ).getNormalized().length();
+        }
+
+        return length;
+    }
+}
@@ -214,6 +214,17 @@ public enum I18n
     ERR_04178_CANT_LOAD_KEY_STORE( "ERR_04178_CANT_LOAD_KEY_STORE" ),
     ERR_04179_TRUST_STORE_CANT_BE_READ( "ERR_04179_TRUST_STORE_CANT_BE_READ" ),
     ERR_04180_FILE_DOES_NOT_EXIST_ON_CLASSPATH( "ERR_04180_FILE_DOES_NOT_EXIST_ON_CLASSPATH" ),
+    ERR_04181_NON_POSITIVE_DEMAND( "ERR_04181_NON_POSITIVE_DEMAND" ),
+    ERR_04182_INVALID_MULTIPLEXED_POOL_SIZE( "ERR_04182_INVALID_MULTIPLEXED_POOL_SIZE" ),
+    ERR_04183_POOL_CLOSED( "ERR_04183_POOL_CLOSED" ),
+    ERR_04185_INVALID_POOL_SIZE( "ERR_04185_INVALID_POOL_SIZE" ),
+    ERR_04186_NO_CONNECTION_AVAILABLE( "ERR_04186_NO_CONNECTION_AVAILABLE" ),
+    ERR_04187_NOT_BORROWED_FROM_POOL( "ERR_04187_NOT_BORROWED_FROM_POOL" ),
+    ERR_04188_INVALID_BULK_WINDOW( "ERR_04188_INVALID_BULK_WINDOW" ),
+    ERR_04189_UNSUPPORTED_BULK_REQUEST( "ERR_04189_UNSUPPORTED_BULK_REQUEST" ),
+    ERR_04190_INVALID_PAGE_SIZE( "ERR_04190_INVALID_PAGE_SIZE" ),
+    ERR_04191_TOO_MANY_OUTSTANDING_REQUESTS( "ERR_04191_TOO_MANY_OUTSTANDING_REQUESTS" ),
+    ERR_04192_CHANNEL_RELEASED( "ERR_04192_CHANNEL_RELEASED" ),
 
     //     template                     4200-4300
     // None
@@ -295,6 +306,11 @@ public enum I18n
     ERR_05204_LDAP_DECODER_FAILURE( "ERR_05204_LDAP_DECODER_FAILURE" ),
     ERR_05205_PDU_DOES_NOT_CONTAIN_ENOUGH_DATA( "ERR_05205_PDU_DOES_NOT_CONTAIN_ENOUGH_DATA" ),
     ERR_05206_INPUT_STREAM_TOO_SHORT_PDU( "ERR_05206_INPUT_STREAM_TOO_SHORT_PDU" ),
+    ERR_05207_INVALID_WRITE_BATCH( "ERR_05207_INVALID_WRITE_BATCH" ),
+    ERR_05208_MALFORMED_PARTIAL_ATTRIBUTE_LIST( "ERR_05208_MALFORMED_PARTIAL_ATTRIBUTE_LIST" ),
+    ERR_05209_INVALID_DECODING_LANES( "ERR_05209_INVALID_DECODING_LANES" ),
+    ERR_05210_INVALID_STREAMING_SIZES( "ERR_05210_INVALID_STREAMING_SIZES" ),
+    ERR_05211_STREAMED_VALUE_TOO_SHORT( "ERR_05211_STREAMED_VALUE_TOO_SHORT" ),
 
     //     controls                     5300-5399
     ERR_05300_CANT_DECODE_CHANGE_TYPE( "ERR_05300_CANT_DECODE_CHANGE_TYPE" ),
@@ -559,6 +575,7 @@ public enum I18n
     ERR_13316_EMPTY_FILTER( "ERR_13316_EMPTY_FILTER" ),
     ERR_13317_NO_MORE_THAN_ONE_ELEM_IN_NOT( "ERR_13317_NO_MORE_THAN_ONE_ELEM_IN_NOT" ),
     ERR_13318_INVALID_ATTR_IN_REFINEMENT( "ERR_13318_INVALID_ATTR_IN_REFINEMENT" ),
+    ERR_13319_UNSUPPORTED_FILTER_NODE( "ERR_13319_UNSUPPORTED_FILTER_NODE" ),
 
     //     ldif                         13400 - 13499
     ERR_13400_ENTRY_WITH_TWO_DNS( "ERR_13400_ENTRY_WITH_TWO_DNS" ),
@@ -687,6 +704,7 @@ public enum I18n
     ERR_13624_CANNOT_SERIALIZE_NULL_DN( "ERR_13624_CANNOT_SERIALIZE_NULL_DN" ),
     ERR_13625_INVALID_RDN( "ERR_13625_INVALID_RDN" ),
     ERR_13626_INVALID_RDN_DUPLICATE_AVA( "ERR_13626_INVALID_RDN_DUPLICATE_AVA" ),
+    ERR_13627_INVALID_DN_CACHE_SIZE( "ERR_13627_INVALID_DN_CACHE_SIZE" ),
 
     //     schema                           13700 - 13899
     ERR_13700_CANNOT_MODIFY_LOCKED_SCHEMA_OBJECT( "ERR_13700_CANNOT_MODIFY_LOCKED_SCHEMA_OBJECT" ),
@@ -1162,6 +1180,10 @@ public enum I18n
     MSG_04176_TRUST_MANAGER_ON_CLASSPATH( "MSG_04176_TRUST_MANAGER_ON_CLASSPATH" ),
     MSG_04177_CONNECTION_TIMEOUT( "MSG_04177_CONNECTION_TIMEOUT" ),
     MSH_04178_CLOSE_LATCH_ABORTED( "MSH_04178_CLOSE_LATCH_ABORTED" ),
+    MSG_04179_SEARCH_SUBSCRIBER_FAILED( "MSG_04179_SEARCH_SUBSCRIBER_FAILED" ),
+    MSG_04180_BULK_RETRY( "MSG_04180_BULK_RETRY" ),
+    MSG_04181_BULK_COMPLETED( "MSG_04181_BULK_COMPLETED" ),
+    MSG_04182_PAGED_SEARCH_NEXT_PAGE( "MSG_04182_PAGED_SEARCH_NEXT_PAGE" ),
 
     // api-ldap-codec-core              5000-5999
     //     <>                               5000-5099
@@ -0,0 +1,278 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.model.filter;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.AliasDerefMode;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the in memory evaluation of filters against entries.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class FilterEvaluatorTest
+{
+    private static SchemaManager schemaManager;
+
+    private static Entry entry;
+
+    private static Entry schemaLessEntry;
+
+
+    @BeforeAll
+    public static void setup() throws Exception
+    {
+        schemaManager = new DefaultSchemaManager();
+
+        entry = new DefaultEntry( schemaManager, "cn=John Doe,ou=People,dc=example,dc=com",
+            "objectClass: top",
+            "objectClass: person",
+            "cn: John  DOE",
+            "cn: Johnny",
+            "sn: Doe",
+            "description: A test entry",
+            "dnQualifier: m",
+            "createTimestamp: 20200101000000Z" );
+
+        schemaLessEntry = new DefaultEntry( "cn=John Doe,ou=People,dc=example,dc=com",
+            "objectClass: top",
+            "objectClass: person",
+            "CN: John  DOE",
+            "cn: Johnny",
+            "sn: Doe",
+            "description: A test entry" );
+    }
+
+
+    private static boolean evaluate( String filter, Entry candidate ) throws LdapException
+    {
+        return FilterEvaluator.compile( schemaManager, filter ).evaluate( candidate );
+    }
+
+
+    /**
+     * Parses the filter without schema, so that the assertions the schema aware parser rejects
+     * are left to the evaluator
+     */
+    private static boolean evaluateUnchecked( String filter, Entry candidate ) throws Exception
+    {
+        return FilterEvaluator.compile( schemaManager, FilterParser.parse( filter ) ).evaluate( candidate );
+    }
+
+
+    @Test
+    public void testEquality() throws Exception
+    {
+        assertTrue( evaluate( "(cn=john doe)", entry ) );
+        assertTrue( evaluate( "(CommonName=  JOHNNY )", entry ) );
+        assertTrue( evaluate( "(objectClass=PERSON)", entry ) );
+        assertTrue( evaluate( "(objectClass=2.5.6.6)", entry ) );
+        assertFalse( evaluate( "(cn=jane doe)", entry ) );
+        assertFalse( evaluate( "(givenName=john)", entry ) );
+    }
+
+
+    @Test
+    public void testSubtypes() throws Exception
+    {
+        // cn and sn are subtypes of name
+        assertTrue( evaluate( "(name=doe)", entry ) );
+        assertTrue( evaluate( "(name=johnny)", entry ) );
+        assertTrue( evaluate( "(name=*)", entry ) );
+        assertFalse( evaluate( "(name=jane)", entry ) );
+    }
+
+
+    @Test
+    public void testPresence() throws Exception
+    {
+        assertTrue( evaluate( "(cn=*)", entry ) );
+        assertTrue( evaluate( "(2.5.4.3=*)", entry ) );
+        assertFalse( evaluate( "(mail=*)", entry ) );
+    }
+
+
+    @Test
+    public void testSubstring() throws Exception
+    {
+        assertTrue( evaluate( "(cn=jo*)", entry ) );
+        assertTrue( evaluate( "(cn=*doe)", entry ) );
+        assertTrue( evaluate( "(cn=j*n*e)", entry ) );
+        assertTrue( evaluate( "(description=*TEST*)", entry ) );
+        assertFalse( evaluate( "(cn=*jane*)", entry ) );
+        assertFalse( evaluate( "(cn=doe*)", entry ) );
+    }
+
+
+    @Test
+    public void testOrdering() throws Exception
+    {
+        assertTrue( evaluate( "(dnQualifier>=a)", entry ) );
+        assertTrue( evaluate( "(dnQualifier<=M)", entry ) );
+        assertFalse( evaluate( "(dnQualifier>=n)", entry ) );
+        assertTrue( evaluate( "(createTimestamp>=20190101000000Z)", entry ) );
+        assertFalse( evaluate( "(createTimestamp<=20190101000000Z)", entry ) );
+    }
+
+
+    @Test
+    public void testApproximate() throws Exception
+    {
+        assertTrue( evaluate( "(cn~=JOHN DOE)", entry ) );
+        assertFalse( evaluate( "(cn~=jane)", entry ) );
+    }
+
+
+    @Test
+    public void testExtensible() throws Exception
+    {
+        assertTrue( evaluate( "(cn:caseIgnoreMatch:=JOHN DOE)", entry ) );
+        assertFalse( evaluate( "(cn:caseExactMatch:=john doe)", entry ) );
+        assertTrue( evaluate( "(cn:=johnny)", entry ) );
+
+        // No attribute : all the attributes the rule applies to
+        assertTrue( evaluateUnchecked( "(:caseIgnoreMatch:=doe)", entry ) );
+        assertFalse( evaluateUnchecked( "(:caseIgnoreMatch:=jane)", entry ) );
+
+        // The RDN value is not an attribute of the entry
+        assertFalse( evaluate( "(ou:caseIgnoreMatch:=people)", entry ) );
+        assertTrue( evaluate( "(ou:dn:caseIgnoreMatch:=people)", entry ) );
+        assertTrue( evaluateUnchecked( "(:dn:caseIgnoreMatch:=people)", entry ) );
+        assertTrue( evaluateUnchecked( "(:dn:caseIgnoreIA5Match:=EXAMPLE)", entry ) );
+
+        // dc is an IA5String, caseIgnoreMatch does not apply to it
+        assertFalse( evaluateUnchecked( "(:dn:caseIgnoreMatch:=example)", entry ) );
+    }
+
+
+    @Test
+    public void testBranches() throws Exception
+    {
+        assertTrue( evaluate( "(&(objectClass=person)(cn=jo*)(sn=doe))", entry ) );
+        assertFalse( evaluate( "(&(objectClass=person)(cn=jo*)(sn=smith))", entry ) );
+        assertTrue( evaluate( "(|(sn=smith)(cn=*ohn*))", entry ) );
+        assertFalse( evaluate( "(|(sn=smith)(cn=jane))", entry ) );
+        assertTrue( evaluate( "(!(sn=smith))", entry ) );
+        assertFalse( evaluate( "(!(|(sn=smith)(sn=doe)))", entry ) );
+    }
+
+
+    @Test
+    public void testUndefined() throws Exception
+    {
+        // description has no ordering rule, and unknownAttr does not exist :
+        // the assertions are Undefined, and so are their negations
+        assertFalse( evaluateUnchecked( "(description>=a)", entry ) );
+        assertFalse( evaluateUnchecked( "(!(description>=a))", entry ) );
+        assertFalse( evaluateUnchecked( "(unknownAttr=a)", entry ) );
+        assertFalse( evaluateUnchecked( "(!(unknownAttr=a))", entry ) );
+
+        // FALSE wins in an AND, TRUE wins in an OR
+        assertTrue( evaluateUnchecked( "(!(&(unknownAttr=a)(sn=smith)))", entry ) );
+        assertFalse( evaluateUnchecked( "(!(&(unknownAttr=a)(sn=doe)))", entry ) );
+        assertTrue( evaluateUnchecked( "(|(unknownAttr=a)(sn=doe))", entry ) );
+    }
+
+
+    @Test
+    public void testBranchOrder() throws Exception
+    {
+        FilterEvaluator evaluator = FilterEvaluator.compile( schemaManager,
+            "(&(cn=*ohn*)(dnQualifier>=a)(sn=doe)(objectClass=*))" );
+
+        // The presence first, the substring last
+        assertEquals( "(&(objectClass=*)(sn=doe)(dnQualifier>=a)(cn=*ohn*))", evaluator.toString() );
+        assertTrue( evaluator.evaluate( entry ) );
+
+        // The count annotations take precedence
+        ExprNode filter = FilterParser.parse( schemaManager, "(&(sn=doe)(cn=john doe))" );
+        ( ( BranchNode ) filter ).getChildren().get( 0 ).set( FilterEvaluator.COUNT_ANNOTATION, 1000L );
+        ( ( BranchNode ) filter ).getChildren().get( 1 ).set( FilterEvaluator.COUNT_ANNOTATION, 1L );
+
+        assertEquals( "(&(cn=john doe:[1])(sn=doe:[1000]))",
+            FilterEvaluator.compile( schemaManager, filter ).toString() );
+    }
+
+
+    @Test
+    public void testConstantFolding() throws Exception
+    {
+        ExprNode sn = FilterParser.parse( schemaManager, "(sn=doe)" );
+        ExprNode all = ObjectClassNode.OBJECT_CLASS_NODE;
+
+        assertEquals( "(sn=doe)", FilterEvaluator.compile( schemaManager, new AndNode( all, sn ) ).toString() );
+        assertEquals( "(TRUE)", FilterEvaluator.compile( schemaManager, new OrNode( sn, all ) ).toString() );
+        assertEquals( "(FALSE)",
+            FilterEvaluator.compile( schemaManager, new AndNode( sn, new NotNode( all ) ) ).toString() );
+        assertEquals( "(sn=doe)",
+            FilterEvaluator.compile( schemaManager, new OrNode( new NotNode( all ), sn ) ).toString() );
+
+        // Undefined is not folded away
+        assertEquals( "(&(UNDEFINED)(sn=doe))",
+            FilterEvaluator.compile( schemaManager, FilterParser.parse( "(&(unknownAttr=a)(sn=doe))" ) ).toString() );
+    }
+
+
+    @Test
+    public void testSchemaLessEntry() throws Exception
+    {
+        // A schema aware filter can be evaluated on an entry without schema
+        assertTrue( evaluate( "(cn=john doe)", schemaLessEntry ) );
+        assertTrue( evaluate( "(name=doe)", schemaLessEntry ) );
+        assertTrue( evaluate( "(commonName=*ohn*)", schemaLessEntry ) );
+    }
+
+
+    @Test
+    public void testWithoutSchema() throws Exception
+    {
+        assertTrue( FilterEvaluator.compile( null, "(cn=JOHN   doe)" ).evaluate( schemaLessEntry ) );
+        assertTrue( FilterEvaluator.compile( null, "(&(objectclass=PERSON)(sn=d*))" ).evaluate( schemaLessEntry ) );
+        assertTrue( FilterEvaluator.compile( null, "(cn=*)" ).evaluate( entry ) );
+        assertFalse( FilterEvaluator.compile( null, "(cn=jane)" ).evaluate( schemaLessEntry ) );
+
+        // No subtypes without schema
+        assertFalse( FilterEvaluator.compile( null, "(name=doe)" ).evaluate( schemaLessEntry ) );
+    }
+
+
+    @Test
+    public void testUnsupportedNode()
+    {
+        ExprNode scope = new ScopeNode( AliasDerefMode.NEVER_DEREF_ALIASES, Dn.EMPTY_DN, null, SearchScope.ONELEVEL );
+
+        assertThrows( LdapException.class, () -> FilterEvaluator.compile( scope ) );
+    }
+}
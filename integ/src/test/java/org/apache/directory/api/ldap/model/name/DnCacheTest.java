@@ -0,0 +1,191 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.model.name;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the DnCache, and its use when creating schema aware Dns.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class DnCacheTest
+{
+    private SchemaManager schemaManager;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        schemaManager = new DefaultSchemaManager();
+    }
+
+
+    @Test
+    public void testInvalidSize()
+    {
+        assertThrows( IllegalArgumentException.class, () -> new DnCache( 0 ) );
+    }
+
+
+    @Test
+    public void testCachedDn() throws Exception
+    {
+        DnCache cache = new DnCache( 10 );
+        schemaManager.setDnCache( cache );
+
+        Dn dn1 = new Dn( schemaManager, "CN=John Doe, OU=People, DC=example, DC=com" );
+        Dn dn2 = new Dn( schemaManager, "CN=John Doe, OU=People, DC=example, DC=com" );
+
+        assertNotSame( dn1, dn2 );
+        assertEquals( dn1, dn2 );
+        assertEquals( dn1.getName(), dn2.getName() );
+        assertEquals( dn1.getNormName(), dn2.getNormName() );
+        assertSame( dn1.getRdn(), dn2.getRdn() );
+        assertTrue( dn2.isSchemaAware() );
+        assertEquals( dn1.getParent(), dn2.getParent() );
+
+        // The user provided name is the key
+        Dn dn3 = new Dn( schemaManager, "cn=John Doe,ou=People,dc=example,dc=com" );
+        assertEquals( dn1, dn3 );
+        assertEquals( "cn=John Doe,ou=People,dc=example,dc=com", dn3.getName() );
+
+        assertEquals( 1L, cache.getHits() );
+        assertEquals( 2L, cache.getMisses() );
+        assertEquals( 2, cache.size() );
+    }
+
+
+    @Test
+    public void testNoCache() throws Exception
+    {
+        assertNull( schemaManager.getDnCache() );
+
+        Dn dn1 = new Dn( schemaManager, "cn=John Doe,dc=example,dc=com" );
+        Dn dn2 = new Dn( schemaManager, "cn=John Doe,dc=example,dc=com" );
+
+        assertEquals( dn1, dn2 );
+        assertNotSame( dn1.getRdn(), dn2.getRdn() );
+    }
+
+
+    @Test
+    public void testEviction() throws Exception
+    {
+        DnCache cache = new DnCache( 10 );
+        schemaManager.setDnCache( cache );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            new Dn( schemaManager, "uid=user" + i + ",ou=People,dc=example,dc=com" );
+        }
+
+        assertEquals( 10, cache.size() );
+        assertEquals( 90L, cache.getEvictions() );
+        assertEquals( 100L, cache.getMisses() );
+
+        // The last added Dn is never evicted
+        new Dn( schemaManager, "uid=user99,ou=People,dc=example,dc=com" );
+        assertEquals( 1L, cache.getHits() );
+    }
+
+
+    @Test
+    public void testEvictionGoesRound() throws Exception
+    {
+        DnCache cache = new DnCache( 16 );
+
+        for ( int i = 0; i < 16; i++ )
+        {
+            cache.put( "old" + i, new Dn( "cn=old" + i ) );
+        }
+
+        // The evictions don't always hit the same slots : all the old names get evicted
+        for ( int i = 0; i < 64; i++ )
+        {
+            cache.put( "new" + i, new Dn( "cn=new" + i ) );
+        }
+
+        assertEquals( 16, cache.size() );
+
+        for ( int i = 0; i < 16; i++ )
+        {
+            assertNull( cache.get( "old" + i ) );
+        }
+    }
+
+
+    @Test
+    public void testClearedOnSchemaChange() throws Exception
+    {
+        DnCache cache = new DnCache();
+        schemaManager.setDnCache( cache );
+
+        new Dn( schemaManager, "cn=John Doe,dc=example,dc=com" );
+        assertEquals( 1, cache.size() );
+
+        schemaManager.unregisterNormalizer( "2.5.13.2" );
+        assertEquals( 0, cache.size() );
+
+        new Dn( schemaManager, "cn=John Doe,dc=example,dc=com" );
+        assertEquals( 1, cache.size() );
+
+        schemaManager.setRegistries( schemaManager.getRegistries() );
+        assertEquals( 0, cache.size() );
+    }
+
+
+    @Test
+    public void testInternedSuffixes() throws Exception
+    {
+        DnCache cache = new DnCache( 10 );
+        schemaManager.setDnCache( cache );
+
+        Dn dn1 = new Dn( schemaManager, "uid=jdoe,ou=People,dc=example,dc=com" );
+        Dn dn2 = new Dn( schemaManager, "uid=jsmith,ou=People,dc=example,dc=com" );
+        Dn dn3 = new Dn( schemaManager, "cn=admins,ou=Groups,dc=example,dc=com" );
+
+        assertSame( dn1.getRdn( 1 ), dn2.getRdn( 1 ) );
+        assertSame( dn1.getRdn( 3 ), dn3.getRdn( 3 ) );
+        assertNotSame( dn1.getRdn( 1 ), dn3.getRdn( 1 ) );
+        assertEquals( dn1.getParent(), dn2.getParent() );
+        assertTrue( dn2.isDescendantOf( dn1.getParent() ) );
+
+        // Once full, the RDNs are not interned anymore, but the Dns are still correct
+        for ( int i = 0; i < 20; i++ )
+        {
+            Dn dn = new Dn( schemaManager, "uid=jdoe,ou=unit" + i + ",dc=example,dc=com" );
+            assertEquals( "uid=jdoe,ou=unit" + i + ",dc=example,dc=com", dn.getName() );
+        }
+    }
+}
+
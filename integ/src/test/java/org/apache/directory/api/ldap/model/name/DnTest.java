@@ -29,6 +29,10 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
@@ -3156,4 +3160,99 @@ public class DnTest
         assertEquals( "UID = #4869", dn3.getName() );
         assertEquals( "0.9.2342.19200300.100.1.1= hi ", dn3.getNormName() );
     }
+
+
+    /**
+     * Test that the Dns derived from a Dn share its RDNs, and compute their names
+     */
+    @Test
+    public void testDerivedDnsShareRdns() throws Exception
+    {
+        Dn dn = new Dn( schemaManager, "CN=John Doe,OU=People,DC=Example,DC=com" );
+
+        Dn parent = dn.getParent();
+        assertSame( dn.getRdn( 1 ), parent.getRdn() );
+        assertEquals( "OU=People,DC=Example,DC=com", parent.getName() );
+        assertEquals( new Dn( schemaManager, "ou=people,dc=example,dc=com" ).getNormName(), parent.getNormName() );
+        assertEquals( new Dn( schemaManager, "ou=people,dc=example,dc=com" ), parent );
+        assertEquals( parent, new Dn( schemaManager, "ou=people,dc=example,dc=com" ) );
+        assertEquals( new Dn( schemaManager, "ou=people,dc=example,dc=com" ).hashCode(), parent.hashCode() );
+        assertTrue( dn.isDescendantOf( parent ) );
+
+        Dn grandParent = parent.getParent();
+        assertEquals( "DC=Example,DC=com", grandParent.getName() );
+        assertEquals( "DC=com", grandParent.getParent().getName() );
+        assertTrue( grandParent.getParent().getParent().isEmpty() );
+        assertEquals( "", grandParent.getParent().getParent().getName() );
+
+        Dn ancestor = dn.getAncestorOf( "cn=john doe,ou=people" );
+        assertSame( dn.getRdn( 2 ), ancestor.getRdn() );
+        assertEquals( "DC=Example,DC=com", ancestor.getName() );
+
+        Dn descendant = dn.getDescendantOf( "dc=example,dc=com" );
+        assertSame( dn.getRdn(), descendant.getRdn() );
+        assertEquals( "CN=John Doe,OU=People", descendant.getName() );
+
+        // A derived Dn can be extended, and serialized
+        Dn child = parent.add( "uid=jdoe" );
+        assertEquals( "uid=jdoe,OU=People,DC=Example,DC=com", child.getName() );
+        assertEquals( parent, child.getParent() );
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        try ( ObjectOutputStream out = new ObjectOutputStream( baos ) )
+        {
+            parent.writeExternal( out );
+        }
+
+        Dn read = new Dn( schemaManager );
+
+        try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( baos.toByteArray() ) ) )
+        {
+            read.readExternal( in );
+        }
+
+        assertEquals( parent, read );
+        assertEquals( parent.getName(), read.getName() );
+    }
+
+
+    /**
+     * Test the ancestry checks, which use the suffixes hashes on schema aware Dns
+     */
+    @Test
+    public void testIsDescendantOfSuffixHashes() throws Exception
+    {
+        Dn base = new Dn( schemaManager, "ou=Engineering,ou=Departments,dc=example,dc=com" );
+        Dn dn = new Dn( schemaManager,
+            "cn=John Doe+sn=Doe,ou=Team A,ou=Engineering,ou=Departments,dc=example,dc=com" );
+
+        assertTrue( dn.isDescendantOf( base ) );
+        assertTrue( dn.isDescendantOf( dn ) );
+        assertTrue( dn.isDescendantOf( dn.getParent() ) );
+        assertTrue( dn.isDescendantOf( Dn.ROOT_DSE ) );
+        assertTrue( dn.isDescendantOf( "OU=engineering, OU=departments, DC=EXAMPLE, DC=COM" ) );
+        assertTrue( base.isAncestorOf( dn ) );
+        assertFalse( base.isDescendantOf( dn ) );
+
+        // Same depth, different suffixes
+        assertFalse( dn.isDescendantOf( new Dn( schemaManager, "ou=Sales,ou=Departments,dc=example,dc=com" ) ) );
+        assertFalse( dn.isDescendantOf( new Dn( schemaManager, "ou=Engineering,ou=Departments,dc=example,dc=org" ) ) );
+
+        // The AVAs order in a RDN does not matter
+        Dn swapped = new Dn( schemaManager,
+            "sn=Doe+cn=John Doe,ou=Team A,ou=Engineering,ou=Departments,dc=example,dc=com" );
+        assertTrue( swapped.isDescendantOf( dn ) );
+        assertTrue( dn.isDescendantOf( swapped ) );
+
+        // A not schema aware Dn can still be checked against a schema aware one
+        assertTrue( new Dn( "cn=test,ou=Engineering,ou=Departments,dc=example,dc=com" ).isDescendantOf( base ) );
+
+        // The suffix must start at a RDN boundary, not after an escaped comma
+        Dn escaped = new Dn( schemaManager, "cn=Doe\\, John,ou=Engineering,ou=Departments,dc=example,dc=com" );
+        assertTrue( escaped.isDescendantOf( base ) );
+        assertFalse( new Dn( schemaManager, "ou=Sales\\,dc=example,dc=com" ).isDescendantOf( 
+            new Dn( schemaManager, "dc=example,dc=com" ) ) );
+    }
 }
+
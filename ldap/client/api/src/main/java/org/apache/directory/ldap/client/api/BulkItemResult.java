@@ -0,0 +1,133 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import org.apache.directory.api.ldap.model.message.Request;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+
+
+/**
+ * The outcome of one request sent by a {@link BulkOperation}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BulkItemResult
+{
+    /** The position of the request in the bulk */
+    private final int index;
+
+    /** The request */
+    private final Request request;
+
+    /** The result code of the last attempt */
+    private final ResultCodeEnum resultCode;
+
+    /** The diagnostic message of the last attempt */
+    private final String diagnosticMessage;
+
+    /** The number of times the request has been sent */
+    private final int attempts;
+
+
+    /**
+     * Creates a new instance of BulkItemResult.
+     *
+     * @param index The position of the request in the bulk
+     * @param request The request
+     * @param resultCode The result code of the last attempt
+     * @param diagnosticMessage The diagnostic message of the last attempt
+     * @param attempts The number of times the request has been sent
+     */
+    public BulkItemResult( int index, Request request, ResultCodeEnum resultCode, String diagnosticMessage,
+        int attempts )
+    {
+        this.index = index;
+        this.request = request;
+        this.resultCode = resultCode;
+        this.diagnosticMessage = diagnosticMessage;
+        this.attempts = attempts;
+    }
+
+
+    /**
+     * @return The position of the request in the bulk, starting at 0
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+
+    /**
+     * @return The request
+     */
+    public Request getRequest()
+    {
+        return request;
+    }
+
+
+    /**
+     * @return The result code returned by the server for the last attempt
+     */
+    public ResultCodeEnum getResultCode()
+    {
+        return resultCode;
+    }
+
+
+    /**
+     * @return The diagnostic message returned by the server for the last attempt
+     */
+    public String getDiagnosticMessage()
+    {
+        return diagnosticMessage;
+    }
+
+
+    /**
+     * @return The number of times the request has been sent, including retries
+     */
+    public int getAttempts()
+    {
+        return attempts;
+    }
+
+
+    /**
+     * @return <tt>true</tt> if the server has returned a SUCCESS result code
+     */
+    public boolean isSuccess()
+    {
+        return resultCode == ResultCodeEnum.SUCCESS;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "BulkItemResult[" + index + "] " + resultCode + ( diagnosticMessage == null ? "" : " : "
+            + diagnosticMessage ) + " (" + attempts + " attempt(s))";
+    }
+}
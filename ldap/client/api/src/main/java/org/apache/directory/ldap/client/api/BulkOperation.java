@@ -0,0 +1,711 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.ControlFactory;
+import org.apache.directory.api.ldap.model.entry.Modification;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.ldif.LdifControl;
+import org.apache.directory.api.ldap.model.ldif.LdifEntry;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.DeleteRequest;
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.LdapResult;
+import org.apache.directory.api.ldap.model.message.ModifyDnRequest;
+import org.apache.directory.api.ldap.model.message.ModifyDnRequestImpl;
+import org.apache.directory.api.ldap.model.message.ModifyRequest;
+import org.apache.directory.api.ldap.model.message.ModifyRequestImpl;
+import org.apache.directory.api.ldap.model.message.Request;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.ldap.client.api.future.ResponseFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Applies a large number of Add, Delete, Modify and ModifyDn requests on a connection,
+ * keeping up to <em>windowSize</em> requests outstanding on the wire instead of waiting
+ * for each response before sending the next request. The outcome of every request is
+ * collected in a {@link BulkResult}, in the order the requests have been given.
+ * <br>
+ * Requests which get a BUSY or UNAVAILABLE result can be sent again, up to
+ * <em>maxRetries</em> times, waiting <em>retryDelay</em> milliseconds (multiplied by the
+ * number of attempts already made) before each new attempt. A request waiting for its
+ * delay still uses a slot in the window, but the other requests keep being sent and
+ * their responses collected in the meantime.
+ * <br>
+ * Note that the requests present in the window are processed concurrently by the server :
+ * when a request depends on a previous one (for instance when adding a child entry right
+ * after its parent), the window size must be set to 1. The same goes for retried requests,
+ * which are sent after the requests that follow them.
+ * <pre>
+ * BulkOperation bulk = new BulkOperation( connection );
+ * bulk.setWindowSize( 64 );
+ * bulk.setMaxRetries( 3 );
+ * 
+ * try ( LdifReader reader = new LdifReader( "migration.ldif" ) )
+ * {
+ *     BulkResult result = bulk.executeLdif( reader );
+ * 
+ *     for ( BulkItemResult failure : result.getFailures() )
+ *     {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * When the connection does not implement {@link LdapAsyncConnection}, the requests are
+ * sent one at a time using the synchronous operations.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BulkOperation
+{
+    /** The logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( BulkOperation.class );
+
+    /** The default number of outstanding requests */
+    public static final int DEFAULT_WINDOW_SIZE = 32;
+
+    /** The default delay before a request is sent again, in milliseconds */
+    public static final long DEFAULT_RETRY_DELAY = 100L;
+
+    /** The connection to use */
+    private final LdapConnection connection;
+
+    /** The asynchronous connection, if the connection supports it */
+    private final LdapAsyncConnection asyncConnection;
+
+    /** The maximum number of outstanding requests */
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+
+    /** The number of times a BUSY or UNAVAILABLE request is sent again */
+    private int maxRetries;
+
+    /** The delay before a request is sent again */
+    private long retryDelay = DEFAULT_RETRY_DELAY;
+
+    /** The maximum time to wait for a response */
+    private long timeout = LdapConnectionConfig.DEFAULT_TIMEOUT;
+
+
+    /**
+     * Creates a new instance of BulkOperation.
+     *
+     * @param connection The connection to send the requests on
+     */
+    public BulkOperation( LdapConnection connection )
+    {
+        this.connection = connection;
+
+        LdapConnection unwrapped = connection;
+
+        while ( !( unwrapped instanceof LdapAsyncConnection ) && ( unwrapped instanceof Wrapper ) )
+        {
+            @SuppressWarnings("unchecked")
+            Wrapper<LdapConnection> wrapper = ( Wrapper<LdapConnection> ) unwrapped;
+            unwrapped = wrapper.wrapped();
+        }
+
+        if ( unwrapped instanceof LdapAsyncConnection )
+        {
+            asyncConnection = ( LdapAsyncConnection ) unwrapped;
+        }
+        else
+        {
+            asyncConnection = null;
+        }
+    }
+
+
+    /**
+     * @return The maximum number of outstanding requests
+     */
+    public int getWindowSize()
+    {
+        return windowSize;
+    }
+
+
+    /**
+     * Sets the maximum number of requests sent to the server without having received their response.
+     *
+     * @param windowSize The maximum number of outstanding requests
+     */
+    public void setWindowSize( int windowSize )
+    {
+        if ( windowSize <= 0 )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_04188_INVALID_BULK_WINDOW, windowSize ) );
+        }
+
+        this.windowSize = windowSize;
+    }
+
+
+    /**
+     * @return The number of times a request getting a BUSY or UNAVAILABLE result is sent again
+     */
+    public int getMaxRetries()
+    {
+        return maxRetries;
+    }
+
+
+    /**
+     * Sets the number of times a request getting a BUSY or UNAVAILABLE result is sent again.
+     * The default is 0, the result being then reported as is.
+     *
+     * @param maxRetries The number of retries
+     */
+    public void setMaxRetries( int maxRetries )
+    {
+        this.maxRetries = maxRetries;
+    }
+
+
+    /**
+     * @return The delay before a request is sent again, in milliseconds
+     */
+    public long getRetryDelay()
+    {
+        return retryDelay;
+    }
+
+
+    /**
+     * Sets the delay before a request is sent again. This delay is multiplied by the number of
+     * attempts already made for this request.
+     *
+     * @param retryDelay The delay, in milliseconds
+     */
+    public void setRetryDelay( long retryDelay )
+    {
+        this.retryDelay = retryDelay;
+    }
+
+
+    /**
+     * @return The maximum time to wait for a response, in milliseconds
+     */
+    public long getTimeout()
+    {
+        return timeout;
+    }
+
+
+    /**
+     * Sets the maximum time to wait for a response. When it expires, the outstanding requests
+     * are abandoned and the bulk operation fails.
+     *
+     * @param timeout The timeout, in milliseconds
+     */
+    public void setTimeout( long timeout )
+    {
+        this.timeout = timeout;
+    }
+
+
+    /**
+     * Sends all the requests and collects their results.
+     *
+     * @param requests The Add, Delete, Modify and ModifyDn requests to send
+     * @return The results, in the requests order
+     * @throws LdapException If a request can't be sent, or if a response isn't received in time
+     */
+    public BulkResult execute( Iterable<? extends Request> requests ) throws LdapException
+    {
+        Run run = new Run();
+
+        try
+        {
+            for ( Request request : requests )
+            {
+                run.submit( request );
+            }
+
+            return run.finish();
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            run.abort();
+
+            throw e;
+        }
+    }
+
+
+    /**
+     * Applies the content of a LDIF file. Entries without a changetype are added, changes are
+     * applied as Add, Delete, Modify or ModifyDn requests, along with their controls.
+     *
+     * @param ldif The LDIF entries, typically a {@link org.apache.directory.api.ldap.model.ldif.LdifReader}
+     * @return The results, in the LDIF entries order
+     * @throws LdapException If a request can't be sent, or if a response isn't received in time
+     */
+    public BulkResult executeLdif( Iterable<LdifEntry> ldif ) throws LdapException
+    {
+        Run run = new Run();
+
+        try
+        {
+            for ( LdifEntry ldifEntry : ldif )
+            {
+                if ( ldifEntry != null )
+                {
+                    run.submit( toRequest( ldifEntry ) );
+                }
+            }
+
+            return run.finish();
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            run.abort();
+
+            throw e;
+        }
+    }
+
+
+    /**
+     * Converts a LDIF entry to the request applying it
+     */
+    private Request toRequest( LdifEntry ldifEntry ) throws LdapException
+    {
+        Request request;
+        Dn dn = ldifEntry.getDn();
+
+        switch ( ldifEntry.getChangeType() )
+        {
+            case None:
+            case Add:
+                request = new AddRequestImpl().setEntry( ldifEntry.getEntry() );
+                break;
+
+            case Delete:
+                request = new DeleteRequestImpl().setName( dn );
+                break;
+
+            case Modify:
+                ModifyRequest modifyRequest = new ModifyRequestImpl().setName( dn );
+
+                for ( Modification modification : ldifEntry.getModifications() )
+                {
+                    modifyRequest.addModification( modification );
+                }
+
+                request = modifyRequest;
+                break;
+
+            case ModDn:
+            case ModRdn:
+                ModifyDnRequest modifyDnRequest = new ModifyDnRequestImpl().setName( dn );
+                modifyDnRequest.setNewRdn( new Rdn( ldifEntry.getNewRdn() ) );
+                modifyDnRequest.setDeleteOldRdn( ldifEntry.isDeleteOldRdn() );
+
+                if ( ldifEntry.getNewSuperior() != null )
+                {
+                    modifyDnRequest.setNewSuperior( new Dn( ldifEntry.getNewSuperior() ) );
+                }
+
+                request = modifyDnRequest;
+                break;
+
+            default:
+                throw new IllegalArgumentException( I18n.err( I18n.ERR_04189_UNSUPPORTED_BULK_REQUEST,
+                    ldifEntry.getChangeType() ) );
+        }
+
+        if ( ldifEntry.hasControls() )
+        {
+            for ( Map.Entry<String, LdifControl> entry : ldifEntry.getControls().entrySet() )
+            {
+                request.addControl( toControl( entry.getValue() ) );
+            }
+        }
+
+        return request;
+    }
+
+
+    /**
+     * Converts a LDIF control to a control the codec knows how to encode
+     */
+    private Control toControl( LdifControl ldifControl ) throws LdapException
+    {
+        ControlFactory<?> factory = connection.getCodecService().getRequestControlFactories().get(
+            ldifControl.getOid() );
+
+        if ( factory == null )
+        {
+            throw new LdapException( I18n.err( I18n.ERR_08002_CANNOT_FIND_CONTROL_FACTORY, ldifControl.getOid() ) );
+        }
+
+        Control control = factory.newControl();
+        control.setCritical( ldifControl.isCritical() );
+
+        if ( ldifControl.hasValue() )
+        {
+            try
+            {
+                factory.decodeValue( control, ldifControl.getValue() );
+            }
+            catch ( DecoderException de )
+            {
+                throw new LdapException( de.getMessage(), de );
+            }
+        }
+
+        return control;
+    }
+
+
+    /**
+     * Tells if a result code is worth a new attempt
+     */
+    private static boolean isRetryable( ResultCodeEnum resultCode )
+    {
+        return ( resultCode == ResultCodeEnum.BUSY ) || ( resultCode == ResultCodeEnum.UNAVAILABLE );
+    }
+
+
+    /**
+     * A request sent to the server, waiting for its response
+     */
+    private static final class Pending
+    {
+        private final int index;
+        private final Request request;
+        private final int attempts;
+        private final ResponseFuture<? extends ResultResponse> future;
+
+
+        Pending( int index, Request request, int attempts, ResponseFuture<? extends ResultResponse> future )
+        {
+            this.index = index;
+            this.request = request;
+            this.attempts = attempts;
+            this.future = future;
+        }
+    }
+
+
+    /**
+     * A request which got a BUSY or UNAVAILABLE result, waiting to be sent again
+     */
+    private static final class Retry
+    {
+        private final int index;
+        private final Request request;
+        private final int attempts;
+        private final long notBefore;
+
+
+        Retry( int index, Request request, int attempts, long notBefore )
+        {
+            this.index = index;
+            this.request = request;
+            this.attempts = attempts;
+            this.notBefore = notBefore;
+        }
+    }
+
+
+    /**
+     * The state of one execution : the requests in the window and the results received so far
+     */
+    private final class Run
+    {
+        private final long start = System.nanoTime();
+        private final List<BulkItemResult> results = new ArrayList<>();
+        private final Deque<Pending> window = new ArrayDeque<>();
+        private final Queue<Retry> retries = new PriorityQueue<>( 
+            ( retry1, retry2 ) -> Long.compare( retry1.notBefore - retry2.notBefore, 0L ) );
+
+
+        /**
+         * Sends a request, once there is some room in the window
+         */
+        void submit( Request request ) throws LdapException
+        {
+            if ( !( request instanceof AddRequest ) && !( request instanceof DeleteRequest )
+                && !( request instanceof ModifyRequest ) && !( request instanceof ModifyDnRequest ) )
+            {
+                throw new IllegalArgumentException( I18n.err( I18n.ERR_04189_UNSUPPORTED_BULK_REQUEST,
+                    request == null ? null : request.getType() ) );
+            }
+
+            int index = results.size();
+            results.add( null );
+
+            if ( asyncConnection == null )
+            {
+                sendSync( index, request );
+
+                return;
+            }
+
+            while ( window.size() + retries.size() >= windowSize )
+            {
+                receive();
+            }
+
+            window.add( sendAsync( index, request, 1 ) );
+        }
+
+
+        /**
+         * Waits for all the outstanding requests
+         */
+        BulkResult finish() throws LdapException
+        {
+            while ( !window.isEmpty() || !retries.isEmpty() )
+            {
+                receive();
+            }
+
+            BulkResult bulkResult = new BulkResult( results, System.nanoTime() - start );
+
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( I18n.msg( I18n.MSG_04181_BULK_COMPLETED, bulkResult.size(),
+                    bulkResult.size() - bulkResult.getSuccessCount(), bulkResult.getDuration( TimeUnit.MILLISECONDS ) ) );
+            }
+
+            return bulkResult;
+        }
+
+
+        /**
+         * Abandons all the outstanding requests
+         */
+        void abort()
+        {
+            for ( Pending pending : window )
+            {
+                pending.future.cancel( true );
+            }
+
+            window.clear();
+            retries.clear();
+        }
+
+
+        /**
+         * Sends the retried requests whose delay has elapsed, then waits for the oldest outstanding
+         * request, and either records its result or schedules a new attempt
+         */
+        private void receive() throws LdapException
+        {
+            sendDueRetries();
+
+            if ( window.isEmpty() )
+            {
+                // Nothing is outstanding, we can wait for the first retried request
+                pause( retries.peek().notBefore - System.nanoTime() );
+                sendDueRetries();
+
+                return;
+            }
+
+            Pending pending = window.poll();
+            ResultResponse response;
+
+            try
+            {
+                response = pending.future.get( timeout, TimeUnit.MILLISECONDS );
+            }
+            catch ( InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+                pending.future.cancel( true );
+
+                throw new LdapException( LdapNetworkConnection.NO_RESPONSE_ERROR, ie );
+            }
+            catch ( Exception e )
+            {
+                throw new LdapException( LdapNetworkConnection.NO_RESPONSE_ERROR, e );
+            }
+
+            if ( response == null )
+            {
+                if ( pending.future.isCancelled() )
+                {
+                    throw new LdapException( LdapNetworkConnection.NO_RESPONSE_ERROR );
+                }
+
+                pending.future.cancel( true );
+
+                throw new LdapException( LdapNetworkConnection.TIME_OUT_ERROR );
+            }
+
+            LdapResult ldapResult = response.getLdapResult();
+
+            if ( isRetryable( ldapResult.getResultCode() ) && ( pending.attempts <= maxRetries ) )
+            {
+                logRetry( pending.index, ldapResult.getResultCode(), pending.attempts );
+                retries.add( new Retry( pending.index, pending.request, pending.attempts + 1,
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( retryDelay * pending.attempts ) ) );
+            }
+            else
+            {
+                results.set( pending.index, new BulkItemResult( pending.index, pending.request,
+                    ldapResult.getResultCode(), ldapResult.getDiagnosticMessage(), pending.attempts ) );
+            }
+        }
+
+
+        /**
+         * Sends again the retried requests whose delay has elapsed
+         */
+        private void sendDueRetries() throws LdapException
+        {
+            long now = System.nanoTime();
+
+            while ( !retries.isEmpty() && ( retries.peek().notBefore - now <= 0L ) )
+            {
+                Retry retry = retries.poll();
+                window.add( sendAsync( retry.index, retry.request, retry.attempts ) );
+            }
+        }
+
+
+        /**
+         * Sends a request on the asynchronous connection
+         */
+        private Pending sendAsync( int index, Request request, int attempts ) throws LdapException
+        {
+            ResponseFuture<? extends ResultResponse> future;
+
+            if ( request instanceof AddRequest )
+            {
+                future = asyncConnection.addAsync( ( AddRequest ) request );
+            }
+            else if ( request instanceof DeleteRequest )
+            {
+                future = asyncConnection.deleteAsync( ( DeleteRequest ) request );
+            }
+            else if ( request instanceof ModifyRequest )
+            {
+                future = asyncConnection.modifyAsync( ( ModifyRequest ) request );
+            }
+            else
+            {
+                future = asyncConnection.modifyDnAsync( ( ModifyDnRequest ) request );
+            }
+
+            return new Pending( index, request, attempts, future );
+        }
+
+
+        /**
+         * Sends a request using the synchronous operations, retrying it if needed
+         */
+        private void sendSync( int index, Request request ) throws LdapException
+        {
+            int attempts = 1;
+
+            while ( true )
+            {
+                ResultResponse response;
+
+                if ( request instanceof AddRequest )
+                {
+                    response = connection.add( ( AddRequest ) request );
+                }
+                else if ( request instanceof DeleteRequest )
+                {
+                    response = connection.delete( ( DeleteRequest ) request );
+                }
+                else if ( request instanceof ModifyRequest )
+                {
+                    response = connection.modify( ( ModifyRequest ) request );
+                }
+                else
+                {
+                    response = connection.modifyDn( ( ModifyDnRequest ) request );
+                }
+
+                LdapResult ldapResult = response.getLdapResult();
+
+                if ( isRetryable( ldapResult.getResultCode() ) && ( attempts <= maxRetries ) )
+                {
+                    logRetry( index, ldapResult.getResultCode(), attempts );
+                    pause( TimeUnit.MILLISECONDS.toNanos( retryDelay * attempts ) );
+                    attempts++;
+                }
+                else
+                {
+                    results.set( index, new BulkItemResult( index, request, ldapResult.getResultCode(),
+                        ldapResult.getDiagnosticMessage(), attempts ) );
+
+                    return;
+                }
+            }
+        }
+
+
+        /**
+         * Logs a new attempt for a request
+         */
+        private void logRetry( int index, ResultCodeEnum resultCode, int attempts )
+        {
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( I18n.msg( I18n.MSG_04180_BULK_RETRY, index, resultCode, attempts ) );
+            }
+        }
+
+
+        /**
+         * Waits before a request is sent again. This is only done when no other request is outstanding.
+         */
+        private void pause( long delay ) throws LdapException
+        {
+            try
+            {
+                TimeUnit.NANOSECONDS.sleep( delay );
+            }
+            catch ( InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+
+                throw new LdapException( LdapNetworkConnection.NO_RESPONSE_ERROR, ie );
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The outcome of a {@link BulkOperation}: one {@link BulkItemResult} per request,
+ * in the order the requests have been given, and some throughput metrics.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BulkResult
+{
+    /** The per request results */
+    private final List<BulkItemResult> results;
+
+    /** The time it took to process the whole bulk, in nanoseconds */
+    private final long duration;
+
+
+    /**
+     * Creates a new instance of BulkResult.
+     *
+     * @param results The per request results, in the requests order
+     * @param duration The time it took to process the whole bulk, in nanoseconds
+     */
+    public BulkResult( List<BulkItemResult> results, long duration )
+    {
+        this.results = Collections.unmodifiableList( results );
+        this.duration = duration;
+    }
+
+
+    /**
+     * @return The per request results, in the order the requests have been given
+     */
+    public List<BulkItemResult> getResults()
+    {
+        return results;
+    }
+
+
+    /**
+     * @return The results of the requests which have not been successful
+     */
+    public List<BulkItemResult> getFailures()
+    {
+        List<BulkItemResult> failures = new ArrayList<>();
+
+        for ( BulkItemResult result : results )
+        {
+            if ( !result.isSuccess() )
+            {
+                failures.add( result );
+            }
+        }
+
+        return failures;
+    }
+
+
+    /**
+     * @return The number of requests
+     */
+    public int size()
+    {
+        return results.size();
+    }
+
+
+    /**
+     * @return The number of successful requests
+     */
+    public int getSuccessCount()
+    {
+        int count = 0;
+
+        for ( BulkItemResult result : results )
+        {
+            if ( result.isSuccess() )
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+
+    /**
+     * @return The number of requests which have been sent again after a BUSY or UNAVAILABLE result
+     */
+    public int getRetryCount()
+    {
+        int count = 0;
+
+        for ( BulkItemResult result : results )
+        {
+            count += result.getAttempts() - 1;
+        }
+
+        return count;
+    }
+
+
+    /**
+     * @return <tt>true</tt> if all the requests have been successful
+     */
+    public boolean isSuccess()
+    {
+        return getSuccessCount() == results.size();
+    }
+
+
+    /**
+     * @param unit The unit to use
+     * @return The time it took to process the whole bulk
+     */
+    public long getDuration( TimeUnit unit )
+    {
+        return unit.convert( duration, TimeUnit.NANOSECONDS );
+    }
+
+
+    /**
+     * @return The number of requests processed per second
+     */
+    public double getThroughput()
+    {
+        if ( duration == 0L )
+        {
+            return 0d;
+        }
+
+        return results.size() * ( double ) TimeUnit.SECONDS.toNanos( 1L ) / duration;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "BulkResult : " + results.size() + " requests, " + ( results.size() - getSuccessCount() )
+            + " failed, " + getRetryCount() + " retries, " + getDuration( TimeUnit.MILLISECONDS ) + " ms";
+    }
+}
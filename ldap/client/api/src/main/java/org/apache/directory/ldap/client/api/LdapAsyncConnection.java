@@ -21,16 +21,25 @@ package org.apache.directory.ldap.client.api;
 
 
 import java.io.IOException;
+import java.util.concurrent.CompletionStage;
 
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.AddResponse;
 import org.apache.directory.api.ldap.model.message.BindRequest;
+import org.apache.directory.api.ldap.model.message.BindResponse;
 import org.apache.directory.api.ldap.model.message.CompareRequest;
+import org.apache.directory.api.ldap.model.message.CompareResponse;
 import org.apache.directory.api.ldap.model.message.DeleteRequest;
+import org.apache.directory.api.ldap.model.message.DeleteResponse;
 import org.apache.directory.api.ldap.model.message.ExtendedRequest;
+import org.apache.directory.api.ldap.model.message.ExtendedResponse;
 import org.apache.directory.api.ldap.model.message.ModifyDnRequest;
+import org.apache.directory.api.ldap.model.message.ModifyDnResponse;
 import org.apache.directory.api.ldap.model.message.ModifyRequest;
+import org.apache.directory.api.ldap.model.message.ModifyResponse;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
 import org.apache.directory.api.ldap.model.message.SearchScope;
 import org.apache.directory.api.ldap.model.name.Dn;
@@ -42,6 +51,7 @@ import org.apache.directory.ldap.client.api.future.ExtendedFuture;
 import org.apache.directory.ldap.client.api.future.ModifyDnFuture;
 import org.apache.directory.ldap.client.api.future.ModifyFuture;
 import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.apache.directory.ldap.client.api.future.SearchPublisher;
 
 
 /**
@@ -196,6 +206,35 @@ public interface LdapAsyncConnection extends LdapConnection
     SearchFuture searchAsync( SearchRequest searchRequest ) throws LdapException;
 
 
+    /**
+     * Creates a publisher streaming the responses of the given SearchRequest. The
+     * request is sent when a subscriber subscribes, and the responses are pushed 
+     * to the subscriber as it requests them : the reads on the connection are suspended
+     * while the subscriber's demand is exhausted, and cancelling the subscription
+     * abandons the search. No thread is blocked waiting for the responses.
+     * 
+     * @param searchRequest The search request to send to the server
+     * @return the search publisher
+     */
+    SearchPublisher searchPublisher( SearchRequest searchRequest );
+
+
+    /**
+     * Performs a search using the Simple Paged Results control : the pages are requested
+     * one after the other, copying the cookie returned with a page in the request for the
+     * next page, and the returned cursor iterates over the responses of all the pages.
+     * The next page is requested as soon as the current one is complete, and the page
+     * size shrinks when the entries are large.
+     * 
+     * @param searchRequest The search request to send to the server
+     * @param pageSize The maximum number of entries per page
+     * @return A cursor on the responses of all the pages
+     * @throws LdapException if the first page can't be requested
+     * @see PagedSearchCursor
+     */
+    SearchCursor searchPaged( SearchRequest searchRequest, int pageSize ) throws LdapException;
+
+
     /**
      * Performs an asynchronous modify operation based on the modifications present in
      * the ModifyRequest.
@@ -247,6 +286,86 @@ public interface LdapAsyncConnection extends LdapConnection
     ExtendedFuture extendedAsync( ExtendedRequest extendedRequest ) throws LdapException;
 
 
+    /**
+     * Adds an entry, returning a CompletionStage completed when the AddResponse is
+     * received. The stage is completed exceptionally if the request can't be sent.
+     * 
+     * @param addRequest the request object containing an entry and controls(if any)
+     * @return the add operation's CompletionStage
+     * @see LdapConnectionConfig#setCompletionExecutor(java.util.concurrent.Executor)
+     */
+    CompletionStage<AddResponse> addStage( AddRequest addRequest );
+
+
+    /**
+     * Binds, returning a CompletionStage completed when the BindResponse is
+     * received. The stage is completed exceptionally if the request can't be sent.
+     * 
+     * @param bindRequest The BindRequest to send
+     * @return the bind operation's CompletionStage
+     * @see LdapConnectionConfig#setCompletionExecutor(java.util.concurrent.Executor)
+     */
+    CompletionStage<BindResponse> bindStage( BindRequest bindRequest );
+
+
+    /**
+     * Compares an entry's attribute's value, returning a CompletionStage completed 
+     * when the CompareResponse is received. The stage is completed exceptionally 
+     * if the request can't be sent.
+     * 
+     * @param compareRequest the CompareRequest which contains the target Dn, attribute name and value
+     * @return the compare operation's CompletionStage
+     * @see LdapConnectionConfig#setCompletionExecutor(java.util.concurrent.Executor)
+     */
+    CompletionStage<CompareResponse> compareStage( CompareRequest compareRequest );
+
+
+    /**
+     * Deletes an entry, returning a CompletionStage completed when the DeleteResponse 
+     * is received. The stage is completed exceptionally if the request can't be sent.
+     * 
+     * @param deleteRequest the delete operation's request
+     * @return the delete operation's CompletionStage
+     * @see LdapConnectionConfig#setCompletionExecutor(java.util.concurrent.Executor)
+     */
+    CompletionStage<DeleteResponse> deleteStage( DeleteRequest deleteRequest );
+
+
+    /**
+     * Requests an extended operation, returning a CompletionStage completed when the 
+     * ExtendedResponse is received. The stage is completed exceptionally if the request 
+     * can't be sent.
+     * 
+     * @param extendedRequest the object containing the details of the extended operation to be performed
+     * @return the extended operation's CompletionStage
+     * @see LdapConnectionConfig#setCompletionExecutor(java.util.concurrent.Executor)
+     */
+    CompletionStage<ExtendedResponse> extendedStage( ExtendedRequest extendedRequest );
+
+
+    /**
+     * Modifies an entry, returning a CompletionStage completed when the ModifyResponse
+     * is received. The stage is completed exceptionally if the request can't be sent.
+     * 
+     * @param modRequest the request for modify operation
+     * @return the modify operation's CompletionStage
+     * @see LdapConnectionConfig#setCompletionExecutor(java.util.concurrent.Executor)
+     */
+    CompletionStage<ModifyResponse> modifyStage( ModifyRequest modRequest );
+
+
+    /**
+     * Renames or moves an entry, returning a CompletionStage completed when the 
+     * ModifyDnResponse is received. The stage is completed exceptionally if the 
+     * request can't be sent.
+     * 
+     * @param modDnRequest the request
+     * @return the modifyDn operation's CompletionStage
+     * @see LdapConnectionConfig#setCompletionExecutor(java.util.concurrent.Executor)
+     */
+    CompletionStage<ModifyDnResponse> modifyDnStage( ModifyDnRequest modDnRequest );
+
+
     /**
      * Configuration of LdapNetworkConnection
      * 
@@ -0,0 +1,508 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapOtherException;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+import org.apache.directory.ldap.client.api.exception.LdapConnectionTimeOutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A pool of LdapConnection objects built for highly concurrent borrowers, as an 
+ * alternative to the {@link LdapConnectionPool}.
+ * <br>
+ * A borrower first tries the connection its thread used last, then scans the pooled
+ * connections. Both take a connection with a single compare-and-set, no lock is
+ * involved. When the pool is exhausted, the borrower waits for a connection handed
+ * off by a releasing thread.
+ * <br>
+ * Unlike the {@link LdapConnectionPool}, nothing is done on every borrow and return :
+ * <ul>
+ * <li>a connection is validated when borrowed only if it hasn't been used for more 
+ * than the validation interval. A closed connection is always discarded</li>
+ * <li>a connection is bound again when returned only if a bind or a StartTLS
+ * extended operation has been issued on it</li>
+ * </ul>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapConcurrentConnectionPool implements Closeable
+{
+    private static final Logger LOG = LoggerFactory.getLogger( LdapConcurrentConnectionPool.class );
+
+    /** The default validation interval, in milliseconds */
+    public static final long DEFAULT_VALIDATION_INTERVAL = 30000L;
+
+    /** The pooled connection states */
+    private static final int IDLE = 0;
+    private static final int IN_USE = 1;
+    private static final int REMOVED = 2;
+
+    /** The factory creating the bound connections */
+    private final LdapConnectionFactory factory;
+
+    /** The maximum number of connections */
+    private final int maxTotal;
+
+    /** The maximum time to wait for a connection, in milliseconds. A negative value waits forever */
+    private final long maxWait;
+
+    /** The pooled connections */
+    private final List<PooledConnection> connections = new CopyOnWriteArrayList<>();
+
+    /** The pooled connections, by the connection given to the borrowers */
+    private final Map<LdapConnection, PooledConnection> pooledConnections = new ConcurrentHashMap<>();
+
+    /** The number of pooled connections, including the ones being created */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** The number of borrowers waiting for a hand-off */
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /** The queue used to hand a released connection off to a waiting borrower */
+    private final SynchronousQueue<PooledConnection> handoff = new SynchronousQueue<>( true );
+
+    /** The connection each thread used last */
+    private final ThreadLocal<PooledConnection> lastUsed = new ThreadLocal<>();
+
+    /** The validator used when a connection has been idle for too long */
+    private LdapConnectionValidator validator = new LookupLdapConnectionValidator();
+
+    /** The idle time after which a connection is validated before being borrowed, in milliseconds */
+    private long validationInterval = DEFAULT_VALIDATION_INTERVAL;
+
+    /** Tells if the pool has been closed */
+    private volatile boolean closed = false;
+
+
+    /**
+     * Instantiates a new pool, waiting for a connection up to the configured timeout.
+     *
+     * @param config The connection configuration, used to connect and bind
+     * @param maxTotal The maximum number of connections
+     */
+    public LdapConcurrentConnectionPool( LdapConnectionConfig config, int maxTotal )
+    {
+        this( new DefaultLdapConnectionFactory( config ), maxTotal, config.getTimeout() );
+    }
+
+
+    /**
+     * Instantiates a new pool.
+     *
+     * @param factory The factory creating the bound connections
+     * @param maxTotal The maximum number of connections
+     * @param maxWait The maximum time to wait for a connection, in milliseconds. A negative value waits forever
+     */
+    public LdapConcurrentConnectionPool( LdapConnectionFactory factory, int maxTotal, long maxWait )
+    {
+        if ( maxTotal <= 0 )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_04185_INVALID_POOL_SIZE, maxTotal ) );
+        }
+
+        this.factory = factory;
+        this.maxTotal = maxTotal;
+        this.maxWait = maxWait;
+    }
+
+
+    /**
+     * Sets the validator used when a connection has been idle for more than the
+     * validation interval. The default validator is {@link LookupLdapConnectionValidator}.
+     *
+     * @param validator The validator
+     */
+    public void setValidator( LdapConnectionValidator validator )
+    {
+        this.validator = validator;
+    }
+
+
+    /**
+     * Sets the idle time after which a connection is validated before being borrowed.
+     * A value of 0 validates the connection on every borrow.
+     *
+     * @param validationInterval The validation interval, in milliseconds
+     */
+    public void setValidationInterval( long validationInterval )
+    {
+        this.validationInterval = validationInterval;
+    }
+
+
+    /**
+     * Gives a LdapConnection fetched from the pool.
+     *
+     * @return an LdapConnection object from pool
+     * @throws LdapException if no connection has been released in time, or if an error 
+     * occurs while creating a connection
+     */
+    public LdapConnection getConnection() throws LdapException
+    {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( maxWait );
+
+        // First try the connection this thread used last
+        PooledConnection pooledConnection = lastUsed.get();
+
+        if ( ( pooledConnection != null ) && pooledConnection.state.compareAndSet( IDLE, IN_USE ) 
+            && checkOut( pooledConnection ) )
+        {
+            return pooledConnection.connection;
+        }
+
+        while ( true )
+        {
+            if ( closed )
+            {
+                throw new InvalidConnectionException( I18n.err( I18n.ERR_04183_POOL_CLOSED ) );
+            }
+
+            // Then any idle connection
+            for ( PooledConnection candidate : connections )
+            {
+                if ( candidate.state.compareAndSet( IDLE, IN_USE ) && checkOut( candidate ) )
+                {
+                    return candidate.connection;
+                }
+            }
+
+            // Then a new connection
+            if ( size.incrementAndGet() <= maxTotal )
+            {
+                return create().connection;
+            }
+
+            size.decrementAndGet();
+
+            // Last, wait for a released connection
+            long remaining = deadline - System.nanoTime();
+
+            if ( ( maxWait >= 0 ) && ( remaining <= 0L ) )
+            {
+                throw new LdapConnectionTimeOutException( 
+                    I18n.err( I18n.ERR_04186_NO_CONNECTION_AVAILABLE, maxWait ) );
+            }
+
+            pooledConnection = waitForHandoff( maxWait < 0 ? Long.MAX_VALUE : remaining );
+
+            if ( ( pooledConnection != null ) && pooledConnection.state.compareAndSet( IDLE, IN_USE ) 
+                && checkOut( pooledConnection ) )
+            {
+                return pooledConnection.connection;
+            }
+        }
+    }
+
+
+    /**
+     * Places the given LdapConnection back in the pool.
+     * 
+     * @param connection the LdapConnection to be released
+     * @throws LdapException if an error occurs while binding the connection again
+     */
+    public void releaseConnection( LdapConnection connection ) throws LdapException
+    {
+        PooledConnection pooledConnection = pooledConnections.get( connection );
+
+        if ( ( pooledConnection == null ) || ( pooledConnection.state.get() != IN_USE ) )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_04187_NOT_BORROWED_FROM_POOL, connection ) );
+        }
+
+        if ( LOG.isTraceEnabled() )
+        {
+            LOG.trace( I18n.msg( I18n.MSG_04164_RETURNED_CONNECTION, connection ) );
+        }
+
+        if ( closed || !connection.isConnected() )
+        {
+            destroy( pooledConnection );
+
+            return;
+        }
+
+        try
+        {
+            reset( pooledConnection.connection );
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            destroy( pooledConnection );
+
+            throw e;
+        }
+
+        pooledConnection.lastUsed = System.nanoTime();
+        pooledConnection.state.set( IDLE );
+
+        // Hand the connection off to a waiting borrower, unless somebody else took it
+        for ( int i = 0; waiters.get() > 0; i++ )
+        {
+            if ( ( pooledConnection.state.get() != IDLE ) || handoff.offer( pooledConnection ) )
+            {
+                return;
+            }
+
+            if ( ( i & 0xff ) == 0xff )
+            {
+                LockSupport.parkNanos( TimeUnit.MICROSECONDS.toNanos( 10 ) );
+            }
+            else
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+
+    /**
+     * @return The number of borrowed connections
+     */
+    public int getNumActive()
+    {
+        int numActive = 0;
+
+        for ( PooledConnection pooledConnection : connections )
+        {
+            if ( pooledConnection.state.get() == IN_USE )
+            {
+                numActive++;
+            }
+        }
+
+        return numActive;
+    }
+
+
+    /**
+     * @return The number of idle connections
+     */
+    public int getNumIdle()
+    {
+        int numIdle = 0;
+
+        for ( PooledConnection pooledConnection : connections )
+        {
+            if ( pooledConnection.state.get() == IDLE )
+            {
+                numIdle++;
+            }
+        }
+
+        return numIdle;
+    }
+
+
+    /**
+     * Closes the pool : the idle connections are unbound, the borrowed connections
+     * are unbound when they are released.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+
+        for ( PooledConnection pooledConnection : connections )
+        {
+            if ( pooledConnection.state.compareAndSet( IDLE, IN_USE ) )
+            {
+                destroy( pooledConnection );
+            }
+        }
+    }
+
+
+    /**
+     * Checks a connection out, validating it if it has been idle for too long. 
+     * An invalid connection is discarded.
+     * 
+     * @param pooledConnection The connection, already marked as in use
+     * @return <tt>true</tt> if the connection can be given to the borrower
+     */
+    private boolean checkOut( PooledConnection pooledConnection )
+    {
+        LdapConnection connection = pooledConnection.connection;
+
+        if ( !connection.isConnected() 
+            || ( ( System.nanoTime() - pooledConnection.lastUsed > TimeUnit.MILLISECONDS.toNanos( validationInterval ) )
+                && !validator.validate( connection ) ) )
+        {
+            destroy( pooledConnection );
+
+            return false;
+        }
+
+        lastUsed.set( pooledConnection );
+
+        if ( LOG.isTraceEnabled() )
+        {
+            LOG.trace( I18n.msg( I18n.MSG_04163_BORROWED_CONNECTION, connection ) );
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Creates a new connection, the pool size having already been reserved.
+     */
+    private PooledConnection create() throws LdapException
+    {
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( I18n.msg( I18n.MSG_04150_CREATING_LDAP_CONNECTION ) );
+        }
+
+        try
+        {
+            PooledConnection pooledConnection = new PooledConnection( 
+                new MonitoringLdapConnection( factory.newLdapConnection() ) );
+            pooledConnections.put( pooledConnection.connection, pooledConnection );
+            connections.add( pooledConnection );
+            lastUsed.set( pooledConnection );
+
+            return pooledConnection;
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            size.decrementAndGet();
+
+            throw e;
+        }
+    }
+
+
+    /**
+     * Waits for a connection handed off by a releasing thread. The wait is sliced, so
+     * that the borrower gets a chance to create a connection when one has been discarded.
+     */
+    private PooledConnection waitForHandoff( long remaining ) throws LdapException
+    {
+        waiters.incrementAndGet();
+
+        try
+        {
+            return handoff.poll( Math.min( remaining, TimeUnit.MILLISECONDS.toNanos( 10 ) ), TimeUnit.NANOSECONDS );
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new LdapOtherException( ie.getMessage(), ie );
+        }
+        finally
+        {
+            waiters.decrementAndGet();
+        }
+    }
+
+
+    /**
+     * Binds the connection again if the borrower has changed its identity or 
+     * started TLS on it.
+     */
+    private void reset( MonitoringLdapConnection connection ) throws LdapException
+    {
+        if ( connection.startTlsCalled() )
+        {
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( I18n.msg( I18n.MSG_04173_UNBIND_START_TLS, connection ) );
+            }
+
+            // unbind to clear the tls
+            connection.unBind();
+            factory.bindConnection( connection );
+            factory.configureConnection( connection );
+        }
+        else if ( connection.bindCalled() )
+        {
+            factory.bindConnection( connection );
+            factory.configureConnection( connection );
+        }
+
+        connection.resetMonitors();
+    }
+
+
+    /**
+     * Removes a connection from the pool, and unbinds it.
+     */
+    private void destroy( PooledConnection pooledConnection )
+    {
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( I18n.msg( I18n.MSG_04148_DESTROYING, pooledConnection.connection ) );
+        }
+
+        pooledConnection.state.set( REMOVED );
+        connections.remove( pooledConnection );
+        pooledConnections.remove( pooledConnection.connection );
+        size.decrementAndGet();
+
+        try
+        {
+            // unbind closes the connection so no need to close
+            pooledConnection.connection.unBind();
+        }
+        catch ( LdapException e )
+        {
+            LOG.error( I18n.err( I18n.ERR_04100_UNABLE_TO_UNBIND, e.getMessage() ) );
+        }
+    }
+
+
+    /**
+     * A pooled connection, with its state
+     */
+    private static final class PooledConnection
+    {
+        /** The connection given to the borrowers */
+        private final MonitoringLdapConnection connection;
+
+        /** The connection state : IDLE, IN_USE or REMOVED */
+        private final AtomicInteger state = new AtomicInteger( IN_USE );
+
+        /** The last time the connection has been released, from System.nanoTime() */
+        private volatile long lastUsed = System.nanoTime();
+
+
+        private PooledConnection( MonitoringLdapConnection connection )
+        {
+            this.connection = connection;
+        }
+    }
+}
@@ -25,15 +25,20 @@ import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 
 import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.AddRequestStreamingFilter;
 import org.apache.directory.api.ldap.codec.api.BinaryAttributeDetector;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.util.Network;
+import org.apache.mina.core.service.IoProcessor;
+import org.apache.mina.transport.socket.nio.NioSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +71,9 @@ public class LdapConnectionConfig
     /** the default protocol used for creating SSL context */
     public static final String DEFAULT_SSL_PROTOCOL = "TLS";
 
+    /** The default maximum time a request waits to be pipelined : 100 microseconds */
+    public static final long DEFAULT_PIPELINING_DELAY = 100L;
+
     // --- private members ----
     /** A flag indicating if we are using SSL or not, default value is false */
     private boolean useSsl = false;
@@ -127,6 +135,45 @@ public class LdapConnectionConfig
     /** The Service to use internally when creating connections */
     private LdapApiService ldapApiService;
 
+    /** The IoProcessor shared by all the connections using this configuration, if any */
+    private IoProcessor<NioSession> ioProcessor;
+
+    /** The executor decoding the received PDUs, if any */
+    private Executor decodingExecutor;
+
+    /** The number of queued search responses above which the reads are suspended, 0 for no limit */
+    private int searchQueueHighWaterMark = 0;
+
+    /** The number of queued search responses below which the reads are resumed */
+    private int searchQueueLowWaterMark = -1;
+
+    /** The executor completing the operations' CompletionStages, null to use the I/O thread */
+    private Executor completionExecutor;
+
+    /** The number of bytes above which the pipelined requests are flushed, 0 to disable pipelining */
+    private int pipeliningBatchSize = 0;
+
+    /** The maximum time a request waits to be pipelined, in microseconds */
+    private long pipeliningDelay = DEFAULT_PIPELINING_DELAY;
+
+    /** The scheduler flushing the pipelined requests, null to use a thread per connection */
+    private ScheduledExecutorService pipeliningScheduler;
+
+    /** Tells if the search result entries attributes are only decoded when read */
+    private boolean lazyEntries = false;
+
+    /** Tells if the most frequent responses are decoded by a specialized decoder */
+    private boolean fastDecoding = false;
+
+    /** The size above which the values of an AddRequest are streamed, 0 to only stream the StreamingAddRequests */
+    private int addStreamingThreshold = 0;
+
+    /** The maximum size of the chunks of a streamed AddRequest */
+    private int addStreamingChunkSize = AddRequestStreamingFilter.DEFAULT_CHUNK_SIZE;
+
+    /** The executor reading the chunks of a streamed AddRequest, null to use the I/O thread */
+    private Executor addStreamingExecutor;
+
 
     /**
      * Creates a default LdapConnectionConfig instance
@@ -672,4 +719,350 @@ public class LdapConnectionConfig
     {
         this.ldapApiService = ldapApiService;
     }
+
+
+    /**
+     * Gets the {@link IoProcessor} shared by the connections created with this
+     * configuration.
+     *
+     * @return the shared IoProcessor, or <tt>null</tt> if each connection uses its own
+     */
+    public IoProcessor<NioSession> getIoProcessor()
+    {
+        return ioProcessor;
+    }
+
+
+    /**
+     * Sets an {@link IoProcessor} to be shared by all the connections created
+     * with this configuration. When set, the connections don't start their own
+     * selector thread, but multiplex their sessions over the given processor, 
+     * typically a <tt>SimpleIoProcessorPool</tt> sized on the number of cores :
+     * 
+     * <pre>
+     * config.setIoProcessor( new SimpleIoProcessorPool&lt;NioSession&gt;( NioProcessor.class ) );
+     * </pre>
+     * 
+     * The processor is not disposed when a connection is closed : it's up to the
+     * caller to dispose it once all the connections using it have been closed.
+     *
+     * @param ioProcessor the IoProcessor to share, or <tt>null</tt> to use one per connection
+     */
+    public void setIoProcessor( IoProcessor<NioSession> ioProcessor )
+    {
+        this.ioProcessor = ioProcessor;
+    }
+
+
+    /**
+     * Gets the {@link Executor} decoding the PDUs received by the connections created
+     * with this configuration.
+     *
+     * @return the decoding executor, or <tt>null</tt> if the PDUs are decoded by the IO thread
+     */
+    public Executor getDecodingExecutor()
+    {
+        return decodingExecutor;
+    }
+
+
+    /**
+     * Sets an {@link Executor} used to decode the received PDUs, and to complete the
+     * associated futures. The IO thread then only frames the PDUs, and the decoding
+     * of large search results can use more than one core. The responses to a given
+     * request are still processed in the order they have been received, but the
+     * responses to different requests may be processed in parallel.
+     * 
+     * The executor is not shut down when a connection is closed : it's up to the
+     * application to do it.
+     *
+     * @param decodingExecutor the decoding executor, or <tt>null</tt> to decode in the IO thread (the default)
+     */
+    public void setDecodingExecutor( Executor decodingExecutor )
+    {
+        this.decodingExecutor = decodingExecutor;
+    }
+
+
+    /**
+     * Gets the number of search responses a search may queue before the reads on
+     * the connection are suspended.
+     *
+     * @return the high water mark, 0 if the search queues are not bounded
+     */
+    public int getSearchQueueHighWaterMark()
+    {
+        return searchQueueHighWaterMark;
+    }
+
+
+    /**
+     * Sets the number of search responses a search may queue before the reads on
+     * the connection are suspended. The reads are resumed when the cursor has 
+     * consumed enough entries to go below the low water mark. This allows a slow
+     * consumer to process a huge result set with a bounded memory footprint, at
+     * the price of blocking the other operations running on the same connection
+     * while the search results are not consumed.
+     *
+     * @param searchQueueHighWaterMark the high water mark, 0 to use unbounded queues (the default)
+     */
+    public void setSearchQueueHighWaterMark( int searchQueueHighWaterMark )
+    {
+        this.searchQueueHighWaterMark = searchQueueHighWaterMark;
+    }
+
+
+    /**
+     * Gets the number of queued search responses below which suspended reads are resumed.
+     *
+     * @return the low water mark, -1 if half the high water mark is used
+     */
+    public int getSearchQueueLowWaterMark()
+    {
+        return searchQueueLowWaterMark;
+    }
+
+
+    /**
+     * Sets the number of queued search responses below which suspended reads are
+     * resumed. If not set, or not lower than the high water mark, half the high 
+     * water mark is used.
+     *
+     * @param searchQueueLowWaterMark the low water mark
+     */
+    public void setSearchQueueLowWaterMark( int searchQueueLowWaterMark )
+    {
+        this.searchQueueLowWaterMark = searchQueueLowWaterMark;
+    }
+
+
+    /**
+     * Gets the executor used to complete the CompletionStages returned by the
+     * asynchronous operations.
+     *
+     * @return the completion executor, or <tt>null</tt> if the stages are completed by the I/O thread
+     */
+    public Executor getCompletionExecutor()
+    {
+        return completionExecutor;
+    }
+
+
+    /**
+     * Sets the executor used to complete the CompletionStages returned by the
+     * asynchronous operations. By default, the stages are completed directly by 
+     * the connection's I/O thread, which is the most efficient, but then the 
+     * continuations must never block : they would stop the connection from reading
+     * any other response.
+     *
+     * @param completionExecutor the completion executor, or <tt>null</tt> to complete the stages on the I/O thread
+     */
+    public void setCompletionExecutor( Executor completionExecutor )
+    {
+        this.completionExecutor = completionExecutor;
+    }
+
+
+    /**
+     * Gets the number of bytes above which the pipelined requests are flushed.
+     *
+     * @return the pipelining batch size, 0 if the pipelining is disabled
+     */
+    public int getPipeliningBatchSize()
+    {
+        return pipeliningBatchSize;
+    }
+
+
+    /**
+     * Enables the pipelining of the requests. The requests are written in batches,
+     * flushed when they reach this size, or when the first request has waited for 
+     * the pipelining delay. A burst of small requests is then sent with one system 
+     * call and one TLS record, instead of one per request.
+     * <br>
+     * When pipelining, sending a request does not wait for it to be written : the
+     * operation fails when waiting for its response if the request can't be written.
+     *
+     * @param pipeliningBatchSize the pipelining batch size in bytes, 0 to disable the pipelining
+     */
+    public void setPipeliningBatchSize( int pipeliningBatchSize )
+    {
+        this.pipeliningBatchSize = pipeliningBatchSize;
+    }
+
+
+    /**
+     * Gets the maximum time a request waits to be pipelined
+     *
+     * @return the pipelining delay, in microseconds
+     */
+    public long getPipeliningDelay()
+    {
+        return pipeliningDelay;
+    }
+
+
+    /**
+     * Sets the maximum time a request waits to be pipelined. Default to 100 microseconds.
+     *
+     * @param pipeliningDelay the pipelining delay, in microseconds
+     */
+    public void setPipeliningDelay( long pipeliningDelay )
+    {
+        this.pipeliningDelay = pipeliningDelay;
+    }
+
+
+    /**
+     * Gets the scheduler flushing the pipelined requests once the pipelining delay
+     * has elapsed.
+     *
+     * @return the pipelining scheduler, or <tt>null</tt> if each connection uses its own thread
+     */
+    public ScheduledExecutorService getPipeliningScheduler()
+    {
+        return pipeliningScheduler;
+    }
+
+
+    /**
+     * Sets the scheduler flushing the pipelined requests once the pipelining delay
+     * has elapsed, so that many connections can share one thread. When none is set,
+     * each pipelining connection starts its own thread, which is stopped when the 
+     * connection is closed.
+     * 
+     * The scheduler is not shut down when a connection is closed : it's up to the
+     * application to do it.
+     *
+     * @param pipeliningScheduler the pipelining scheduler, or <tt>null</tt> to use a thread per connection (the default)
+     */
+    public void setPipeliningScheduler( ScheduledExecutorService pipeliningScheduler )
+    {
+        this.pipeliningScheduler = pipeliningScheduler;
+    }
+
+
+    /**
+     * @return <code>true</code> if the search result entries are lazily decoded
+     */
+    public boolean isLazyEntries()
+    {
+        return lazyEntries;
+    }
+
+
+    /**
+     * Tells the connection to decode the search result entries lazily : their attributes
+     * are kept encoded, and each attribute is only decoded, and normalized if a schema
+     * has been loaded, when it's read. This saves a lot of CPU and memory when only a
+     * few attributes of wide entries are used. Default to false.
+     *
+     * @param lazyEntries <code>true</code> to decode the entries lazily
+     */
+    public void setLazyEntries( boolean lazyEntries )
+    {
+        this.lazyEntries = lazyEntries;
+    }
+
+
+    /**
+     * @return <code>true</code> if the most frequent responses are decoded by a specialized decoder
+     */
+    public boolean isFastDecoding()
+    {
+        return fastDecoding;
+    }
+
+
+    /**
+     * Tells the connection to decode the BindResponse, SearchResultEntry and SearchResultDone
+     * PDUs with a specialized decoder, instead of the generic LDAP grammar. The responses
+     * carrying controls, and the other operations, are still decoded by the grammar. Default
+     * to false.
+     *
+     * @param fastDecoding <code>true</code> to use the specialized decoder
+     */
+    public void setFastDecoding( boolean fastDecoding )
+    {
+        this.fastDecoding = fastDecoding;
+    }
+
+
+    /**
+     * Gets the size above which the values of an AddRequest are streamed.
+     *
+     * @return the streaming threshold, 0 if only the StreamingAddRequests are streamed
+     */
+    public int getAddStreamingThreshold()
+    {
+        return addStreamingThreshold;
+    }
+
+
+    /**
+     * Sets the size above which the values of an AddRequest are streamed : such an
+     * AddRequest is written in chunks, its values being sent without being copied in an
+     * encoding buffer. The {@link org.apache.directory.api.ldap.codec.api.StreamingAddRequest}s,
+     * which values are read from buffers or streams, are always written this way. Default
+     * to 0.
+     *
+     * @param addStreamingThreshold the streaming threshold in bytes, 0 to only stream the
+     * StreamingAddRequests
+     */
+    public void setAddStreamingThreshold( int addStreamingThreshold )
+    {
+        this.addStreamingThreshold = addStreamingThreshold;
+    }
+
+
+    /**
+     * Gets the maximum size of the chunks of a streamed AddRequest.
+     *
+     * @return the chunk size, in bytes
+     */
+    public int getAddStreamingChunkSize()
+    {
+        return addStreamingChunkSize;
+    }
+
+
+    /**
+     * Sets the maximum size of the chunks of a streamed AddRequest. A chunk is written
+     * once the previous one has been sent, so this is the memory needed to send the
+     * request. Default to 64KB.
+     *
+     * @param addStreamingChunkSize the chunk size, in bytes
+     */
+    public void setAddStreamingChunkSize( int addStreamingChunkSize )
+    {
+        this.addStreamingChunkSize = addStreamingChunkSize;
+    }
+
+
+    /**
+     * Gets the {@link Executor} reading the chunks of the streamed AddRequests.
+     *
+     * @return the streaming executor, or <tt>null</tt> if the chunks are read by the IO thread
+     */
+    public Executor getAddStreamingExecutor()
+    {
+        return addStreamingExecutor;
+    }
+
+
+    /**
+     * Sets an {@link Executor} reading the chunks of the streamed AddRequests, once the
+     * previous chunk has been sent. Otherwise they are read by the IO thread, which is
+     * blocked while a value is read from an InputStream, delaying all the connections
+     * sharing it.
+     * 
+     * The executor is not shut down when a connection is closed : it's up to the
+     * application to do it.
+     *
+     * @param addStreamingExecutor the streaming executor, or <tt>null</tt> to read the chunks in the IO thread (the default)
+     */
+    public void setAddStreamingExecutor( Executor addStreamingExecutor )
+    {
+        this.addStreamingExecutor = addStreamingExecutor;
+    }
 }
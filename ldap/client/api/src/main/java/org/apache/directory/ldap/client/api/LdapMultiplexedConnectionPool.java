@@ -0,0 +1,410 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.io.Closeable;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A pool sharing a few bound connections between many concurrent callers.
+ * <br>
+ * As LDAP allows many outstanding requests on a connection, the pool doesn't give
+ * a connection away for exclusive use : it leases channels, {@link MultiplexedLdapConnection}
+ * instances sending their requests over one of the shared connections. Each channel 
+ * is leased on the shared connection having the fewest outstanding requests (the
+ * requests sent and still waiting for their final response), and at most 
+ * <tt>maxInFlight</tt> requests can be outstanding on a shared connection, whatever 
+ * the number of channels using it : when a connection is at its cap, the callers 
+ * sending a request wait for another request to complete.
+ * <br>
+ * All the channels share the identity and the state of the connections, so they
+ * can't bind, unbind, start TLS, load a schema or change the timeout and the binary 
+ * attributes. This pool is typically used for read-heavy workloads under one service 
+ * account. A search never suspends the reads of a shared connection, as it would stall 
+ * the other channels : the search responses queues are not bounded, whatever the 
+ * configured search queue water marks.
+ * <br>
+ * The cap on the outstanding requests and the balancing apply to the 
+ * {@link LdapNetworkConnection} instances the default factories create. With a factory
+ * creating some other kind of connections, the channels are balanced on the number
+ * of channels leased on each connection, and the requests are not capped.
+ * <br>
+ * The connections are created when first needed, and replaced when they have been
+ * closed by the server.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapMultiplexedConnectionPool implements Closeable
+{
+    private static final Logger LOG = LoggerFactory.getLogger( LdapMultiplexedConnectionPool.class );
+
+    /** The factory creating the bound connections */
+    private final LdapConnectionFactory factory;
+
+    /** The shared connections */
+    private final SharedConnection[] sharedConnections;
+
+    /** The maximum number of outstanding requests on a shared connection */
+    private final int maxInFlight;
+
+    /** 
+     * The maximum time to wait for an outstanding request to complete when a shared connection
+     * is at its cap, in milliseconds. A negative value waits forever 
+     */
+    private final long maxWait;
+
+    /** The lock protecting the leased channel counters */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Tells if the pool has been closed */
+    private boolean closed = false;
+
+
+    /**
+     * Instantiates a new multiplexed pool, waiting for an outstanding request to complete 
+     * up to the configured timeout.
+     *
+     * @param config The connection configuration, used to connect and bind
+     * @param maxConnections The maximum number of shared connections
+     * @param maxInFlight The maximum number of outstanding requests on a shared connection
+     */
+    public LdapMultiplexedConnectionPool( LdapConnectionConfig config, int maxConnections, int maxInFlight )
+    {
+        this( new DefaultLdapConnectionFactory( config ), maxConnections, maxInFlight, config.getTimeout() );
+    }
+
+
+    /**
+     * Instantiates a new multiplexed pool.
+     *
+     * @param factory The factory creating the bound connections
+     * @param maxConnections The maximum number of shared connections
+     * @param maxInFlight The maximum number of outstanding requests on a shared connection
+     * @param maxWait The maximum time to wait for an outstanding request to complete when a shared
+     * connection is at its cap, in milliseconds. A negative value waits forever
+     */
+    public LdapMultiplexedConnectionPool( LdapConnectionFactory factory, int maxConnections, int maxInFlight,
+        long maxWait )
+    {
+        if ( ( maxConnections <= 0 ) || ( maxInFlight <= 0 ) )
+        {
+            throw new IllegalArgumentException( 
+                I18n.err( I18n.ERR_04182_INVALID_MULTIPLEXED_POOL_SIZE, maxConnections, maxInFlight ) );
+        }
+
+        this.factory = factory;
+        this.maxInFlight = maxInFlight;
+        this.maxWait = maxWait;
+        sharedConnections = new SharedConnection[maxConnections];
+
+        for ( int i = 0; i < maxConnections; i++ )
+        {
+            sharedConnections[i] = new SharedConnection();
+        }
+    }
+
+
+    /**
+     * Leases a channel over one of the shared connections. The channel must be released
+     * by closing it, or by calling {@link #releaseConnection(LdapConnection)}.
+     *
+     * @return A channel
+     * @throws LdapException If the pool has been closed, or if the shared connection can't 
+     * be established
+     */
+    public LdapConnection getConnection() throws LdapException
+    {
+        SharedConnection sharedConnection = lease();
+
+        try
+        {
+            LdapConnection channel = new MultiplexedLdapConnection( sharedConnection.getConnection(), 
+                () -> release( sharedConnection ) );
+
+            if ( LOG.isTraceEnabled() )
+            {
+                LOG.trace( I18n.msg( I18n.MSG_04163_BORROWED_CONNECTION, channel ) );
+            }
+
+            return channel;
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            release( sharedConnection );
+
+            throw e;
+        }
+    }
+
+
+    /**
+     * Releases a channel leased from this pool.
+     * 
+     * @param connection The channel to release
+     */
+    public void releaseConnection( LdapConnection connection )
+    {
+        ( ( MultiplexedLdapConnection ) connection ).release();
+
+        if ( LOG.isTraceEnabled() )
+        {
+            LOG.trace( I18n.msg( I18n.MSG_04164_RETURNED_CONNECTION, connection ) );
+        }
+    }
+
+
+    /**
+     * @return The number of leased channels
+     */
+    public int getNumActive()
+    {
+        lock.lock();
+
+        try
+        {
+            int numActive = 0;
+
+            for ( SharedConnection sharedConnection : sharedConnections )
+            {
+                numActive += sharedConnection.leased;
+            }
+
+            return numActive;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Closes the pool : the shared connections are unbound, and the callers waiting 
+     * for a channel get an exception. The channels still leased fail when used.
+     */
+    @Override
+    public void close()
+    {
+        lock.lock();
+
+        try
+        {
+            closed = true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        for ( SharedConnection sharedConnection : sharedConnections )
+        {
+            sharedConnection.close();
+        }
+    }
+
+
+    /**
+     * Picks the shared connection having the fewest outstanding requests, and then the
+     * fewest leased channels. The connections which have not been created yet have no
+     * outstanding request.
+     */
+    private SharedConnection lease() throws LdapException
+    {
+        lock.lock();
+
+        try
+        {
+            if ( closed )
+            {
+                throw new InvalidConnectionException( I18n.err( I18n.ERR_04183_POOL_CLOSED ) );
+            }
+
+            SharedConnection selected = null;
+            int selectedOutstanding = 0;
+
+            for ( SharedConnection sharedConnection : sharedConnections )
+            {
+                int outstanding = sharedConnection.getOutstandingRequests();
+
+                if ( ( selected == null ) || ( outstanding < selectedOutstanding ) 
+                    || ( ( outstanding == selectedOutstanding ) && ( sharedConnection.leased < selected.leased ) ) )
+                {
+                    selected = sharedConnection;
+                    selectedOutstanding = outstanding;
+                }
+            }
+
+            selected.leased++;
+
+            return selected;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Gives back a channel leased on a shared connection
+     */
+    private void release( SharedConnection sharedConnection )
+    {
+        lock.lock();
+
+        try
+        {
+            sharedConnection.leased--;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * A connection shared by many channels
+     */
+    private final class SharedConnection
+    {
+        /** The bound connection, created when first needed */
+        private volatile LdapConnection connection;
+
+        /** The number of channels leased on this connection, guarded by the pool lock */
+        private int leased;
+
+        /** The lock protecting the connection creation */
+        private final ReentrantLock creationLock = new ReentrantLock();
+
+
+        /**
+         * @return The bound connection, created if it does not exist or has been closed
+         * @throws LdapException If the connection can't be created
+         */
+        private LdapConnection getConnection() throws LdapException
+        {
+            LdapConnection current = connection;
+
+            if ( ( current != null ) && current.isConnected() )
+            {
+                return current;
+            }
+
+            creationLock.lock();
+
+            try
+            {
+                if ( ( connection == null ) || !connection.isConnected() )
+                {
+                    closeQuietly();
+                    LdapConnection created = factory.newLdapConnection();
+
+                    if ( created instanceof LdapNetworkConnection )
+                    {
+                        ( ( LdapNetworkConnection ) created ).share( maxInFlight, maxWait );
+                    }
+
+                    connection = created;
+                }
+
+                return connection;
+            }
+            finally
+            {
+                creationLock.unlock();
+            }
+        }
+
+
+        /**
+         * @return The number of requests waiting for a response on this connection, or the
+         * number of leased channels if the connection can't tell
+         */
+        private int getOutstandingRequests()
+        {
+            LdapConnection current = connection;
+
+            if ( current instanceof LdapNetworkConnection )
+            {
+                return ( ( LdapNetworkConnection ) current ).getOutstandingRequests();
+            }
+            else if ( current == null )
+            {
+                return 0;
+            }
+            else
+            {
+                return leased;
+            }
+        }
+
+
+        /**
+         * Unbinds the connection
+         */
+        private void close()
+        {
+            creationLock.lock();
+
+            try
+            {
+                closeQuietly();
+            }
+            finally
+            {
+                creationLock.unlock();
+            }
+        }
+
+
+        private void closeQuietly()
+        {
+            if ( connection == null )
+            {
+                return;
+            }
+
+            if ( connection instanceof LdapNetworkConnection )
+            {
+                // The shared connection rejects the unbind
+                ( ( LdapNetworkConnection ) connection ).unshare();
+            }
+
+            try
+            {
+                // unbind closes the connection so no need to close
+                connection.unBind();
+            }
+            catch ( LdapException e )
+            {
+                LOG.error( I18n.err( I18n.ERR_04100_UNABLE_TO_UNBIND, e.getMessage() ) );
+            }
+        }
+    }
+}
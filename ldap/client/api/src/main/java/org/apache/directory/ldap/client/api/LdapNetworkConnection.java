@@ -40,11 +40,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.ssl.SSLContext;
@@ -59,16 +62,20 @@ import javax.security.sasl.SaslClient;
 import org.apache.directory.api.asn1.DecoderException;
 import org.apache.directory.api.asn1.util.Oid;
 import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.AddRequestStreamingFilter;
 import org.apache.directory.api.ldap.codec.api.BinaryAttributeDetector;
 import org.apache.directory.api.ldap.codec.api.DefaultConfigurableBinaryAttributeDetector;
 import org.apache.directory.api.ldap.codec.api.ExtendedOperationFactory;
+import org.apache.directory.api.ldap.codec.api.LazyEntry;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
 import org.apache.directory.api.ldap.codec.api.LdapDecoder;
+import org.apache.directory.api.ldap.codec.api.LdapDecodingFilter;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.codec.api.MessageEncoderException;
 import org.apache.directory.api.ldap.codec.api.SaslFilter;
 import org.apache.directory.api.ldap.codec.api.SchemaBinaryAttributeDetector;
+import org.apache.directory.api.ldap.codec.api.WriteCoalescingFilter;
 import org.apache.directory.api.ldap.extras.controls.ad.TreeDelete;
 import org.apache.directory.api.ldap.extras.controls.ad.TreeDeleteImpl;
 import org.apache.directory.api.ldap.extras.extended.startTls.StartTlsRequestImpl;
@@ -161,6 +168,7 @@ import org.apache.directory.ldap.client.api.exception.LdapConnectionTimeOutExcep
 import org.apache.directory.ldap.client.api.future.AddFuture;
 import org.apache.directory.ldap.client.api.future.BindFuture;
 import org.apache.directory.ldap.client.api.future.CompareFuture;
+import org.apache.directory.ldap.client.api.future.CompletionStageProvider;
 import org.apache.directory.ldap.client.api.future.DeleteFuture;
 import org.apache.directory.ldap.client.api.future.ExtendedFuture;
 import org.apache.directory.ldap.client.api.future.HandshakeFuture;
@@ -168,10 +176,15 @@ import org.apache.directory.ldap.client.api.future.ModifyDnFuture;
 import org.apache.directory.ldap.client.api.future.ModifyFuture;
 import org.apache.directory.ldap.client.api.future.ResponseFuture;
 import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.apache.directory.ldap.client.api.future.SearchPublisher;
+import org.apache.directory.ldap.client.api.future.SearchSubscriber;
+import org.apache.directory.ldap.client.api.future.SearchSubscription;
+import org.apache.directory.ldap.client.api.future.SearchSubscriptionFuture;
 import org.apache.mina.core.filterchain.IoFilter;
 import org.apache.mina.core.filterchain.IoFilterChain;
 import org.apache.mina.core.future.CloseFuture;
 import org.apache.mina.core.future.ConnectFuture;
+import org.apache.mina.core.future.IoFuture;
 import org.apache.mina.core.future.WriteFuture;
 import org.apache.mina.core.service.IoConnector;
 import org.apache.mina.core.session.IoSession;
@@ -241,6 +254,21 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     /** a map to hold the ResponseFutures for all operations */
     private Map<Integer, ResponseFuture<? extends Response>> futureMap = new ConcurrentHashMap<>();
 
+    /** Set when the connection is shared by the channels of a multiplexed pool */
+    private volatile boolean shared = false;
+
+    /** The maximum number of outstanding requests on a shared connection, 0 if unbounded */
+    private int maxOutstandingRequests;
+
+    /** The maximum time to wait for an outstanding request slot, in milliseconds. A negative value waits forever */
+    private long outstandingRequestsWait;
+
+    /** The lock used to wait for an outstanding request slot */
+    private final ReentrantLock outstandingLock = new ReentrantLock();
+
+    /** The condition signaled when a request has been removed from the future map */
+    private final Condition requestCompleted = outstandingLock.newCondition();
+
     /** list of controls supported by the server */
     private List<String> supportedControls;
 
@@ -267,6 +295,15 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     /** The SaslFilter key */
     private static final String SASL_FILTER_KEY = "saslFilter";
 
+    /** The LdapDecodingFilter key */
+    private static final String DECODING_FILTER_KEY = "decodingFilter";
+
+    /** The WriteCoalescingFilter key */
+    private static final String WRITE_COALESCING_FILTER_KEY = "writeCoalescingFilter";
+
+    /** The AddRequest streaming filter key */
+    private static final String ADD_STREAMING_FILTER_KEY = "addStreamingFilter";
+
     /** The exception stored in the session if we've got one */
     private static final String EXCEPTION_KEY = "sessionException";
 
@@ -279,6 +316,17 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     /** A future used to wait for a connection to be closed */
     private CompletableFuture<Integer> connectionCloseFuture = new CompletableFuture<>(); 
     
+    /**
+     * An asynchronous operation sending a request and returning its Future.
+     * 
+     * @param <F> The Future type
+     */
+    @FunctionalInterface
+    private interface AsyncOperation<F>
+    {
+        F send() throws LdapException;
+    }
+    
     // ~~~~~~~~~~~~~~~~~ common error messages ~~~~~~~~~~~~~~~~~~~~~~~~~~
     static final String TIME_OUT_ERROR = I18n.err( I18n.ERR_04170_TIMEOUT_OCCURED );
 
@@ -538,8 +586,17 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     private void createConnector() throws LdapException
     {
-        // Use only one thread inside the connector
-        connector = new NioSocketConnector( 1 );
+        if ( config.getIoProcessor() != null )
+        {
+            // Use the processor shared with the other connections. It won't
+            // be disposed when the connector is.
+            connector = new NioSocketConnector( config.getIoProcessor() );
+        }
+        else
+        {
+            // Use only one thread inside the connector
+            connector = new NioSocketConnector( 1 );
+        }
         
         if ( socketSessionConfig != null )
         {
@@ -553,6 +610,26 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         // Add the codec to the chain
         connector.getFilterChain().addLast( LDAP_CODEC_FILTER_KEY, ldapProtocolFilter );
 
+        // Decode the responses out of the IO thread
+        if ( config.getDecodingExecutor() != null )
+        {
+            connector.getFilterChain().addAfter( LDAP_CODEC_FILTER_KEY, DECODING_FILTER_KEY,
+                new LdapDecodingFilter( config.getDecodingExecutor() ) );
+        }
+
+        // Write the big AddRequests in chunks
+        connector.getFilterChain().addAfter( LDAP_CODEC_FILTER_KEY, ADD_STREAMING_FILTER_KEY,
+            new AddRequestStreamingFilter( codec, config.getAddStreamingThreshold(), config.getAddStreamingChunkSize(),
+                config.getAddStreamingExecutor() ) );
+
+        // Coalesce the encoded requests when pipelining
+        if ( config.getPipeliningBatchSize() > 0 )
+        {
+            connector.getFilterChain().addBefore( LDAP_CODEC_FILTER_KEY, WRITE_COALESCING_FILTER_KEY,
+                new WriteCoalescingFilter( config.getPipeliningBatchSize(), config.getPipeliningDelay(),
+                    config.getPipeliningScheduler() ) );
+        }
+
         // If we use SSL, we have to add the SslFilter to the chain
         if ( config.isUseSsl() )
         {
@@ -627,14 +704,145 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     }
 
 
-    private void addToFutureMap( int messageId, ResponseFuture<? extends Response> future )
+    private void addToFutureMap( int messageId, ResponseFuture<? extends Response> future ) throws LdapException
     {
         if ( LOG.isDebugEnabled() )
         {
             LOG.debug( I18n.msg( I18n.MSG_04106_ADDING, messageId, future.getClass().getName() ) );
         }
         
-        futureMap.put( messageId, future );
+        if ( ( config.getCompletionExecutor() != null ) && ( future instanceof CompletionStageProvider ) )
+        {
+            ( ( CompletionStageProvider<?> ) future ).setCompletionExecutor( config.getCompletionExecutor() );
+        }
+        
+        if ( shared && ( maxOutstandingRequests > 0 ) )
+        {
+            addToBoundedFutureMap( messageId, future );
+        }
+        else
+        {
+            futureMap.put( messageId, future );
+        }
+    }
+
+
+    /**
+     * Adds a future to the map of a shared connection, waiting for an outstanding
+     * request to complete if the connection is at its cap.
+     */
+    private void addToBoundedFutureMap( int messageId, ResponseFuture<? extends Response> future ) 
+        throws LdapException
+    {
+        long remaining = TimeUnit.MILLISECONDS.toNanos( outstandingRequestsWait );
+
+        outstandingLock.lock();
+
+        try
+        {
+            while ( futureMap.size() >= maxOutstandingRequests )
+            {
+                if ( outstandingRequestsWait < 0L )
+                {
+                    requestCompleted.await();
+                }
+                else if ( remaining > 0L )
+                {
+                    remaining = requestCompleted.awaitNanos( remaining );
+                }
+                else
+                {
+                    throw new LdapConnectionTimeOutException( 
+                        I18n.err( I18n.ERR_04191_TOO_MANY_OUTSTANDING_REQUESTS, outstandingRequestsWait ) );
+                }
+            }
+
+            futureMap.put( messageId, future );
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new LdapOtherException( ie.getMessage(), ie );
+        }
+        finally
+        {
+            outstandingLock.unlock();
+        }
+    }
+
+
+    /**
+     * Wakes up the callers waiting for an outstanding request slot, once some requests
+     * have been removed from the future map.
+     */
+    private void requestsRemoved()
+    {
+        if ( shared )
+        {
+            outstandingLock.lock();
+
+            try
+            {
+                requestCompleted.signalAll();
+            }
+            finally
+            {
+                outstandingLock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Makes this connection a connection shared by the channels of a {@link LdapMultiplexedConnectionPool}.
+     * The operations changing the state of the connection (including the binds and the
+     * unbind) are then rejected, the reads are
+     * never suspended by a search, and at most <tt>maxOutstandingRequests</tt> requests can
+     * be waiting for a response : the callers sending more requests wait for one of them 
+     * to complete.
+     * 
+     * @param maxOutstandingRequests The maximum number of outstanding requests, 0 if unbounded
+     * @param maxWait The maximum time to wait for an outstanding request slot, in milliseconds. 
+     * A negative value waits forever
+     */
+    void share( int maxOutstandingRequests, long maxWait )
+    {
+        this.maxOutstandingRequests = maxOutstandingRequests;
+        this.outstandingRequestsWait = maxWait;
+        this.shared = true;
+    }
+
+
+    /**
+     * Makes this connection a private connection again, so that the pool sharing it can
+     * unbind it.
+     */
+    void unshare()
+    {
+        this.shared = false;
+    }
+
+
+    /**
+     * @return The number of requests sent on this connection which are still waiting for 
+     * their final response
+     */
+    public int getOutstandingRequests()
+    {
+        return futureMap.size();
+    }
+
+
+    /**
+     * Rejects the operations changing the state of a connection shared by many channels
+     */
+    private void checkNotShared()
+    {
+        if ( shared )
+        {
+            throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+        }
     }
 
 
@@ -642,9 +850,14 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     {
         ResponseFuture<? extends Response> future = futureMap.remove( messageId );
 
-        if ( LOG.isDebugEnabled() && ( future != null ) )
+        if ( future != null )
         {
-            LOG.debug( I18n.msg( I18n.MSG_04126_REMOVING, messageId, future.getClass().getName() ) );
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( I18n.msg( I18n.MSG_04126_REMOVING, messageId, future.getClass().getName() ) );
+            }
+
+            requestsRemoved();
         }
 
         return future;
@@ -714,7 +927,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         // Wait until it's established
         try
         {
-            result = connectionFuture.await( connectTimeout );
+            result = await( connectionFuture, connectTimeout );
         }
         catch ( InterruptedException e )
         {
@@ -933,6 +1146,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             }
 
             futureMap.clear();
+            requestsRemoved();
         } );
     }
     
@@ -963,10 +1177,25 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
                 atDetector = new SchemaBinaryAttributeDetector( schemaManager );
             }
 
-            ioSession.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR,
-                new LdapMessageContainer<Message>( codec, atDetector ) );
+            ioSession.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR, newMessageContainer( atDetector ) );
         }
     }
+
+
+    /**
+     * Creates the container used to decode the messages received on the session
+     *
+     * @param binaryAttributeDetector The detector used to know if the attributes are binary
+     * @return The new container
+     */
+    private LdapMessageContainer<Message> newMessageContainer( BinaryAttributeDetector binaryAttributeDetector )
+    {
+        LdapMessageContainer<Message> container = new LdapMessageContainer<>( codec, binaryAttributeDetector );
+        container.setLazyEntries( config.isLazyEntries() );
+        container.setFastDecoding( config.isFastDecoding() );
+
+        return container;
+    }
     
 
     //-------------------------- The methods ---------------------------//
@@ -1025,7 +1254,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             // establish TLS layer if TLS is enabled and SSL is NOT
             if ( config.isUseTls() && !config.isUseSsl() )
             {
-                startTls();
+                establishTls();
             }
 
             // And return
@@ -1648,6 +1877,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             throw new IllegalArgumentException( msg );
         }
 
+        checkNotShared();
+
         // First switch to anonymous state
         authenticated.set( false );
 
@@ -2185,6 +2416,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     public BindFuture bindAsync( SaslGssApiRequest request )
         throws LdapException
     {
+        checkNotShared();
+
         // Krb5.conf file
         if ( request.getKrb5ConfFilePath() != null )
         {
@@ -2328,6 +2561,144 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     @Override
     public SearchFuture searchAsync( SearchRequest searchRequest ) throws LdapException
+    {
+        checkSearchRequest( searchRequest );
+
+        // try to connect, if we aren't already connected.
+        connect();
+
+        // If the session has not been establish, or is closed, we get out immediately
+        checkSession();
+
+        prepareSearchRequest( searchRequest );
+
+        SearchFuture searchFuture;
+        
+        if ( ( config.getSearchQueueHighWaterMark() > 0 ) && !shared )
+        {
+            // Bound the number of responses the future can hold. This is not done on
+            // a shared connection, as suspending the reads would stall the other channels
+            searchFuture = new SearchFuture( this, searchRequest.getMessageId(), ioSession, 
+                config.getSearchQueueHighWaterMark(), config.getSearchQueueLowWaterMark() );
+        }
+        else
+        {
+            searchFuture = new SearchFuture( this, searchRequest.getMessageId() );
+        }
+        
+        addToFutureMap( searchRequest.getMessageId(), searchFuture );
+
+        // Send the request to the server
+        writeRequest( searchRequest );
+
+        // Check that the future hasn't be canceled
+        if ( searchFuture.isCancelled() )
+        {
+            // Throw an exception here
+            throw new LdapException( searchFuture.getCause() );
+        }
+
+        // Ok, done return the future
+        return searchFuture;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchPublisher searchPublisher( SearchRequest searchRequest )
+    {
+        checkSearchRequest( searchRequest );
+
+        return subscriber -> subscribeSearch( searchRequest, subscriber );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchCursor searchPaged( SearchRequest searchRequest, int pageSize ) throws LdapException
+    {
+        checkSearchRequest( searchRequest );
+
+        long localSearchTimeout = getTimeout( readOperationTimeout, searchRequest.getTimeLimit() );
+
+        return new PagedSearchCursor( this, searchRequest, pageSize, localSearchTimeout, TimeUnit.MILLISECONDS );
+    }
+
+
+    /**
+     * Sends a SearchRequest which responses will be pushed to the given subscriber.
+     * 
+     * @param searchRequest The search request to send
+     * @param subscriber The subscriber to feed
+     */
+    private void subscribeSearch( SearchRequest searchRequest, SearchSubscriber subscriber )
+    {
+        SearchSubscriptionFuture searchFuture = null;
+
+        try
+        {
+            // try to connect, if we aren't already connected.
+            connect();
+
+            // If the session has not been establish, or is closed, we get out immediately
+            checkSession();
+
+            prepareSearchRequest( searchRequest );
+
+            // The reads of a shared connection are never suspended, as it would stall the 
+            // other channels : the responses are queued until the subscriber asks for them
+            searchFuture = new SearchSubscriptionFuture( this, searchRequest.getMessageId(), 
+                shared ? null : ioSession, subscriber );
+            addToFutureMap( searchRequest.getMessageId(), searchFuture );
+
+            // The subscriber may request some responses, or cancel, before we send the request
+            subscriber.onSubscribe( searchFuture.getSubscription() );
+
+            if ( !searchFuture.isCancelled() )
+            {
+                writeRequest( searchRequest );
+            }
+        }
+        catch ( LdapException e )
+        {
+            if ( searchFuture == null )
+            {
+                subscriber.onSubscribe( new SearchSubscription()
+                {
+                    @Override
+                    public void request( long n )
+                    {
+                        // Nothing to deliver
+                    }
+
+
+                    @Override
+                    public void cancel()
+                    {
+                        // Nothing to cancel
+                    }
+                } );
+                subscriber.onError( e );
+            }
+            else
+            {
+                removeFromFutureMaps( searchRequest.getMessageId() );
+                searchFuture.fail( e );
+            }
+        }
+    }
+
+
+    /**
+     * Checks that a SearchRequest can be sent
+     * 
+     * @param searchRequest The search request to check
+     */
+    private void checkSearchRequest( SearchRequest searchRequest )
     {
         if ( searchRequest == null )
         {
@@ -2352,13 +2723,16 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             
             throw new IllegalArgumentException( msg );
         }
+    }
 
-        // try to connect, if we aren't already connected.
-        connect();
-
-        // If the session has not been establish, or is closed, we get out immediately
-        checkSession();
 
+    /**
+     * Sets the SearchRequest message ID and controls before it's sent
+     * 
+     * @param searchRequest The search request to prepare
+     */
+    private void prepareSearchRequest( SearchRequest searchRequest )
+    {
         int newId = messageId.incrementAndGet();
         searchRequest.setMessageId( newId );
 
@@ -2372,22 +2746,6 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         {
             LOG.debug( I18n.msg( I18n.MSG_04104_SENDING_REQUEST, searchRequest ) );
         }
-
-        SearchFuture searchFuture = new SearchFuture( this, searchRequest.getMessageId() );
-        addToFutureMap( searchRequest.getMessageId(), searchFuture );
-
-        // Send the request to the server
-        writeRequest( searchRequest );
-
-        // Check that the future hasn't be canceled
-        if ( searchFuture.isCancelled() )
-        {
-            // Throw an exception here
-            throw new LdapException( searchFuture.getCause() );
-        }
-
-        // Ok, done return the future
-        return searchFuture;
     }
 
 
@@ -2439,6 +2797,103 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         return new SearchCursorImpl( searchFuture, localSearchTimeout, TimeUnit.MILLISECONDS );
     }
 
+    //------------------------ The LDAP operations ------------------------//
+    // CompletionStage operations                                          //
+    //---------------------------------------------------------------------//
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<AddResponse> addStage( AddRequest addRequest )
+    {
+        return toCompletionStage( () -> addAsync( addRequest ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<BindResponse> bindStage( BindRequest bindRequest )
+    {
+        return toCompletionStage( () -> bindAsync( bindRequest ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<CompareResponse> compareStage( CompareRequest compareRequest )
+    {
+        return toCompletionStage( () -> compareAsync( compareRequest ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<DeleteResponse> deleteStage( DeleteRequest deleteRequest )
+    {
+        return toCompletionStage( () -> deleteAsync( deleteRequest ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<ExtendedResponse> extendedStage( ExtendedRequest extendedRequest )
+    {
+        return toCompletionStage( () -> extendedAsync( extendedRequest ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<ModifyResponse> modifyStage( ModifyRequest modRequest )
+    {
+        return toCompletionStage( () -> modifyAsync( modRequest ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<ModifyDnResponse> modifyDnStage( ModifyDnRequest modDnRequest )
+    {
+        return toCompletionStage( () -> modifyDnAsync( modDnRequest ) );
+    }
+
+
+    /**
+     * Sends a request and returns the CompletionStage associated with its Future. If the
+     * request can't be sent, the returned stage is completed exceptionally.
+     * 
+     * @param operation The asynchronous operation sending the request
+     * @return The CompletionStage
+     */
+    private <R extends Response> CompletionStage<R> toCompletionStage( 
+        AsyncOperation<? extends CompletionStageProvider<R>> operation )
+    {
+        try
+        {
+            return operation.send().getCompletionStage();
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            CompletableFuture<R> failed = new CompletableFuture<>();
+            failed.completeExceptionally( e );
+
+            return failed;
+        }
+    }
+
+
     //------------------------ The LDAP operations ------------------------//
     // Unbind operations                                                   //
     //---------------------------------------------------------------------//
@@ -2448,6 +2903,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     @Override
     public void unBind() throws LdapException
     {
+        checkNotShared();
+
         // If the session has not been establish, or is closed, we get out immediately
         checkSession();
 
@@ -2468,7 +2925,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         // Use this for logging instead: WriteFuture unbindFuture = ldapSession.write( unbindRequest )
         WriteFuture unbindFuture = ioSession.write( unbindRequest );
 
-        unbindFuture.awaitUninterruptibly( sendTimeout );
+        awaitUninterruptibly( unbindFuture, sendTimeout );
 
         try
         {
@@ -2507,6 +2964,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     @Override
     public void setTimeOut( long timeout )
     {
+        checkNotShared();
+
         if ( timeout <= 0 )
         {
             // Set a date in the far future : 100 years
@@ -2613,11 +3072,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             }
         }
 
+        // Remove the future from the map before storing the response, so that the request
+        // is not outstanding anymore when the caller gets it
+        removeFromFutureMaps( responseId );
+
         // Store the response into the future
         addFuture.set( addResponse );
-
-        // Remove the future from the map
-        removeFromFutureMaps( responseId );
     }
 
 
@@ -2652,11 +3112,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             }
         }
 
+        // Remove the future from the map before storing the response, so that the request
+        // is not outstanding anymore when the caller gets it
+        removeFromFutureMaps( responseId );
+
         // Store the response into the future
         bindFuture.set( bindResponse );
-
-        // Remove the future from the map
-        removeFromFutureMaps( responseId );
     }
 
 
@@ -2686,11 +3147,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             }
         }
 
+        // Remove the future from the map before storing the response, so that the request
+        // is not outstanding anymore when the caller gets it
+        removeFromFutureMaps( responseId );
+
         // Store the response into the future
         compareFuture.set( compareResponse );
-
-        // Remove the future from the map
-        removeFromFutureMaps( responseId );
     }
 
 
@@ -2719,11 +3181,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             }
         }
 
+        // Remove the future from the map before storing the response, so that the request
+        // is not outstanding anymore when the caller gets it
+        removeFromFutureMaps( responseId );
+
         // Store the response into the future
         deleteFuture.set( deleteResponse );
-
-        // Remove the future from the map
-        removeFromFutureMaps( responseId );
     }
 
 
@@ -2755,11 +3218,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         
         extendedResponse = handleOpaqueResponse( extendedResponse, extendedFuture );
 
+        // Remove the future from the map before storing the response, so that the request
+        // is not outstanding anymore when the caller gets it
+        removeFromFutureMaps( responseId );
+
         // Store the response into the future
         extendedFuture.set( extendedResponse );
-
-        // Remove the future from the map
-        removeFromFutureMaps( responseId );
     }
 
 
@@ -2824,11 +3288,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             }
         }
 
+        // Remove the future from the map before storing the response, so that the request
+        // is not outstanding anymore when the caller gets it
+        removeFromFutureMaps( responseId );
+
         // Store the response into the future
         modifyFuture.set( modifyResponse );
-
-        // Remove the future from the map
-        removeFromFutureMaps( responseId );
     }
 
 
@@ -2857,11 +3322,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             }
         }
 
+        // Remove the future from the map before storing the response, so that the request
+        // is not outstanding anymore when the caller gets it
+        removeFromFutureMaps( responseId );
+
         // Store the response into the future
         modifyDnFuture.set( modifyDnResponse );
-
-        // Remove the future from the map
-        removeFromFutureMaps( responseId );
     }
 
 
@@ -2890,11 +3356,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             }
         }
 
+        // Remove the future from the map before storing the response, so that the request
+        // is not outstanding anymore when the caller gets it
+        removeFromFutureMaps( responseId );
+
         // Store the response into the future
         searchFuture.set( searchResultDone );
-
-        // Remove the future from the map
-        removeFromFutureMaps( responseId );
     }
 
 
@@ -2911,7 +3378,15 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     {
         if ( schemaManager != null )
         {
-            searchResultEntry.setEntry( new DefaultEntry( schemaManager, searchResultEntry.getEntry() ) );
+            if ( searchResultEntry.getEntry() instanceof LazyEntry )
+            {
+                // The attributes will be normalized when decoded
+                ( ( LazyEntry ) searchResultEntry.getEntry() ).applySchemaManager( schemaManager );
+            }
+            else
+            {
+                searchResultEntry.setEntry( new DefaultEntry( schemaManager, searchResultEntry.getEntry() ) );
+            }
         }
 
         if ( LOG.isDebugEnabled() )
@@ -4563,6 +5038,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     public void loadSchema( SchemaLoader loader ) throws LdapException
     {
+        checkNotShared();
+
         try
         {
             SchemaManager tmp = new DefaultSchemaManager( loader );
@@ -4585,8 +5062,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
 
             // Change the container's BinaryDetector
             ioSession.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR,
-                new LdapMessageContainer<>( codec,
-                    new SchemaBinaryAttributeDetector( schemaManager ) ) );
+                newMessageContainer( new SchemaBinaryAttributeDetector( schemaManager ) ) );
 
         }
         catch ( LdapException le )
@@ -4610,6 +5086,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     public void addSchema( File schemaFile ) throws LdapException
     {
+        checkNotShared();
+
         try
         {
             if ( schemaManager == null )
@@ -4770,6 +5248,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     private void clearMaps()
     {
         futureMap.clear();
+        requestsRemoved();
     }
 
 
@@ -4832,11 +5311,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     public void sessionCreated( IoSession session ) throws Exception
     {
         // Last, store the message container
-        LdapMessageContainer<Message> ldapMessageContainer =
-            new LdapMessageContainer<>(
-                codec, config.getBinaryAttributeDetector() );
-
-        session.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR, ldapMessageContainer );
+        session.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR,
+            newMessageContainer( config.getBinaryAttributeDetector() ) );
     }
 
 
@@ -4900,6 +5376,19 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      * @throws LdapException If the StartTLS operation failed
      */
     public void startTls() throws LdapException
+    {
+        checkNotShared();
+
+        establishTls();
+    }
+
+
+    /**
+     * Sends the StartTLS extended request and adds the security layer.
+     *
+     * @throws LdapException If the StartTLS operation failed
+     */
+    private void establishTls() throws LdapException
     {
         try
         {
@@ -5050,6 +5539,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     public BindFuture bindSasl( SaslRequest saslRequest ) throws LdapException
     {
+        checkNotShared();
+
         // First switch to anonymous state
         authenticated.set( false );
 
@@ -5254,12 +5745,37 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         // Send the request to the server
         WriteFuture writeFuture = ioSession.write( request );
 
+        if ( config.getPipeliningBatchSize() > 0 )
+        {
+            // Don't wait for the batch to be flushed, the response future is 
+            // cancelled if the request can't be written
+            int requestId = request.getMessageId();
+
+            writeFuture.addListener( ( WriteFuture future ) -> 
+            {
+                if ( !future.isWritten() )
+                {
+                    ResponseFuture<? extends Response> responseFuture = getFromFutureMap( requestId );
+
+                    if ( responseFuture != null )
+                    {
+                        responseFuture.cancel();
+                    }
+                }
+            } );
+
+            return;
+        }
+
         long localTimeout = sendTimeout;
 
+        // A single listener for the whole wait, however many times we loop
+        CountDownLatch written = completionLatch( writeFuture );
+
         while ( localTimeout > 0 )
         {
             // Wait only 100 ms
-            boolean done = writeFuture.awaitUninterruptibly( 100 );
+            boolean done = awaitUninterruptibly( written, Math.min( 100L, localTimeout ) );
 
             if ( done )
             {
@@ -5301,6 +5817,102 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     }
 
 
+    /**
+     * Waits for a MINA future to complete. The MINA futures wait on a monitor, which pins 
+     * the carrier thread of a virtual thread, so we wait on a latch released by a listener
+     * instead.
+     * 
+     * @param ioFuture The future to wait for
+     * @param timeoutMillis The maximum time to wait, in milliseconds
+     * @return <tt>true</tt> if the future has completed
+     * @throws InterruptedException If the current thread has been interrupted
+     */
+    private static boolean await( IoFuture ioFuture, long timeoutMillis ) throws InterruptedException
+    {
+        if ( ioFuture.isDone() )
+        {
+            return true;
+        }
+
+        return completionLatch( ioFuture ).await( timeoutMillis, TimeUnit.MILLISECONDS );
+    }
+
+
+    /**
+     * Creates a latch released when a MINA future completes. The listener is registered
+     * once : callers waiting in several steps must reuse the latch instead of calling
+     * this method again, or the listeners would pile up on the future.
+     * 
+     * @param ioFuture The future to wait for
+     * @return A latch released when the future has completed
+     */
+    private static CountDownLatch completionLatch( IoFuture ioFuture )
+    {
+        CountDownLatch latch = new CountDownLatch( 1 );
+
+        // MINA calls the listener right away if the future is already done
+        ioFuture.addListener( future -> latch.countDown() );
+
+        return latch;
+    }
+
+
+    /**
+     * Waits for a MINA future to complete, without being interrupted. The interrupt
+     * status of the current thread is restored if it has been interrupted.
+     * 
+     * @param ioFuture The future to wait for
+     * @param timeoutMillis The maximum time to wait, in milliseconds
+     * @return <tt>true</tt> if the future has completed
+     */
+    private static boolean awaitUninterruptibly( IoFuture ioFuture, long timeoutMillis )
+    {
+        if ( ioFuture.isDone() )
+        {
+            return true;
+        }
+
+        return awaitUninterruptibly( completionLatch( ioFuture ), timeoutMillis );
+    }
+
+
+    /**
+     * Waits for a latch to be released, without being interrupted. The interrupt
+     * status of the current thread is restored if it has been interrupted.
+     * 
+     * @param latch The latch to wait for
+     * @param timeoutMillis The maximum time to wait, in milliseconds
+     * @return <tt>true</tt> if the latch has been released
+     */
+    private static boolean awaitUninterruptibly( CountDownLatch latch, long timeoutMillis )
+    {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( timeoutMillis );
+        boolean interrupted = false;
+
+        try
+        {
+            while ( true )
+            {
+                try
+                {
+                    return latch.await( deadline - System.nanoTime(), TimeUnit.NANOSECONDS );
+                }
+                catch ( InterruptedException ie )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        finally
+        {
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
     /**
      * method to write the kerberos config in the standard MIT kerberos format
      *
@@ -5391,6 +6003,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     @Override
     public void setBinaryAttributeDetector( BinaryAttributeDetector binaryAttributeDetector )
     {
+        checkNotShared();
+
         if ( config != null )
         {
             config.setBinaryAttributeDetector( binaryAttributeDetector );
@@ -5404,6 +6018,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     @Override
     public void setSchemaManager( SchemaManager schemaManager )
     {
+        checkNotShared();
+
         this.schemaManager = schemaManager;
     }
 
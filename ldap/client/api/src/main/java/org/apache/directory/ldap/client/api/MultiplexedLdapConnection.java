@@ -0,0 +1,268 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.BinaryAttributeDetector;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.BindRequest;
+import org.apache.directory.api.ldap.model.message.BindResponse;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+
+
+/**
+ * A channel leased from a {@link LdapMultiplexedConnectionPool}. The requests are sent 
+ * over a connection shared with other channels, so the operations changing the state 
+ * of the connection (bind, unbind, timeout, schema, binary attributes) are not supported. 
+ * The shared connection returned by {@link #wrapped()} rejects them too, as well as
+ * StartTLS. Closing the channel gives it back to the pool, the shared connection remains
+ * open : the channel then rejects all the operations.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class MultiplexedLdapConnection extends LdapConnectionWrapper
+{
+    /** Gives the channel back to the pool */
+    private final Runnable releaser;
+
+    /** The connection used once the channel has been given back : it rejects all the operations */
+    private static final LdapConnection RELEASED = ( LdapConnection ) Proxy.newProxyInstance(
+        LdapConnection.class.getClassLoader(), new Class<?>[]
+            { LdapConnection.class }, ( proxy, method, args ) -> rejectReleased( proxy, method, args ) );
+
+    /** Tells if the channel has been given back to the pool */
+    private final AtomicBoolean released = new AtomicBoolean( false );
+
+
+    MultiplexedLdapConnection( LdapConnection connection, Runnable releaser )
+    {
+        super( connection );
+        this.releaser = releaser;
+    }
+
+
+    /**
+     * Gives the channel back to the pool. Releasing a channel twice has no effect.
+     */
+    void release()
+    {
+        if ( released.compareAndSet( false, true ) )
+        {
+            connection = RELEASED;
+            releaser.run();
+        }
+    }
+
+
+    /**
+     * Handles a call on a released channel : the state methods tell the channel is not
+     * connected, the operations fail.
+     */
+    private static Object rejectReleased( Object proxy, Method method, Object[] args ) throws LdapException
+    {
+        switch ( method.getName() )
+        {
+            case "isConnected":
+            case "isAuthenticated":
+                return Boolean.FALSE;
+
+            case "hashCode":
+                return System.identityHashCode( proxy );
+
+            case "equals":
+                return proxy == args[0];
+
+            case "toString":
+                return "Released channel";
+
+            default:
+                break;
+        }
+
+        String message = I18n.err( I18n.ERR_04192_CHANNEL_RELEASED );
+
+        for ( Class<?> exceptionType : method.getExceptionTypes() )
+        {
+            if ( exceptionType.isAssignableFrom( InvalidConnectionException.class ) )
+            {
+                throw new InvalidConnectionException( message );
+            }
+        }
+
+        throw new IllegalStateException( message );
+    }
+
+
+    /**
+     * Gives the channel back to the pool. The shared connection is not closed.
+     */
+    @Override
+    public void close()
+    {
+        release();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind() throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void anonymousBind() throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( String name ) throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( String name, String credentials ) throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( Dn name ) throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( Dn name, String credentials ) throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BindResponse bind( BindRequest bindRequest ) throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BindResponse bind( SaslRequest saslRequest ) throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unBind() throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTimeOut( long timeOut )
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void loadSchema() throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void loadSchemaRelaxed() throws LdapException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSchemaManager( SchemaManager schemaManager )
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setBinaryAttributeDetector( BinaryAttributeDetector binaryAttributeDetector )
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_04106_OPERATION_NOT_SUPPORTED ) );
+    }
+}
@@ -0,0 +1,711 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.LazyEntry;
+import org.apache.directory.api.ldap.model.constants.Loggers;
+import org.apache.directory.api.ldap.model.cursor.AbstractCursor;
+import org.apache.directory.api.ldap.model.cursor.CursorException;
+import org.apache.directory.api.ldap.model.cursor.InvalidCursorPositionException;
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapReferralException;
+import org.apache.directory.api.ldap.model.message.IntermediateResponse;
+import org.apache.directory.api.ldap.model.message.Referral;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchRequest;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultReference;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
+import org.apache.directory.api.util.Strings;
+import org.apache.directory.ldap.client.api.exception.LdapConnectionTimeOutException;
+import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A SearchCursor driving the Simple Paged Results control (RFC 2696) : the search is sent
+ * page after page, the cookie returned with each page being copied into the next request,
+ * until the server returns an empty cookie. The caller sees a single stream of responses,
+ * and a single SearchResultDone, the one of the last page.
+ * <br>
+ * The next page is requested as soon as the SearchResultDone of the current page has been
+ * received, while the current page entries are still being consumed, so that the cursor
+ * does not stall between two pages. At most one page is prefetched : the page following it
+ * is only requested once the consumer has reached the prefetched page, so the memory used
+ * by the cursor is bounded by two pages whatever the speed of the consumer. The page size is adjusted after each page so that
+ * a page weighs around <em>targetPageBytes</em>, considering the average size of the
+ * entries received so far, without exceeding the requested page size.
+ * <br>
+ * When the server does not support paging, all the entries are returned in one page.
+ * <br>
+ * Note : the SearchRequest is reused for every page, with a PagedResults control added.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PagedSearchCursor extends AbstractCursor<Response> implements SearchCursor
+{
+    /** A dedicated log for cursors */
+    private static final Logger LOG_CURSOR = LoggerFactory.getLogger( Loggers.CURSOR_LOG.getName() );
+
+    /** The default size of a page, in bytes */
+    public static final long DEFAULT_TARGET_PAGE_BYTES = 512L * 1024L;
+
+    /** The connection to send the pages requests on */
+    private final LdapAsyncConnection connection;
+
+    /** The search request, sent for every page */
+    private final SearchRequest searchRequest;
+
+    /** The maximum number of entries in a page */
+    private final int maxPageSize;
+
+    /** wait time while polling for a SearchResponse */
+    private final long timeout;
+
+    /** time units of timeout value */
+    private final TimeUnit timeUnit;
+
+    /** The expected size of a page, in bytes */
+    private long targetPageBytes = DEFAULT_TARGET_PAGE_BYTES;
+
+    /** The future of the page being received, null if no page is being received */
+    private SearchFuture future;
+
+    /** The cookie of the page to request once the consumer reaches the prefetched page, if any */
+    private byte[] deferredCookie;
+
+    /** The number of SearchResultDone in the received responses */
+    private int receivedPages;
+
+    /** The responses received and not yet consumed */
+    private final Deque<Response> received = new ArrayDeque<>();
+
+    /** The number of entries received so far */
+    private long entryCount;
+
+    /** The sum of the entries size received so far */
+    private long entryBytes;
+
+    /** The number of pages requested so far */
+    private int pageCount;
+
+    /** a reference to hold the retrieved SearchResponse object */
+    private Response response;
+
+    /** the done flag */
+    private boolean done;
+
+    /** a reference to hold the SearchResultDone response of the last page */
+    private SearchResultDone searchDoneResp;
+
+
+    /**
+     * Creates a new PagedSearchCursor, and sends the request for the first page.
+     *
+     * @param connection The connection to use
+     * @param searchRequest The search request
+     * @param pageSize The maximum number of entries per page
+     * @param timeout The maximum time to wait for a response
+     * @param timeUnit The timeout unit
+     * @throws LdapException If the first page can't be requested
+     */
+    public PagedSearchCursor( LdapAsyncConnection connection, SearchRequest searchRequest, int pageSize,
+        long timeout, TimeUnit timeUnit ) throws LdapException
+    {
+        if ( pageSize <= 0 )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_04190_INVALID_PAGE_SIZE, pageSize ) );
+        }
+
+        if ( LOG_CURSOR.isDebugEnabled() )
+        {
+            LOG_CURSOR.debug( I18n.msg( I18n.MSG_04170_CREATING_SEARCH_CURSOR, this ) );
+        }
+
+        this.connection = connection;
+        this.searchRequest = searchRequest;
+        this.maxPageSize = pageSize;
+        this.timeout = timeout;
+        this.timeUnit = timeUnit;
+
+        future = requestPage( Strings.EMPTY_BYTES, pageSize );
+    }
+
+
+    /**
+     * Sets the expected size of a page. The number of entries requested for the next
+     * pages is computed from this size and the average size of the entries received
+     * so far.
+     * 
+     * @param targetPageBytes The expected size of a page, in bytes
+     */
+    public void setTargetPageBytes( long targetPageBytes )
+    {
+        this.targetPageBytes = targetPageBytes;
+    }
+
+
+    /**
+     * @return The number of pages requested so far
+     */
+    public int getPageCount()
+    {
+        return pageCount;
+    }
+
+
+    /**
+     * @return The number of responses received and not yet consumed
+     */
+    /* No qualifier */int getReceivedCount()
+    {
+        return received.size();
+    }
+
+
+    /**
+     * Sends the request for a page
+     */
+    private SearchFuture requestPage( byte[] cookie, int pageSize ) throws LdapException
+    {
+        PagedResults pagedControl = new PagedResultsImpl();
+        pagedControl.setSize( pageSize );
+        pagedControl.setCookie( cookie );
+        searchRequest.addControl( pagedControl );
+        pageCount++;
+
+        return connection.searchAsync( searchRequest );
+    }
+
+
+    /**
+     * Computes the number of entries to request for the next page
+     */
+    private int nextPageSize()
+    {
+        if ( entryCount == 0L )
+        {
+            return maxPageSize;
+        }
+
+        long averageSize = Math.max( 1L, entryBytes / entryCount );
+        int pageSize = ( int ) Math.max( 1L, Math.min( maxPageSize, targetPageBytes / averageSize ) );
+
+        if ( LOG_CURSOR.isDebugEnabled() )
+        {
+            LOG_CURSOR.debug( I18n.msg( I18n.MSG_04182_PAGED_SEARCH_NEXT_PAGE, pageSize, averageSize ) );
+        }
+
+        return pageSize;
+    }
+
+
+    /**
+     * @return The cookie to send to get the page following the one this SearchResultDone ends,
+     * or null if it was the last page
+     */
+    private static byte[] getNextCookie( SearchResultDone searchResultDone )
+    {
+        if ( searchResultDone.getLdapResult().getResultCode() != ResultCodeEnum.SUCCESS )
+        {
+            return null;
+        }
+
+        PagedResults pagedControl = ( PagedResults ) searchResultDone.getControl( PagedResults.OID );
+
+        if ( ( pagedControl == null ) || Strings.isEmpty( pagedControl.getCookie() ) )
+        {
+            return null;
+        }
+
+        return pagedControl.getCookie();
+    }
+
+
+    /**
+     * Estimates the size of an entry from its values
+     */
+    private static long estimateSize( Entry entry )
+    {
+        if ( ( entry instanceof LazyEntry ) && ( ( ( LazyEntry ) entry ).getPendingAttributes() > 0 ) )
+        {
+            // Don't decode the attributes just to know their size
+            return ( long ) entry.getDn().getName().length() + ( ( LazyEntry ) entry ).getEncodedLength();
+        }
+
+        long size = entry.getDn().getName().length();
+
+        for ( Attribute attribute : entry )
+        {
+            size += attribute.getUpId().length();
+
+            for ( Value value : attribute )
+            {
+                size += value.length();
+            }
+        }
+
+        return size;
+    }
+
+
+    /**
+     * Stores a response received for the current page. When it is the page's SearchResultDone,
+     * the next page is requested right away if the consumer is reading this page, otherwise
+     * once it reaches it.
+     */
+    private void receive( Response received ) throws LdapException
+    {
+        this.received.add( received );
+
+        if ( received instanceof SearchResultEntry )
+        {
+            entryCount++;
+            entryBytes += estimateSize( ( ( SearchResultEntry ) received ).getEntry() );
+        }
+        else if ( received instanceof SearchResultDone )
+        {
+            byte[] cookie = getNextCookie( ( SearchResultDone ) received );
+            receivedPages++;
+            future = null;
+
+            if ( cookie != null )
+            {
+                if ( receivedPages == 1 )
+                {
+                    // This page is being consumed : prefetch the next one
+                    future = requestPage( cookie, nextPageSize() );
+                }
+                else
+                {
+                    // This page is the prefetched one
+                    deferredCookie = cookie;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Fetches the responses already received for the current page, without blocking
+     */
+    private void drain() throws LdapException, InterruptedException
+    {
+        while ( future != null )
+        {
+            Response next = future.get( 0L, TimeUnit.NANOSECONDS );
+
+            if ( next == null )
+            {
+                return;
+            }
+
+            receive( next );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean next() throws LdapException, CursorException
+    {
+        if ( done )
+        {
+            return false;
+        }
+
+        try
+        {
+            drain();
+
+            while ( received.isEmpty() )
+            {
+                if ( ( future == null ) || future.isCancelled() )
+                {
+                    response = null;
+                    done = true;
+
+                    return false;
+                }
+
+                Response next = future.get( timeout, timeUnit );
+
+                if ( next == null )
+                {
+                    future.cancel( true );
+
+                    throw new LdapConnectionTimeOutException( LdapNetworkConnection.TIME_OUT_ERROR );
+                }
+
+                receive( next );
+                drain();
+            }
+        }
+        catch ( LdapConnectionTimeOutException lctoe )
+        {
+            throw lctoe;
+        }
+        catch ( Exception e )
+        {
+            LdapException ldapException = new LdapException( LdapNetworkConnection.NO_RESPONSE_ERROR, e );
+
+            // close the cursor, abandoning the current page
+            try
+            {
+                close( ldapException );
+            }
+            catch ( IOException ioe )
+            {
+                throw new LdapException( ioe.getMessage(), ioe );
+            }
+
+            throw ldapException;
+        }
+
+        response = received.poll();
+
+        if ( response instanceof SearchResultDone )
+        {
+            receivedPages--;
+
+            // The consumer reaches the prefetched page, the following one can be requested
+            if ( deferredCookie != null )
+            {
+                byte[] cookie = deferredCookie;
+                deferredCookie = null;
+
+                try
+                {
+                    future = requestPage( cookie, nextPageSize() );
+                }
+                catch ( LdapException le )
+                {
+                    try
+                    {
+                        close( le );
+                    }
+                    catch ( IOException ioe )
+                    {
+                        throw new LdapException( ioe.getMessage(), ioe );
+                    }
+
+                    throw le;
+                }
+            }
+
+            if ( received.isEmpty() && ( future == null ) )
+            {
+                // The last page is done
+                searchDoneResp = ( SearchResultDone ) response;
+                response = null;
+                done = true;
+
+                return false;
+            }
+
+            // A page boundary, skip it
+            return next();
+        }
+
+        return true;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Response get() throws InvalidCursorPositionException
+    {
+        if ( !available() )
+        {
+            throw new InvalidCursorPositionException();
+        }
+
+        return response;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchResultDone getSearchResultDone()
+    {
+        return searchDoneResp;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean available()
+    {
+        return response != null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+        close( null );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close( Exception cause ) throws IOException
+    {
+        if ( LOG_CURSOR.isDebugEnabled() )
+        {
+            LOG_CURSOR.debug( I18n.msg( I18n.MSG_04171_CLOSING_SEARCH_CURSOR, this ) );
+        }
+
+        received.clear();
+
+        if ( ( future != null ) && !future.isCancelled() )
+        {
+            future.cancel( true );
+        }
+
+        future = null;
+        deferredCookie = null;
+        receivedPages = 0;
+
+        if ( cause != null )
+        {
+            super.close( cause );
+        }
+        else
+        {
+            super.close();
+        }
+    }
+
+
+    // rest of all operations will throw UnsupportedOperationException
+
+    /**
+     * This operation is not supported in SearchCursor.
+     * {@inheritDoc}
+     */
+    @Override
+    public void after( Response element ) throws LdapException, CursorException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_13102_UNSUPPORTED_OPERATION, getClass().getName()
+            .concat( "." ).concat( "after( Response element )" ) ) );
+    }
+
+
+    /**
+     * This operation is not supported in SearchCursor.
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterLast() throws LdapException, CursorException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_13102_UNSUPPORTED_OPERATION, getClass().getName()
+            .concat( "." ).concat( "afterLast()" ) ) );
+    }
+
+
+    /**
+     * This operation is not supported in SearchCursor.
+     * {@inheritDoc}
+     */
+    @Override
+    public void before( Response element ) throws LdapException, CursorException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_13102_UNSUPPORTED_OPERATION, getClass().getName()
+            .concat( "." ).concat( "before( Response element )" ) ) );
+    }
+
+
+    /**
+     * This operation is not supported in SearchCursor.
+     * {@inheritDoc}
+     */
+    @Override
+    public void beforeFirst() throws LdapException, CursorException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_13102_UNSUPPORTED_OPERATION, getClass().getName()
+            .concat( "." ).concat( "beforeFirst()" ) ) );
+    }
+
+
+    /**
+     * This operation is not supported in SearchCursor.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean first() throws LdapException, CursorException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_13102_UNSUPPORTED_OPERATION, getClass().getName()
+            .concat( "." ).concat( "first()" ) ) );
+    }
+
+
+    /**
+     * This operation is not supported in SearchCursor.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean last() throws LdapException, CursorException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_13102_UNSUPPORTED_OPERATION, getClass().getName()
+            .concat( "." ).concat( "last()" ) ) );
+    }
+
+
+    /**
+     * This operation is not supported in SearchCursor.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean previous() throws LdapException, CursorException
+    {
+        throw new UnsupportedOperationException( I18n.err( I18n.ERR_13102_UNSUPPORTED_OPERATION, getClass().getName()
+            .concat( "." ).concat( "previous()" ) ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isDone()
+    {
+        return done;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReferral()
+    {
+        return response instanceof SearchResultReference;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Referral getReferral() throws LdapException
+    {
+        if ( isReferral() )
+        {
+            return ( ( SearchResultReference ) response ).getReferral();
+        }
+
+        throw new LdapException();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEntry()
+    {
+        return response instanceof SearchResultEntry;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry getEntry() throws LdapException
+    {
+        if ( isEntry() )
+        {
+            return ( ( SearchResultEntry ) response ).getEntry();
+        }
+
+        if ( isReferral() )
+        {
+            Referral referral = ( ( SearchResultReference ) response ).getReferral();
+            throw new LdapReferralException( referral.getLdapUrls() );
+        }
+
+        throw new LdapException();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isIntermediate()
+    {
+        return response instanceof IntermediateResponse;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IntermediateResponse getIntermediate() throws LdapException
+    {
+        if ( isIntermediate() )
+        {
+            return ( IntermediateResponse ) response;
+        }
+
+        throw new LdapException();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "PagedSearchCursor[pages : " + pageCount + ", entries : " + entryCount + ", done : " + done + "]";
+    }
+}
@@ -20,6 +20,9 @@
 package org.apache.directory.ldap.client.api.future;
 
 
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
 import org.apache.directory.api.ldap.model.message.BindResponse;
 import org.apache.directory.ldap.client.api.LdapConnection;
 
@@ -29,8 +32,11 @@ import org.apache.directory.ldap.client.api.LdapConnection;
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
-public class BindFuture extends MultipleResponseFuture<BindResponse>
+public class BindFuture extends MultipleResponseFuture<BindResponse> implements CompletionStageProvider<BindResponse>
 {
+    /** The CompletionStage completed when the first response is received */
+    private final ResponseCompletion<BindResponse> completion = new ResponseCompletion<>();
+
     /**
      * Creates a new instance of BindFuture.
      *
@@ -43,6 +49,62 @@ public class BindFuture extends MultipleResponseFuture<BindResponse>
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set( BindResponse response ) throws InterruptedException
+    {
+        super.set( response );
+
+        // A SASL bind may receive many responses, the stage only gets the first one
+        completion.complete( response );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<BindResponse> getCompletionStage()
+    {
+        return completion.getStage();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setCompletionExecutor( Executor completionExecutor )
+    {
+        completion.setExecutor( completionExecutor );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel( boolean mayInterruptIfRunning )
+    {
+        completion.cancel();
+
+        return super.cancel( mayInterruptIfRunning );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cancel()
+    {
+        super.cancel();
+        completion.closed();
+    }
+
+
     /**
      * {@inheritDoc}
      */
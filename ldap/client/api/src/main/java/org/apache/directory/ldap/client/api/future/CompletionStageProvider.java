@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+import org.apache.directory.api.ldap.model.message.Response;
+
+
+/**
+ * A Future which final response can also be obtained through a CompletionStage,
+ * without blocking any thread.
+ *
+ * @param <R> The final response type
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface CompletionStageProvider<R extends Response>
+{
+    /**
+     * Gets a CompletionStage completed with the final response as soon as it's received.
+     * Unless an executor has been set, the stage is completed by the connection's I/O 
+     * thread, so the continuations must not block. The stage is completed exceptionally
+     * with a <tt>CancellationException</tt> if the operation is cancelled, or with an 
+     * <tt>InvalidConnectionException</tt> if the connection is closed before the
+     * response is received.
+     *
+     * @return The CompletionStage
+     */
+    CompletionStage<R> getCompletionStage();
+
+
+    /**
+     * Sets the executor used to complete the CompletionStage, and to run the
+     * continuations that aren't explicitly asynchronous.
+     *
+     * @param completionExecutor The executor, null to complete the stage on the I/O thread
+     */
+    void setCompletionExecutor( Executor completionExecutor );
+}
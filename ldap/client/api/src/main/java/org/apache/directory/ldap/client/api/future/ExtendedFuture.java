@@ -20,6 +20,9 @@
 package org.apache.directory.ldap.client.api.future;
 
 
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
 import org.apache.directory.api.ldap.model.message.ExtendedRequest;
 import org.apache.directory.api.ldap.model.message.ExtendedResponse;
 import org.apache.directory.api.ldap.model.message.Response;
@@ -31,8 +34,11 @@ import org.apache.directory.ldap.client.api.LdapConnection;
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
-public class ExtendedFuture extends MultipleResponseFuture<Response>
+public class ExtendedFuture extends MultipleResponseFuture<Response> implements CompletionStageProvider<ExtendedResponse>
 {
+    /** The CompletionStage completed when the ExtendedResponse is received */
+    private final ResponseCompletion<ExtendedResponse> completion = new ResponseCompletion<>();
+
     /** 
      * The extendedRequest : we need it to find which request is associated 
      * with a response, when this response has no name */
@@ -83,6 +89,52 @@ public class ExtendedFuture extends MultipleResponseFuture<Response>
         }
         
         queue.add( response );
+
+        // The IntermediateResponses are only available through the queue
+        completion.complete( response );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<ExtendedResponse> getCompletionStage()
+    {
+        return completion.getStage();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setCompletionExecutor( Executor completionExecutor )
+    {
+        completion.setExecutor( completionExecutor );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel( boolean mayInterruptIfRunning )
+    {
+        completion.cancel();
+
+        return super.cancel( mayInterruptIfRunning );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cancel()
+    {
+        super.cancel();
+        completion.closed();
     }
 
 
@@ -24,6 +24,8 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
@@ -39,6 +41,12 @@ public class HandshakeFuture implements Future<Boolean>
     /** flag to determine if this future is cancelled */
     protected boolean cancelled = false;
 
+    /** The lock used to wait for the handshake, which does not pin a virtual thread */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The condition signaled when the handshake is completed or cancelled */
+    private final Condition completed = lock.newCondition();
+
     /**
      * Creates a new instance of HandshakeFuture.
      */
@@ -52,24 +60,42 @@ public class HandshakeFuture implements Future<Boolean>
      * Cancel the Future
      *
      */
-    public synchronized void cancel()
+    public void cancel()
     {
-        // set the cancel flag first
-        cancelled = true;
+        lock.lock();
 
-        // Notify the future
-        notifyAll();
+        try
+        {
+            // set the cancel flag first
+            cancelled = true;
+
+            // Notify the future
+            completed.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
 
     /**
      * Set the Future to done when the TLS handshake has completed
      */
-    public synchronized void secured()
+    public void secured()
     {
-        done = true;
+        lock.lock();
+
+        try
+        {
+            done = true;
 
-        notifyAll();
+            completed.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
 
@@ -77,20 +103,29 @@ public class HandshakeFuture implements Future<Boolean>
      * {@inheritDoc}
      */
     @Override
-    public synchronized boolean cancel( boolean mayInterruptIfRunning )
+    public boolean cancel( boolean mayInterruptIfRunning )
     {
-        if ( cancelled )
+        lock.lock();
+
+        try
         {
-            return cancelled;
-        }
+            if ( cancelled )
+            {
+                return cancelled;
+            }
 
-        // set the cancel flag first
-        cancelled = true;
+            // set the cancel flag first
+            cancelled = true;
 
-        // Notify the future
-        notifyAll();
+            // Notify the future
+            completed.signalAll();
 
-        return cancelled;
+            return cancelled;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
 
@@ -98,14 +133,23 @@ public class HandshakeFuture implements Future<Boolean>
      * {@inheritDoc}
      */
     @Override
-    public synchronized Boolean get() throws InterruptedException, ExecutionException
+    public Boolean get() throws InterruptedException, ExecutionException
     {
-        while ( !done && !cancelled )
+        lock.lock();
+
+        try
         {
-            wait();
-        }
+            while ( !done && !cancelled )
+            {
+                completed.await();
+            }
 
-        return done;
+            return done;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
 
@@ -113,16 +157,27 @@ public class HandshakeFuture implements Future<Boolean>
      * {@inheritDoc}
      */
     @Override
-    public synchronized Boolean get( long timeout, TimeUnit unit )
+    public Boolean get( long timeout, TimeUnit unit )
         throws InterruptedException, ExecutionException, TimeoutException
     {
-        // no need to wait if already done or cancelled
-        if ( !done && !cancelled )
+        lock.lock();
+
+        try
         {
-            wait( unit.toMillis( timeout ) );
-        }
+            long remaining = unit.toNanos( timeout );
 
-        return done;
+            // no need to wait if already done or cancelled
+            while ( !done && !cancelled && ( remaining > 0L ) )
+            {
+                remaining = completed.awaitNanos( remaining );
+            }
+
+            return done;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
 
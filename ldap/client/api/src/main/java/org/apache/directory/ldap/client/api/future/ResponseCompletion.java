@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+
+
+/**
+ * The CompletableFuture backing a {@link CompletionStageProvider}, completed 
+ * either directly or through an executor.
+ *
+ * @param <R> The final response type
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class ResponseCompletion<R extends Response>
+{
+    /** The CompletableFuture completed when the response is received */
+    private final CompletableFuture<R> completableFuture = new CompletableFuture<>();
+
+    /** The executor used to complete the CompletableFuture, null to complete it on the I/O thread */
+    private volatile Executor executor;
+
+
+    /**
+     * @return The CompletionStage
+     */
+    CompletionStage<R> getStage()
+    {
+        return completableFuture;
+    }
+
+
+    /**
+     * @param executor The executor used to complete the stage, null to complete it on the calling thread
+     */
+    void setExecutor( Executor executor )
+    {
+        this.executor = executor;
+    }
+
+
+    /**
+     * Completes the stage with the received response
+     *
+     * @param response The response
+     */
+    void complete( R response )
+    {
+        Executor localExecutor = executor;
+
+        if ( localExecutor == null )
+        {
+            completableFuture.complete( response );
+        }
+        else
+        {
+            localExecutor.execute( () -> completableFuture.complete( response ) );
+        }
+    }
+
+
+    /**
+     * Completes the stage with a CancellationException
+     */
+    void cancel()
+    {
+        completableFuture.cancel( false );
+    }
+
+
+    /**
+     * Completes the stage exceptionally because the session has been closed
+     */
+    void closed()
+    {
+        completableFuture.completeExceptionally( 
+            new InvalidConnectionException( I18n.err( I18n.ERR_04160_SESSION_HAS_BEEN_CLOSED ) ) );
+    }
+}
@@ -20,17 +20,116 @@
 package org.apache.directory.ldap.client.api.future;
 
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.apache.directory.api.ldap.model.message.Response;
 import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.mina.core.session.IoSession;
 
 
 /**
  * A Future to manage SerachRequest.
+ * <br>
+ * When created with a high water mark, the Future bounds the number of responses
+ * it holds : the reads on the underlying session are suspended when the number of
+ * queued responses reaches the high water mark, and resumed when the consumer has
+ * drained the queue down to the low water mark. As the messages already read from
+ * the socket are still delivered, the queue may slightly exceed the high water mark.
+ * Note that suspending the reads stalls all the operations running on the same
+ * connection until the search responses are consumed.
+ * <br>
+ * Many searches may be throttled on the same session : the reads are suspended as
+ * long as one of them is above its high water mark, and only resumed when none is.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
 public class SearchFuture extends MultipleResponseFuture<Response>
 {
+    /** The session attribute holding the number of Futures suspending the reads */
+    private static final String READ_SUSPENSION = SearchFuture.class.getName() + ".ReadSuspension";
+
+    /** The session to suspend when the queue is full */
+    private IoSession session;
+
+    /** The reads suspension state of the session, shared by all its Futures */
+    private ReadSuspension readSuspension;
+
+    /** The number of queued responses above which we suspend the reads, 0 if the queue is unbounded */
+    private int highWaterMark;
+
+    /** The number of queued responses below which we resume the reads */
+    private int lowWaterMark;
+
+    /** Tells if the reads have been suspended by this Future */
+    private volatile boolean suspended = false;
+
+    /** A lock protecting the suspend/resume transitions */
+    private final ReentrantLock flowLock = new ReentrantLock();
+
+
+    /**
+     * The number of Futures which have suspended the reads on a session. MINA does not
+     * count the suspensions : the reads are suspended by the first Future, and resumed
+     * by the last one.
+     */
+    private static final class ReadSuspension
+    {
+        /** The session */
+        private final IoSession session;
+
+        /** The number of Futures suspending the reads */
+        private int count;
+
+
+        private ReadSuspension( IoSession session )
+        {
+            this.session = session;
+        }
+
+
+        /**
+         * Gets the suspension state of a session, creating it if needed
+         */
+        private static ReadSuspension of( IoSession session )
+        {
+            ReadSuspension readSuspension = ( ReadSuspension ) session.getAttribute( READ_SUSPENSION );
+
+            if ( readSuspension == null )
+            {
+                readSuspension = new ReadSuspension( session );
+                ReadSuspension existing = ( ReadSuspension ) session.setAttributeIfAbsent( READ_SUSPENSION,
+                    readSuspension );
+
+                if ( existing != null )
+                {
+                    readSuspension = existing;
+                }
+            }
+
+            return readSuspension;
+        }
+
+
+        private synchronized void suspend()
+        {
+            if ( count++ == 0 )
+            {
+                session.suspendRead();
+            }
+        }
+
+
+        private synchronized void resume()
+        {
+            if ( --count == 0 )
+            {
+                session.resumeRead();
+            }
+        }
+    }
+
+
     /**
      * Creates a new instance of SearchFuture.
      *
@@ -43,6 +142,169 @@ public class SearchFuture extends MultipleResponseFuture<Response>
     }
 
 
+    /**
+     * Creates a new instance of SearchFuture which bounds the number of queued responses.
+     *
+     * @param connection the LDAP connection
+     * @param messageId The associated messageId
+     * @param session The session to suspend when the queue is full
+     * @param highWaterMark The number of queued responses above which the reads are suspended
+     * @param lowWaterMark The number of queued responses below which the reads are resumed. If
+     * negative or above the high water mark, half the high water mark is used
+     */
+    public SearchFuture( LdapConnection connection, int messageId, IoSession session, int highWaterMark,
+        int lowWaterMark )
+    {
+        super( connection, messageId );
+        this.session = session;
+
+        if ( session != null )
+        {
+            readSuspension = ReadSuspension.of( session );
+        }
+
+        if ( highWaterMark > 0 )
+        {
+            this.highWaterMark = highWaterMark;
+
+            if ( ( lowWaterMark < 0 ) || ( lowWaterMark >= highWaterMark ) )
+            {
+                this.lowWaterMark = highWaterMark / 2;
+            }
+            else
+            {
+                this.lowWaterMark = lowWaterMark;
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set( Response response ) throws InterruptedException
+    {
+        super.set( response );
+
+        if ( highWaterMark > 0 )
+        {
+            suspendReadIfAbove( highWaterMark );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Response get() throws InterruptedException
+    {
+        Response response = super.get();
+        
+        resumeReadIfBelow( lowWaterMark );
+
+        return response;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Response get( long timeout, TimeUnit unit ) throws InterruptedException
+    {
+        Response response = super.get( timeout, unit );
+
+        resumeReadIfBelow( lowWaterMark );
+
+        return response;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel( boolean mayInterruptIfRunning )
+    {
+        boolean result = super.cancel( mayInterruptIfRunning );
+
+        // The queue has been cleared, don't keep the session suspended
+        resumeReadIfBelow( 0 );
+
+        return result;
+    }
+
+
+    /**
+     * Tells if this Future is currently suspending the reads on the session
+     *
+     * @return <tt>true</tt> if the reads are suspended
+     */
+    public boolean isReadSuspended()
+    {
+        return suspended;
+    }
+
+
+    /**
+     * Suspend the reads on the session if they aren't already suspended by this Future
+     * and the queue holds at least the given number of responses.
+     * 
+     * @param threshold The number of queued responses from which the reads are suspended
+     */
+    protected void suspendReadIfAbove( int threshold )
+    {
+        if ( ( session != null ) && !suspended && ( queue.size() >= threshold ) )
+        {
+            flowLock.lock();
+
+            try
+            {
+                if ( !suspended && ( queue.size() >= threshold ) )
+                {
+                    suspended = true;
+                    readSuspension.suspend();
+                }
+            }
+            finally
+            {
+                flowLock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Resume the reads on the session if we have suspended them and the queue
+     * has been drained down to the given number of responses, unless another Future
+     * still suspends them.
+     * 
+     * @param threshold The number of queued responses below which the reads are resumed
+     */
+    protected void resumeReadIfBelow( int threshold )
+    {
+        if ( suspended )
+        {
+            flowLock.lock();
+
+            try
+            {
+                if ( suspended && ( queue.size() <= threshold ) )
+                {
+                    suspended = false;
+                    readSuspension.resume();
+                }
+            }
+            finally
+            {
+                flowLock.unlock();
+            }
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
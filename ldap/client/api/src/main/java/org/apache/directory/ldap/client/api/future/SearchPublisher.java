@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+/**
+ * A publisher of search responses, following the Reactive Streams semantic
+ * (it mirrors <tt>java.util.concurrent.Flow.Publisher</tt>). Nothing is sent to 
+ * the server until a subscriber subscribes : each subscription sends its own
+ * SearchRequest.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@FunctionalInterface
+public interface SearchPublisher
+{
+    /**
+     * Sends the SearchRequest and streams its responses to the given subscriber.
+     * The subscriber's <tt>onSubscribe</tt> method is always called first, even 
+     * if the request can't be sent, in which case <tt>onError</tt> is called next.
+     *
+     * @param subscriber The subscriber that will receive the responses
+     */
+    void subscribe( SearchSubscriber subscriber );
+}
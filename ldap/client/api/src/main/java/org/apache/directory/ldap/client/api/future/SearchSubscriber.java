@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+import org.apache.directory.api.ldap.model.message.Response;
+
+
+/**
+ * A receiver of search responses, following the Reactive Streams semantic
+ * (it mirrors <tt>java.util.concurrent.Flow.Subscriber</tt>). The methods are
+ * never called concurrently, but they may be called from the connection's I/O
+ * thread : they must not block.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface SearchSubscriber
+{
+    /**
+     * Called once, before any other method, when the search is subscribed. No
+     * response is delivered until some are requested through the subscription.
+     *
+     * @param subscription The subscription used to request responses or to cancel the search
+     */
+    void onSubscribe( SearchSubscription subscription );
+
+
+    /**
+     * Called for each requested response : SearchResultEntry, SearchResultReference
+     * and IntermediateResponse, and last the SearchResultDone.
+     *
+     * @param response The received response
+     */
+    void onNext( Response response );
+
+
+    /**
+     * Called when the search can't complete, for instance because the connection
+     * has been closed. No other method will be called afterward.
+     *
+     * @param cause The error cause
+     */
+    void onError( Throwable cause );
+
+
+    /**
+     * Called after the SearchResultDone has been delivered. No other method will 
+     * be called afterward.
+     */
+    void onComplete();
+}
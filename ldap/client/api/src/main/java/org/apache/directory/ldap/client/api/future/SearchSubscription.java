@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+/**
+ * The link between a {@link SearchPublisher} and a {@link SearchSubscriber},
+ * following the Reactive Streams semantic (it mirrors 
+ * <tt>java.util.concurrent.Flow.Subscription</tt>). While the subscriber has no
+ * outstanding demand, the reads on the connection are suspended.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface SearchSubscription
+{
+    /**
+     * Requests some more responses. Use <tt>Long.MAX_VALUE</tt> for an unbounded demand.
+     *
+     * @param n The number of responses to add to the demand, must be positive
+     */
+    void request( long n );
+
+
+    /**
+     * Cancels the search : an AbandonRequest is sent to the server, and the
+     * subscriber won't receive any more response.
+     */
+    void cancel();
+}
@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+import org.apache.mina.core.session.IoSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A SearchFuture pushing the received responses to a {@link SearchSubscriber}
+ * instead of waiting for them to be polled. The responses are only delivered
+ * when the subscriber has requested them : the ones received in advance are 
+ * kept in the queue, and the reads on the session are suspended until the 
+ * subscriber requests some more.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SearchSubscriptionFuture extends SearchFuture
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( SearchSubscriptionFuture.class );
+
+    /** The subscriber to feed */
+    private final SearchSubscriber subscriber;
+
+    /** The number of responses requested and not yet delivered */
+    private final AtomicLong demand = new AtomicLong();
+
+    /** A counter used to serialize the calls to the subscriber */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /** The error to signal to the subscriber, if any */
+    private volatile Throwable error;
+
+    /** Set when the subscriber has received its last signal, or has cancelled */
+    private volatile boolean terminated = false;
+
+    /** The subscription given to the subscriber */
+    private final SearchSubscription subscription = new SearchSubscription()
+    {
+        @Override
+        public void request( long n )
+        {
+            SearchSubscriptionFuture.this.request( n );
+        }
+
+
+        @Override
+        public void cancel()
+        {
+            SearchSubscriptionFuture.this.cancel( true );
+        }
+    };
+
+
+    /**
+     * Creates a new instance of SearchSubscriptionFuture.
+     *
+     * @param connection the LDAP connection
+     * @param messageId The associated messageId
+     * @param session The session to suspend while the subscriber has no demand
+     * @param subscriber The subscriber to feed
+     */
+    public SearchSubscriptionFuture( LdapConnection connection, int messageId, IoSession session,
+        SearchSubscriber subscriber )
+    {
+        super( connection, messageId, session, 0, 0 );
+        this.subscriber = subscriber;
+    }
+
+
+    /**
+     * @return The subscription to give to the subscriber
+     */
+    public SearchSubscription getSubscription()
+    {
+        return subscription;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set( Response response ) throws InterruptedException
+    {
+        if ( terminated || isCancelled() )
+        {
+            return;
+        }
+
+        queue.add( response );
+        drain();
+
+        // Stop reading until the subscriber asks for more
+        if ( demand.get() == 0L )
+        {
+            suspendReadIfAbove( 1 );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel( boolean mayInterruptIfRunning )
+    {
+        terminated = true;
+
+        return super.cancel( mayInterruptIfRunning );
+    }
+
+
+    /**
+     * Cancel the Future because the session has been closed : the subscriber
+     * gets an error.
+     */
+    @Override
+    public void cancel()
+    {
+        super.cancel();
+        
+        fail( new InvalidConnectionException( I18n.err( I18n.ERR_04160_SESSION_HAS_BEEN_CLOSED ) ) );
+    }
+
+
+    /**
+     * Signal an error to the subscriber, unless it has already received its last signal.
+     *
+     * @param cause The error to signal
+     */
+    public void fail( Throwable cause )
+    {
+        if ( error == null )
+        {
+            error = cause;
+        }
+
+        drain();
+    }
+
+
+    /**
+     * Add some demand and deliver the pending responses.
+     *
+     * @param n The number of requested responses
+     */
+    private void request( long n )
+    {
+        if ( n <= 0L )
+        {
+            // Signal the error first, the cancellation would prevent it from being delivered
+            fail( new IllegalArgumentException( I18n.err( I18n.ERR_04181_NON_POSITIVE_DEMAND, n ) ) );
+            cancel( true );
+
+            return;
+        }
+
+        long current;
+        long updated;
+
+        do
+        {
+            current = demand.get();
+            updated = current + n;
+
+            if ( updated < 0L )
+            {
+                // Overflow : the demand is unbounded
+                updated = Long.MAX_VALUE;
+            }
+        }
+        while ( !demand.compareAndSet( current, updated ) );
+
+        drain();
+        
+        // We may have suspended the reads while the demand was exhausted
+        resumeReadIfBelow( 0 );
+    }
+
+
+    /**
+     * Deliver as many queued responses as requested, and the terminal signals.
+     * Only one thread at a time delivers the responses, the others just tell it
+     * to loop once more.
+     */
+    private void drain()
+    {
+        if ( wip.getAndIncrement() != 0 )
+        {
+            return;
+        }
+
+        int missed = 1;
+
+        do
+        {
+            while ( !terminated && ( demand.get() > 0L ) )
+            {
+                Response response = queue.poll();
+
+                if ( response == null )
+                {
+                    break;
+                }
+
+                if ( demand.get() != Long.MAX_VALUE )
+                {
+                    demand.decrementAndGet();
+                }
+
+                boolean done = response instanceof SearchResultDone;
+
+                try
+                {
+                    subscriber.onNext( response );
+
+                    if ( done )
+                    {
+                        terminated = true;
+                        subscriber.onComplete();
+                    }
+                }
+                catch ( RuntimeException re )
+                {
+                    LOG.warn( I18n.msg( I18n.MSG_04179_SEARCH_SUBSCRIBER_FAILED, re.getMessage() ), re );
+
+                    if ( !done )
+                    {
+                        cancel( true );
+                    }
+                    
+                    terminated = true;
+                }
+            }
+
+            if ( ( error != null ) && !terminated )
+            {
+                terminated = true;
+                queue.clear();
+                subscriber.onError( error );
+            }
+
+            missed = wip.addAndGet( -missed );
+        }
+        while ( missed != 0 );
+
+        if ( terminated )
+        {
+            // Don't leave the connection suspended once the subscriber is done
+            resumeReadIfBelow( Integer.MAX_VALUE );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append( "SearchSubscriptionFuture" ).append( super.toString() );
+
+        return sb.toString();
+    }
+}
@@ -19,7 +19,11 @@
  */
 package org.apache.directory.ldap.client.api.future;
 
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.directory.api.ldap.model.message.Response;
 import org.apache.directory.ldap.client.api.LdapConnection;
@@ -31,7 +35,7 @@ import org.apache.directory.ldap.client.api.LdapConnection;
  * @param <R> The result type returned by this Future's <tt>get</tt> method
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
-public abstract class UniqueResponseFuture<R extends Response> implements ResponseFuture<R>
+public abstract class UniqueResponseFuture<R extends Response> implements ResponseFuture<R>, CompletionStageProvider<R>
 {
     /** The response */
     private R response;
@@ -51,6 +55,15 @@ public abstract class UniqueResponseFuture<R extends Response> implements Respon
     /** A flag set to TRUE when the response has been received */
     private volatile boolean done = false;
 
+    /** The CompletionStage completed when the response is received */
+    private final ResponseCompletion<R> completion = new ResponseCompletion<>();
+
+    /** The lock protecting the response. A j.u.c lock does not pin a virtual thread while waiting */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The condition signaled when the response is set */
+    private final Condition responseReceived = lock.newCondition();
+
     /**
      * Creates a new instance of UniqueResponseFuture.
      *
@@ -69,14 +82,23 @@ public abstract class UniqueResponseFuture<R extends Response> implements Respon
      * @throws InterruptedException if the operation has been cancelled by client
      */
     @Override
-    public synchronized R get() throws InterruptedException
+    public R get() throws InterruptedException
     {
-        while ( !done && !cancelled )
+        lock.lock();
+
+        try
         {
-            wait();
-        }
+            while ( !done && !cancelled )
+            {
+                responseReceived.await();
+            }
 
-        return response;
+            return response;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
 
@@ -85,15 +107,26 @@ public abstract class UniqueResponseFuture<R extends Response> implements Respon
      * @throws InterruptedException if the operation has been cancelled by client
      */
     @Override
-    public synchronized R get( long timeout, TimeUnit unit ) throws InterruptedException
+    public R get( long timeout, TimeUnit unit ) throws InterruptedException
     {
-        // no need to wait if already done or cancelled
-        if ( !done && !cancelled )
+        lock.lock();
+
+        try
         {
-            wait( unit.toMillis( timeout ) );
-        }
+            long remaining = unit.toNanos( timeout );
+
+            // no need to wait if already done or cancelled
+            while ( !done && !cancelled && ( remaining > 0L ) )
+            {
+                remaining = responseReceived.awaitNanos( remaining );
+            }
 
-        return response;
+            return response;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
 
@@ -103,13 +136,48 @@ public abstract class UniqueResponseFuture<R extends Response> implements Respon
      * @param response The response to add into the Future
      * @throws InterruptedException if the operation has been cancelled by client
      */
-    public synchronized void set( R response ) throws InterruptedException
+    public void set( R response ) throws InterruptedException
     {
-        this.response = response;
+        lock.lock();
+
+        try
+        {
+            this.response = response;
+    
+            done = response != null;
+    
+            responseReceived.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        // Complete the stage out of the lock, the continuations may take a while
+        if ( response != null )
+        {
+            completion.complete( response );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<R> getCompletionStage()
+    {
+        return completion.getStage();
+    }
 
-        done = response != null;
 
-        notifyAll();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setCompletionExecutor( Executor completionExecutor )
+    {
+        completion.setExecutor( completionExecutor );
     }
 
 
@@ -126,6 +194,7 @@ public abstract class UniqueResponseFuture<R extends Response> implements Respon
 
         // set the cancel flag first
         cancelled = true;
+        completion.cancel();
 
         // Send an abandonRequest only if this future exists
         if ( !connection.isRequestCompleted( messageId ) )
@@ -196,6 +265,7 @@ public abstract class UniqueResponseFuture<R extends Response> implements Respon
     {
         // set the cancel flag first
         cancelled = true;
+        completion.closed();
         
         // Notify the future
         try
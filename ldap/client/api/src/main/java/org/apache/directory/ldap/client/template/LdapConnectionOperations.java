@@ -23,16 +23,20 @@ package org.apache.directory.ldap.client.template;
 import java.util.List;
 
 import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.ldif.LdifEntry;
 import org.apache.directory.api.ldap.model.message.AddRequest;
 import org.apache.directory.api.ldap.model.message.AddResponse;
 import org.apache.directory.api.ldap.model.message.DeleteRequest;
 import org.apache.directory.api.ldap.model.message.DeleteResponse;
 import org.apache.directory.api.ldap.model.message.ModifyRequest;
 import org.apache.directory.api.ldap.model.message.ModifyResponse;
+import org.apache.directory.api.ldap.model.message.Request;
 import org.apache.directory.api.ldap.model.message.ResultResponse;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
 import org.apache.directory.api.ldap.model.message.SearchScope;
 import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.BulkOperation;
+import org.apache.directory.ldap.client.api.BulkResult;
 import org.apache.directory.ldap.client.api.search.FilterBuilder;
 import org.apache.directory.ldap.client.template.exception.PasswordException;
 
@@ -150,6 +154,30 @@ public interface LdapConnectionOperations
     PasswordWarning authenticate( Dn userDn, char[] password ) throws PasswordException;
 
 
+    /**
+     * Sends a batch of Add, Delete, Modify and ModifyDn requests on one connection,
+     * keeping up to <code>windowSize</code> of them outstanding.
+     *
+     * @param requests The requests
+     * @param windowSize The maximum number of outstanding requests
+     * @return The result of each request, in the requests order
+     * @see BulkOperation
+     */
+    BulkResult bulk( Iterable<? extends Request> requests, int windowSize );
+
+
+    /**
+     * Applies LDIF entries and changes on one connection, keeping up to
+     * <code>windowSize</code> requests outstanding.
+     *
+     * @param ldif The LDIF entries, typically a LdifReader
+     * @param windowSize The maximum number of outstanding requests
+     * @return The result of each LDIF entry, in the LDIF order
+     * @see BulkOperation
+     */
+    BulkResult bulkLdif( Iterable<LdifEntry> ldif, int windowSize );
+
+
     /**
      * Deletes an entry specified by a DeleteRequest from the LDAP server.
      *
@@ -30,6 +30,7 @@ import org.apache.directory.api.ldap.model.entry.Attribute;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.entry.Value;
 import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.ldif.LdifEntry;
 import org.apache.directory.api.ldap.model.message.AddRequest;
 import org.apache.directory.api.ldap.model.message.AddResponse;
 import org.apache.directory.api.ldap.model.message.BindRequest;
@@ -39,11 +40,14 @@ import org.apache.directory.api.ldap.model.message.DeleteResponse;
 import org.apache.directory.api.ldap.model.message.ModifyRequest;
 import org.apache.directory.api.ldap.model.message.ModifyRequestImpl;
 import org.apache.directory.api.ldap.model.message.ModifyResponse;
+import org.apache.directory.api.ldap.model.message.Request;
 import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.message.ResultResponse;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
 import org.apache.directory.api.ldap.model.message.SearchScope;
 import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.BulkOperation;
+import org.apache.directory.ldap.client.api.BulkResult;
 import org.apache.directory.ldap.client.api.EntryCursorImpl;
 import org.apache.directory.ldap.client.api.LdapConnection;
 import org.apache.directory.ldap.client.api.LdapConnectionPool;
@@ -250,6 +254,46 @@ public class LdapConnectionTemplate implements LdapConnectionOperations, ModelFa
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BulkResult bulk( final Iterable<? extends Request> requests, final int windowSize )
+    {
+        return execute( new ConnectionCallback<BulkResult>()
+        {
+            @Override
+            public BulkResult doWithConnection( LdapConnection connection ) throws LdapException
+            {
+                BulkOperation bulkOperation = new BulkOperation( connection );
+                bulkOperation.setWindowSize( windowSize );
+
+                return bulkOperation.execute( requests );
+            }
+        } );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BulkResult bulkLdif( final Iterable<LdifEntry> ldif, final int windowSize )
+    {
+        return execute( new ConnectionCallback<BulkResult>()
+        {
+            @Override
+            public BulkResult doWithConnection( LdapConnection connection ) throws LdapException
+            {
+                BulkOperation bulkOperation = new BulkOperation( connection );
+                bulkOperation.setWindowSize( windowSize );
+
+                return bulkOperation.executeLdif( ldif );
+            }
+        } );
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,230 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.directory.api.ldap.model.ldif.LdifReader;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.DeleteRequest;
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.ModifyDnRequest;
+import org.apache.directory.api.ldap.model.message.ModifyRequest;
+import org.apache.directory.api.ldap.model.message.Request;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests BulkOperation.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BulkOperationTest
+{
+    private static LdapNetworkConnection connect( MockLdapServer server )
+    {
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setLdapHost( "localhost" );
+        config.setLdapPort( server.getPort() );
+        config.setTimeout( 10000L );
+
+        return new LdapNetworkConnection( config );
+    }
+
+
+    private static List<Request> deletes( int count ) throws Exception
+    {
+        List<Request> requests = new ArrayList<>();
+
+        for ( int i = 0; i < count; i++ )
+        {
+            requests.add( new DeleteRequestImpl().setName( new Dn( "cn=user" + i + ",dc=example,dc=com" ) ) );
+        }
+
+        return requests;
+    }
+
+
+    @Test
+    public void testWindowedRequests() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapNetworkConnection connection = connect( server ) )
+        {
+            List<Request> requests = deletes( 200 );
+            BulkOperation bulkOperation = new BulkOperation( connection );
+            bulkOperation.setWindowSize( 16 );
+
+            BulkResult result = bulkOperation.execute( requests );
+
+            assertTrue( result.isSuccess() );
+            assertEquals( 200, result.size() );
+            assertEquals( 0, result.getRetryCount() );
+
+            for ( BulkItemResult itemResult : result.getResults() )
+            {
+                assertEquals( requests.get( itemResult.getIndex() ), itemResult.getRequest() );
+                assertEquals( 1, itemResult.getAttempts() );
+            }
+
+            assertThrows( IllegalArgumentException.class, () -> bulkOperation.setWindowSize( 0 ) );
+            assertThrows( IllegalArgumentException.class, () -> bulkOperation.execute( 
+                Collections.singletonList( new SearchRequestImpl() ) ) );
+        }
+    }
+
+
+    @Test
+    public void testRetryAndFailures() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapNetworkConnection connection = connect( server ) )
+        {
+            // The first attempt for each entry gets a BUSY result, user7 is never found
+            Set<Dn> seen = ConcurrentHashMap.newKeySet();
+            server.setResultCodes( request ->
+            {
+                Dn dn = ( ( DeleteRequest ) request ).getName();
+
+                if ( dn.getRdn().getValue().equals( "user7" ) )
+                {
+                    return ResultCodeEnum.NO_SUCH_OBJECT;
+                }
+
+                return seen.add( dn ) ? ResultCodeEnum.BUSY : ResultCodeEnum.SUCCESS;
+            } );
+
+            BulkOperation bulkOperation = new BulkOperation( connection );
+            bulkOperation.setWindowSize( 4 );
+            bulkOperation.setMaxRetries( 2 );
+            bulkOperation.setRetryDelay( 1L );
+
+            BulkResult result = bulkOperation.execute( deletes( 20 ) );
+
+            assertEquals( 19, result.getSuccessCount() );
+            assertEquals( 19, result.getRetryCount() );
+            assertEquals( 1, result.getFailures().size() );
+            assertEquals( 7, result.getFailures().get( 0 ).getIndex() );
+            assertEquals( ResultCodeEnum.NO_SUCH_OBJECT, result.getFailures().get( 0 ).getResultCode() );
+
+            // Without retries, the BUSY result is reported
+            bulkOperation.setMaxRetries( 0 );
+            seen.clear();
+            result = bulkOperation.execute( deletes( 3 ) );
+
+            assertEquals( ResultCodeEnum.BUSY, result.getResults().get( 0 ).getResultCode() );
+            assertEquals( 0, result.getSuccessCount() );
+        }
+    }
+
+
+    @Test
+    public void testRetryDoesNotStallTheWindow() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapNetworkConnection connection = connect( server ) )
+        {
+            // The first attempt for user0 gets a BUSY result
+            List<String> received = new CopyOnWriteArrayList<>();
+            server.setResultCodes( request ->
+            {
+                String name = ( ( DeleteRequest ) request ).getName().getRdn().getValue();
+                received.add( name );
+
+                return ( received.size() == 1 ) ? ResultCodeEnum.BUSY : ResultCodeEnum.SUCCESS;
+            } );
+
+            BulkOperation bulkOperation = new BulkOperation( connection );
+            bulkOperation.setWindowSize( 4 );
+            bulkOperation.setMaxRetries( 1 );
+            bulkOperation.setRetryDelay( 500L );
+
+            BulkResult result = bulkOperation.execute( deletes( 20 ) );
+
+            assertTrue( result.isSuccess() );
+            assertEquals( 1, result.getRetryCount() );
+            assertEquals( 2, result.getResults().get( 0 ).getAttempts() );
+
+            // All the other requests have been sent while user0 was waiting for its delay
+            assertEquals( 21, received.size() );
+            assertEquals( "user0", received.get( 0 ) );
+            assertEquals( "user0", received.get( 20 ) );
+        }
+    }
+
+
+    @Test
+    public void testLdif() throws Exception
+    {
+        String ldif = 
+            "dn: cn=test,dc=example,dc=com\n" +
+            "changetype: add\n" +
+            "objectClass: top\n" +
+            "objectClass: person\n" +
+            "cn: test\n" +
+            "sn: test\n" +
+            "\n" +
+            "dn: cn=test,dc=example,dc=com\n" +
+            "changetype: modify\n" +
+            "replace: sn\n" +
+            "sn: modified\n" +
+            "-\n" +
+            "\n" +
+            "dn: cn=test,dc=example,dc=com\n" +
+            "changetype: modrdn\n" +
+            "newrdn: cn=renamed\n" +
+            "deleteoldrdn: 1\n" +
+            "\n" +
+            "dn: cn=renamed,dc=example,dc=com\n" +
+            "changetype: delete\n";
+
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapNetworkConnection connection = connect( server );
+            LdifReader reader = new LdifReader() )
+        {
+            BulkOperation bulkOperation = new BulkOperation( connection );
+            bulkOperation.setWindowSize( 1 );
+
+            BulkResult result = bulkOperation.executeLdif( reader.parseLdif( ldif ) );
+
+            assertTrue( result.isSuccess() );
+            assertEquals( 4, result.size() );
+            assertTrue( result.getResults().get( 0 ).getRequest() instanceof AddRequest );
+            assertTrue( result.getResults().get( 1 ).getRequest() instanceof ModifyRequest );
+            assertTrue( result.getResults().get( 2 ).getRequest() instanceof ModifyDnRequest );
+            assertTrue( result.getResults().get( 3 ).getRequest() instanceof DeleteRequest );
+            assertEquals( "cn=renamed", ( ( ModifyDnRequest ) result.getResults().get( 2 ).getRequest() )
+                .getNewRdn().getName() );
+        }
+    }
+}
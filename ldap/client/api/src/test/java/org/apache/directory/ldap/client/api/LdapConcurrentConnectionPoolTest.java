@@ -0,0 +1,162 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+import org.apache.directory.ldap.client.api.exception.LdapConnectionTimeOutException;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests LdapConcurrentConnectionPool.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapConcurrentConnectionPoolTest
+{
+    private static LdapConnectionConfig config( MockLdapServer server )
+    {
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setLdapHost( "localhost" );
+        config.setLdapPort( server.getPort() );
+        config.setTimeout( 10000L );
+
+        return config;
+    }
+
+
+    @Test
+    public void testThreadAffinityAndExhaustion() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapConcurrentConnectionPool pool = new LdapConcurrentConnectionPool( 
+                new DefaultLdapConnectionFactory( config( server ) ), 2, 100L ) )
+        {
+            LdapConnection connection1 = pool.getConnection();
+            LdapConnection connection2 = pool.getConnection();
+            assertNotSame( connection1, connection2 );
+            assertEquals( 2, pool.getNumActive() );
+
+            assertThrows( LdapConnectionTimeOutException.class, pool::getConnection );
+
+            // The thread gets back the last connection it has used
+            pool.releaseConnection( connection1 );
+            pool.releaseConnection( connection2 );
+            assertEquals( 2, pool.getNumIdle() );
+            assertSame( connection2, pool.getConnection() );
+
+            // A connection can't be released twice
+            pool.releaseConnection( connection2 );
+            assertThrows( IllegalArgumentException.class, () -> pool.releaseConnection( connection2 ) );
+        }
+    }
+
+
+    @Test
+    public void testLazyValidation() throws Exception
+    {
+        AtomicInteger validations = new AtomicInteger();
+
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapConcurrentConnectionPool pool = new LdapConcurrentConnectionPool( config( server ), 1 ) )
+        {
+            pool.setValidator( connection -> validations.incrementAndGet() > 1 );
+
+            // Recently used connections are not validated
+            LdapConnection connection = pool.getConnection();
+            pool.releaseConnection( connection );
+            assertSame( connection, pool.getConnection() );
+            pool.releaseConnection( connection );
+            assertEquals( 0, validations.get() );
+
+            // Idle connections are, and the invalid ones get replaced
+            pool.setValidationInterval( 0L );
+            Thread.sleep( 1L );
+            LdapConnection replaced = pool.getConnection();
+            assertNotSame( connection, replaced );
+            assertEquals( 1, validations.get() );
+            assertEquals( "cn=test,dc=example,dc=com", replaced.lookup( "cn=test,dc=example,dc=com" ).getDn().getName() );
+            pool.releaseConnection( replaced );
+        }
+    }
+
+
+    @Test
+    public void testConcurrentBorrowers() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapConcurrentConnectionPool pool = new LdapConcurrentConnectionPool( config( server ), 4 ) )
+        {
+            ExecutorService executor = Executors.newFixedThreadPool( 16 );
+            List<Future<String>> lookups = new ArrayList<>();
+
+            try
+            {
+                for ( int i = 0; i < 200; i++ )
+                {
+                    String dn = "cn=user" + i + ",dc=example,dc=com";
+
+                    lookups.add( executor.submit( () -> 
+                    {
+                        LdapConnection connection = pool.getConnection();
+
+                        try
+                        {
+                            return connection.lookup( dn ).getDn().getName();
+                        }
+                        finally
+                        {
+                            pool.releaseConnection( connection );
+                        }
+                    } ) );
+                }
+
+                for ( int i = 0; i < 200; i++ )
+                {
+                    assertEquals( "cn=user" + i + ",dc=example,dc=com", lookups.get( i ).get() );
+                }
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+
+            assertEquals( 0, pool.getNumActive() );
+            assertTrue( ( pool.getNumIdle() > 0 ) && ( pool.getNumIdle() <= 4 ) );
+
+            pool.close();
+            assertThrows( InvalidConnectionException.class, pool::getConnection );
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+import org.apache.directory.ldap.client.api.exception.LdapConnectionTimeOutException;
+import org.apache.directory.ldap.client.api.future.DeleteFuture;
+import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests LdapMultiplexedConnectionPool.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapMultiplexedConnectionPoolTest
+{
+    private static LdapConnectionConfig config( MockLdapServer server )
+    {
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setLdapHost( "localhost" );
+        config.setLdapPort( server.getPort() );
+        config.setTimeout( 10000L );
+
+        return config;
+    }
+
+
+    @Test
+    public void testChannelsAreBalanced() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapMultiplexedConnectionPool pool = new LdapMultiplexedConnectionPool( 
+                new DefaultLdapConnectionFactory( config( server ) ), 2, 2, 100L ) )
+        {
+            MultiplexedLdapConnection channel1 = ( MultiplexedLdapConnection ) pool.getConnection();
+            MultiplexedLdapConnection channel2 = ( MultiplexedLdapConnection ) pool.getConnection();
+            MultiplexedLdapConnection channel3 = ( MultiplexedLdapConnection ) pool.getConnection();
+            MultiplexedLdapConnection channel4 = ( MultiplexedLdapConnection ) pool.getConnection();
+
+            // Two connections, each carrying two channels
+            assertNotSame( channel1.wrapped(), channel2.wrapped() );
+            assertSame( channel1.wrapped(), channel3.wrapped() );
+            assertSame( channel2.wrapped(), channel4.wrapped() );
+            assertEquals( 4, pool.getNumActive() );
+
+            // The channels share the connections
+            assertEquals( "cn=test1,dc=example,dc=com", channel1.lookup( "cn=test1,dc=example,dc=com" ).getDn().getName() );
+            assertEquals( "cn=test3,dc=example,dc=com", channel3.lookup( "cn=test3,dc=example,dc=com" ).getDn().getName() );
+
+            // The next channel goes on the connection having the fewest channels
+            channel4.close();
+            channel4.close();
+            assertEquals( 3, pool.getNumActive() );
+
+            MultiplexedLdapConnection channel5 = ( MultiplexedLdapConnection ) pool.getConnection();
+            assertSame( channel2.wrapped(), channel5.wrapped() );
+            assertEquals( "cn=test5,dc=example,dc=com", channel5.lookup( "cn=test5,dc=example,dc=com" ).getDn().getName() );
+
+            pool.releaseConnection( channel1 );
+            pool.releaseConnection( channel2 );
+            pool.releaseConnection( channel3 );
+            pool.releaseConnection( channel5 );
+            assertEquals( 0, pool.getNumActive() );
+        }
+    }
+
+
+    @Test
+    public void testChannelCantBind() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapMultiplexedConnectionPool pool = new LdapMultiplexedConnectionPool( config( server ), 1, 4 ) )
+        {
+            LdapConnection released;
+
+            try ( LdapConnection channel = pool.getConnection() )
+            {
+                released = channel;
+                assertThrows( UnsupportedOperationException.class, () -> channel.bind( "cn=other", "secret" ) );
+                assertThrows( UnsupportedOperationException.class, channel::unBind );
+                assertThrows( UnsupportedOperationException.class, channel::loadSchema );
+                assertThrows( UnsupportedOperationException.class, () -> channel.setSchemaManager( null ) );
+                assertThrows( UnsupportedOperationException.class, () -> channel.setBinaryAttributeDetector( null ) );
+                assertThrows( UnsupportedOperationException.class, () -> channel.setTimeOut( 10L ) );
+
+                // The shared connection rejects them too
+                LdapNetworkConnection shared = ( LdapNetworkConnection ) ( ( MultiplexedLdapConnection ) channel ).wrapped();
+                assertThrows( UnsupportedOperationException.class, shared::startTls );
+                assertThrows( UnsupportedOperationException.class, shared::loadSchemaRelaxed );
+                assertThrows( UnsupportedOperationException.class, () -> shared.setSchemaManager( null ) );
+                assertThrows( UnsupportedOperationException.class, () -> shared.setTimeOut( 10L ) );
+                assertThrows( UnsupportedOperationException.class, () -> shared.bind( "cn=other", "secret" ) );
+                assertThrows( UnsupportedOperationException.class, shared::anonymousBind );
+                assertThrows( UnsupportedOperationException.class, () -> shared.bindSaslPlain( "other", "secret" ) );
+                assertThrows( UnsupportedOperationException.class, shared::unBind );
+                assertTrue( shared.isAuthenticated() );
+            }
+
+            // A released channel can't be used anymore
+            assertFalse( released.isConnected() );
+            assertThrows( InvalidConnectionException.class, () -> released.lookup( "cn=test,dc=example,dc=com" ) );
+            assertEquals( 0, pool.getNumActive() );
+
+            // The pool can still unbind the shared connection
+            pool.close();
+        }
+    }
+
+
+    @Test
+    public void testOutstandingRequestsAreCapped() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapMultiplexedConnectionPool pool = new LdapMultiplexedConnectionPool( 
+                new DefaultLdapConnectionFactory( config( server ) ), 2, 2, 200L ) )
+        {
+            MultiplexedLdapConnection channel1 = ( MultiplexedLdapConnection ) pool.getConnection();
+            MultiplexedLdapConnection channel2 = ( MultiplexedLdapConnection ) pool.getConnection();
+            LdapNetworkConnection shared1 = ( LdapNetworkConnection ) channel1.wrapped();
+            assertNotSame( shared1, channel2.wrapped() );
+
+            server.holdResponses();
+
+            // A single channel can't have more than 2 requests waiting for a response
+            DeleteFuture delete1 = shared1.deleteAsync( new DeleteRequestImpl().setName( new Dn( "cn=test1" ) ) );
+            DeleteFuture delete2 = shared1.deleteAsync( new DeleteRequestImpl().setName( new Dn( "cn=test2" ) ) );
+            assertEquals( 2, shared1.getOutstandingRequests() );
+            assertThrows( LdapConnectionTimeOutException.class,
+                () -> shared1.deleteAsync( new DeleteRequestImpl().setName( new Dn( "cn=test3" ) ) ) );
+
+            // Idle channels don't use any slot, and go to the connection having the fewest
+            // outstanding requests, even if it has as many channels
+            MultiplexedLdapConnection channel3 = ( MultiplexedLdapConnection ) pool.getConnection();
+            MultiplexedLdapConnection channel4 = ( MultiplexedLdapConnection ) pool.getConnection();
+            assertSame( channel2.wrapped(), channel3.wrapped() );
+            assertSame( channel2.wrapped(), channel4.wrapped() );
+
+            server.releaseResponses();
+
+            assertEquals( ResultCodeEnum.SUCCESS, delete1.get( 10, TimeUnit.SECONDS ).getLdapResult().getResultCode() );
+            assertEquals( ResultCodeEnum.SUCCESS, delete2.get( 10, TimeUnit.SECONDS ).getLdapResult().getResultCode() );
+            assertEquals( 0, shared1.getOutstandingRequests() );
+
+            // There is room for a new request
+            DeleteFuture delete3 = shared1.deleteAsync( new DeleteRequestImpl().setName( new Dn( "cn=test3" ) ) );
+            assertEquals( ResultCodeEnum.SUCCESS, delete3.get( 10, TimeUnit.SECONDS ).getLdapResult().getResultCode() );
+
+            channel1.close();
+            channel2.close();
+            channel3.close();
+            channel4.close();
+        }
+    }
+
+
+    @Test
+    public void testSearchDoesNotSuspendSharedConnection() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer() )
+        {
+            LdapConnectionConfig config = config( server );
+            config.setSearchQueueHighWaterMark( 2 );
+            server.setSearchSize( 10 );
+
+            try ( LdapMultiplexedConnectionPool pool = new LdapMultiplexedConnectionPool( 
+                new DefaultLdapConnectionFactory( config ), 1, 10, 1000L ) )
+            {
+                MultiplexedLdapConnection channel1 = ( MultiplexedLdapConnection ) pool.getConnection();
+                MultiplexedLdapConnection channel2 = ( MultiplexedLdapConnection ) pool.getConnection();
+
+                // The first channel doesn't read its search responses...
+                SearchFuture search = ( ( LdapNetworkConnection ) channel1.wrapped() ).searchAsync( 
+                    "dc=example,dc=com", "(objectClass=*)", SearchScope.SUBTREE );
+
+                // ... but the second channel still gets its responses
+                assertEquals( "cn=test,dc=example,dc=com", channel2.lookup( "cn=test,dc=example,dc=com" ).getDn().getName() );
+                assertFalse( search.isReadSuspended() );
+
+                search.cancel( true );
+                channel1.close();
+                channel2.close();
+            }
+        }
+    }
+
+
+    @Test
+    public void testClosedPool() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer() )
+        {
+            LdapMultiplexedConnectionPool pool = new LdapMultiplexedConnectionPool( config( server ), 1, 1 );
+            pool.releaseConnection( pool.getConnection() );
+            pool.close();
+
+            assertThrows( InvalidConnectionException.class, pool::getConnection );
+        }
+    }
+}
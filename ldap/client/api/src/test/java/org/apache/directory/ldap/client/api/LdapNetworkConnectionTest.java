@@ -21,10 +21,31 @@ package org.apache.directory.ldap.client.api;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.DeleteRequest;
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.future.DeleteFuture;
+import org.apache.mina.core.service.IoProcessor;
+import org.apache.mina.core.service.SimpleIoProcessorPool;
+import org.apache.mina.transport.socket.nio.NioProcessor;
+import org.apache.mina.transport.socket.nio.NioSession;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -84,4 +105,122 @@ public class LdapNetworkConnectionTest
         }
     }
 
+
+    /**
+     * Check that a failed connection does not dispose the IoProcessor shared through the configuration
+     */
+    @Test
+    public void testSharedIoProcessorNotDisposed() throws IOException
+    {
+        IoProcessor<NioSession> processor = new SimpleIoProcessorPool<>( NioProcessor.class, 2 );
+        int port;
+
+        // Get a port nobody listens on
+        try ( ServerSocket socket = new ServerSocket( 0 ) )
+        {
+            port = socket.getLocalPort();
+        }
+
+        try
+        {
+            LdapConnectionConfig config = new LdapConnectionConfig();
+            config.setLdapHost( "localhost" );
+            config.setLdapPort( port );
+            config.setTimeout( 2000L );
+            config.setIoProcessor( processor );
+
+            for ( int i = 0; i < 2; i++ )
+            {
+                try ( LdapNetworkConnection connection = new LdapNetworkConnection( config ) )
+                {
+                    assertThrows( LdapException.class, connection::connect );
+                }
+
+                assertFalse( processor.isDisposed() );
+            }
+        }
+        finally
+        {
+            processor.dispose();
+        }
+    }
+
+
+    @Test
+    public void testConcurrentOperationsOnOneConnection() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer() )
+        {
+            LdapConnectionConfig config = new LdapConnectionConfig();
+            config.setLdapHost( "localhost" );
+            config.setLdapPort( server.getPort() );
+            config.setTimeout( 10000L );
+
+            try ( LdapNetworkConnection connection = new LdapNetworkConnection( config ) )
+            {
+                connection.bind();
+
+                ExecutorService executor = Executors.newFixedThreadPool( 16 );
+                List<Future<Entry>> lookups = new ArrayList<>();
+
+                try
+                {
+                    for ( int i = 0; i < 200; i++ )
+                    {
+                        String dn = "cn=user" + i + ",dc=example,dc=com";
+                        lookups.add( executor.submit( () -> connection.lookup( dn ) ) );
+                    }
+
+                    for ( int i = 0; i < 200; i++ )
+                    {
+                        assertEquals( "cn=user" + i + ",dc=example,dc=com", 
+                            lookups.get( i ).get().getDn().getName() );
+                    }
+                }
+                finally
+                {
+                    executor.shutdownNow();
+                }
+
+                connection.unBind();
+            }
+        }
+    }
+
+
+    @Test
+    public void testPipelinedRequests() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer() )
+        {
+            LdapConnectionConfig config = new LdapConnectionConfig();
+            config.setLdapHost( "localhost" );
+            config.setLdapPort( server.getPort() );
+            config.setTimeout( 10000L );
+            config.setPipeliningBatchSize( 4096 );
+
+            try ( LdapNetworkConnection connection = new LdapNetworkConnection( config ) )
+            {
+                connection.bind();
+
+                List<DeleteFuture> deletes = new ArrayList<>();
+
+                for ( int i = 0; i < 500; i++ )
+                {
+                    DeleteRequest deleteRequest = new DeleteRequestImpl();
+                    deleteRequest.setName( new Dn( "cn=user" + i + ",dc=example,dc=com" ) );
+                    deletes.add( connection.deleteAsync( deleteRequest ) );
+                }
+
+                for ( DeleteFuture delete : deletes )
+                {
+                    assertEquals( ResultCodeEnum.SUCCESS, delete.get( 10, TimeUnit.SECONDS ).getLdapResult().getResultCode() );
+                }
+
+                assertEquals( "cn=test,dc=example,dc=com", connection.lookup( "cn=test,dc=example,dc=com" ).getDn().getName() );
+
+                connection.unBind();
+            }
+        }
+    }
 }
@@ -0,0 +1,265 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
+import org.apache.directory.api.ldap.codec.api.LdapDecoder;
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.message.ResultResponseRequest;
+import org.apache.directory.api.ldap.model.message.SearchRequest;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.UnbindRequest;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
+import org.apache.directory.api.util.Strings;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.ProtocolCodecFilter;
+import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
+
+
+/**
+ * A minimal in-process LDAP server, used to exercise the network connection. Every
+ * request gets a successful response, unless a result code function has been set, and
+ * each search returns one entry named after the search base, or as many entries as set
+ * by {@link #setSearchSize(int)}. The Simple Paged Results control is supported.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class MockLdapServer implements AutoCloseable
+{
+    /** The acceptor */
+    private final NioSocketAcceptor acceptor;
+
+    /** The function computing the result code of each request, if any */
+    private volatile Function<ResultResponseRequest, ResultCodeEnum> resultCodes;
+
+    /** The number of entries returned by a search */
+    private volatile int searchSize = 1;
+
+    /** The page sizes requested so far */
+    private final List<Integer> pageSizes = new CopyOnWriteArrayList<>();
+
+    /** The responses held until they are released, or null if the responses are sent right away */
+    private List<Runnable> heldResponses;
+
+
+    /**
+     * Starts a server listening on an ephemeral port of the loopback interface
+     * 
+     * @throws IOException If the server can't be started
+     */
+    public MockLdapServer() throws IOException
+    {
+        LdapApiService codec = LdapApiServiceFactory.getSingleton();
+
+        acceptor = new NioSocketAcceptor();
+        acceptor.setReuseAddress( true );
+        acceptor.getSessionConfig().setTcpNoDelay( true );
+        acceptor.getFilterChain().addLast( "ldapCodec", new ProtocolCodecFilter( codec.getProtocolCodecFactory() ) );
+        acceptor.setHandler( new IoHandlerAdapter()
+        {
+            @Override
+            public void sessionCreated( IoSession session )
+            {
+                session.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR, new LdapMessageContainer<Message>( codec ) );
+            }
+
+
+            @Override
+            public void messageReceived( IoSession session, Object message ) throws Exception
+            {
+                if ( message instanceof UnbindRequest )
+                {
+                    session.closeOnFlush();
+
+                    return;
+                }
+
+                PagedResults pagedResults = null;
+
+                if ( message instanceof SearchRequest )
+                {
+                    SearchRequest searchRequest = ( SearchRequest ) message;
+                    pagedResults = ( PagedResults ) searchRequest.getControl( PagedResults.OID );
+                    int start = 0;
+                    int end = searchSize;
+
+                    if ( pagedResults != null )
+                    {
+                        pageSizes.add( pagedResults.getSize() );
+
+                        if ( !Strings.isEmpty( pagedResults.getCookie() ) )
+                        {
+                            start = Integer.parseInt( Strings.utf8ToString( pagedResults.getCookie() ) );
+                        }
+
+                        end = Math.min( end, start + pagedResults.getSize() );
+                    }
+
+                    for ( int i = start; i < end; i++ )
+                    {
+                        SearchResultEntry entry = new SearchResultEntryImpl( searchRequest.getMessageId() );
+                        entry.setEntry( new DefaultEntry( i == 0 ? searchRequest.getBase().getName() 
+                            : "cn=entry" + i + "," + searchRequest.getBase().getName(), 
+                            "objectClass: top", 
+                            "objectClass: person", 
+                            "cn: mock", 
+                            "sn: mock" ) );
+                        write( session, entry );
+                    }
+
+                    if ( pagedResults != null )
+                    {
+                        PagedResults responseControl = new PagedResultsImpl();
+                        responseControl.setCookie( end < searchSize ? Strings.getBytesUtf8( Integer.toString( end ) ) 
+                            : Strings.EMPTY_BYTES );
+                        pagedResults = responseControl;
+                    }
+                }
+
+                if ( message instanceof ResultResponseRequest )
+                {
+                    ResultResponse response = ( ( ResultResponseRequest ) message ).getResultResponse();
+
+                    if ( pagedResults != null )
+                    {
+                        response.addControl( pagedResults );
+                    }
+                    Function<ResultResponseRequest, ResultCodeEnum> function = resultCodes;
+
+                    if ( function != null )
+                    {
+                        response.getLdapResult().setResultCode( function.apply( ( ResultResponseRequest ) message ) );
+                    }
+
+                    write( session, response );
+                }
+            }
+        } );
+
+        acceptor.bind( new InetSocketAddress( "localhost", 0 ) );
+    }
+
+
+    /**
+     * Sends a response, unless the responses are held
+     */
+    private synchronized void write( IoSession session, Object response )
+    {
+        if ( heldResponses != null )
+        {
+            heldResponses.add( () -> session.write( response ) );
+        }
+        else
+        {
+            session.write( response );
+        }
+    }
+
+
+    /**
+     * Holds the responses until {@link #releaseResponses()} is called
+     */
+    public synchronized void holdResponses()
+    {
+        if ( heldResponses == null )
+        {
+            heldResponses = new ArrayList<>();
+        }
+    }
+
+
+    /**
+     * Sends the held responses, and stops holding the next ones
+     */
+    public synchronized void releaseResponses()
+    {
+        if ( heldResponses != null )
+        {
+            heldResponses.forEach( Runnable::run );
+            heldResponses = null;
+        }
+    }
+
+
+    /**
+     * @return The port the server is listening on
+     */
+    public int getPort()
+    {
+        return acceptor.getLocalAddress().getPort();
+    }
+
+
+    /**
+     * Sets the function computing the result code returned for each request
+     * 
+     * @param resultCodes The function, or null to always return SUCCESS
+     */
+    public void setResultCodes( Function<ResultResponseRequest, ResultCodeEnum> resultCodes )
+    {
+        this.resultCodes = resultCodes;
+    }
+
+
+    /**
+     * Sets the number of entries returned by each search
+     * 
+     * @param searchSize The number of entries
+     */
+    public void setSearchSize( int searchSize )
+    {
+        this.searchSize = searchSize;
+    }
+
+
+    /**
+     * @return The page sizes of the paged searches received so far
+     */
+    public List<Integer> getPageSizes()
+    {
+        return pageSizes;
+    }
+
+
+    /**
+     * Stops the server
+     */
+    @Override
+    public void close()
+    {
+        acceptor.dispose( true );
+    }
+}
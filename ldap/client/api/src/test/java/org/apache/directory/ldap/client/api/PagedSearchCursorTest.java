@@ -0,0 +1,188 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchRequest;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests PagedSearchCursor.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PagedSearchCursorTest
+{
+    private static LdapNetworkConnection connect( MockLdapServer server )
+    {
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setLdapHost( "localhost" );
+        config.setLdapPort( server.getPort() );
+        config.setTimeout( 10000L );
+
+        return new LdapNetworkConnection( config );
+    }
+
+
+    private static SearchRequest searchRequest() throws Exception
+    {
+        SearchRequest searchRequest = new SearchRequestImpl();
+        searchRequest.setBase( new Dn( "dc=example,dc=com" ) );
+        searchRequest.setFilter( "(objectClass=*)" );
+        searchRequest.setScope( SearchScope.SUBTREE );
+
+        return searchRequest;
+    }
+
+
+    @Test
+    public void testAllPagesAreRead() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapNetworkConnection connection = connect( server ) )
+        {
+            server.setSearchSize( 25 );
+            List<String> dns = new ArrayList<>();
+
+            try ( SearchCursor cursor = connection.searchPaged( searchRequest(), 10 ) )
+            {
+                while ( cursor.next() )
+                {
+                    dns.add( cursor.getEntry().getDn().getName() );
+                }
+
+                assertEquals( ResultCodeEnum.SUCCESS, cursor.getSearchResultDone().getLdapResult().getResultCode() );
+                assertTrue( cursor.isDone() );
+                assertFalse( cursor.next() );
+            }
+
+            assertEquals( 25, dns.size() );
+            assertEquals( "dc=example,dc=com", dns.get( 0 ) );
+            assertEquals( "cn=entry24,dc=example,dc=com", dns.get( 24 ) );
+            assertEquals( 3, server.getPageSizes().size() );
+            assertEquals( 10, server.getPageSizes().get( 0 ) );
+
+            assertThrows( IllegalArgumentException.class, () -> connection.searchPaged( searchRequest(), 0 ) );
+        }
+    }
+
+
+    @Test
+    public void testPageSizeAdaptsToEntrySize() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapNetworkConnection connection = connect( server ) )
+        {
+            server.setSearchSize( 100 );
+            int count = 0;
+
+            try ( PagedSearchCursor cursor = new PagedSearchCursor( connection, searchRequest(), 50, 10L,
+                TimeUnit.SECONDS ) )
+            {
+                // Each entry weighs around 70 bytes, so we expect pages of about 10 entries
+                cursor.setTargetPageBytes( 700L );
+
+                while ( cursor.next() )
+                {
+                    if ( cursor.isEntry() )
+                    {
+                        count++;
+                    }
+                }
+
+                assertEquals( server.getPageSizes().size(), cursor.getPageCount() );
+            }
+
+            assertEquals( 100, count );
+            assertEquals( 50, server.getPageSizes().get( 0 ) );
+
+            for ( int pageSize : server.getPageSizes().subList( 1, server.getPageSizes().size() ) )
+            {
+                assertTrue( ( pageSize > 1 ) && ( pageSize < 20 ), "page size " + pageSize );
+            }
+        }
+    }
+
+
+    @Test
+    public void testSlowConsumerPrefetchesOnePage() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapNetworkConnection connection = connect( server ) )
+        {
+            server.setSearchSize( 100 );
+            int count = 0;
+
+            try ( PagedSearchCursor cursor = new PagedSearchCursor( connection, searchRequest(), 10, 10L,
+                TimeUnit.SECONDS ) )
+            {
+                while ( cursor.next() )
+                {
+                    count++;
+
+                    // Let the server send as much as it can
+                    Thread.sleep( 5L );
+
+                    // The page being consumed, and at most the next one
+                    assertTrue( cursor.getPageCount() <= ( count - 1 ) / 10 + 2 );
+                    assertTrue( cursor.getReceivedCount() <= 2 * 11 );
+                }
+
+                assertEquals( 10, cursor.getPageCount() );
+            }
+
+            assertEquals( 100, count );
+        }
+    }
+
+
+    @Test
+    public void testCloseBeforeTheLastPage() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer();
+            LdapNetworkConnection connection = connect( server ) )
+        {
+            server.setSearchSize( 30 );
+
+            SearchCursor cursor = connection.searchPaged( searchRequest(), 10 );
+            assertTrue( cursor.next() );
+            cursor.close();
+            assertTrue( cursor.isClosed() );
+
+            // The connection is still usable
+            assertEquals( "cn=test,dc=example,dc=com", connection.lookup( "cn=test,dc=example,dc=com" ).getDn().getName() );
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Runs 10 000 concurrent lookups sharing a small pool of connections, from virtual 
+ * threads when the JVM supports them (Java 21+), from a pool of platform threads 
+ * otherwise.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class VirtualThreadLookupPerfTest
+{
+    private static final int NB_LOOKUPS = 10_000;
+
+    private static final int NB_CONNECTIONS = 8;
+
+
+    /**
+     * @return An executor starting a virtual thread per task if available, a pool of 
+     * platform threads otherwise
+     */
+    private static ExecutorService newExecutor() throws Exception
+    {
+        try
+        {
+            Method factory = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            System.out.println( "Running the lookups on virtual threads" );
+
+            return ( ExecutorService ) factory.invoke( null );
+        }
+        catch ( NoSuchMethodException nsme )
+        {
+            System.out.println( "No virtual threads, running the lookups on 256 platform threads" );
+
+            return Executors.newFixedThreadPool( 256 );
+        }
+    }
+
+
+    @Test
+    @Disabled
+    public void testConcurrentLookupsPerf() throws Exception
+    {
+        try ( MockLdapServer server = new MockLdapServer() )
+        {
+            LdapConnectionConfig config = new LdapConnectionConfig();
+            config.setLdapHost( "localhost" );
+            config.setLdapPort( server.getPort() );
+
+            GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+            poolConfig.setMaxTotal( NB_CONNECTIONS );
+            poolConfig.setMaxIdle( NB_CONNECTIONS );
+            poolConfig.setTestOnBorrow( false );
+
+            LdapConnectionPool pool = new LdapConnectionPool( 
+                new DefaultPoolableLdapConnectionFactory( config ), poolConfig );
+            ExecutorService executor = newExecutor();
+
+            try
+            {
+                for ( int j = 0; j < 5; j++ )
+                {
+                    List<Future<Entry>> lookups = new ArrayList<>( NB_LOOKUPS );
+                    long t0 = System.nanoTime();
+
+                    for ( int i = 0; i < NB_LOOKUPS; i++ )
+                    {
+                        String dn = "cn=user" + i + ",ou=people,dc=example,dc=com";
+
+                        lookups.add( executor.submit( () -> 
+                        {
+                            LdapConnection connection = pool.getConnection();
+
+                            try
+                            {
+                                return connection.lookup( dn );
+                            }
+                            finally
+                            {
+                                pool.releaseConnection( connection );
+                            }
+                        } ) );
+                    }
+
+                    for ( Future<Entry> lookup : lookups )
+                    {
+                        assertEquals( "mock", lookup.get().get( "cn" ).getString() );
+                    }
+
+                    long delta = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - t0 );
+                    System.out.println( NB_LOOKUPS + " lookups on " + NB_CONNECTIONS + " connections, Delta = " 
+                        + delta + " ms" );
+                }
+            }
+            finally
+            {
+                executor.shutdownNow();
+                pool.close();
+            }
+        }
+    }
+}
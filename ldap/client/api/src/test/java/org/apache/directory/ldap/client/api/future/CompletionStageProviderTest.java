@@ -0,0 +1,117 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.directory.api.ldap.model.message.AddResponse;
+import org.apache.directory.api.ldap.model.message.AddResponseImpl;
+import org.apache.directory.api.ldap.model.message.BindResponse;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the CompletionStage exposed by the Futures.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CompletionStageProviderTest
+{
+    @Test
+    public void testStageCompletedOnResponse() throws Exception
+    {
+        AddFuture future = new AddFuture( mock( LdapConnection.class ), 1 );
+        CompletableFuture<AddResponse> stage = future.getCompletionStage().toCompletableFuture();
+
+        assertFalse( stage.isDone() );
+
+        AddResponse response = new AddResponseImpl( 1 );
+        future.set( response );
+
+        assertSame( response, stage.get() );
+        assertSame( response, future.get() );
+    }
+
+
+    @Test
+    public void testStageCompletedThroughExecutor() throws Exception
+    {
+        List<Runnable> tasks = new ArrayList<>();
+        BindFuture future = new BindFuture( mock( LdapConnection.class ), 1 );
+        future.setCompletionExecutor( tasks::add );
+        CompletableFuture<BindResponse> stage = future.getCompletionStage().toCompletableFuture();
+
+        BindResponse response = new BindResponseImpl( 1 );
+        future.set( response );
+
+        // The response is available to the blocking API, the stage waits for the executor
+        assertFalse( stage.isDone() );
+        assertSame( response, future.get() );
+        assertEquals( 1, tasks.size() );
+
+        tasks.get( 0 ).run();
+
+        assertSame( response, stage.get() );
+    }
+
+
+    @Test
+    public void testStageCancelled() throws Exception
+    {
+        LdapConnection connection = mock( LdapConnection.class );
+        when( connection.isRequestCompleted( 1 ) ).thenReturn( true );
+        DeleteFuture future = new DeleteFuture( connection, 1 );
+
+        future.cancel( true );
+
+        CompletableFuture<?> stage = future.getCompletionStage().toCompletableFuture();
+        assertTrue( stage.isCancelled() );
+        assertThrows( CancellationException.class, stage::get );
+    }
+
+
+    @Test
+    public void testStageFailedOnSessionClosed() throws Exception
+    {
+        BindFuture future = new BindFuture( mock( LdapConnection.class ), 1 );
+
+        future.cancel();
+
+        ExecutionException ee = assertThrows( ExecutionException.class, 
+            future.getCompletionStage().toCompletableFuture()::get );
+        assertTrue( ee.getCause() instanceof InvalidConnectionException );
+    }
+}
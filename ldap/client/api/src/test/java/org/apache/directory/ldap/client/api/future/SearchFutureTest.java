@@ -0,0 +1,176 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.mina.core.session.IoSession;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the SearchFuture flow control.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SearchFutureTest
+{
+    @Test
+    public void testUnboundedQueueNeverSuspends() throws Exception
+    {
+        LdapConnection connection = mock( LdapConnection.class );
+        IoSession session = mock( IoSession.class );
+        SearchFuture future = new SearchFuture( connection, 1, session, 0, 0 );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            future.set( new SearchResultEntryImpl( 1 ) );
+        }
+
+        verify( session, never() ).suspendRead();
+        assertFalse( future.isReadSuspended() );
+    }
+
+
+    @Test
+    public void testSuspendAndResume() throws Exception
+    {
+        LdapConnection connection = mock( LdapConnection.class );
+        IoSession session = mock( IoSession.class );
+        SearchFuture future = new SearchFuture( connection, 1, session, 10, 2 );
+
+        for ( int i = 0; i < 9; i++ )
+        {
+            future.set( new SearchResultEntryImpl( 1 ) );
+        }
+
+        verify( session, never() ).suspendRead();
+
+        // The 10th and 11th responses reach the high water mark : only one suspension
+        future.set( new SearchResultEntryImpl( 1 ) );
+        future.set( new SearchResultEntryImpl( 1 ) );
+
+        verify( session, times( 1 ) ).suspendRead();
+        assertTrue( future.isReadSuspended() );
+
+        // Drain down to 3 elements : still suspended
+        for ( int i = 0; i < 8; i++ )
+        {
+            future.get( 1, TimeUnit.SECONDS );
+        }
+
+        verify( session, never() ).resumeRead();
+
+        // Now go to the low water mark
+        future.get();
+
+        verify( session, times( 1 ) ).resumeRead();
+        assertFalse( future.isReadSuspended() );
+    }
+
+
+    @Test
+    public void testCancelResumes() throws Exception
+    {
+        LdapConnection connection = mock( LdapConnection.class );
+        when( connection.isRequestCompleted( 1 ) ).thenReturn( true );
+        IoSession session = mock( IoSession.class );
+        SearchFuture future = new SearchFuture( connection, 1, session, 4, -1 );
+
+        for ( int i = 0; i < 4; i++ )
+        {
+            future.set( new SearchResultEntryImpl( 1 ) );
+        }
+
+        assertTrue( future.isReadSuspended() );
+
+        future.cancel( true );
+
+        verify( session, times( 1 ) ).resumeRead();
+        assertFalse( future.isReadSuspended() );
+    }
+
+
+    @Test
+    public void testConcurrentSearchesShareTheSuspension() throws Exception
+    {
+        LdapConnection connection = mock( LdapConnection.class );
+        IoSession session = mock( IoSession.class );
+        Map<Object, Object> attributes = new ConcurrentHashMap<>();
+        when( session.getAttribute( anyString() ) ).thenAnswer( invocation -> attributes.get( invocation.getArgument( 0 ) ) );
+        when( session.setAttributeIfAbsent( anyString(), any() ) ).thenAnswer( 
+            invocation -> attributes.putIfAbsent( invocation.getArgument( 0 ), invocation.getArgument( 1 ) ) );
+
+        SearchFuture future1 = new SearchFuture( connection, 1, session, 2, 0 );
+        SearchFuture future2 = new SearchFuture( connection, 2, session, 2, 0 );
+
+        // Both searches reach their high water mark : the reads are suspended once
+        for ( int i = 0; i < 2; i++ )
+        {
+            future1.set( new SearchResultEntryImpl( 1 ) );
+            future2.set( new SearchResultEntryImpl( 2 ) );
+        }
+
+        verify( session, times( 1 ) ).suspendRead();
+        assertTrue( future1.isReadSuspended() );
+        assertTrue( future2.isReadSuspended() );
+
+        // The first search is drained, but the second one still holds the reads
+        future1.get( 1, TimeUnit.SECONDS );
+        future1.get( 1, TimeUnit.SECONDS );
+
+        assertFalse( future1.isReadSuspended() );
+        verify( session, never() ).resumeRead();
+
+        // The first search fills up again : the reads are still suspended
+        future1.set( new SearchResultEntryImpl( 1 ) );
+        future1.set( new SearchResultEntryImpl( 1 ) );
+
+        verify( session, times( 1 ) ).suspendRead();
+
+        // Both searches must be drained before the reads resume
+        future2.get( 1, TimeUnit.SECONDS );
+        future2.get( 1, TimeUnit.SECONDS );
+
+        verify( session, never() ).resumeRead();
+
+        future1.get( 1, TimeUnit.SECONDS );
+        future1.get( 1, TimeUnit.SECONDS );
+
+        verify( session, times( 1 ) ).resumeRead();
+        assertFalse( future1.isReadSuspended() );
+        assertFalse( future2.isReadSuspended() );
+    }
+}
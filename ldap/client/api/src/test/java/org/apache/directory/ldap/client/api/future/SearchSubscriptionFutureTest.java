@@ -0,0 +1,180 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.mina.core.session.IoSession;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the SearchSubscriptionFuture.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SearchSubscriptionFutureTest
+{
+    /** A subscriber storing what it receives */
+    private static class RecordingSubscriber implements SearchSubscriber
+    {
+        SearchSubscription subscription;
+        List<Response> responses = new ArrayList<>();
+        Throwable error;
+        boolean completed;
+
+
+        @Override
+        public void onSubscribe( SearchSubscription subscription )
+        {
+            this.subscription = subscription;
+        }
+
+
+        @Override
+        public void onNext( Response response )
+        {
+            responses.add( response );
+        }
+
+
+        @Override
+        public void onError( Throwable cause )
+        {
+            error = cause;
+        }
+
+
+        @Override
+        public void onComplete()
+        {
+            completed = true;
+        }
+    }
+
+
+    @Test
+    public void testDemandAndSuspension() throws Exception
+    {
+        LdapConnection connection = mock( LdapConnection.class );
+        IoSession session = mock( IoSession.class );
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        SearchSubscriptionFuture future = new SearchSubscriptionFuture( connection, 1, session, subscriber );
+        subscriber.onSubscribe( future.getSubscription() );
+
+        subscriber.subscription.request( 2 );
+
+        future.set( new SearchResultEntryImpl( 1 ) );
+        future.set( new SearchResultEntryImpl( 1 ) );
+
+        assertEquals( 2, subscriber.responses.size() );
+
+        // The demand is exhausted : the next response is kept and the reads are suspended
+        future.set( new SearchResultEntryImpl( 1 ) );
+        future.set( new SearchResultDoneImpl( 1 ) );
+
+        assertEquals( 2, subscriber.responses.size() );
+        verify( session, times( 1 ) ).suspendRead();
+        verify( session, never() ).resumeRead();
+
+        subscriber.subscription.request( 1 );
+
+        assertEquals( 3, subscriber.responses.size() );
+        assertFalse( subscriber.completed );
+
+        subscriber.subscription.request( Long.MAX_VALUE );
+
+        assertEquals( 4, subscriber.responses.size() );
+        assertTrue( subscriber.completed );
+        assertNull( subscriber.error );
+        verify( session, times( 1 ) ).resumeRead();
+    }
+
+
+    @Test
+    public void testCancel() throws Exception
+    {
+        LdapConnection connection = mock( LdapConnection.class );
+        IoSession session = mock( IoSession.class );
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        SearchSubscriptionFuture future = new SearchSubscriptionFuture( connection, 3, session, subscriber );
+        subscriber.onSubscribe( future.getSubscription() );
+
+        subscriber.subscription.request( 1 );
+        future.set( new SearchResultEntryImpl( 3 ) );
+        subscriber.subscription.cancel();
+
+        // The search is abandoned
+        verify( connection, times( 1 ) ).abandon( 3 );
+
+        future.set( new SearchResultEntryImpl( 3 ) );
+
+        assertEquals( 1, subscriber.responses.size() );
+        assertFalse( subscriber.completed );
+        assertNull( subscriber.error );
+    }
+
+
+    @Test
+    public void testSessionClosed() throws Exception
+    {
+        LdapConnection connection = mock( LdapConnection.class );
+        IoSession session = mock( IoSession.class );
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        SearchSubscriptionFuture future = new SearchSubscriptionFuture( connection, 1, session, subscriber );
+        subscriber.onSubscribe( future.getSubscription() );
+
+        future.set( new SearchResultEntryImpl( 1 ) );
+        future.cancel();
+
+        assertTrue( subscriber.responses.isEmpty() );
+        assertTrue( subscriber.error != null );
+    }
+
+
+    @Test
+    public void testInvalidDemand() throws Exception
+    {
+        LdapConnection connection = mock( LdapConnection.class );
+        IoSession session = mock( IoSession.class );
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        SearchSubscriptionFuture future = new SearchSubscriptionFuture( connection, 1, session, subscriber );
+        subscriber.onSubscribe( future.getSubscription() );
+
+        subscriber.subscription.request( 0 );
+
+        assertTrue( subscriber.error instanceof IllegalArgumentException );
+    }
+}
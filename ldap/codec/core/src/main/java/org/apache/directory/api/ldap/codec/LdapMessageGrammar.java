@@ -122,6 +122,7 @@ import org.apache.directory.api.ldap.codec.actions.response.search.done.InitSear
 import org.apache.directory.api.ldap.codec.actions.response.search.entry.AddAttributeType;
 import org.apache.directory.api.ldap.codec.actions.response.search.entry.InitSearchResultEntry;
 import org.apache.directory.api.ldap.codec.actions.response.search.entry.StoreSearchResultAttributeValue;
+import org.apache.directory.api.ldap.codec.actions.response.search.entry.StoreSearchResultEntryAttributes;
 import org.apache.directory.api.ldap.codec.actions.response.search.entry.StoreSearchResultEntryObjectName;
 import org.apache.directory.api.ldap.codec.actions.response.search.reference.InitSearchResultReference;
 import org.apache.directory.api.ldap.codec.actions.response.search.reference.StoreReference;
@@ -790,13 +791,14 @@ public final class LdapMessageGrammar extends
         // PartialAttributeList ::= *SEQUENCE* OF SEQUENCE {
         // ...
         //
-        // We may have no attributes. Just allows the grammar to end
+        // We may have no attributes. Just allows the grammar to end. When the entries are
+        // lazily decoded, the attributes are stored encoded
         super.transitions[LdapStatesEnum.OBJECT_NAME_STATE.ordinal()][SEQUENCE.getValue()] =
             new GrammarTransition(
                 LdapStatesEnum.OBJECT_NAME_STATE,
                 LdapStatesEnum.ATTRIBUTES_SR_STATE,
                 SEQUENCE,
-                new AllowGrammarEnd() );
+                new StoreSearchResultEntryAttributes() );
 
         // --------------------------------------------------------------------------------------------
         // Transition from AttributesSR to PartialAttributesList
@@ -26,6 +26,7 @@ import org.apache.directory.api.asn1.ber.tlv.TLV;
 import org.apache.directory.api.asn1.util.Oid;
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.api.ControlFactory;
+import org.apache.directory.api.ldap.codec.api.FactoryRegistry;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.model.message.Control;
@@ -81,20 +82,10 @@ public class StoreControlName extends GrammarAction<LdapMessageContainer<Message
         }
 
         byte[] value = tlv.getValue().getData();
-        String oidValue = Strings.asciiBytesToString( value );
-
-        // The OID is encoded as a String, not an Object Id
-        if ( !Oid.isOid( oidValue ) )
-        {
-            String msg = I18n.err( I18n.ERR_08215_INVALID_CONTROL_OID, oidValue );
-            LOG.error( msg );
-
-            // This will generate a PROTOCOL_ERROR
-            throw new DecoderException( msg );
-        }
 
         // Search for the control. It can be a request or a response control.
-        // If the control is not known, we create an Opaque control
+        // The lookup is done on the OID bytes : known controls don't need the
+        // OID String, as the factory knows it already
         Message message = container.getMessage();
         LdapApiService codec = container.getLdapCodecService();
         ControlFactory<? extends Control> controlFactory;
@@ -103,15 +94,28 @@ public class StoreControlName extends GrammarAction<LdapMessageContainer<Message
 
         if ( message instanceof Request )
         {
-            controlFactory = codec.getRequestControlFactories().get( oidValue );
+            controlFactory = FactoryRegistry.get( codec.getRequestControlFactories(), value );
         }
         else
         {
-            controlFactory = codec.getResponseControlFactories().get( oidValue );
+            controlFactory = FactoryRegistry.get( codec.getResponseControlFactories(), value );
         }
 
         if ( controlFactory == null )
         {
+            // If the control is not known, we create an Opaque control
+            String oidValue = Strings.asciiBytesToString( value );
+
+            // The OID is encoded as a String, not an Object Id
+            if ( !Oid.isOid( oidValue ) )
+            {
+                String msg = I18n.err( I18n.ERR_08215_INVALID_CONTROL_OID, oidValue );
+                LOG.error( msg );
+
+                // This will generate a PROTOCOL_ERROR
+                throw new DecoderException( msg );
+            }
+
             control =  new OpaqueControl( oidValue );
         }
         else
@@ -133,7 +137,7 @@ public class StoreControlName extends GrammarAction<LdapMessageContainer<Message
 
         if ( LOG.isDebugEnabled() )
         {
-            LOG.debug( I18n.msg( I18n.MSG_08201_CONTROL_OID, oidValue ) );
+            LOG.debug( I18n.msg( I18n.MSG_08201_CONTROL_OID, control.getOid() ) );
         }
     }
 }
@@ -26,7 +26,6 @@ import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.model.message.LdapResult;
 import org.apache.directory.api.ldap.model.message.Message;
-import org.apache.directory.api.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,7 +73,7 @@ public class StoreErrorMessage extends GrammarAction<LdapMessageContainer<Messag
         }
         else
         {
-            errorMessage = Strings.utf8ToString( tlv.getValue().getData() );
+            errorMessage = tlv.getValue().getUtf8String();
         }
 
         LdapResult ldapResult = container.getLdapResult();
@@ -92,8 +92,7 @@ public class StoreMatchedDN extends GrammarAction<LdapMessageContainer<Message>>
                 case ALIAS_PROBLEM:
                 case INVALID_DN_SYNTAX:
                 case ALIAS_DEREFERENCING_PROBLEM:
-                    byte[] dnBytes = tlv.getValue().getData();
-                    String dnStr = Strings.utf8ToString( dnBytes );
+                    String dnStr = tlv.getValue().getUtf8String();
 
                     try
                     {
@@ -102,7 +101,7 @@ public class StoreMatchedDN extends GrammarAction<LdapMessageContainer<Message>>
                     catch ( LdapInvalidDnException ine )
                     {
                         // This is for the client side. We will never decode LdapResult on the server
-                        String msg = I18n.err( I18n.ERR_05106_INCORRECT_DN_GIVEN_INVALID, dnStr, Strings.dumpBytes( dnBytes ), ine
+                        String msg = I18n.err( I18n.ERR_05106_INCORRECT_DN_GIVEN_INVALID, dnStr, Strings.dumpBytes( tlv.getValue().getData() ), ine
                             .getLocalizedMessage() );
                         LOG.error( msg );
 
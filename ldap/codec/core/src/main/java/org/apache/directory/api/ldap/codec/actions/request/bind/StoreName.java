@@ -25,7 +25,6 @@ import org.apache.directory.api.asn1.ber.tlv.TLV;
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.model.message.BindRequest;
-import org.apache.directory.api.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,8 +71,7 @@ public class StoreName extends GrammarAction<LdapMessageContainer<BindRequest>>
         }
         else
         {
-            byte[] nameBytes = tlv.getValue().getData();
-            String nameStr = Strings.utf8ToString( nameBytes );
+            String nameStr = tlv.getValue().getUtf8String();
             bindRequestMessage.setName( nameStr );
         }
 
@@ -32,7 +32,6 @@ import org.apache.directory.api.ldap.model.entry.ModificationOperation;
 import org.apache.directory.api.ldap.model.message.ModifyRequest;
 import org.apache.directory.api.ldap.model.message.ModifyResponseImpl;
 import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
-import org.apache.directory.api.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -90,7 +89,7 @@ public class AddModifyRequestAttribute extends GrammarAction<LdapMessageContaine
         }
         else
         {
-            type = Strings.utf8ToString( tlv.getValue().getData() );
+            type = tlv.getValue().getUtf8String();
             Attribute currentAttribute = new DefaultAttribute( type );
             container.setCurrentAttribute( currentAttribute );
             container.getCurrentModification().setAttribute( currentAttribute );
@@ -67,7 +67,7 @@ public class StoreSearchRequestAttributeDesc extends GrammarAction<LdapMessageCo
 
         if ( tlv.getLength() != 0 )
         {
-            attributeDescription = Strings.utf8ToString( tlv.getValue().getData() );
+            attributeDescription = tlv.getValue().getUtf8String();
 
             // If the attributeDescription is empty, we won't add it
             if ( !Strings.isEmpty( attributeDescription.trim() ) )
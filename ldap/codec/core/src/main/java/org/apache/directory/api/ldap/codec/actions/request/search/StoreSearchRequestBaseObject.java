@@ -76,8 +76,7 @@ public class StoreSearchRequestBaseObject extends GrammarAction<LdapMessageConta
         // root.
         if ( tlv.getLength() != 0 )
         {
-            byte[] dnBytes = tlv.getValue().getData();
-            String dnStr = Strings.utf8ToString( dnBytes );
+            String dnStr = tlv.getValue().getUtf8String();
 
             try
             {
@@ -86,7 +85,7 @@ public class StoreSearchRequestBaseObject extends GrammarAction<LdapMessageConta
             }
             catch ( LdapInvalidDnException ine )
             {
-                String msg = I18n.err( I18n.ERR_05132_INVALID_ROOT_DN, dnStr, Strings.dumpBytes( dnBytes ) );
+                String msg = I18n.err( I18n.ERR_05132_INVALID_ROOT_DN, dnStr, Strings.dumpBytes( tlv.getValue().getData() ) );
                 LOG.error( I18n.err( I18n.ERR_05114_ERROR_MESSAGE, msg, ine.getMessage() ) );
 
                 SearchResultDoneImpl response = new SearchResultDoneImpl( searchRequest.getMessageId() );
@@ -66,7 +66,7 @@ public class InitPresentFilter extends GrammarAction<LdapMessageContainer<Search
         container.addCurrentFilter( presentFilter );
         container.setTerminalFilter( presentFilter );
 
-        String value = Strings.utf8ToString( tlv.getValue().getData() );
+        String value = tlv.getValue().getUtf8String();
 
         if ( Strings.isEmpty( value ) )
         {
@@ -75,7 +75,7 @@ public class InitPresentFilter extends GrammarAction<LdapMessageContainer<Search
         else
         {
             // Store the value.
-            String type = Strings.utf8ToString( tlv.getValue().getData() );
+            String type = tlv.getValue().getUtf8String();
             presentFilter.setAttributeDescription( type );
         }
 
@@ -27,7 +27,6 @@ import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.codec.search.SubstringFilter;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
-import org.apache.directory.api.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,7 +74,7 @@ public class StoreFinal extends GrammarAction<LdapMessageContainer<SearchRequest
             throw new DecoderException( msg );
         }
 
-        String finalValue = Strings.utf8ToString( tlv.getValue().getData() );
+        String finalValue = tlv.getValue().getUtf8String();
         substringFilter.setFinalSubstrings( finalValue );
 
         // We now have to get back to the nearest filter which is
@@ -27,7 +27,6 @@ import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.codec.search.SubstringFilter;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
-import org.apache.directory.api.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,7 +75,7 @@ public class StoreInitial extends GrammarAction<LdapMessageContainer<SearchReque
             throw new DecoderException( msg );
         }
 
-        substringFilter.setInitialSubstrings( Strings.utf8ToString( tlv.getValue().getData() ) );
+        substringFilter.setInitialSubstrings( tlv.getValue().getUtf8String() );
 
         // We now have to get back to the nearest filter which is
         // not terminal.
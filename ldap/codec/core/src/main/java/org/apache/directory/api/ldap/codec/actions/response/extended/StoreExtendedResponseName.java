@@ -26,6 +26,7 @@ import org.apache.directory.api.asn1.ber.tlv.TLV;
 import org.apache.directory.api.asn1.util.Oid;
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.api.ExtendedOperationFactory;
+import org.apache.directory.api.ldap.codec.api.FactoryRegistry;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.model.message.ExtendedResponse;
@@ -81,24 +82,32 @@ public class StoreExtendedResponseName extends GrammarAction<LdapMessageContaine
         else
         {
             byte[] responseNameBytes = tlv.getValue().getData();
-            String responseName = Strings.asciiBytesToString( responseNameBytes );
+
+            // Get the extended response factory from the LdapApiService, if it's registered.
+            // Registered OIDs are valid, so we only have to check unknown ones
+            LdapApiService codec = container.getLdapCodecService();
+            ExtendedOperationFactory factory = FactoryRegistry.get( codec.getExtendedResponseFactories(),
+                responseNameBytes );
+            String responseName = null;
 
             try
             {
-                // Check the OID first, if it's invalid, reject the operation
-                if ( !Oid.isOid( responseName ) )
+                if ( factory == null )
                 {
-                    String msg = I18n.err( I18n.ERR_05159_INVALID_RESPONSE_NAME_OID,
-                        responseName, Strings.dumpBytes( responseNameBytes ) );
-                    LOG.error( msg );
-    
-                    // throw an exception, we will get a PROTOCOL_ERROR
-                    throw new DecoderException( msg );
+                    responseName = Strings.asciiBytesToString( responseNameBytes );
+
+                    // Check the OID first, if it's invalid, reject the operation
+                    if ( !Oid.isOid( responseName ) )
+                    {
+                        String msg = I18n.err( I18n.ERR_05159_INVALID_RESPONSE_NAME_OID,
+                            responseName, Strings.dumpBytes( responseNameBytes ) );
+                        LOG.error( msg );
+        
+                        // throw an exception, we will get a PROTOCOL_ERROR
+                        throw new DecoderException( msg );
+                    }
                 }
     
-                // Get the extended request factory from the LdapApiService, if it's registered
-                LdapApiService codec = container.getLdapCodecService();
-                ExtendedOperationFactory factory = codec.getExtendedResponseFactories().get( responseName );
                 ExtendedResponse extendedResponse = container.getMessage();
                 
                 if ( factory != null )
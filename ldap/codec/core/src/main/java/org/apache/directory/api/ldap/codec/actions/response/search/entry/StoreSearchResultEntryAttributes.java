@@ -0,0 +1,81 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.actions.response.search.entry;
+
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.asn1.ber.grammar.GrammarAction;
+import org.apache.directory.api.asn1.ber.tlv.TLV;
+import org.apache.directory.api.ldap.codec.api.LazyEntry;
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+
+
+/**
+ * The action used to process the SearchResultEntry attributes. When the container
+ * decodes the entries lazily, the whole PartialAttributeList has been gathered and
+ * is stored into a {@link LazyEntry}. Otherwise, the attributes will be decoded one
+ * by one by the following transitions.
+ * <pre>
+ * SearchResultEntry ::= [APPLICATION 4] SEQUENCE {
+ *         ...
+ *         attributes      PartialAttributeList }
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class StoreSearchResultEntryAttributes extends GrammarAction<LdapMessageContainer<SearchResultEntry>>
+{
+    /**
+     * Instantiates a new action.
+     */
+    public StoreSearchResultEntryAttributes()
+    {
+        super( "Store SearchResultEntry attributes" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void action( LdapMessageContainer<SearchResultEntry> container ) throws DecoderException
+    {
+        if ( container.isGathering() )
+        {
+            container.setGathering( false );
+
+            TLV tlv = container.getCurrentTLV();
+
+            if ( tlv.getLength() != 0 )
+            {
+                SearchResultEntry searchResultEntry = container.getMessage();
+
+                searchResultEntry.setEntry( new LazyEntry( searchResultEntry.getObjectName(), tlv.getValue().getData(),
+                    container.getBinaryAttributeDetector() ) );
+
+                // The attributes have been read : get back to the SearchResultEntry
+                container.updateParent();
+            }
+        }
+
+        // We may have no attributes. Just allows the grammar to end
+        container.setGrammarEndAllowed( true );
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.api.asn1.EncoderException;
+import org.apache.directory.api.asn1.ber.tlv.BerValue;
+import org.apache.directory.api.asn1.ber.tlv.TLV;
+import org.apache.directory.api.asn1.ber.tlv.UniversalTag;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.StreamingAddRequest.StreamedValue;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * Encodes an AddRequest from its first byte to its last one, in chunks, instead of
+ * encoding it backward in an {@link Asn1Buffer} : all the lengths are computed up front,
+ * then the PDU is produced one chunk at a time. The big values are never copied : the
+ * chunks are views over the {@link Value}s' bytes, or over the buffers of a
+ * {@link StreamingAddRequest}, and the values of a StreamingAddRequest read from an
+ * InputStream are read one chunk at a time. The memory needed to encode the request
+ * is therefore bounded by the chunk size, whatever the size of its values.
+ * <br>
+ * The produced PDU is the same as the one produced by {@link LdapEncoder}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class AddRequestChunkEncoder
+{
+    /** The values smaller than this size are copied with the surrounding tags and lengths */
+    private static final int SMALL_VALUE_SIZE = 1024;
+
+    /** The parts of the PDU : ByteBuffers, or the StreamedValues read from a stream */
+    private final List<Object> parts = new ArrayList<>();
+
+    /** The maximum size of a chunk */
+    private final int chunkSize;
+
+    /** The PDU length */
+    private final int pduLength;
+
+    /** The number of bytes already produced */
+    private int produced;
+
+    /** The part being produced */
+    private int currentPart;
+
+    /** The number of bytes already read from the current part, if it's a stream */
+    private int streamed;
+
+    /** The tags, lengths and small values not added to the parts yet */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+
+    /**
+     * Creates a new instance of AddRequestChunkEncoder, computing the PDU's lengths.
+     *
+     * @param codec The LdapApiService instance, used to encode the controls
+     * @param addRequest The AddRequest to encode, which may be a {@link StreamingAddRequest}
+     * @param chunkSize The maximum size of the chunks
+     * @throws EncoderException If the controls can't be encoded
+     */
+    public AddRequestChunkEncoder( LdapApiService codec, AddRequest addRequest, int chunkSize ) throws EncoderException
+    {
+        this.chunkSize = chunkSize;
+
+        // Gather the values of each attribute, the streamed ones being added at the end
+        List<String> types = new ArrayList<>();
+        List<List<Object>> values = new ArrayList<>();
+        Entry entry = addRequest.getEntry();
+        Map<Attribute, Integer> positions = new IdentityHashMap<>();
+
+        for ( Attribute attribute : entry )
+        {
+            List<Object> attributeValues = new ArrayList<>();
+
+            for ( Value value : attribute )
+            {
+                ByteBuffer bytes = value.getByteBuffer();
+                attributeValues.add( bytes == null ? ByteBuffer.wrap( Strings.EMPTY_BYTES ) : bytes );
+            }
+
+            positions.put( attribute, types.size() );
+            types.add( attribute.getUpId() );
+            values.add( attributeValues );
+        }
+
+        if ( addRequest instanceof StreamingAddRequest )
+        {
+            for ( StreamedValue streamedValue : ( ( StreamingAddRequest ) addRequest ).getStreamedValues() )
+            {
+                Attribute attribute = entry.get( streamedValue.getAttributeType() );
+                int position = -1;
+
+                if ( attribute != null )
+                {
+                    position = positions.get( attribute );
+                }
+                else
+                {
+                    for ( int i = entry.size(); i < types.size(); i++ )
+                    {
+                        if ( types.get( i ).equalsIgnoreCase( streamedValue.getAttributeType() ) )
+                        {
+                            position = i;
+                            break;
+                        }
+                    }
+                }
+
+                if ( position == -1 )
+                {
+                    position = types.size();
+                    types.add( streamedValue.getAttributeType() );
+                    values.add( new ArrayList<>() );
+                }
+
+                values.get( position ).add( streamedValue.getBuffer() != null
+                    ? streamedValue.getBuffer().duplicate() : streamedValue );
+            }
+        }
+
+        // Compute the lengths
+        int[] valuesLengths = new int[types.size()];
+        byte[][] typesBytes = new byte[types.size()][];
+        int attributesLength = 0;
+
+        for ( int i = 0; i < types.size(); i++ )
+        {
+            List<Object> attributeValues = values.get( i );
+
+            if ( attributeValues.isEmpty() )
+            {
+                // An attribute with no value is encoded with an empty value
+                attributeValues.add( ByteBuffer.wrap( Strings.EMPTY_BYTES ) );
+            }
+
+            for ( Object value : attributeValues )
+            {
+                valuesLengths[i] += tlvLength( length( value ) );
+            }
+
+            typesBytes[i] = Strings.getBytesUtf8( types.get( i ) );
+            attributesLength += tlvLength( tlvLength( typesBytes[i].length ) + tlvLength( valuesLengths[i] ) );
+        }
+
+        byte[] dnBytes = Strings.getBytesUtf8( entry.getDn().getName() );
+        int addRequestLength = tlvLength( dnBytes.length ) + tlvLength( attributesLength );
+        byte[] messageIdBytes = BerValue.getBytes( addRequest.getMessageId() );
+
+        Asn1Buffer controls = new Asn1Buffer();
+        LdapEncoder.encodeControls( controls, codec, addRequest );
+
+        int messageLength = tlvLength( messageIdBytes.length ) + tlvLength( addRequestLength ) + controls.getPos();
+        pduLength = tlvLength( messageLength );
+
+        // And now, the parts, from the first to the last one
+        header( UniversalTag.SEQUENCE.getValue(), messageLength );
+        header( UniversalTag.INTEGER.getValue(), messageIdBytes.length );
+        pending.write( messageIdBytes, 0, messageIdBytes.length );
+        header( LdapCodecConstants.ADD_REQUEST_TAG, addRequestLength );
+        header( UniversalTag.OCTET_STRING.getValue(), dnBytes.length );
+        pending.write( dnBytes, 0, dnBytes.length );
+        header( UniversalTag.SEQUENCE.getValue(), attributesLength );
+
+        for ( int i = 0; i < types.size(); i++ )
+        {
+            header( UniversalTag.SEQUENCE.getValue(), tlvLength( typesBytes[i].length ) + tlvLength( valuesLengths[i] ) );
+            header( UniversalTag.OCTET_STRING.getValue(), typesBytes[i].length );
+            pending.write( typesBytes[i], 0, typesBytes[i].length );
+            header( UniversalTag.SET.getValue(), valuesLengths[i] );
+
+            for ( Object value : values.get( i ) )
+            {
+                header( UniversalTag.OCTET_STRING.getValue(), length( value ) );
+
+                if ( ( value instanceof ByteBuffer ) && ( length( value ) <= SMALL_VALUE_SIZE ) )
+                {
+                    byte[] bytes = new byte[length( value )];
+                    ( ( ByteBuffer ) value ).get( bytes );
+                    pending.write( bytes, 0, bytes.length );
+                }
+                else
+                {
+                    flushPending();
+                    parts.add( value );
+                }
+            }
+        }
+
+        flushPending();
+
+        if ( controls.getPos() > 0 )
+        {
+            parts.add( controls.getBytes() );
+        }
+    }
+
+
+    /**
+     * Tells if a message is an AddRequest which has to be streamed : a {@link StreamingAddRequest},
+     * or an AddRequest with at least one value bigger than the given threshold.
+     *
+     * @param message The message to check
+     * @param threshold The size above which a value is streamed, 0 to only stream the
+     * StreamingAddRequests
+     * @return <code>true</code> if the message is an AddRequest to stream
+     */
+    public static boolean isStreamable( Object message, int threshold )
+    {
+        if ( message instanceof StreamingAddRequest )
+        {
+            return true;
+        }
+
+        if ( ( threshold == 0 ) || !( message instanceof AddRequest ) )
+        {
+            return false;
+        }
+
+        for ( Attribute attribute : ( ( AddRequest ) message ).getEntry() )
+        {
+            for ( Value value : attribute )
+            {
+                if ( value.length() >= threshold )
+                {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * @return The length of the whole PDU
+     */
+    public int getPduLength()
+    {
+        return pduLength;
+    }
+
+
+    /**
+     * Produces the next chunk of the PDU. The chunk may be a view over a value : it must
+     * be consumed before the value is modified.
+     *
+     * @return The next chunk, at most chunkSize bytes long, or <code>null</code> when
+     * the whole PDU has been produced
+     * @throws IOException If a streamed value can't be read
+     */
+    public ByteBuffer next() throws IOException
+    {
+        ByteBuffer chunk = null;
+
+        while ( currentPart < parts.size() )
+        {
+            Object part = parts.get( currentPart );
+
+            if ( part instanceof ByteBuffer )
+            {
+                ByteBuffer buffer = ( ByteBuffer ) part;
+
+                if ( ( buffer.remaining() > SMALL_VALUE_SIZE ) || ( buffer.remaining() > chunkSize ) )
+                {
+                    if ( chunk != null )
+                    {
+                        // Send what we have first
+                        break;
+                    }
+
+                    // A big part : send a view over its next bytes, they are not copied
+                    int length = Math.min( buffer.remaining(), chunkSize );
+                    ByteBuffer view = buffer.duplicate();
+                    view.limit( view.position() + length );
+                    buffer.position( view.limit() );
+                    produced += length;
+
+                    if ( !buffer.hasRemaining() )
+                    {
+                        currentPart++;
+                    }
+
+                    return view;
+                }
+
+                if ( chunk == null )
+                {
+                    chunk = allocate();
+                }
+                else if ( buffer.remaining() > chunk.remaining() )
+                {
+                    // The part does not fit : it will start the next chunk
+                    break;
+                }
+
+                chunk.put( buffer );
+                currentPart++;
+            }
+            else
+            {
+                StreamedValue streamedValue = ( StreamedValue ) part;
+
+                if ( chunk == null )
+                {
+                    chunk = allocate();
+                }
+
+                if ( !read( streamedValue, chunk ) )
+                {
+                    // The chunk is full
+                    break;
+                }
+
+                currentPart++;
+                streamed = 0;
+            }
+        }
+
+        if ( chunk == null )
+        {
+            return null;
+        }
+
+        chunk.flip();
+        produced += chunk.remaining();
+
+        return chunk;
+    }
+
+
+    /**
+     * Reads a streamed value into a chunk, until the chunk is full or the value has been read
+     *
+     * @return <code>true</code> if the whole value has been read
+     */
+    private boolean read( StreamedValue streamedValue, ByteBuffer chunk ) throws IOException
+    {
+        InputStream stream = streamedValue.getStream();
+
+        while ( streamed < streamedValue.getLength() )
+        {
+            if ( !chunk.hasRemaining() )
+            {
+                return false;
+            }
+
+            int nbRead = stream.read( chunk.array(), chunk.arrayOffset() + chunk.position(),
+                Math.min( chunk.remaining(), streamedValue.getLength() - streamed ) );
+
+            if ( nbRead == -1 )
+            {
+                throw new IOException( I18n.err( I18n.ERR_05211_STREAMED_VALUE_TOO_SHORT,
+                    streamedValue.getAttributeType(), streamed, streamedValue.getLength() ) );
+            }
+
+            chunk.position( chunk.position() + nbRead );
+            streamed += nbRead;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Allocates a chunk, no bigger than the remaining part of the PDU
+     */
+    private ByteBuffer allocate()
+    {
+        return ByteBuffer.allocate( Math.min( chunkSize, pduLength - produced ) );
+    }
+
+
+    /**
+     * Appends a tag and a length to the pending bytes
+     */
+    private void header( int tag, int length )
+    {
+        pending.write( tag );
+        byte[] lengthBytes = TLV.getBytes( length );
+        pending.write( lengthBytes, 0, lengthBytes.length );
+    }
+
+
+    /**
+     * Moves the pending bytes to the parts
+     */
+    private void flushPending()
+    {
+        if ( pending.size() > 0 )
+        {
+            parts.add( ByteBuffer.wrap( pending.toByteArray() ) );
+            pending.reset();
+        }
+    }
+
+
+    /**
+     * @return The length of a value, held in a ByteBuffer or streamed
+     */
+    private static int length( Object value )
+    {
+        if ( value instanceof ByteBuffer )
+        {
+            return ( ( ByteBuffer ) value ).remaining();
+        }
+
+        return ( ( StreamedValue ) value ).getLength();
+    }
+
+
+    /**
+     * @return The length of a TLV which value has the given length
+     */
+    private static int tlvLength( int length )
+    {
+        return 1 + TLV.getNbBytes( length ) + length;
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.future.DefaultWriteFuture;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.DefaultWriteRequest;
+import org.apache.mina.core.write.WriteRequest;
+import org.apache.mina.core.write.WriteToClosedSessionException;
+
+
+/**
+ * An {@link IoFilterAdapter} writing the big AddRequests in chunks, so that the memory
+ * needed to send them is bounded whatever the size of their values. It must be placed
+ * after the codec filter, which lets the chunks go through as they are.
+ * <br>
+ * The {@link StreamingAddRequest}s, and the AddRequests with a value bigger than the
+ * streaming threshold if one has been set, are encoded by an {@link AddRequestChunkEncoder}. A chunk is
+ * written once the previous one has been sent, the requests written in the meantime
+ * wait for the end of the AddRequest. The chunks following the first one are read
+ * by the given executor : when none is given, they are read by the IoProcessor thread,
+ * which blocks all the sessions it serves while a value is read from an InputStream.
+ * <br>
+ * The AddRequest's future is completed when its last chunk has been written. If a chunk
+ * can't be written, the session is closed, and the AddRequest and the requests waiting
+ * for it are failed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AddRequestStreamingFilter extends IoFilterAdapter
+{
+    /** The session attribute holding the AddRequest being streamed */
+    private static final String STREAM = AddRequestStreamingFilter.class.getName() + ".Stream";
+
+    /** The default maximum size of a chunk */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /** The LDAP API Service instance */
+    private final LdapApiService codec;
+
+    /** The size above which a value is streamed, 0 to only stream the StreamingAddRequests */
+    private final int threshold;
+
+    /** The maximum size of a chunk */
+    private final int chunkSize;
+
+    /** The executor reading the chunks, null to read them in the IoProcessor thread */
+    private final Executor executor;
+
+
+    /**
+     * Creates a new instance of AddRequestStreamingFilter, only streaming the
+     * {@link StreamingAddRequest}s, with the default chunk size.
+     *
+     * @param codec The LdapApiService instance
+     */
+    public AddRequestStreamingFilter( LdapApiService codec )
+    {
+        this( codec, 0, DEFAULT_CHUNK_SIZE );
+    }
+
+
+    /**
+     * Creates a new instance of AddRequestStreamingFilter.
+     *
+     * @param codec The LdapApiService instance
+     * @param threshold The size above which a value is streamed, 0 to only stream the
+     * {@link StreamingAddRequest}s
+     * @param chunkSize The maximum size of a chunk
+     */
+    public AddRequestStreamingFilter( LdapApiService codec, int threshold, int chunkSize )
+    {
+        this( codec, threshold, chunkSize, null );
+    }
+
+
+    /**
+     * Creates a new instance of AddRequestStreamingFilter.
+     *
+     * @param codec The LdapApiService instance
+     * @param threshold The size above which a value is streamed, 0 to only stream the
+     * {@link StreamingAddRequest}s
+     * @param chunkSize The maximum size of a chunk
+     * @param executor The executor reading the chunks once the previous one has been sent,
+     * or <tt>null</tt> to read them in the IoProcessor thread
+     */
+    public AddRequestStreamingFilter( LdapApiService codec, int threshold, int chunkSize, Executor executor )
+    {
+        if ( ( threshold < 0 ) || ( chunkSize <= 0 ) )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_05210_INVALID_STREAMING_SIZES, threshold, chunkSize ) );
+        }
+
+        this.codec = codec;
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void filterWrite( NextFilter nextFilter, IoSession session, WriteRequest writeRequest )
+    {
+        Stream stream = ( Stream ) session.getAttribute( STREAM );
+
+        if ( stream == null )
+        {
+            if ( !AddRequestChunkEncoder.isStreamable( writeRequest.getMessage(), threshold ) )
+            {
+                nextFilter.filterWrite( session, writeRequest );
+
+                return;
+            }
+
+            stream = new Stream( nextFilter, session );
+            Stream existing = ( Stream ) session.setAttributeIfAbsent( STREAM, stream );
+
+            if ( existing != null )
+            {
+                stream = existing;
+            }
+        }
+
+        stream.write( writeRequest );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The chunks' messageSent events are not propagated, the AddRequest's one is
+     * propagated when its last chunk has been sent.
+     */
+    @Override
+    public void messageSent( NextFilter nextFilter, IoSession session, WriteRequest writeRequest )
+    {
+        if ( writeRequest instanceof ChunkWriteRequest )
+        {
+            Stream stream = ( ( ChunkWriteRequest ) writeRequest ).stream;
+
+            if ( executor == null )
+            {
+                stream.next();
+            }
+            else
+            {
+                try
+                {
+                    executor.execute( stream::next );
+                }
+                catch ( RejectedExecutionException ree )
+                {
+                    stream.fail( ree );
+                }
+            }
+        }
+        else
+        {
+            nextFilter.messageSent( session, writeRequest );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The AddRequest being streamed, and the requests waiting for it, will never be written.
+     */
+    @Override
+    public void sessionClosed( NextFilter nextFilter, IoSession session ) throws Exception
+    {
+        Stream stream = ( Stream ) session.removeAttribute( STREAM );
+
+        if ( stream != null )
+        {
+            stream.discard();
+        }
+
+        nextFilter.sessionClosed( session );
+    }
+
+
+    /**
+     * The AddRequest being streamed on a session, and the requests waiting for it
+     */
+    private final class Stream
+    {
+        /** The filter to send the chunks to */
+        private final NextFilter nextFilter;
+
+        /** The session */
+        private final IoSession session;
+
+        /** The lock protecting the stream, so that the requests are sent in order */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** The AddRequest being streamed, if any */
+        private WriteRequest current;
+
+        /** Its encoder */
+        private AddRequestChunkEncoder encoder;
+
+        /** The requests waiting for the current AddRequest to be sent */
+        private final Deque<WriteRequest> waiting = new ArrayDeque<>();
+
+        /** The failure which broke the stream, if any : the following requests are failed */
+        private Throwable failure;
+
+
+        private Stream( NextFilter nextFilter, IoSession session )
+        {
+            this.nextFilter = nextFilter;
+            this.session = session;
+        }
+
+
+        /**
+         * Writes a request, or queues it if an AddRequest is being streamed
+         */
+        private void write( WriteRequest writeRequest )
+        {
+            lock.lock();
+
+            try
+            {
+                if ( failure != null )
+                {
+                    writeRequest.getFuture().setException( failure );
+                }
+                else if ( current != null )
+                {
+                    waiting.add( writeRequest );
+                }
+                else if ( AddRequestChunkEncoder.isStreamable( writeRequest.getMessage(), threshold ) )
+                {
+                    start( writeRequest );
+                }
+                else
+                {
+                    nextFilter.filterWrite( session, writeRequest );
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * Starts streaming an AddRequest
+         */
+        private void start( WriteRequest writeRequest )
+        {
+            try
+            {
+                encoder = new AddRequestChunkEncoder( codec, ( AddRequest ) writeRequest.getMessage(), chunkSize );
+                current = writeRequest;
+                next();
+            }
+            catch ( Exception e )
+            {
+                writeRequest.getFuture().setException( e );
+                nextFilter.exceptionCaught( session, e );
+            }
+        }
+
+
+        /**
+         * Writes the next chunk of the current AddRequest. When it has been fully
+         * written, the waiting requests are written, until another AddRequest starts
+         */
+        private void next()
+        {
+            lock.lock();
+
+            try
+            {
+                if ( current == null )
+                {
+                    return;
+                }
+
+                ByteBuffer chunk;
+
+                try
+                {
+                    chunk = encoder.next();
+                }
+                catch ( Exception e )
+                {
+                    fail( e );
+
+                    return;
+                }
+
+                if ( chunk != null )
+                {
+                    nextFilter.filterWrite( session, new ChunkWriteRequest( IoBuffer.wrap( chunk ), this ) );
+
+                    return;
+                }
+
+                // The whole AddRequest has been sent
+                WriteRequest sent = current;
+                current = null;
+                encoder = null;
+                sent.getFuture().setWritten();
+                nextFilter.messageSent( session, sent );
+
+                while ( ( current == null ) && !waiting.isEmpty() )
+                {
+                    WriteRequest writeRequest = waiting.poll();
+
+                    if ( AddRequestChunkEncoder.isStreamable( writeRequest.getMessage(), threshold ) )
+                    {
+                        start( writeRequest );
+                    }
+                    else
+                    {
+                        nextFilter.filterWrite( session, writeRequest );
+                    }
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * Fails the current AddRequest, and the requests waiting for it. Its PDU is 
+         * truncated, so the session can't be used anymore : it's closed.
+         */
+        private void fail( Throwable cause )
+        {
+            lock.lock();
+
+            try
+            {
+                if ( current != null )
+                {
+                    failure = cause;
+                    current.getFuture().setException( cause );
+
+                    for ( WriteRequest writeRequest : waiting )
+                    {
+                        writeRequest.getFuture().setException( cause );
+                    }
+
+                    current = null;
+                    encoder = null;
+                    waiting.clear();
+                    nextFilter.exceptionCaught( session, cause );
+                    session.closeNow();
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * Fails the current and the waiting requests
+         */
+        private void discard()
+        {
+            lock.lock();
+
+            try
+            {
+                List<WriteRequest> unwritten = new ArrayList<>( waiting );
+
+                if ( current != null )
+                {
+                    unwritten.add( 0, current );
+                }
+
+                if ( !unwritten.isEmpty() )
+                {
+                    WriteToClosedSessionException cause = new WriteToClosedSessionException( unwritten );
+
+                    for ( WriteRequest writeRequest : unwritten )
+                    {
+                        writeRequest.getFuture().setException( cause );
+                    }
+                }
+
+                current = null;
+                encoder = null;
+                waiting.clear();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * A write request carrying a chunk of a streamed AddRequest
+     */
+    private static final class ChunkWriteRequest extends DefaultWriteRequest
+    {
+        /** The stream the chunk belongs to */
+        private final Stream stream;
+
+
+        private ChunkWriteRequest( IoBuffer chunk, Stream stream )
+        {
+            super( chunk, new DefaultWriteFuture( stream.session ) );
+            this.stream = stream;
+
+            // If the chunk can't be written, the AddRequest won't be
+            getFuture().addListener( ( WriteFuture future ) -> 
+            {
+                if ( !future.isWritten() )
+                {
+                    stream.fail( future.getException() );
+                }
+            } );
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * A copy-on-write registry of factories keyed by OID. Lookups read an immutable
+ * snapshot without any locking, while registrations build a new snapshot and
+ * swap it in atomically. Each snapshot also holds a trie over the OID characters,
+ * so that a decoder can resolve a factory straight from the bytes of a BER value,
+ * without creating the OID String first.
+ * <br>
+ * Registrations are expected to be rare (they happen when the codec is loaded or
+ * when a bundle comes and goes) compared to lookups, which happen for every decoded
+ * control or extended operation.
+ *
+ * @param <F> The factory type
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class FactoryRegistry<F> extends AbstractMap<String, F>
+{
+    /** The number of characters an OID is made of : the ten digits and the dot */
+    private static final int ALPHABET_SIZE = 11;
+
+    /** The current snapshot */
+    private volatile Snapshot<F> snapshot;
+
+
+    /**
+     * A node in the OID trie.
+     *
+     * @param <F> The factory type
+     */
+    private static final class Node<F>
+    {
+        /** The factory registered for the OID ending on this node, if any */
+        private F factory;
+
+        /** The children, indexed by character */
+        @SuppressWarnings("unchecked")
+        private final Node<F>[] children = new Node[ALPHABET_SIZE];
+    }
+
+
+    /**
+     * An immutable view of the registered factories.
+     *
+     * @param <F> The factory type
+     */
+    private static final class Snapshot<F>
+    {
+        /** The factories, by OID */
+        private final Map<String, F> factories;
+
+        /** The trie root */
+        private final Node<F> root = new Node<>();
+
+
+        private Snapshot( Map<String, F> factories )
+        {
+            this.factories = Collections.unmodifiableMap( factories );
+
+            for ( Map.Entry<String, F> entry : factories.entrySet() )
+            {
+                add( entry.getKey(), entry.getValue() );
+            }
+        }
+
+
+        /**
+         * Adds an OID in the trie. Keys that are not made of digits and dots
+         * are only stored in the map.
+         */
+        private void add( String oid, F factory )
+        {
+            if ( oid == null )
+            {
+                return;
+            }
+
+            // Check the key first, so that we don't create dangling nodes
+            for ( int i = 0; i < oid.length(); i++ )
+            {
+                if ( index( oid.charAt( i ) ) < 0 )
+                {
+                    return;
+                }
+            }
+
+            Node<F> node = root;
+
+            for ( int i = 0; i < oid.length(); i++ )
+            {
+                int pos = index( oid.charAt( i ) );
+
+                if ( node.children[pos] == null )
+                {
+                    node.children[pos] = new Node<>();
+                }
+
+                node = node.children[pos];
+            }
+
+            node.factory = factory;
+        }
+    }
+
+
+    /**
+     * Creates a new, empty FactoryRegistry instance.
+     */
+    public FactoryRegistry()
+    {
+        snapshot = new Snapshot<>( new HashMap<String, F>() );
+    }
+
+
+    /**
+     * Creates a new FactoryRegistry instance, initialized with the given factories.
+     *
+     * @param factories The factories to copy
+     */
+    public FactoryRegistry( Map<String, ? extends F> factories )
+    {
+        snapshot = new Snapshot<>( new HashMap<String, F>( factories ) );
+    }
+
+
+    /**
+     * @return the position of a character in the trie alphabet, or -1 if it
+     * can't be part of an OID
+     */
+    private static int index( int c )
+    {
+        if ( ( c >= '0' ) && ( c <= '9' ) )
+        {
+            return c - '0';
+        }
+        else if ( c == '.' )
+        {
+            return ALPHABET_SIZE - 1;
+        }
+        else
+        {
+            return -1;
+        }
+    }
+
+
+    /**
+     * Gets the factory registered for an OID given as its ASCII bytes.
+     *
+     * @param oid The OID bytes
+     * @return The registered factory, or null if there is none
+     */
+    public F get( byte[] oid )
+    {
+        Snapshot<F> current = snapshot;
+        Node<F> node = current.root;
+
+        for ( byte b : oid )
+        {
+            int pos = index( b );
+
+            if ( pos < 0 )
+            {
+                // Not an OID, but it might still have been registered as a key
+                return current.factories.get( Strings.asciiBytesToString( oid ) );
+            }
+
+            node = node.children[pos];
+
+            if ( node == null )
+            {
+                return null;
+            }
+        }
+
+        return node.factory;
+    }
+
+
+    /**
+     * Gets the factory registered for an OID given as its ASCII bytes, using the
+     * trie when the map is a FactoryRegistry.
+     *
+     * @param <F> The factory type
+     * @param factories The registered factories
+     * @param oid The OID bytes
+     * @return The registered factory, or null if there is none
+     */
+    public static <F> F get( Map<String, F> factories, byte[] oid )
+    {
+        if ( factories instanceof FactoryRegistry )
+        {
+            return ( ( FactoryRegistry<F> ) factories ).get( oid );
+        }
+
+        return factories.get( Strings.asciiBytesToString( oid ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public F get( Object oid )
+    {
+        return snapshot.factories.get( oid );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey( Object oid )
+    {
+        return snapshot.factories.containsKey( oid );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        return snapshot.factories.size();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized F put( String oid, F factory )
+    {
+        Map<String, F> factories = new HashMap<>( snapshot.factories );
+        F previous = factories.put( oid, factory );
+        snapshot = new Snapshot<>( factories );
+
+        return previous;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void putAll( Map<? extends String, ? extends F> map )
+    {
+        Map<String, F> factories = new HashMap<>( snapshot.factories );
+        factories.putAll( map );
+        snapshot = new Snapshot<>( factories );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized F remove( Object oid )
+    {
+        if ( !snapshot.factories.containsKey( oid ) )
+        {
+            return null;
+        }
+
+        Map<String, F> factories = new HashMap<>( snapshot.factories );
+        F previous = factories.remove( oid );
+        snapshot = new Snapshot<>( factories );
+
+        return previous;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear()
+    {
+        snapshot = new Snapshot<>( new HashMap<String, F>() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * The returned set is an unmodifiable view of the factories registered when this
+     * method is called.
+     */
+    @Override
+    public Set<Map.Entry<String, F>> entrySet()
+    {
+        return snapshot.factories.entrySet();
+    }
+}
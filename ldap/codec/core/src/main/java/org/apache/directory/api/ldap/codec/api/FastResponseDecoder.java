@@ -0,0 +1,588 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.nio.ByteBuffer;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.asn1.ber.tlv.TLV;
+import org.apache.directory.api.asn1.ber.tlv.UniversalTag;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.DefaultAttribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapURLEncodingException;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.LdapResult;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.Referral;
+import org.apache.directory.api.ldap.model.message.ReferralImpl;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.url.LdapUrl;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * A hand written decoder for the most frequent responses : BindResponse, SearchResultEntry
+ * and SearchResultDone. It reads a complete PDU directly, without going through the
+ * {@link org.apache.directory.api.ldap.codec.LdapMessageGrammar} states and actions, and
+ * produces the same messages as the grammar.
+ * <p>
+ * The decoder gives up, and returns <code>null</code>, as soon as it meets something it
+ * does not handle : another operation, controls, or a malformed PDU. The PDU must then be
+ * decoded by the grammar, which will also report the errors. The PDU's position is never
+ * modified.
+ * <p>
+ * It is used when the container's fast decoding mode is set, see
+ * {@link LdapMessageContainer#setFastDecoding(boolean)}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class FastResponseDecoder
+{
+    /** The highest accepted result code */
+    private static final int MAX_RESULT_CODE = ResultCodeEnum.E_SYNC_REFRESH_REQUIRED.getResultCode();
+
+    /** The PDU to decode */
+    private final ByteBuffer pdu;
+
+    /** The container, giving the binary attributes and the lazy entries mode */
+    private final LdapMessageContainer<? extends Message> container;
+
+    /** The position of the value of the last TLV read */
+    private int valueStart;
+
+
+    /**
+     * Creates a new instance of FastResponseDecoder.
+     *
+     * @param pdu The PDU to decode
+     * @param container The container
+     */
+    private FastResponseDecoder( ByteBuffer pdu, LdapMessageContainer<? extends Message> container )
+    {
+        this.pdu = pdu;
+        this.container = container;
+    }
+
+
+    /**
+     * Decodes a complete PDU, if it contains a BindResponse, a SearchResultEntry or a
+     * SearchResultDone without controls.
+     *
+     * @param pdu The buffer containing the PDU, and nothing else
+     * @param container The container, which gives the binary attributes and the lazy entries mode
+     * @return The decoded message, or <code>null</code> if the PDU must be decoded by the grammar
+     */
+    public static Message decode( ByteBuffer pdu, LdapMessageContainer<? extends Message> container )
+    {
+        return new FastResponseDecoder( pdu, container ).decodeMessage();
+    }
+
+
+    /**
+     * Decodes the LDAPMessage envelope, and the protocolOp it contains
+     *
+     * <pre>
+     * LDAPMessage ::= SEQUENCE {
+     *     messageID       MessageID,
+     *     protocolOp      CHOICE { ... },
+     *     controls       [0] Controls OPTIONAL }
+     * </pre>
+     */
+    private Message decodeMessage()
+    {
+        int end = pdu.limit();
+
+        if ( readTlv( UniversalTag.SEQUENCE.getValue(), pdu.position(), end ) != end )
+        {
+            return null;
+        }
+
+        int idEnd = readTlv( UniversalTag.INTEGER.getValue(), valueStart, end );
+
+        if ( idEnd == -1 )
+        {
+            return null;
+        }
+
+        int messageId = readInt( valueStart, idEnd );
+
+        if ( ( messageId < 0 ) || ( idEnd == end ) )
+        {
+            return null;
+        }
+
+        int tag = pdu.get( idEnd ) & 0x00FF;
+
+        // The protocolOp must be the last element : we don't handle the controls
+        if ( readTlv( tag, idEnd, end ) != end )
+        {
+            return null;
+        }
+
+        switch ( tag )
+        {
+            case LdapCodecConstants.BIND_RESPONSE_TAG:
+                return decodeBindResponse( messageId, valueStart, end );
+
+            case LdapCodecConstants.SEARCH_RESULT_ENTRY_TAG:
+                return decodeSearchResultEntry( messageId, valueStart, end );
+
+            case LdapCodecConstants.SEARCH_RESULT_DONE_TAG:
+                SearchResultDoneImpl searchResultDone = new SearchResultDoneImpl( messageId );
+
+                if ( decodeLdapResult( searchResultDone.getLdapResult(), valueStart, end ) != end )
+                {
+                    return null;
+                }
+
+                return searchResultDone;
+
+            default:
+                return null;
+        }
+    }
+
+
+    /**
+     * Decodes a BindResponse
+     *
+     * <pre>
+     * BindResponse ::= [APPLICATION 1] SEQUENCE {
+     *     COMPONENTS OF LDAPResult,
+     *     serverSaslCreds    [7] OCTET STRING OPTIONAL }
+     * </pre>
+     */
+    private Message decodeBindResponse( int messageId, int start, int end )
+    {
+        BindResponseImpl bindResponse = new BindResponseImpl( messageId );
+        int pos = decodeLdapResult( bindResponse.getLdapResult(), start, end );
+
+        if ( pos == -1 )
+        {
+            return null;
+        }
+
+        if ( pos < end )
+        {
+            if ( readTlv( LdapCodecConstants.SERVER_SASL_CREDENTIAL_TAG, pos, end ) != end )
+            {
+                return null;
+            }
+
+            if ( valueStart == end )
+            {
+                bindResponse.setServerSaslCreds( Strings.EMPTY_BYTES );
+            }
+            else
+            {
+                bindResponse.setServerSaslCreds( getBytes( valueStart, end ) );
+            }
+        }
+
+        return bindResponse;
+    }
+
+
+    /**
+     * Decodes a SearchResultEntry
+     *
+     * <pre>
+     * SearchResultEntry ::= [APPLICATION 4] SEQUENCE {
+     *     objectName      LDAPDN,
+     *     attributes      PartialAttributeList }
+     *
+     * PartialAttributeList ::= SEQUENCE OF SEQUENCE {
+     *     type       AttributeDescription,
+     *     vals       SET OF value AttributeValue }
+     * </pre>
+     */
+    private Message decodeSearchResultEntry( int messageId, int start, int end )
+    {
+        int nameEnd = readTlv( UniversalTag.OCTET_STRING.getValue(), start, end );
+
+        if ( nameEnd == -1 )
+        {
+            return null;
+        }
+
+        Dn objectName = Dn.EMPTY_DN;
+
+        if ( nameEnd > valueStart )
+        {
+            try
+            {
+                objectName = new Dn( getString( valueStart, nameEnd ) );
+            }
+            catch ( LdapException le )
+            {
+                return null;
+            }
+        }
+
+        SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl( messageId );
+        searchResultEntry.setObjectName( objectName );
+
+        if ( readTlv( UniversalTag.SEQUENCE.getValue(), nameEnd, end ) != end )
+        {
+            return null;
+        }
+
+        int attributesStart = valueStart;
+
+        if ( container.isLazyEntries() )
+        {
+            if ( attributesStart < end )
+            {
+                try
+                {
+                    searchResultEntry.setEntry( new LazyEntry( objectName, getBytes( attributesStart, end ),
+                        container.getBinaryAttributeDetector() ) );
+                }
+                catch ( DecoderException de )
+                {
+                    return null;
+                }
+            }
+
+            return searchResultEntry;
+        }
+
+        Entry entry = searchResultEntry.getEntry();
+
+        try
+        {
+            for ( int pos = attributesStart; pos < end; )
+            {
+                int attributeEnd = readTlv( UniversalTag.SEQUENCE.getValue(), pos, end );
+
+                if ( attributeEnd == -1 )
+                {
+                    return null;
+                }
+
+                int typeEnd = readTlv( UniversalTag.OCTET_STRING.getValue(), valueStart, attributeEnd );
+
+                if ( ( typeEnd == -1 ) || ( typeEnd == valueStart ) )
+                {
+                    return null;
+                }
+
+                String type = getString( valueStart, typeEnd );
+
+                if ( Strings.isEmpty( Strings.trim( type ) ) )
+                {
+                    return null;
+                }
+
+                Attribute attribute = new DefaultAttribute( type );
+
+                if ( readTlv( UniversalTag.SET.getValue(), typeEnd, attributeEnd ) != attributeEnd )
+                {
+                    return null;
+                }
+
+                boolean binary = container.isBinary( attribute.getId() );
+
+                for ( int valuePos = valueStart; valuePos < attributeEnd; )
+                {
+                    int valueEnd = readTlv( UniversalTag.OCTET_STRING.getValue(), valuePos, attributeEnd );
+
+                    if ( valueEnd == -1 )
+                    {
+                        return null;
+                    }
+
+                    if ( valueEnd == valueStart )
+                    {
+                        attribute.add( "" );
+                    }
+                    else if ( binary )
+                    {
+                        attribute.add( getBytes( valueStart, valueEnd ) );
+                    }
+                    else
+                    {
+                        attribute.add( getString( valueStart, valueEnd ) );
+                    }
+
+                    valuePos = valueEnd;
+                }
+
+                entry.put( attribute );
+                pos = attributeEnd;
+            }
+        }
+        catch ( LdapException le )
+        {
+            return null;
+        }
+
+        return searchResultEntry;
+    }
+
+
+    /**
+     * Decodes the LDAPResult components
+     *
+     * <pre>
+     * LDAPResult ::= SEQUENCE {
+     *     resultCode         ENUMERATED { ... },
+     *     matchedDN          LDAPDN,
+     *     diagnosticMessage  LDAPString,
+     *     referral           [3] Referral OPTIONAL }
+     * </pre>
+     *
+     * @return The position following the LDAPResult, or -1 if it can't be decoded
+     */
+    private int decodeLdapResult( LdapResult ldapResult, int start, int end )
+    {
+        int codeEnd = readTlv( UniversalTag.ENUMERATED.getValue(), start, end );
+
+        if ( codeEnd == -1 )
+        {
+            return -1;
+        }
+
+        int code = readInt( valueStart, codeEnd );
+
+        if ( ( code < 0 ) || ( code > MAX_RESULT_CODE ) )
+        {
+            return -1;
+        }
+
+        ResultCodeEnum resultCode = ResultCodeEnum.getResultCode( code );
+        ldapResult.setResultCode( resultCode );
+
+        // The matchedDN, only kept for a few result codes
+        int matchedDnEnd = readTlv( UniversalTag.OCTET_STRING.getValue(), codeEnd, end );
+
+        if ( matchedDnEnd == -1 )
+        {
+            return -1;
+        }
+
+        Dn matchedDn = Dn.EMPTY_DN;
+
+        if ( matchedDnEnd > valueStart )
+        {
+            switch ( resultCode )
+            {
+                case NO_SUCH_OBJECT:
+                case ALIAS_PROBLEM:
+                case INVALID_DN_SYNTAX:
+                case ALIAS_DEREFERENCING_PROBLEM:
+                    try
+                    {
+                        matchedDn = new Dn( getString( valueStart, matchedDnEnd ) );
+                    }
+                    catch ( LdapException le )
+                    {
+                        return -1;
+                    }
+
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        ldapResult.setMatchedDn( matchedDn );
+
+        // The diagnosticMessage
+        int messageEnd = readTlv( UniversalTag.OCTET_STRING.getValue(), matchedDnEnd, end );
+
+        if ( messageEnd == -1 )
+        {
+            return -1;
+        }
+
+        ldapResult.setDiagnosticMessage( messageEnd == valueStart ? "" : getString( valueStart, messageEnd ) );
+
+        if ( ( messageEnd == end )
+            || ( ( pdu.get( messageEnd ) & 0x00FF ) != LdapCodecConstants.LDAP_RESULT_REFERRAL_SEQUENCE_TAG ) )
+        {
+            return messageEnd;
+        }
+
+        // The referrals, which can't be empty
+        int referralEnd = readTlv( LdapCodecConstants.LDAP_RESULT_REFERRAL_SEQUENCE_TAG, messageEnd, end );
+
+        if ( ( referralEnd == -1 ) || ( referralEnd == valueStart ) )
+        {
+            return -1;
+        }
+
+        Referral referral = new ReferralImpl();
+        ldapResult.setReferral( referral );
+
+        for ( int pos = valueStart; pos < referralEnd; )
+        {
+            int urlEnd = readTlv( UniversalTag.OCTET_STRING.getValue(), pos, referralEnd );
+
+            if ( urlEnd == -1 )
+            {
+                return -1;
+            }
+
+            if ( urlEnd == valueStart )
+            {
+                referral.addLdapUrl( "" );
+            }
+            else if ( resultCode == ResultCodeEnum.REFERRAL )
+            {
+                try
+                {
+                    referral.addLdapUrl( new LdapUrl( getString( valueStart, urlEnd ) ).toString() );
+                }
+                catch ( LdapURLEncodingException luee )
+                {
+                    return -1;
+                }
+            }
+            else
+            {
+                referral.addLdapUrl( LdapUrl.EMPTY_URL.toString() );
+            }
+
+            pos = urlEnd;
+        }
+
+        return referralEnd;
+    }
+
+
+    /**
+     * Reads the header of a TLV, and checks that it fits in its enclosing TLV.
+     *
+     * @param tag The expected tag
+     * @param pos The TLV position
+     * @param end The position following the enclosing TLV
+     * @return The position following the TLV, or -1 if the TLV is not valid. The position
+     * of its value is stored into valueStart
+     */
+    private int readTlv( int tag, int pos, int end )
+    {
+        if ( ( pos + 2 > end ) || ( ( pdu.get( pos ) & 0x00FF ) != tag ) )
+        {
+            return -1;
+        }
+
+        int octet = pdu.get( pos + 1 ) & 0x00FF;
+        int length;
+        valueStart = pos + 2;
+
+        if ( ( octet & TLV.LENGTH_LONG_FORM ) == 0 )
+        {
+            length = octet;
+        }
+        else
+        {
+            int nbBytes = octet & TLV.LENGTH_SHORT_MASK;
+
+            if ( ( nbBytes == 0 ) || ( nbBytes > 4 ) || ( valueStart + nbBytes > end ) )
+            {
+                return -1;
+            }
+
+            length = 0;
+
+            for ( int i = 0; i < nbBytes; i++ )
+            {
+                length = ( length << 8 ) | ( pdu.get( valueStart++ ) & 0x00FF );
+            }
+        }
+
+        if ( ( length < 0 ) || ( length > end - valueStart ) )
+        {
+            return -1;
+        }
+
+        return valueStart + length;
+    }
+
+
+    /**
+     * Reads a positive INTEGER or ENUMERATED value, on 1 to 4 bytes.
+     *
+     * @return The value, or -1 if it's negative or too long
+     */
+    private int readInt( int start, int end )
+    {
+        int length = end - start;
+
+        if ( ( length == 0 ) || ( length > 4 ) || ( pdu.get( start ) < 0 ) )
+        {
+            return -1;
+        }
+
+        int value = 0;
+
+        for ( int i = start; i < end; i++ )
+        {
+            value = ( value << 8 ) | ( pdu.get( i ) & 0x00FF );
+        }
+
+        return value;
+    }
+
+
+    /**
+     * Copies some bytes of the PDU
+     */
+    private byte[] getBytes( int start, int end )
+    {
+        byte[] bytes = new byte[end - start];
+
+        if ( pdu.hasArray() )
+        {
+            System.arraycopy( pdu.array(), pdu.arrayOffset() + start, bytes, 0, bytes.length );
+        }
+        else
+        {
+            // A direct buffer : bulk read through a duplicate, the PDU's position must not move
+            ByteBuffer duplicate = pdu.duplicate();
+            duplicate.position( start );
+            duplicate.get( bytes );
+        }
+
+        return bytes;
+    }
+
+
+    /**
+     * Decodes some bytes of the PDU as an UTF-8 String
+     */
+    private String getString( int start, int end )
+    {
+        if ( pdu.hasArray() )
+        {
+            return Strings.utf8ToString( pdu.array(), pdu.arrayOffset() + start, end - start );
+        }
+
+        return Strings.utf8ToString( getBytes( start, end ) );
+    }
+}
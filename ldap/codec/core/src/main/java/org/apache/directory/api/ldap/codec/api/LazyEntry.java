@@ -0,0 +1,1098 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.asn1.ber.tlv.TLV;
+import org.apache.directory.api.asn1.ber.tlv.UniversalTag;
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.DefaultAttribute;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * An Entry decoded from a SearchResultEntry which keeps its attributes encoded. The
+ * PartialAttributeList is only checked and indexed when the PDU is decoded : an attribute
+ * and its values are decoded, and normalized if a SchemaManager has been applied, the
+ * first time it is read with {@link #get(String)}, {@link #get(AttributeType)} or one of
+ * the contains methods. Any other operation decodes all the remaining attributes first.
+ * <p>
+ * This is useful when scanning wide entries, when only a few attributes are read.
+ * <p>
+ * A LazyEntry can be read by many threads : the decoding of the attributes is guarded
+ * by a lock, and so are the reads while some attributes are still encoded. Once all the
+ * attributes have been decoded, it's not locked anymore. As for a {@link DefaultEntry},
+ * modifying it while it's read by another thread is not safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LazyEntry implements Entry
+{
+    /** Used for serialization */
+    private static final long serialVersionUID = 1L;
+
+    /** The entry storing the decoded attributes */
+    private Entry entry;
+
+    /** The encoded PartialAttributeList, null when all the attributes have been decoded */
+    private transient byte[] encoded;
+
+    /** The number of encoded attributes */
+    private transient int count;
+
+    /** The attributes' type, as received */
+    private transient String[] types;
+
+    /** The keys used to find the attributes : their lower cased type, or their OID */
+    private transient String[] keys;
+
+    /** The position of each attribute's vals SET content in the encoded list */
+    private transient int[] valsStart;
+
+    /** The position following each attribute's vals SET */
+    private transient int[] valsEnd;
+
+    /** Tells if an attribute has already been decoded */
+    private transient boolean[] decoded;
+
+    /** The number of attributes not decoded yet. The entry is not modified anymore once it's 0 */
+    private transient volatile int pending;
+
+    /** The detector used to know if the values are binary */
+    private transient BinaryAttributeDetector binaryAttributeDetector;
+
+    /** The SchemaManager used to normalize the attributes, if any */
+    private transient SchemaManager schemaManager;
+
+    /** The position of the value of the last TLV read */
+    private transient int valueStart;
+
+    /** The lock guarding the decoding of the attributes, and the entry while some are pending */
+    private final transient ReentrantLock lock = new ReentrantLock();
+
+
+    /**
+     * Creates an empty LazyEntry. Only used for deserialization.
+     */
+    public LazyEntry()
+    {
+        entry = new DefaultEntry();
+    }
+
+
+    /**
+     * Creates a new LazyEntry.
+     *
+     * @param dn The entry's Dn
+     * @param encoded The encoded PartialAttributeList, without its SEQUENCE tag and length
+     * @param binaryAttributeDetector The detector used to know if the values are binary
+     * @throws DecoderException If the PartialAttributeList is not valid
+     */
+    public LazyEntry( Dn dn, byte[] encoded, BinaryAttributeDetector binaryAttributeDetector ) throws DecoderException
+    {
+        entry = new DefaultEntry( dn );
+        this.encoded = encoded;
+        this.binaryAttributeDetector = binaryAttributeDetector;
+        index();
+    }
+
+
+    /**
+     * Reads the header of a TLV, and check that it fits in its enclosing TLV.
+     *
+     * @param tag The expected tag
+     * @param pos The TLV position
+     * @param end The position following the enclosing TLV
+     * @return The position following the TLV. Its value position is stored into valueStart
+     * @throws DecoderException If the TLV is not valid
+     */
+    private int readTlv( byte tag, int pos, int end ) throws DecoderException
+    {
+        if ( ( pos + 2 > end ) || ( encoded[pos] != tag ) )
+        {
+            throw new DecoderException( I18n.err( I18n.ERR_05208_MALFORMED_PARTIAL_ATTRIBUTE_LIST, pos ) );
+        }
+
+        int octet = encoded[pos + 1] & 0x00FF;
+        int length;
+        valueStart = pos + 2;
+
+        if ( ( octet & TLV.LENGTH_LONG_FORM ) == 0 )
+        {
+            length = octet;
+        }
+        else
+        {
+            int nbBytes = octet & TLV.LENGTH_SHORT_MASK;
+
+            if ( ( nbBytes == 0 ) || ( nbBytes > 4 ) || ( valueStart + nbBytes > end ) )
+            {
+                throw new DecoderException( I18n.err( I18n.ERR_05208_MALFORMED_PARTIAL_ATTRIBUTE_LIST, pos ) );
+            }
+
+            length = 0;
+
+            for ( int i = 0; i < nbBytes; i++ )
+            {
+                length = ( length << 8 ) | ( encoded[valueStart++] & 0x00FF );
+            }
+        }
+
+        if ( ( length < 0 ) || ( length > end - valueStart ) )
+        {
+            throw new DecoderException( I18n.err( I18n.ERR_05208_MALFORMED_PARTIAL_ATTRIBUTE_LIST, pos ) );
+        }
+
+        return valueStart + length;
+    }
+
+
+    /**
+     * Checks the encoded PartialAttributeList and stores the position of each attribute
+     *
+     * <pre>
+     * PartialAttributeList ::= SEQUENCE OF SEQUENCE {
+     *     type  AttributeDescription,
+     *     vals  SET OF AttributeValue }
+     * </pre>
+     *
+     * @throws DecoderException If the PartialAttributeList is not valid
+     */
+    private void index() throws DecoderException
+    {
+        int capacity = 16;
+        types = new String[capacity];
+        valsStart = new int[capacity];
+        valsEnd = new int[capacity];
+
+        int pos = 0;
+
+        while ( pos < encoded.length )
+        {
+            int attributeEnd = readTlv( UniversalTag.SEQUENCE.getValue(), pos, encoded.length );
+
+            // The type
+            int typeEnd = readTlv( UniversalTag.OCTET_STRING.getValue(), valueStart, attributeEnd );
+
+            if ( typeEnd == valueStart )
+            {
+                throw new DecoderException( I18n.err( I18n.ERR_05147_NULL_ATTRIBUTE_TYPE ) );
+            }
+
+            String type = Strings.utf8ToString( encoded, valueStart, typeEnd - valueStart );
+
+            // The values : only check them
+            int setEnd = readTlv( UniversalTag.SET.getValue(), typeEnd, attributeEnd );
+
+            if ( setEnd != attributeEnd )
+            {
+                throw new DecoderException( I18n.err( I18n.ERR_05208_MALFORMED_PARTIAL_ATTRIBUTE_LIST, setEnd ) );
+            }
+
+            int setStart = valueStart;
+
+            for ( int valuePos = setStart; valuePos < setEnd; )
+            {
+                valuePos = readTlv( UniversalTag.OCTET_STRING.getValue(), valuePos, setEnd );
+            }
+
+            if ( count == capacity )
+            {
+                capacity *= 2;
+                types = Arrays.copyOf( types, capacity );
+                valsStart = Arrays.copyOf( valsStart, capacity );
+                valsEnd = Arrays.copyOf( valsEnd, capacity );
+            }
+
+            types[count] = type;
+            valsStart[count] = setStart;
+            valsEnd[count] = setEnd;
+            count++;
+
+            pos = attributeEnd;
+        }
+
+        keys = new String[count];
+
+        for ( int i = 0; i < count; i++ )
+        {
+            keys[i] = Strings.toLowerCaseAscii( Strings.trim( types[i] ) );
+        }
+
+        decoded = new boolean[count];
+        pending = count;
+
+        if ( pending == 0 )
+        {
+            encoded = null;
+        }
+    }
+
+
+    /**
+     * Applies a SchemaManager to this entry : the attributes will be normalized when decoded.
+     * The attribute types are checked right away.
+     *
+     * @param schemaManager The SchemaManager to use
+     * @throws LdapException If an attribute type is unknown
+     */
+    public void applySchemaManager( SchemaManager schemaManager ) throws LdapException
+    {
+        lock.lock();
+
+        try
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                if ( !decoded[i] )
+                {
+                    keys[i] = schemaManager.lookupAttributeTypeRegistry( types[i] ).getOid();
+                }
+            }
+
+            this.schemaManager = schemaManager;
+            entry = new DefaultEntry( schemaManager, entry );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return The number of attributes which have not been decoded yet
+     */
+    public int getPendingAttributes()
+    {
+        return pending;
+    }
+
+
+    /**
+     * @return The size of the encoded attributes which have not been decoded yet
+     */
+    public int getEncodedLength()
+    {
+        return encoded == null ? 0 : encoded.length;
+    }
+
+
+    /**
+     * Decodes an attribute, and stores it into the entry. Must be called with the lock held.
+     *
+     * @param index The attribute's index
+     */
+    private void decode( int index )
+    {
+        Attribute attribute = new DefaultAttribute( types[index] );
+        boolean binary = ( binaryAttributeDetector != null ) && binaryAttributeDetector.isBinary( types[index] );
+
+        try
+        {
+            for ( int pos = valsStart[index]; pos < valsEnd[index]; )
+            {
+                int end = readTlv( UniversalTag.OCTET_STRING.getValue(), pos, valsEnd[index] );
+                int length = end - valueStart;
+
+                if ( length == 0 )
+                {
+                    attribute.add( "" );
+                }
+                else if ( binary )
+                {
+                    byte[] value = new byte[length];
+                    System.arraycopy( encoded, valueStart, value, 0, length );
+                    attribute.add( value );
+                }
+                else
+                {
+                    attribute.add( Strings.utf8ToString( encoded, valueStart, length ) );
+                }
+
+                pos = end;
+            }
+
+            if ( schemaManager != null )
+            {
+                entry.put( new DefaultAttribute( schemaManager.lookupAttributeTypeRegistry( types[index] ), attribute ) );
+            }
+            else
+            {
+                entry.put( attribute );
+            }
+        }
+        catch ( DecoderException | LdapException e )
+        {
+            // Can't happen, the list has been checked, and the types resolved
+            throw new IllegalStateException( e.getMessage(), e );
+        }
+
+        decoded[index] = true;
+        pending--;
+
+        if ( pending == 0 )
+        {
+            encoded = null;
+        }
+    }
+
+
+    /**
+     * Decodes the attributes stored with a given key. Must be called with the lock held.
+     *
+     * @param key The key, or null
+     */
+    private void decode( String key )
+    {
+        if ( ( pending == 0 ) || ( key == null ) )
+        {
+            return;
+        }
+
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( !decoded[i] && key.equals( keys[i] ) )
+            {
+                decode( i );
+            }
+        }
+    }
+
+
+    /**
+     * Computes the key used to find an attribute
+     *
+     * @param alias The attribute's name or OID
+     * @return The key, or null if the attribute can't be found
+     */
+    private String getKey( String alias )
+    {
+        if ( ( pending == 0 ) || ( alias == null ) )
+        {
+            return null;
+        }
+
+        if ( schemaManager != null )
+        {
+            AttributeType attributeType = schemaManager.getAttributeType( alias );
+
+            return attributeType == null ? null : attributeType.getOid();
+        }
+
+        return Strings.toLowerCaseAscii( Strings.trim( alias ) );
+    }
+
+
+    /**
+     * Computes the key used to find an attribute
+     *
+     * @param attributeType The attribute's type
+     * @return The key, or null if there is no type
+     */
+    private static String getKey( AttributeType attributeType )
+    {
+        return attributeType == null ? null : attributeType.getOid();
+    }
+
+
+    /**
+     * Decodes the attributes stored with some keys, and reads the entry. While some
+     * attributes are pending, the entry is read with the lock held, as it may be
+     * modified by another thread decoding an attribute.
+     *
+     * @param reader The function reading the entry
+     * @param keys The keys of the attributes to decode
+     * @return The result of the reader
+     */
+    private <T> T read( Function<Entry, T> reader, String... keys )
+    {
+        if ( pending == 0 )
+        {
+            return reader.apply( entry );
+        }
+
+        lock.lock();
+
+        try
+        {
+            for ( String key : keys )
+            {
+                decode( key );
+            }
+
+            return reader.apply( entry );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Decodes all the attributes which have not been decoded yet.
+     *
+     * @return The entry containing all the attributes
+     */
+    private Entry decodeAll()
+    {
+        if ( pending == 0 )
+        {
+            return entry;
+        }
+
+        lock.lock();
+
+        try
+        {
+            for ( int i = 0; ( i < count ) && ( pending > 0 ); i++ )
+            {
+                if ( !decoded[i] )
+                {
+                    decode( i );
+                }
+            }
+
+            return entry;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute get( String alias )
+    {
+        return read( decodedEntry -> decodedEntry.get( alias ), getKey( alias ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute get( AttributeType attributeType )
+    {
+        return read( decodedEntry -> decodedEntry.get( attributeType ), getKey( attributeType ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsAttribute( String... attributes )
+    {
+        if ( attributes == null )
+        {
+            return entry.containsAttribute( attributes );
+        }
+
+        String[] attributeKeys = new String[attributes.length];
+
+        for ( int i = 0; i < attributes.length; i++ )
+        {
+            attributeKeys[i] = getKey( attributes[i] );
+        }
+
+        return read( decodedEntry -> decodedEntry.containsAttribute( attributes ), attributeKeys );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsAttribute( AttributeType attributeType )
+    {
+        return read( decodedEntry -> decodedEntry.containsAttribute( attributeType ), getKey( attributeType ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( AttributeType attributeType, byte[]... values )
+    {
+        return read( decodedEntry -> decodedEntry.contains( attributeType, values ), getKey( attributeType ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( AttributeType attributeType, String... values )
+    {
+        return read( decodedEntry -> decodedEntry.contains( attributeType, values ), getKey( attributeType ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( AttributeType attributeType, Value... values )
+    {
+        return read( decodedEntry -> decodedEntry.contains( attributeType, values ), getKey( attributeType ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( String upId, byte[]... values )
+    {
+        return read( decodedEntry -> decodedEntry.contains( upId, values ), getKey( upId ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( String upId, String... values )
+    {
+        return read( decodedEntry -> decodedEntry.contains( upId, values ), getKey( upId ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( String upId, Value... values )
+    {
+        return read( decodedEntry -> decodedEntry.contains( upId, values ), getKey( upId ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasObjectClass( String... objectClasses )
+    {
+        return read( decodedEntry -> decodedEntry.hasObjectClass( objectClasses ), getKey( "objectClass" ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasObjectClass( Attribute... objectClasses )
+    {
+        return read( decodedEntry -> decodedEntry.hasObjectClass( objectClasses ), getKey( "objectClass" ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Dn getDn()
+    {
+        return entry.getDn();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setDn( Dn dn )
+    {
+        entry.setDn( dn );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setDn( String dn ) throws LdapInvalidDnException
+    {
+        entry.setDn( dn );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSchemaAware()
+    {
+        return entry.isSchemaAware();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        decodeAll().clear();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry clone()
+    {
+        return decodeAll().clone();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry shallowClone()
+    {
+        return decodeAll().shallowClone();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Attribute> getAttributes()
+    {
+        return decodeAll().getAttributes();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Attribute> iterator()
+    {
+        return decodeAll().iterator();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( Attribute... attributes ) throws LdapException
+    {
+        return decodeAll().add( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( AttributeType attributeType, byte[]... values ) throws LdapException
+    {
+        return decodeAll().add( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( AttributeType attributeType, String... values ) throws LdapException
+    {
+        return decodeAll().add( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( AttributeType attributeType, Value... values ) throws LdapException
+    {
+        return decodeAll().add( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, AttributeType attributeType, byte[]... values ) throws LdapException
+    {
+        return decodeAll().add( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, AttributeType attributeType, String... values ) throws LdapException
+    {
+        return decodeAll().add( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, AttributeType attributeType, Value... values ) throws LdapException
+    {
+        return decodeAll().add( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, String... values ) throws LdapException
+    {
+        return decodeAll().add( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, byte[]... values ) throws LdapException
+    {
+        return decodeAll().add( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, Value... values ) throws LdapException
+    {
+        return decodeAll().add( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Attribute> put( Attribute... attributes ) throws LdapException
+    {
+        return decodeAll().put( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( AttributeType attributeType, byte[]... values ) throws LdapException
+    {
+        return decodeAll().put( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( AttributeType attributeType, String... values ) throws LdapException
+    {
+        return decodeAll().put( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( AttributeType attributeType, Value... values ) throws LdapException
+    {
+        return decodeAll().put( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, AttributeType attributeType, byte[]... values ) throws LdapException
+    {
+        return decodeAll().put( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, AttributeType attributeType, String... values ) throws LdapException
+    {
+        return decodeAll().put( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, AttributeType attributeType, Value... values ) throws LdapException
+    {
+        return decodeAll().put( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, byte[]... values )
+    {
+        return decodeAll().put( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, String... values )
+    {
+        return decodeAll().put( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, Value... values )
+    {
+        return decodeAll().put( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( AttributeType attributeType, byte[]... values ) throws LdapException
+    {
+        return decodeAll().remove( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( AttributeType attributeType, String... values ) throws LdapException
+    {
+        return decodeAll().remove( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( AttributeType attributeType, Value... values ) throws LdapException
+    {
+        return decodeAll().remove( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Attribute> remove( Attribute... attributes ) throws LdapException
+    {
+        return decodeAll().remove( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAttributes( AttributeType... attributes )
+    {
+        decodeAll().removeAttributes( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( String upId, byte[]... values ) throws LdapException
+    {
+        return decodeAll().remove( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( String upId, String... values ) throws LdapException
+    {
+        return decodeAll().remove( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( String upId, Value... values ) throws LdapException
+    {
+        return decodeAll().remove( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAttributes( String... attributes )
+    {
+        decodeAll().removeAttributes( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( Attribute... attributes )
+    {
+        return decodeAll().contains( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        return decodeAll().size();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString( String tabs )
+    {
+        return decodeAll().toString( tabs );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal( ObjectOutput out ) throws IOException
+    {
+        decodeAll().writeExternal( out );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal( ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        entry.readExternal( in );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        return decodeAll().hashCode();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+
+        return decodeAll().equals( o );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return decodeAll().toString();
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.ber.tlv.TLV;
+import org.apache.directory.api.asn1.ber.tlv.TLVStateEnum;
+import org.apache.directory.api.asn1.ber.tlv.UniversalTag;
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.message.AbstractMessage;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.ProtocolDecoderException;
+
+
+/**
+ * An {@link IoFilterAdapter} decoding the LDAP PDUs in an {@link Executor}, instead of
+ * the IO thread. It must be placed right after the codec filter : the LDAP
+ * ProtocolDecoder then only frames the incoming PDUs, which are decoded
+ * and forwarded to the next filter (and to the handler) by the executor's threads.
+ * <br>
+ * The PDUs are dispatched on a fixed number of lanes, depending on their message ID.
+ * A lane decodes its PDUs one after the other, so the responses to a given request
+ * are always received in the order the server sent them, while the responses to
+ * different requests may be decoded in parallel. Each lane uses its own
+ * {@link LdapMessageContainer}, configured like the session's one.
+ * <br>
+ * The sessionClosed event is forwarded once all the received PDUs have been processed.
+ * If the executor rejects a lane, its queued PDUs are dropped and the rejection is
+ * forwarded as an exceptionCaught event.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapDecodingFilter extends IoFilterAdapter
+{
+    /** The session attribute holding the decoding lanes, telling the decoder to only frame the PDUs */
+    public static final String DECODING_LANES_ATTR = "LDAP-decodingLanes";
+
+    /** The default number of lanes per session */
+    public static final int DEFAULT_LANES = 16;
+
+    /** The executor decoding the PDUs */
+    private final Executor executor;
+
+    /** The number of lanes per session */
+    private final int nbLanes;
+
+
+    /**
+     * Creates a new instance of LdapDecodingFilter, using {@link #DEFAULT_LANES} lanes.
+     *
+     * @param executor The executor decoding the PDUs
+     */
+    public LdapDecodingFilter( Executor executor )
+    {
+        this( executor, DEFAULT_LANES );
+    }
+
+
+    /**
+     * Creates a new instance of LdapDecodingFilter.
+     *
+     * @param executor The executor decoding the PDUs
+     * @param nbLanes The number of lanes per session, which bounds the number of PDUs of
+     * a session decoded at the same time
+     */
+    public LdapDecodingFilter( Executor executor, int nbLanes )
+    {
+        if ( ( executor == null ) || ( nbLanes <= 0 ) )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_05209_INVALID_DECODING_LANES, executor, nbLanes ) );
+        }
+
+        this.executor = executor;
+        this.nbLanes = nbLanes;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostAdd( IoFilterChain parent, String name, NextFilter nextFilter ) throws Exception
+    {
+        parent.getSession().setAttribute( DECODING_LANES_ATTR, new Lanes( parent.getSession(), nextFilter ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostRemove( IoFilterChain parent, String name, NextFilter nextFilter ) throws Exception
+    {
+        parent.getSession().removeAttribute( DECODING_LANES_ATTR );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void messageReceived( NextFilter nextFilter, IoSession session, Object message ) throws Exception
+    {
+        Lanes lanes = ( Lanes ) session.getAttribute( DECODING_LANES_ATTR );
+
+        if ( ( lanes == null ) || !( message instanceof ByteBuffer ) )
+        {
+            nextFilter.messageReceived( session, message );
+
+            return;
+        }
+
+        ByteBuffer pdu = ( ByteBuffer ) message;
+        int messageId = getMessageId( pdu );
+
+        lanes.pending.incrementAndGet();
+        lanes.lanes[( messageId & Integer.MAX_VALUE ) % nbLanes].submit( pdu );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sessionClosed( NextFilter nextFilter, IoSession session ) throws Exception
+    {
+        Lanes lanes = ( Lanes ) session.getAttribute( DECODING_LANES_ATTR );
+
+        if ( lanes == null )
+        {
+            nextFilter.sessionClosed( session );
+
+            return;
+        }
+
+        lanes.closed = true;
+
+        if ( lanes.pending.get() == 0 )
+        {
+            lanes.forwardClose();
+        }
+    }
+
+
+    /**
+     * Reads the message ID of a framed PDU, without decoding it.
+     *
+     * @param pdu The PDU
+     * @return The message ID, or 0 if the PDU does not start with a valid message ID
+     */
+    static int getMessageId( ByteBuffer pdu )
+    {
+        int start = pdu.position();
+        int limit = pdu.limit();
+
+        if ( limit - start < 2 )
+        {
+            return 0;
+        }
+
+        // Skip the LDAPMessage tag and length
+        byte octet = pdu.get( start + 1 );
+        int pos = start + 2;
+
+        if ( ( octet & TLV.LENGTH_LONG_FORM ) != 0 )
+        {
+            pos += octet & TLV.LENGTH_SHORT_MASK;
+        }
+
+        if ( ( pos + 2 > limit ) || ( pdu.get( pos ) != UniversalTag.INTEGER.getValue() ) )
+        {
+            return 0;
+        }
+
+        int length = pdu.get( pos + 1 );
+        pos += 2;
+
+        if ( ( length < 1 ) || ( length > 4 ) || ( pos + length > limit ) )
+        {
+            return 0;
+        }
+
+        int messageId = 0;
+
+        for ( int i = 0; i < length; i++ )
+        {
+            messageId = ( messageId << 8 ) | ( pdu.get( pos + i ) & 0x00FF );
+        }
+
+        return messageId;
+    }
+
+
+    /**
+     * The decoding lanes of a session.
+     */
+    private final class Lanes
+    {
+        /** The session */
+        private final IoSession session;
+
+        /** The filter to which the decoded messages and the events are forwarded */
+        private final NextFilter nextFilter;
+
+        /** The lanes */
+        private final Lane[] lanes;
+
+        /** The number of PDUs received and not yet processed */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /** Set when the session has been closed */
+        private volatile boolean closed;
+
+        /** Set when the sessionClosed event has been forwarded */
+        private final AtomicBoolean closeForwarded = new AtomicBoolean();
+
+
+        private Lanes( IoSession session, NextFilter nextFilter )
+        {
+            this.session = session;
+            this.nextFilter = nextFilter;
+            lanes = new Lane[nbLanes];
+
+            for ( int i = 0; i < nbLanes; i++ )
+            {
+                lanes[i] = new Lane( this );
+            }
+        }
+
+
+        /**
+         * Called when a PDU has been processed
+         */
+        private void done()
+        {
+            if ( ( pending.decrementAndGet() == 0 ) && closed )
+            {
+                forwardClose();
+            }
+        }
+
+
+        /**
+         * Forwards the sessionClosed event, only once
+         */
+        private void forwardClose()
+        {
+            if ( closeForwarded.compareAndSet( false, true ) )
+            {
+                nextFilter.sessionClosed( session );
+            }
+        }
+    }
+
+
+    /**
+     * A lane, decoding its PDUs in sequence.
+     */
+    private final class Lane implements Runnable
+    {
+        /** The session's lanes */
+        private final Lanes parent;
+
+        /** The PDUs to decode */
+        private final Queue<ByteBuffer> pdus = new ConcurrentLinkedQueue<>();
+
+        /** Set when the lane has been submitted to the executor */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /** The session's container, from which the lane's container has been created */
+        private LdapMessageContainer<AbstractMessage> sessionContainer;
+
+        /** The container used by this lane */
+        private LdapMessageContainer<AbstractMessage> container;
+
+
+        private Lane( Lanes parent )
+        {
+            this.parent = parent;
+        }
+
+
+        /**
+         * Queues a PDU, and schedules the lane if it's not already running. If the
+         * executor rejects the lane, the queued PDUs are dropped, so that the
+         * sessionClosed event can still be forwarded, and the failure is forwarded
+         * to the next filter.
+         */
+        private void submit( ByteBuffer pdu )
+        {
+            pdus.add( pdu );
+
+            if ( scheduled.compareAndSet( false, true ) )
+            {
+                try
+                {
+                    executor.execute( this );
+                }
+                catch ( RuntimeException re )
+                {
+                    scheduled.set( false );
+
+                    for ( ByteBuffer dropped = pdus.poll(); dropped != null; dropped = pdus.poll() )
+                    {
+                        parent.done();
+                    }
+
+                    parent.nextFilter.exceptionCaught( parent.session, re );
+                }
+            }
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run()
+        {
+            do
+            {
+                ByteBuffer pdu = pdus.poll();
+
+                while ( pdu != null )
+                {
+                    decode( pdu );
+                    pdu = pdus.poll();
+                }
+
+                scheduled.set( false );
+            }
+            while ( !pdus.isEmpty() && scheduled.compareAndSet( false, true ) );
+        }
+
+
+        /**
+         * Decodes a PDU, and forwards the message, or the failure, to the next filter
+         */
+        private void decode( ByteBuffer pdu )
+        {
+            IoSession session = parent.session;
+            NextFilter nextFilter = parent.nextFilter;
+
+            try
+            {
+                Message message;
+
+                LdapMessageContainer<AbstractMessage> container = getContainer();
+
+                try
+                {
+                    message = container.isFastDecoding() ? FastResponseDecoder.decode( pdu, container ) : null;
+
+                    if ( message == null )
+                    {
+                        Asn1Decoder.decode( pdu, container );
+
+                        if ( container.getState() != TLVStateEnum.PDU_DECODED )
+                        {
+                            // The grammar does not agree with the PDU length
+                            throw new DecoderException( I18n.err( I18n.ERR_01005_TRUNCATED_PDU ) );
+                        }
+
+                        message = container.getMessage();
+                    }
+                }
+                catch ( DecoderException | RuntimeException e )
+                {
+                    nextFilter.exceptionCaught( session, new ProtocolDecoderException( e ) );
+
+                    return;
+                }
+                finally
+                {
+                    container.clean();
+                }
+
+                nextFilter.messageReceived( session, message );
+            }
+            finally
+            {
+                parent.done();
+            }
+        }
+
+
+        /**
+         * Gets the lane's container, which is recreated when the session's one changes
+         */
+        @SuppressWarnings("unchecked")
+        private LdapMessageContainer<AbstractMessage> getContainer()
+        {
+            LdapMessageContainer<AbstractMessage> current = ( LdapMessageContainer<AbstractMessage> ) parent.session
+                .getAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR );
+
+            if ( current != sessionContainer )
+            {
+                sessionContainer = current;
+                container = new LdapMessageContainer<>( current.getLdapCodecService(),
+                    current.getBinaryAttributeDetector() );
+                container.setLazyEntries( current.isLazyEntries() );
+                container.setFastDecoding( current.isFastDecoding() );
+            }
+
+            container.setMaxPDUSize( current.getMaxPDUSize() );
+
+            return container;
+        }
+    }
+}
@@ -145,6 +145,29 @@ public final class LdapEncoder
     }
 
 
+    /**
+     * Encode the controls of a message, if it has any, with their enclosing tag.
+     *
+     * @param buffer The buffer that will contain the encoded controls
+     * @param codec The LdapApiService instance
+     * @param message The message which controls are encoded
+     * @throws EncoderException If the encoding failed
+     */
+    static void encodeControls( Asn1Buffer buffer, LdapApiService codec, Message message ) throws EncoderException
+    {
+        int start = buffer.getPos();
+        Map<String, Control> controls = message.getControls();
+
+        if ( ( controls != null ) && ( controls.size() > 0 ) )
+        {
+            encodeControls( buffer, codec, controls, controls.keySet().iterator(), message instanceof Request );
+
+            // The controls tag
+            BerValue.encodeSequence( buffer, ( byte ) LdapCodecConstants.CONTROLS_TAG, start );
+        }
+    }
+
+
     /**
      * Encode the protocolOp part of a message
      *
@@ -274,18 +297,27 @@ public final class LdapEncoder
      */
     public static ByteBuffer encodeMessage( Asn1Buffer buffer, LdapApiService codec, Message message ) throws EncoderException
     {
-        int start = buffer.getPos();
+        encodeMessageInBuffer( buffer, codec, message );
 
-        // The controls, if any
-        Map<String, Control> controls = message.getControls();
+        return buffer.getBytes();
+    }
 
-        if ( ( controls != null ) && ( controls.size() > 0 ) )
-        {
-            encodeControls( buffer, codec, controls, controls.keySet().iterator(), message instanceof Request );
 
-            // The controls tag
-            BerValue.encodeSequence( buffer, ( byte ) LdapCodecConstants.CONTROLS_TAG, start );
-        }
+    /**
+     * Encode a message into the given Asn1Buffer, without extracting the PDU from it : the
+     * caller is expected to copy it where it is needed, using {@link Asn1Buffer#copyTo(ByteBuffer)}.
+     * It saves the ByteBuffer allocation and copy done by {@link #encodeMessage(Asn1Buffer, LdapApiService, Message)}.
+     *
+     * @param buffer The Asn1Buffer instance in which we store the result
+     * @param codec The LdapApiService instance
+     * @param message The message to encode
+     * @throws EncoderException If anything goes wrong.
+     */
+    public static void encodeMessageInBuffer( Asn1Buffer buffer, LdapApiService codec, Message message ) 
+        throws EncoderException
+    {
+        // The controls, if any
+        encodeControls( buffer, codec, message );
 
         // The protocolOp part
         encodeProtocolOp( buffer, codec, message );
@@ -295,7 +327,5 @@ public final class LdapEncoder
 
         // The LdapMessage Sequence
         BerValue.encodeSequence( buffer );
-
-        return buffer.getBytes();
     }
 }
@@ -93,6 +93,12 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
     /** The global filter. This is used while decoding a PDU */
     private Filter topFilter;
 
+    /** Tells if the SearchResultEntry attributes are kept encoded until they are read */
+    private boolean lazyEntries;
+
+    /** Tells if the most frequent responses are decoded by the FastResponseDecoder */
+    private boolean fastDecoding;
+
 
     /**
      * Creates a new LdapMessageContainer object. We will store ten grammars,
@@ -119,6 +125,10 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
         setGrammar( LdapMessageGrammar.getInstance() );
         this.binaryAttributeDetector = binaryAttributeDetector;
         setTransition( LdapStatesEnum.START_STATE );
+
+        // The LDAP actions consume the values immediately, we don't need
+        // a new TLV and a copy of the value for each decoded tag
+        setRecycling( true );
     }
 
 
@@ -162,6 +172,7 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
     {
         super.clean();
 
+        setGathering( false );
         messageId = -1;
         tlvId = -1;
         message = null;
@@ -246,6 +257,49 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
     }
 
 
+    /**
+     * @return <code>true</code> if the SearchResultEntry are decoded as {@link LazyEntry}
+     */
+    public boolean isLazyEntries()
+    {
+        return lazyEntries;
+    }
+
+
+    /**
+     * Tells the decoder to keep the attributes of the SearchResultEntry encoded in a
+     * {@link LazyEntry}, until they are read.
+     *
+     * @param lazyEntries <code>true</code> to decode the SearchResultEntry lazily
+     */
+    public void setLazyEntries( boolean lazyEntries )
+    {
+        this.lazyEntries = lazyEntries;
+    }
+
+
+    /**
+     * @return <code>true</code> if the complete PDUs are first given to the {@link FastResponseDecoder}
+     */
+    public boolean isFastDecoding()
+    {
+        return fastDecoding;
+    }
+
+
+    /**
+     * Tells the decoder to use the {@link FastResponseDecoder} for the BindResponse, SearchResultEntry
+     * and SearchResultDone PDUs, instead of the grammar. This is only possible when the decoder
+     * works on complete PDUs.
+     *
+     * @param fastDecoding <code>true</code> to use the FastResponseDecoder when possible
+     */
+    public void setFastDecoding( boolean fastDecoding )
+    {
+        this.fastDecoding = fastDecoding;
+    }
+
+
     /**
      * @return the ldapResult
      */
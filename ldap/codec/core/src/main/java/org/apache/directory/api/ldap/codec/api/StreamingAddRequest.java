@@ -0,0 +1,171 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+
+
+/**
+ * An AddRequest which carries, on top of its entry, some values which are not held
+ * in memory as {@link org.apache.directory.api.ldap.model.entry.Value}s : they are read
+ * from a {@link ByteBuffer} or from an {@link InputStream} when the request is
+ * written, chunk by chunk. This is meant for the multi-megabytes values, like photos,
+ * certificates or CRLs.
+ * <br>
+ * The streamed values are added to the entry's attribute with the same name, after its
+ * own values, or in a new attribute at the end of the entry. The request is written
+ * in bounded memory by the {@link AddRequestStreamingFilter}.
+ * <br>
+ * Unless the filter has been given an executor, the chunks are read by the IoProcessor
+ * thread, once the previous one has been sent : a slow InputStream then delays all the
+ * sessions served by that thread. Such values should be read from a local file or from
+ * memory, or the filter given an executor.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class StreamingAddRequest extends AddRequestImpl
+{
+    static final long serialVersionUID = 1L;
+
+    /** The streamed values, in the order they have been added */
+    private final List<StreamedValue> streamedValues = new ArrayList<>();
+
+
+    /**
+     * Creates a new instance of StreamingAddRequest.
+     */
+    public StreamingAddRequest()
+    {
+        super();
+    }
+
+
+    /**
+     * Adds a value read from a buffer, from its position to its limit. The buffer
+     * position is not modified.
+     *
+     * @param attributeType The attribute the value belongs to
+     * @param value The buffer containing the value
+     * @return This StreamingAddRequest instance
+     */
+    public StreamingAddRequest addValue( String attributeType, ByteBuffer value )
+    {
+        streamedValues.add( new StreamedValue( attributeType, value, null, value.remaining() ) );
+
+        return this;
+    }
+
+
+    /**
+     * Adds a value read from a stream. The stream must contain at least <code>length</code>
+     * bytes, it will be read when the request is written, but it won't be closed.
+     *
+     * @param attributeType The attribute the value belongs to
+     * @param value The stream containing the value
+     * @param length The value's length
+     * @return This StreamingAddRequest instance
+     */
+    public StreamingAddRequest addValue( String attributeType, InputStream value, int length )
+    {
+        streamedValues.add( new StreamedValue( attributeType, null, value, length ) );
+
+        return this;
+    }
+
+
+    /**
+     * @return The streamed values, in the order they have been added
+     */
+    public List<StreamedValue> getStreamedValues()
+    {
+        return Collections.unmodifiableList( streamedValues );
+    }
+
+
+    /**
+     * A value streamed from a buffer or an InputStream
+     */
+    public static final class StreamedValue
+    {
+        /** The attribute the value belongs to */
+        private final String attributeType;
+
+        /** The buffer containing the value, if it's not read from a stream */
+        private final ByteBuffer buffer;
+
+        /** The stream containing the value, if it's not read from a buffer */
+        private final InputStream stream;
+
+        /** The value's length */
+        private final int length;
+
+
+        private StreamedValue( String attributeType, ByteBuffer buffer, InputStream stream, int length )
+        {
+            this.attributeType = attributeType;
+            this.buffer = buffer;
+            this.stream = stream;
+            this.length = length;
+        }
+
+
+        /**
+         * @return The attribute the value belongs to
+         */
+        public String getAttributeType()
+        {
+            return attributeType;
+        }
+
+
+        /**
+         * @return The buffer containing the value, or null if it's read from a stream
+         */
+        public ByteBuffer getBuffer()
+        {
+            return buffer;
+        }
+
+
+        /**
+         * @return The stream containing the value, or null if it's read from a buffer
+         */
+        public InputStream getStream()
+        {
+            return stream;
+        }
+
+
+        /**
+         * @return The value's length
+         */
+        public int getLength()
+        {
+            return length;
+        }
+    }
+}
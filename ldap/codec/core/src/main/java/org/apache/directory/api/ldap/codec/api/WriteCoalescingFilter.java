@@ -0,0 +1,475 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.future.DefaultWriteFuture;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.DefaultWriteRequest;
+import org.apache.mina.core.write.WriteRequest;
+import org.apache.mina.core.write.WriteToClosedSessionException;
+
+
+/**
+ * An {@link IoFilterAdapter} coalescing the encoded PDUs written in a burst into
+ * a single buffer, so that they are sent with one system call (and one TLS record
+ * when the SslFilter is used). It must be placed between the codec filter and the
+ * SSL filter.
+ * <br>
+ * The first PDU written starts a batch, which is flushed when it reaches the 
+ * maximum batch size, or when the maximum delay has elapsed. The futures of the
+ * coalesced write requests are completed when the batch has been written.
+ * <br>
+ * The delayed flushes are run by the given scheduler. When none is given, the filter
+ * starts its own thread, which is stopped when the last session using the filter
+ * is closed.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class WriteCoalescingFilter extends IoFilterAdapter
+{
+    /** The session attribute holding the pending batch */
+    private static final String BATCH = WriteCoalescingFilter.class.getName() + ".Batch";
+
+    /** The maximum number of bytes in a batch */
+    private final int maxBatchSize;
+
+    /** The maximum time a PDU waits in a batch, in microseconds */
+    private final long maxDelay;
+
+    /** The scheduler running the delayed flushes */
+    private volatile ScheduledExecutorService scheduler;
+
+    /** Tells if the scheduler is created by this filter, which has to shut it down */
+    private final boolean ownScheduler;
+
+    /** The lock protecting the scheduler creation and shutdown */
+    private final ReentrantLock schedulerLock = new ReentrantLock();
+
+    /** The number of sessions having a batch, guarded by the scheduler lock */
+    private int sessions;
+
+
+    /**
+     * Creates a new instance of WriteCoalescingFilter, running the delayed flushes
+     * in its own thread.
+     *
+     * @param maxBatchSize The number of bytes above which a batch is flushed
+     * @param maxDelay The maximum time a PDU waits in a batch, in microseconds
+     */
+    public WriteCoalescingFilter( int maxBatchSize, long maxDelay )
+    {
+        this( maxBatchSize, maxDelay, null );
+    }
+
+
+    /**
+     * Creates a new instance of WriteCoalescingFilter.
+     *
+     * @param maxBatchSize The number of bytes above which a batch is flushed
+     * @param maxDelay The maximum time a PDU waits in a batch, in microseconds
+     * @param scheduler The scheduler running the delayed flushes, or <tt>null</tt> to
+     * run them in a thread owned by the filter. A given scheduler is never shut down
+     * by the filter.
+     */
+    public WriteCoalescingFilter( int maxBatchSize, long maxDelay, ScheduledExecutorService scheduler )
+    {
+        if ( ( maxBatchSize <= 0 ) || ( maxDelay <= 0 ) )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_05207_INVALID_WRITE_BATCH, maxBatchSize, maxDelay ) );
+        }
+
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.scheduler = scheduler;
+        this.ownScheduler = scheduler == null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void filterWrite( NextFilter nextFilter, IoSession session, WriteRequest writeRequest )
+    {
+        if ( !( writeRequest.getMessage() instanceof IoBuffer ) )
+        {
+            nextFilter.filterWrite( session, writeRequest );
+
+            return;
+        }
+
+        Batch batch = ( Batch ) session.getAttribute( BATCH );
+
+        if ( batch == null )
+        {
+            batch = new Batch( nextFilter, session );
+            Batch existing = ( Batch ) session.setAttributeIfAbsent( BATCH, batch );
+
+            if ( existing != null )
+            {
+                batch = existing;
+            }
+            else
+            {
+                batchCreated();
+            }
+        }
+
+        batch.add( writeRequest );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The batch is sent as one write request : we propagate the messageSent event
+     * of each coalesced request instead.
+     */
+    @Override
+    public void messageSent( NextFilter nextFilter, IoSession session, WriteRequest writeRequest )
+    {
+        if ( writeRequest instanceof CoalescedWriteRequest )
+        {
+            for ( WriteRequest coalesced : ( ( CoalescedWriteRequest ) writeRequest ).coalesced )
+            {
+                coalesced.getFuture().setWritten();
+                nextFilter.messageSent( session, coalesced );
+            }
+        }
+        else
+        {
+            nextFilter.messageSent( session, writeRequest );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The pending batch is flushed before the session gets closed.
+     */
+    @Override
+    public void filterClose( NextFilter nextFilter, IoSession session ) throws Exception
+    {
+        Batch batch = ( Batch ) session.getAttribute( BATCH );
+
+        if ( batch != null )
+        {
+            batch.flush();
+        }
+
+        nextFilter.filterClose( session );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The requests still pending will never be written.
+     */
+    @Override
+    public void sessionClosed( NextFilter nextFilter, IoSession session ) throws Exception
+    {
+        Batch batch = ( Batch ) session.removeAttribute( BATCH );
+
+        if ( batch != null )
+        {
+            batch.discard();
+            batchRemoved();
+        }
+
+        nextFilter.sessionClosed( session );
+    }
+
+
+    /**
+     * Starts the scheduler thread if the filter owns it and no session uses it yet
+     */
+    private void batchCreated()
+    {
+        schedulerLock.lock();
+
+        try
+        {
+            sessions++;
+
+            if ( ownScheduler && ( scheduler == null ) )
+            {
+                scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> 
+                {
+                    Thread thread = new Thread( runnable, "WriteCoalescingFilter" );
+                    thread.setDaemon( true );
+
+                    return thread;
+                } );
+            }
+        }
+        finally
+        {
+            schedulerLock.unlock();
+        }
+    }
+
+
+    /**
+     * Stops the scheduler thread if the filter owns it and the last session using it 
+     * has been closed
+     */
+    private void batchRemoved()
+    {
+        schedulerLock.lock();
+
+        try
+        {
+            sessions--;
+
+            if ( ownScheduler && ( sessions == 0 ) && ( scheduler != null ) )
+            {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+        finally
+        {
+            schedulerLock.unlock();
+        }
+    }
+
+
+    /**
+     * The write requests pending on a session
+     */
+    private final class Batch implements Runnable
+    {
+        /** The filter to send the batch to */
+        private final NextFilter nextFilter;
+
+        /** The session */
+        private final IoSession session;
+
+        /** The lock protecting the batch, so that the PDUs are sent in order */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** The pending write requests */
+        private List<WriteRequest> pending = new ArrayList<>();
+
+        /** The number of pending bytes */
+        private int size;
+
+        /** The flush scheduled when the batch has been started */
+        private ScheduledFuture<?> scheduledFlush;
+
+
+        private Batch( NextFilter nextFilter, IoSession session )
+        {
+            this.nextFilter = nextFilter;
+            this.session = session;
+        }
+
+
+        /**
+         * Adds a request to the batch, flushing it if it's full
+         */
+        private void add( WriteRequest writeRequest )
+        {
+            lock.lock();
+
+            try
+            {
+                pending.add( writeRequest );
+                size += ( ( IoBuffer ) writeRequest.getMessage() ).remaining();
+
+                if ( size >= maxBatchSize )
+                {
+                    flush();
+                }
+                else if ( scheduledFlush == null )
+                {
+                    schedule();
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * Schedules the flush of the batch. If the scheduler is not available anymore
+         * (the session has been closed), the batch is flushed immediately.
+         */
+        private void schedule()
+        {
+            ScheduledExecutorService current = scheduler;
+
+            if ( current != null )
+            {
+                try
+                {
+                    scheduledFlush = current.schedule( this, maxDelay, TimeUnit.MICROSECONDS );
+
+                    return;
+                }
+                catch ( RejectedExecutionException ree )
+                {
+                    // Fall through
+                }
+            }
+
+            flush();
+        }
+
+
+        /**
+         * The scheduled flush
+         */
+        @Override
+        public void run()
+        {
+            flush();
+        }
+
+
+        /**
+         * Sends the pending requests as one buffer
+         */
+        private void flush()
+        {
+            lock.lock();
+
+            try
+            {
+                if ( scheduledFlush != null )
+                {
+                    scheduledFlush.cancel( false );
+                    scheduledFlush = null;
+                }
+
+                if ( pending.isEmpty() )
+                {
+                    return;
+                }
+
+                if ( pending.size() == 1 )
+                {
+                    nextFilter.filterWrite( session, pending.get( 0 ) );
+                }
+                else
+                {
+                    IoBuffer buffer = IoBuffer.allocate( size, false );
+
+                    for ( WriteRequest writeRequest : pending )
+                    {
+                        buffer.put( ( IoBuffer ) writeRequest.getMessage() );
+                    }
+
+                    buffer.flip();
+                    nextFilter.filterWrite( session, new CoalescedWriteRequest( buffer, session, pending ) );
+                }
+
+                pending = new ArrayList<>();
+                size = 0;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * Fails the pending requests
+         */
+        private void discard()
+        {
+            lock.lock();
+
+            try
+            {
+                if ( scheduledFlush != null )
+                {
+                    scheduledFlush.cancel( false );
+                    scheduledFlush = null;
+                }
+
+                if ( !pending.isEmpty() )
+                {
+                    WriteToClosedSessionException cause = new WriteToClosedSessionException( pending );
+
+                    for ( WriteRequest writeRequest : pending )
+                    {
+                        writeRequest.getFuture().setException( cause );
+                    }
+
+                    pending = new ArrayList<>();
+                    size = 0;
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * A write request carrying many coalesced requests
+     */
+    private static final class CoalescedWriteRequest extends DefaultWriteRequest
+    {
+        /** The coalesced requests */
+        private final List<WriteRequest> coalesced;
+
+
+        private CoalescedWriteRequest( IoBuffer buffer, IoSession session, List<WriteRequest> coalesced )
+        {
+            super( buffer, new DefaultWriteFuture( session ) );
+            this.coalesced = coalesced;
+
+            // If the batch can't be written, none of the coalesced requests have been
+            getFuture().addListener( ( WriteFuture future ) -> 
+            {
+                if ( !future.isWritten() )
+                {
+                    for ( WriteRequest writeRequest : coalesced )
+                    {
+                        writeRequest.getFuture().setException( future.getException() );
+                    }
+                }
+            } );
+        }
+    }
+}
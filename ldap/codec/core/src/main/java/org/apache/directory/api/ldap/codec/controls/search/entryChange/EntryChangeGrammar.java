@@ -170,7 +170,7 @@ public final class EntryChangeGrammar extends AbstractGrammar<EntryChangeContain
 
                             try
                             {
-                                previousDn = new Dn( Strings.utf8ToString( value.getData() ) );
+                                previousDn = new Dn( value.getUtf8String() );
                             }
                             catch ( LdapInvalidDnException ine )
                             {
@@ -34,7 +34,6 @@ import org.apache.directory.api.asn1.ber.tlv.BooleanDecoderException;
 import org.apache.directory.api.asn1.ber.tlv.UniversalTag;
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.model.message.controls.SortKey;
-import org.apache.directory.api.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,7 +65,7 @@ public final class SortRequestGrammar extends AbstractGrammar<SortRequestContain
             {
                 BerValue value = container.getCurrentTLV().getValue();
 
-                String atDesc = Strings.utf8ToString( value.getData() );
+                String atDesc = value.getUtf8String();
 
                 if ( LOG.isDebugEnabled() )
                 {
@@ -139,7 +138,7 @@ public final class SortRequestGrammar extends AbstractGrammar<SortRequestContain
                     {
                         BerValue value = container.getCurrentTLV().getValue();
 
-                        String matchingRuleOid = Strings.utf8ToString( value.getData() );
+                        String matchingRuleOid = value.getUtf8String();
 
                         if ( LOG.isDebugEnabled() )
                         {
@@ -30,7 +30,6 @@ import org.apache.directory.api.asn1.ber.grammar.GrammarTransition;
 import org.apache.directory.api.asn1.ber.tlv.BerValue;
 import org.apache.directory.api.asn1.ber.tlv.UniversalTag;
 import org.apache.directory.api.i18n.I18n;
-import org.apache.directory.api.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,7 +77,7 @@ public final class SortResponseGrammar extends AbstractGrammar<SortResponseConta
                     {
                         BerValue value = container.getCurrentTLV().getValue();
 
-                        String atType = Strings.utf8ToString( value.getData() );
+                        String atType = value.getUtf8String();
 
                         if ( LOG.isDebugEnabled() )
                         {
@@ -21,7 +21,6 @@ package org.apache.directory.api.ldap.codec.osgi;
 
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -35,6 +34,7 @@ import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.BasicControlDecorator;
 import org.apache.directory.api.ldap.codec.api.ControlFactory;
 import org.apache.directory.api.ldap.codec.api.ExtendedOperationFactory;
+import org.apache.directory.api.ldap.codec.api.FactoryRegistry;
 import org.apache.directory.api.ldap.codec.api.IntermediateOperationFactory;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.controls.cascade.CascadeFactory;
@@ -78,20 +78,26 @@ public class DefaultLdapCodecService implements LdapApiService
     /** A logger */
     private static final Logger LOG = LoggerFactory.getLogger( DefaultLdapCodecService.class );
 
+    /*
+     * The factories are held in copy-on-write registries : they are read for every
+     * decoded control or extended operation, and only modified when a factory is
+     * registered.
+     */
+
     /** The map of registered request {@link ControlFactory}'s */
-    private Map<String, ControlFactory<? extends Control>> requestControlFactories = new HashMap<>();
+    private Map<String, ControlFactory<? extends Control>> requestControlFactories = new FactoryRegistry<>();
 
     /** The map of registered response {@link ControlFactory}'s */
-    private Map<String, ControlFactory<? extends Control>> responseControlFactories = new HashMap<>();
+    private Map<String, ControlFactory<? extends Control>> responseControlFactories = new FactoryRegistry<>();
 
     /** The map of registered {@link ExtendedOperationFactory}'s by request OID */
-    private Map<String, ExtendedOperationFactory> extendedRequestFactories = new HashMap<>();
+    private Map<String, ExtendedOperationFactory> extendedRequestFactories = new FactoryRegistry<>();
 
     /** The map of registered {@link ExtendedOperationFactory}'s by request OID */
-    private Map<String, ExtendedOperationFactory> extendedResponseFactories = new HashMap<>();
+    private Map<String, ExtendedOperationFactory> extendedResponseFactories = new FactoryRegistry<>();
 
     /** The map of registered {@link IntermediateOperationFactory}'s by request OID */
-    private Map<String, IntermediateOperationFactory> intermediateResponseFactories = new HashMap<>();
+    private Map<String, IntermediateOperationFactory> intermediateResponseFactories = new FactoryRegistry<>();
 
     /** The registered ProtocolCodecFactory */
     private ProtocolCodecFactory protocolCodecFactory;
@@ -627,20 +633,24 @@ public class DefaultLdapCodecService implements LdapApiService
 
 
     /**
+     * Replaces the registered factories with a copy of the given ones.
+     *
      * @param requestControlFactories the request controlFactories to set
      */
     public void setRequestControlFactories( Map<String, ControlFactory<? extends Control>> requestControlFactories )
     {
-        this.requestControlFactories = requestControlFactories;
+        this.requestControlFactories = new FactoryRegistry<>( requestControlFactories );
     }
 
 
     /**
+     * Replaces the registered factories with a copy of the given ones.
+     *
      * @param responseControlFactories the response controlFactories to set
      */
     public void setResponseControlFactories( Map<String, ControlFactory<? extends Control>> responseControlFactories )
     {
-        this.responseControlFactories = responseControlFactories;
+        this.responseControlFactories = new FactoryRegistry<>( responseControlFactories );
     }
 
 
@@ -673,29 +683,35 @@ public class DefaultLdapCodecService implements LdapApiService
 
 
     /**
+     * Replaces the registered factories with a copy of the given ones.
+     *
      * @param extendedOperationFactories the extendedOperationFactories to set
      */
     public void setExtendedRequestFactories( Map<String, ExtendedOperationFactory> extendedOperationFactories )
     {
-        this.extendedRequestFactories = extendedOperationFactories;
+        this.extendedRequestFactories = new FactoryRegistry<>( extendedOperationFactories );
     }
 
 
     /**
+     * Replaces the registered factories with a copy of the given ones.
+     *
      * @param extendedOperationFactories the extendedOperationFactories to set
      */
     public void setExtendedResponseFactories( Map<String, ExtendedOperationFactory> extendedOperationFactories )
     {
-        this.extendedResponseFactories = extendedOperationFactories;
+        this.extendedResponseFactories = new FactoryRegistry<>( extendedOperationFactories );
     }
 
 
     /**
+     * Replaces the registered factories with a copy of the given ones.
+     *
      * @param intermediateResponseFactories the intermediateResponseFactories to set
      */
     public void setIntermediateResponseFactories( Map<String, IntermediateOperationFactory> intermediateResponseFactories )
     {
-        this.intermediateResponseFactories = intermediateResponseFactories;
+        this.intermediateResponseFactories = new FactoryRegistry<>( intermediateResponseFactories );
     }
 
 
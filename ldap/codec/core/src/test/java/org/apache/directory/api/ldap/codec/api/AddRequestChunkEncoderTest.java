@@ -0,0 +1,187 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.model.entry.DefaultAttribute;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the AddRequestChunkEncoder : it must produce the same PDU than the LdapEncoder.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AddRequestChunkEncoderTest
+{
+    private static LdapApiService codec;
+
+    private static byte[] photo;
+
+
+    @BeforeAll
+    public static void setup()
+    {
+        codec = LdapApiServiceFactory.getSingleton();
+        photo = new byte[200000];
+
+        for ( int i = 0; i < photo.length; i++ )
+        {
+            photo[i] = ( byte ) i;
+        }
+    }
+
+
+    private static byte[] encode( AddRequest addRequest, int chunkSize ) throws Exception
+    {
+        AddRequestChunkEncoder encoder = new AddRequestChunkEncoder( codec, addRequest, chunkSize );
+        ByteArrayOutputStream pdu = new ByteArrayOutputStream();
+
+        for ( ByteBuffer chunk = encoder.next(); chunk != null; chunk = encoder.next() )
+        {
+            assertTrue( chunk.remaining() <= chunkSize );
+            assertTrue( chunk.hasRemaining() );
+
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get( bytes );
+            pdu.write( bytes );
+        }
+
+        assertEquals( encoder.getPduLength(), pdu.size() );
+
+        return pdu.toByteArray();
+    }
+
+
+    private static AddRequest decode( byte[] pdu ) throws Exception
+    {
+        LdapMessageContainer<AddRequest> container = new LdapMessageContainer<>( codec );
+        Asn1Decoder.decode( ByteBuffer.wrap( pdu ), container );
+
+        return container.getMessage();
+    }
+
+
+    @Test
+    public void testSameAsLdapEncoder() throws Exception
+    {
+        Entry entry = new DefaultEntry( "uid=jdoe,ou=people,dc=example,dc=com",
+            "objectClass: top",
+            "objectClass: person",
+            "objectClass: inetOrgPerson",
+            "cn: John Doe",
+            "sn: Doe",
+            "jpegPhoto", photo );
+        entry.add( new DefaultAttribute( "description" ) );
+
+        AddRequest addRequest = new AddRequestImpl();
+        addRequest.setMessageId( 300 );
+        addRequest.setEntry( entry );
+
+        ByteBuffer expected = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, addRequest );
+        byte[] expectedBytes = new byte[expected.remaining()];
+        expected.get( expectedBytes );
+
+        for ( int chunkSize : new int[] { 1, 100, 4096, 65536, 1000000 } )
+        {
+            assertArrayEquals( expectedBytes, encode( addRequest, chunkSize ) );
+        }
+    }
+
+
+    @Test
+    public void testStreamedValues() throws Exception
+    {
+        byte[] certificate = new byte[5000];
+        certificate[0] = 0x30;
+
+        StreamingAddRequest addRequest = new StreamingAddRequest();
+        addRequest.setMessageId( 2 );
+        addRequest.setEntry( new DefaultEntry( "uid=jdoe,ou=people,dc=example,dc=com",
+            "objectClass: person",
+            "cn: John Doe",
+            "sn: Doe" ) );
+        addRequest.addValue( "jpegPhoto", new ByteArrayInputStream( photo ), photo.length );
+        addRequest.addValue( "cn", ByteBuffer.wrap( "Johnny".getBytes( "UTF-8" ) ) );
+        addRequest.addValue( "userCertificate", ByteBuffer.wrap( certificate ) );
+        addRequest.addValue( "JPEGPhoto", new ByteArrayInputStream( new byte[] { 1, 2, 3 } ), 3 );
+
+        AddRequest decoded = decode( encode( addRequest, 4096 ) );
+
+        Entry expected = new DefaultEntry( "uid=jdoe,ou=people,dc=example,dc=com",
+            "objectClass: person",
+            "cn: John Doe",
+            "cn: Johnny",
+            "sn: Doe",
+            "jpegPhoto", photo,
+            "jpegPhoto", new byte[] { 1, 2, 3 },
+            "userCertificate", certificate );
+
+        assertEquals( 2, decoded.getMessageId() );
+        assertEquals( expected, decoded.getEntry() );
+
+        // The buffers have not been consumed
+        assertEquals( 5000, addRequest.getStreamedValues().get( 2 ).getBuffer().remaining() );
+    }
+
+
+    @Test
+    public void testStreamTooShort() throws Exception
+    {
+        StreamingAddRequest addRequest = new StreamingAddRequest();
+        addRequest.setEntry( new DefaultEntry( "cn=test", "objectClass: person" ) );
+        addRequest.addValue( "jpegPhoto", new ByteArrayInputStream( new byte[10] ), 20 );
+
+        assertThrows( IOException.class, () -> encode( addRequest, 4096 ) );
+    }
+
+
+    @Test
+    public void testIsStreamable() throws Exception
+    {
+        AddRequest addRequest = new AddRequestImpl();
+        addRequest.setEntry( new DefaultEntry( "cn=test", "objectClass: person", "jpegPhoto", photo ) );
+
+        assertTrue( AddRequestChunkEncoder.isStreamable( addRequest, photo.length ) );
+        assertFalse( AddRequestChunkEncoder.isStreamable( addRequest, photo.length + 1 ) );
+        assertFalse( AddRequestChunkEncoder.isStreamable( addRequest, 0 ) );
+        assertTrue( AddRequestChunkEncoder.isStreamable( new StreamingAddRequest(), 0 ) );
+        assertFalse( AddRequestChunkEncoder.isStreamable( new SearchRequestImpl(), 1 ) );
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.future.DefaultWriteFuture;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.DefaultWriteRequest;
+import org.apache.mina.core.write.WriteRequest;
+import org.apache.mina.core.write.WriteToClosedSessionException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+
+/**
+ * Tests the AddRequestStreamingFilter
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@Execution(ExecutionMode.CONCURRENT)
+public class AddRequestStreamingFilterTest
+{
+    private static LdapApiService codec;
+
+    private static byte[] photo;
+
+    /** The write requests reaching the head of the chain */
+    private final List<WriteRequest> written = new CopyOnWriteArrayList<>();
+
+
+    @BeforeAll
+    public static void setup()
+    {
+        codec = LdapApiServiceFactory.getSingleton();
+        photo = new byte[100000];
+
+        for ( int i = 0; i < photo.length; i++ )
+        {
+            photo[i] = ( byte ) i;
+        }
+    }
+
+
+    private DummySession newSession( int threshold )
+    {
+        return newSession( threshold, null );
+    }
+
+
+    private DummySession newSession( int threshold, Executor executor )
+    {
+        DummySession session = new DummySession();
+        session.getFilterChain().addFirst( "recorder", new IoFilterAdapter()
+        {
+            @Override
+            public void filterWrite( NextFilter nextFilter, IoSession session, WriteRequest writeRequest )
+            {
+                written.add( writeRequest );
+            }
+        } );
+        session.getFilterChain().addLast( "streaming", new AddRequestStreamingFilter( codec, threshold, 4096, executor ) );
+
+        return session;
+    }
+
+
+    private WriteRequest write( DummySession session, Object message )
+    {
+        WriteRequest writeRequest = new DefaultWriteRequest( message, new DefaultWriteFuture( session ) );
+        session.getFilterChain().fireFilterWrite( writeRequest );
+
+        return writeRequest;
+    }
+
+
+    /**
+     * Sends the written chunks, one at a time, as the IoProcessor would do
+     */
+    private byte[] send( DummySession session, int first )
+    {
+        ByteArrayOutputStream pdu = new ByteArrayOutputStream();
+
+        for ( int i = first; i < written.size(); i++ )
+        {
+            // Only one chunk is written at a time
+            assertEquals( i + 1, written.size() );
+
+            WriteRequest chunk = written.get( i );
+
+            if ( !( chunk.getMessage() instanceof IoBuffer ) || ( ( IoBuffer ) chunk.getMessage() ).capacity() == 1 )
+            {
+                break;
+            }
+
+            IoBuffer buffer = ( IoBuffer ) chunk.getMessage();
+            assertTrue( buffer.remaining() <= 4096 );
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get( bytes );
+            pdu.write( bytes, 0, bytes.length );
+
+            session.getFilterChain().fireMessageSent( chunk );
+        }
+
+        return pdu.toByteArray();
+    }
+
+
+    private static AddRequest decode( byte[] pdu ) throws Exception
+    {
+        LdapMessageContainer<AddRequest> container = new LdapMessageContainer<>( codec );
+        Asn1Decoder.decode( ByteBuffer.wrap( pdu ), container );
+
+        return container.getMessage();
+    }
+
+
+    @Test
+    public void testStreamingAddRequest() throws Exception
+    {
+        DummySession session = newSession( 0 );
+
+        StreamingAddRequest addRequest = new StreamingAddRequest();
+        addRequest.setMessageId( 1 );
+        addRequest.setEntry( new DefaultEntry( "cn=test", "objectClass: person", "cn: test", "sn: test" ) );
+        addRequest.addValue( "jpegPhoto", new ByteArrayInputStream( photo ), photo.length );
+
+        WriteRequest addWrite = write( session, addRequest );
+        assertEquals( 1, written.size() );
+
+        // Written while the AddRequest is streamed : it waits
+        WriteRequest other = write( session, IoBuffer.allocate( 1 ) );
+        assertEquals( 1, written.size() );
+
+        AddRequest decoded = decode( send( session, 0 ) );
+
+        assertEquals( new DefaultEntry( "cn=test", "objectClass: person", "cn: test", "sn: test", "jpegPhoto", photo ),
+            decoded.getEntry() );
+        assertTrue( addWrite.getFuture().isWritten() );
+
+        // The waiting request has been written after the last chunk
+        assertSame( other, written.get( written.size() - 1 ) );
+    }
+
+
+    @Test
+    public void testThreshold() throws Exception
+    {
+        DummySession session = newSession( 50000 );
+
+        AddRequest small = new AddRequestImpl();
+        small.setEntry( new DefaultEntry( "cn=test", "objectClass: person", "cn: test", "sn: test" ) );
+
+        // Not streamed
+        write( session, small );
+        assertEquals( 1, written.size() );
+        assertSame( small, written.get( 0 ).getMessage() );
+
+        AddRequest big = new AddRequestImpl();
+        big.setMessageId( 2 );
+        big.setEntry( new DefaultEntry( "cn=test", "objectClass: person", "cn: test", "sn: test",
+            "jpegPhoto", photo ) );
+
+        write( session, big );
+        assertEquals( big.getEntry(), decode( send( session, 1 ) ).getEntry() );
+        assertTrue( written.size() > 25 );
+    }
+
+
+    @Test
+    public void testPendingWritesFailOnClose() throws Exception
+    {
+        DummySession session = newSession( 0 );
+
+        StreamingAddRequest addRequest = new StreamingAddRequest();
+        addRequest.setEntry( new DefaultEntry( "cn=test", "objectClass: person" ) );
+        addRequest.addValue( "jpegPhoto", ByteBuffer.wrap( photo ) );
+
+        WriteRequest addWrite = write( session, addRequest );
+        WriteRequest other = write( session, IoBuffer.allocate( 1 ) );
+
+        session.getFilterChain().fireSessionClosed();
+
+        assertFalse( addWrite.getFuture().isWritten() );
+        assertTrue( addWrite.getFuture().getException() instanceof WriteToClosedSessionException );
+        assertTrue( other.getFuture().getException() instanceof WriteToClosedSessionException );
+    }
+
+
+    @Test
+    public void testPendingWritesFailOnChunkFailure() throws Exception
+    {
+        DummySession session = newSession( 0 );
+
+        // A stream failing after the first chunk
+        InputStream failing = new InputStream()
+        {
+            private int read;
+
+
+            @Override
+            public int read() throws IOException
+            {
+                if ( read++ >= 5000 )
+                {
+                    throw new IOException( "Broken stream" );
+                }
+
+                return 0;
+            }
+        };
+
+        StreamingAddRequest addRequest = new StreamingAddRequest();
+        addRequest.setEntry( new DefaultEntry( "cn=test", "objectClass: person" ) );
+        addRequest.addValue( "jpegPhoto", failing, photo.length );
+
+        WriteRequest addWrite = write( session, addRequest );
+        WriteRequest other = write( session, IoBuffer.allocate( 1 ) );
+        send( session, 0 );
+
+        assertTrue( addWrite.getFuture().getException() instanceof IOException );
+        assertTrue( other.getFuture().getException() instanceof IOException );
+
+        // The PDU is truncated : the session is closed, so no request can overtake the failed ones
+        assertFalse( written.contains( other ) );
+        assertTrue( session.isClosing() );
+    }
+
+
+    @Test
+    public void testExecutor() throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try
+        {
+            DummySession session = newSession( 0, executor );
+
+            StreamingAddRequest addRequest = new StreamingAddRequest();
+            addRequest.setMessageId( 1 );
+            addRequest.setEntry( new DefaultEntry( "cn=test", "objectClass: person", "cn: test", "sn: test" ) );
+            addRequest.addValue( "jpegPhoto", new ByteArrayInputStream( photo ), photo.length );
+
+            WriteRequest addWrite = write( session, addRequest );
+            ByteArrayOutputStream pdu = new ByteArrayOutputStream();
+
+            // The chunks following the first one are read by the executor
+            for ( int i = 0; !addWrite.getFuture().isWritten(); i++ )
+            {
+                long deadline = System.currentTimeMillis() + 10000L;
+
+                while ( ( written.size() <= i ) && !addWrite.getFuture().isWritten() 
+                    && ( System.currentTimeMillis() < deadline ) )
+                {
+                    Thread.sleep( 1L );
+                }
+
+                if ( written.size() <= i )
+                {
+                    break;
+                }
+
+                IoBuffer buffer = ( IoBuffer ) written.get( i ).getMessage();
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get( bytes );
+                pdu.write( bytes, 0, bytes.length );
+
+                session.getFilterChain().fireMessageSent( written.get( i ) );
+            }
+
+            executor.shutdown();
+            assertTrue( executor.awaitTermination( 10, TimeUnit.SECONDS ) );
+            assertTrue( addWrite.getFuture().isWritten() );
+            assertEquals( new DefaultEntry( "cn=test", "objectClass: person", "cn: test", "sn: test", "jpegPhoto", 
+                photo ), decode( pdu.toByteArray() ).getEntry() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    @Test
+    public void testInvalidSizes()
+    {
+        assertThrows( IllegalArgumentException.class, () -> new AddRequestStreamingFilter( codec, -1, 4096 ) );
+        assertThrows( IllegalArgumentException.class, () -> new AddRequestStreamingFilter( codec, 0, 0 ) );
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.directory.api.util.Strings;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the FactoryRegistry.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class FactoryRegistryTest
+{
+    @Test
+    public void testLookupByBytes()
+    {
+        FactoryRegistry<String> registry = new FactoryRegistry<>();
+        registry.put( "1.2.840.113556.1.4.319", "pagedResults" );
+        registry.put( "1.2.840.113556.1.4.3", "prefix" );
+        registry.put( "2.16.840.1.113730.3.4.2", "manageDsaIt" );
+
+        assertEquals( "pagedResults", registry.get( Strings.getBytesUtf8( "1.2.840.113556.1.4.319" ) ) );
+        assertEquals( "prefix", registry.get( Strings.getBytesUtf8( "1.2.840.113556.1.4.3" ) ) );
+        assertEquals( "manageDsaIt", registry.get( Strings.getBytesUtf8( "2.16.840.1.113730.3.4.2" ) ) );
+
+        // Prefixes, extensions and unknown OIDs
+        assertNull( registry.get( Strings.getBytesUtf8( "1.2.840.113556.1.4" ) ) );
+        assertNull( registry.get( Strings.getBytesUtf8( "1.2.840.113556.1.4.3190" ) ) );
+        assertNull( registry.get( Strings.getBytesUtf8( "1.3.6.1.4.1.4203.1.9.1.1" ) ) );
+        assertNull( registry.get( Strings.EMPTY_BYTES ) );
+        assertNull( registry.get( Strings.getBytesUtf8( "1.2.x" ) ) );
+    }
+
+
+    @Test
+    public void testNonOidKey()
+    {
+        FactoryRegistry<String> registry = new FactoryRegistry<>();
+        registry.put( "pagedResults", "name" );
+
+        assertEquals( "name", registry.get( "pagedResults" ) );
+        assertEquals( "name", registry.get( Strings.getBytesUtf8( "pagedResults" ) ) );
+    }
+
+
+    @Test
+    public void testRegistration()
+    {
+        FactoryRegistry<String> registry = new FactoryRegistry<>();
+
+        assertNull( registry.put( "1.2.3", "first" ) );
+        assertEquals( "first", registry.put( "1.2.3", "second" ) );
+        assertEquals( "second", registry.get( Strings.getBytesUtf8( "1.2.3" ) ) );
+        assertTrue( registry.containsKey( "1.2.3" ) );
+        assertEquals( 1, registry.size() );
+
+        assertEquals( "second", registry.remove( "1.2.3" ) );
+        assertNull( registry.remove( "1.2.3" ) );
+        assertNull( registry.get( Strings.getBytesUtf8( "1.2.3" ) ) );
+        assertFalse( registry.containsKey( "1.2.3" ) );
+        assertTrue( registry.isEmpty() );
+    }
+
+
+    @Test
+    public void testSnapshotIteration()
+    {
+        Map<String, String> factories = new HashMap<>();
+        factories.put( "1.2.3", "a" );
+        factories.put( "1.2.4", "b" );
+        FactoryRegistry<String> registry = new FactoryRegistry<>( factories );
+
+        // Registering while iterating must not fail : the iterator works on a snapshot
+        Iterator<String> oids = registry.keySet().iterator();
+        registry.put( "1.2.5", "c" );
+        int count = 0;
+
+        while ( oids.hasNext() )
+        {
+            registry.remove( oids.next() );
+            count++;
+        }
+
+        assertEquals( 2, count );
+        assertEquals( 1, registry.size() );
+        assertEquals( "c", registry.get( Strings.getBytesUtf8( "1.2.5" ) ) );
+    }
+
+
+    @Test
+    public void testStaticLookup()
+    {
+        Map<String, String> factories = new HashMap<>();
+        factories.put( "1.2.3", "a" );
+
+        assertEquals( "a", FactoryRegistry.get( factories, Strings.getBytesUtf8( "1.2.3" ) ) );
+        assertSame( "a", FactoryRegistry.get( new FactoryRegistry<>( factories ), Strings.getBytesUtf8( "1.2.3" ) ) );
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.AddResponseImpl;
+import org.apache.directory.api.ldap.model.message.BindResponse;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.Referral;
+import org.apache.directory.api.ldap.model.message.ReferralImpl;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.controls.ManageDsaIT;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.util.Strings;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the FastResponseDecoder : it must produce the same messages than the grammar.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class FastResponseDecoderTest
+{
+    private static LdapApiService codec;
+
+
+    @BeforeAll
+    public static void setup()
+    {
+        codec = LdapApiServiceFactory.getSingleton();
+    }
+
+
+    private static ByteBuffer encode( Message message ) throws Exception
+    {
+        ByteBuffer encoded = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, message );
+        ByteBuffer pdu = ByteBuffer.allocate( encoded.remaining() );
+        pdu.put( encoded );
+        pdu.flip();
+
+        return pdu;
+    }
+
+
+    private static Message decodeWithGrammar( ByteBuffer pdu ) throws Exception
+    {
+        LdapMessageContainer<Message> container = new LdapMessageContainer<>( codec );
+        Asn1Decoder.decode( pdu.duplicate(), container );
+
+        return container.getMessage();
+    }
+
+
+    /**
+     * Decodes a PDU with the FastResponseDecoder and the grammar, and checks that they agree
+     */
+    private static Message decode( Message message ) throws Exception
+    {
+        ByteBuffer pdu = encode( message );
+        Message decoded = FastResponseDecoder.decode( pdu, new LdapMessageContainer<>( codec ) );
+
+        assertNotNull( decoded );
+        assertEquals( 0, pdu.position() );
+        assertEquals( decodeWithGrammar( pdu ), decoded );
+        assertEquals( decodeWithGrammar( pdu ).toString(), decoded.toString() );
+
+        return decoded;
+    }
+
+
+    @Test
+    public void testBindResponse() throws Exception
+    {
+        BindResponseImpl bindResponse = new BindResponseImpl( 1 );
+        bindResponse.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+
+        decode( bindResponse );
+
+        bindResponse = new BindResponseImpl( Integer.MAX_VALUE );
+        bindResponse.getLdapResult().setResultCode( ResultCodeEnum.SASL_BIND_IN_PROGRESS );
+        bindResponse.getLdapResult().setDiagnosticMessage( "continue" );
+        bindResponse.setServerSaslCreds( new byte[] { 0x01, 0x02, 0x03 } );
+
+        BindResponse decoded = ( BindResponse ) decode( bindResponse );
+
+        assertEquals( Integer.MAX_VALUE, decoded.getMessageId() );
+        assertArrayEquals( new byte[] { 0x01, 0x02, 0x03 }, decoded.getServerSaslCreds() );
+        assertEquals( "continue", decoded.getLdapResult().getDiagnosticMessage() );
+    }
+
+
+    @Test
+    public void testSearchResultDone() throws Exception
+    {
+        SearchResultDoneImpl searchResultDone = new SearchResultDoneImpl( 300 );
+        searchResultDone.getLdapResult().setResultCode( ResultCodeEnum.NO_SUCH_OBJECT );
+        searchResultDone.getLdapResult().setMatchedDn( new Dn( "dc=example,dc=com" ) );
+        searchResultDone.getLdapResult().setDiagnosticMessage( "No such object" );
+
+        SearchResultDone decoded = ( SearchResultDone ) decode( searchResultDone );
+
+        assertEquals( "dc=example,dc=com", decoded.getLdapResult().getMatchedDn().getName() );
+
+        // A referral
+        searchResultDone = new SearchResultDoneImpl( 3 );
+        searchResultDone.getLdapResult().setResultCode( ResultCodeEnum.REFERRAL );
+        Referral referral = new ReferralImpl();
+        referral.addLdapUrl( "ldap://server1/dc=example,dc=com" );
+        referral.addLdapUrl( "ldap://server2/dc=example,dc=com" );
+        searchResultDone.getLdapResult().setReferral( referral );
+
+        decoded = ( SearchResultDone ) decode( searchResultDone );
+
+        assertEquals( 2, decoded.getLdapResult().getReferral().getLdapUrls().size() );
+    }
+
+
+    @Test
+    public void testSearchResultEntry() throws Exception
+    {
+        SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl( 2 );
+        searchResultEntry.setEntry( new DefaultEntry( "uid=jdoe,ou=people,dc=example,dc=com",
+            "objectClass: top",
+            "objectClass: person",
+            "cn: John Doe",
+            "sn: Doe",
+            "description: ",
+            "jpegPhoto", new byte[] { 0x00, 0x01, ( byte ) 0xFF } ) );
+
+        SearchResultEntry decoded = ( SearchResultEntry ) decode( searchResultEntry );
+
+        assertEquals( "uid=jdoe,ou=people,dc=example,dc=com", decoded.getObjectName().getName() );
+        assertFalse( decoded.getEntry().get( "jpegPhoto" ).isHumanReadable() );
+        assertTrue( decoded.getEntry().get( "cn" ).isHumanReadable() );
+
+        // No attributes, and an empty Dn
+        decode( new SearchResultEntryImpl( 2 ) );
+    }
+
+
+    @Test
+    public void testLazySearchResultEntry() throws Exception
+    {
+        SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl( 2 );
+        searchResultEntry.setEntry( new DefaultEntry( "cn=test", "objectClass: person", "cn: test", "sn: test" ) );
+
+        LdapMessageContainer<Message> container = new LdapMessageContainer<>( codec );
+        container.setLazyEntries( true );
+
+        SearchResultEntry decoded = ( SearchResultEntry ) FastResponseDecoder.decode( encode( searchResultEntry ),
+            container );
+
+        assertTrue( decoded.getEntry() instanceof LazyEntry );
+        assertEquals( searchResultEntry.getEntry(), decoded.getEntry() );
+    }
+
+
+    @Test
+    public void testFallbackToGrammar() throws Exception
+    {
+        LdapMessageContainer<Message> container = new LdapMessageContainer<>( codec );
+
+        // Another operation
+        AddResponseImpl addResponse = new AddResponseImpl( 1 );
+        addResponse.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+
+        assertNull( FastResponseDecoder.decode( encode( addResponse ), container ) );
+
+        // A response with a control
+        ByteBuffer withControl = ByteBuffer.allocate( 0x2B );
+        withControl.put( new byte[]
+            {
+                0x30, 0x29,
+                  0x02, 0x01, 0x01,
+                  0x65, 0x07,
+                    0x0A, 0x01, 0x00,
+                    0x04, 0x00,
+                    0x04, 0x00,
+                  ( byte ) 0xA0, 0x19,
+                    0x30, 0x17,
+                      0x04, 0x15
+            } );
+        withControl.put( Strings.getBytesUtf8( ManageDsaIT.OID ) );
+        withControl.flip();
+
+        assertNull( FastResponseDecoder.decode( withControl, container ) );
+
+        // A truncated PDU
+        SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl( 2 );
+        searchResultEntry.setEntry( new DefaultEntry( "cn=test", "cn: test" ) );
+        ByteBuffer pdu = encode( searchResultEntry );
+        pdu.limit( pdu.limit() - 1 );
+
+        assertNull( FastResponseDecoder.decode( pdu, container ) );
+
+        // An invalid Dn
+        byte[] bytes = encode( searchResultEntry ).array();
+        bytes[9] = '?';
+
+        assertNull( FastResponseDecoder.decode( ByteBuffer.wrap( bytes ), container ) );
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.asn1.EncoderException;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.ProtocolDecoderException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the LdapDecodingFilter
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapDecodingFilterTest
+{
+    private static LdapApiService codec;
+
+    private static ExecutorService executor;
+
+
+    /**
+     * A handler storing the received messages and failures
+     */
+    private static final class CollectingHandler extends IoHandlerAdapter
+    {
+        private final List<Message> messages = new CopyOnWriteArrayList<>();
+
+        private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch closed = new CountDownLatch( 1 );
+
+        private volatile int receivedBeforeClose = -1;
+
+
+        @Override
+        public void messageReceived( IoSession session, Object message )
+        {
+            messages.add( ( Message ) message );
+        }
+
+
+        @Override
+        public void exceptionCaught( IoSession session, Throwable cause )
+        {
+            failures.add( cause );
+        }
+
+
+        @Override
+        public void sessionClosed( IoSession session )
+        {
+            receivedBeforeClose = messages.size() + failures.size();
+            closed.countDown();
+        }
+    }
+
+
+    @BeforeAll
+    public static void setup()
+    {
+        codec = LdapApiServiceFactory.getSingleton();
+        executor = Executors.newFixedThreadPool( 4 );
+    }
+
+
+    @AfterAll
+    public static void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+
+    private DummySession newSession( CollectingHandler handler )
+    {
+        return newSession( handler, executor );
+    }
+
+
+    private DummySession newSession( CollectingHandler handler, Executor decodingExecutor )
+    {
+        DummySession session = new DummySession();
+        session.setHandler( handler );
+        session.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR, new LdapMessageContainer<>( codec ) );
+        session.getFilterChain().addLast( "decoding", new LdapDecodingFilter( decodingExecutor, 3 ) );
+
+        return session;
+    }
+
+
+    private static ByteBuffer encode( Message message ) throws EncoderException
+    {
+        ByteBuffer encoded = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, message );
+        ByteBuffer pdu = ByteBuffer.allocate( encoded.remaining() );
+        pdu.put( encoded );
+        pdu.flip();
+
+        return pdu;
+    }
+
+
+    @Test
+    public void testGetMessageId() throws Exception
+    {
+        for ( int messageId : new int[] { 1, 127, 128, 70000, Integer.MAX_VALUE } )
+        {
+            SearchResultDoneImpl done = new SearchResultDoneImpl( messageId );
+            done.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+
+            assertEquals( messageId, LdapDecodingFilter.getMessageId( encode( done ) ) );
+        }
+
+        // A large PDU, with a long form length
+        SearchResultEntryImpl entry = new SearchResultEntryImpl( 300 );
+        entry.setEntry( new DefaultEntry( "cn=test", "cn", new byte[1000] ) );
+
+        assertEquals( 300, LdapDecodingFilter.getMessageId( encode( entry ) ) );
+
+        // Not a LDAP message
+        assertEquals( 0, LdapDecodingFilter.getMessageId( ByteBuffer.wrap( new byte[] { 0x30, 0x03, 0x04, 0x01, 0x00 } ) ) );
+    }
+
+
+    @Test
+    public void testOrderPerMessageId() throws Exception
+    {
+        CollectingHandler handler = new CollectingHandler();
+        DummySession session = newSession( handler );
+        int nbSearches = 8;
+        int nbEntries = 200;
+        List<ByteBuffer> pdus = new ArrayList<>();
+
+        // Interleave the responses of all the searches
+        for ( int i = 0; i <= nbEntries; i++ )
+        {
+            for ( int messageId = 1; messageId <= nbSearches; messageId++ )
+            {
+                if ( i < nbEntries )
+                {
+                    SearchResultEntryImpl entry = new SearchResultEntryImpl( messageId );
+                    entry.setEntry( new DefaultEntry( "cn=entry" + i, "objectClass: person", "cn: entry" + i ) );
+                    pdus.add( encode( entry ) );
+                }
+                else
+                {
+                    SearchResultDoneImpl done = new SearchResultDoneImpl( messageId );
+                    done.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+                    pdus.add( encode( done ) );
+                }
+            }
+        }
+
+        for ( ByteBuffer pdu : pdus )
+        {
+            session.getFilterChain().fireMessageReceived( pdu );
+        }
+
+        session.getFilterChain().fireSessionClosed();
+
+        assertTrue( handler.closed.await( 10, TimeUnit.SECONDS ) );
+
+        // The session closure has been forwarded once all the PDUs have been decoded
+        assertEquals( pdus.size(), handler.receivedBeforeClose );
+        assertTrue( handler.failures.isEmpty() );
+
+        int[] received = new int[nbSearches + 1];
+
+        for ( Message message : handler.messages )
+        {
+            int messageId = message.getMessageId();
+
+            if ( received[messageId] < nbEntries )
+            {
+                SearchResultEntry entry = ( SearchResultEntry ) message;
+                assertEquals( "cn=entry" + received[messageId], entry.getObjectName().getName() );
+            }
+            else
+            {
+                assertEquals( ResultCodeEnum.SUCCESS, ( ( SearchResultDone ) message ).getLdapResult().getResultCode() );
+            }
+
+            received[messageId]++;
+        }
+
+        for ( int messageId = 1; messageId <= nbSearches; messageId++ )
+        {
+            assertEquals( nbEntries + 1, received[messageId] );
+        }
+    }
+
+
+    @Test
+    public void testDecodingFailure() throws Exception
+    {
+        CollectingHandler handler = new CollectingHandler();
+        DummySession session = newSession( handler );
+
+        SearchResultDoneImpl done = new SearchResultDoneImpl( 5 );
+        done.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+        ByteBuffer pdu = encode( done );
+
+        // Drop the last byte
+        pdu.limit( pdu.limit() - 1 );
+        session.getFilterChain().fireMessageReceived( pdu );
+
+        // The lane is still usable
+        session.getFilterChain().fireMessageReceived( encode( done ) );
+        session.getFilterChain().fireSessionClosed();
+
+        assertTrue( handler.closed.await( 10, TimeUnit.SECONDS ) );
+        assertEquals( 1, handler.failures.size() );
+        assertTrue( handler.failures.get( 0 ) instanceof ProtocolDecoderException );
+        assertEquals( 1, handler.messages.size() );
+        assertEquals( 5, handler.messages.get( 0 ).getMessageId() );
+    }
+
+
+    @Test
+    public void testRejectedExecution() throws Exception
+    {
+        CollectingHandler handler = new CollectingHandler();
+        DummySession session = newSession( handler, command -> 
+        {
+            throw new RejectedExecutionException();
+        } );
+
+        SearchResultDoneImpl done = new SearchResultDoneImpl( 5 );
+        done.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+
+        // The PDU is dropped, and the failure forwarded
+        session.getFilterChain().fireMessageReceived( encode( done ) );
+
+        assertEquals( 1, handler.failures.size() );
+        assertTrue( handler.failures.get( 0 ) instanceof RejectedExecutionException );
+
+        // The session can still be closed
+        session.getFilterChain().fireSessionClosed();
+
+        assertTrue( handler.closed.await( 10, TimeUnit.SECONDS ) );
+        assertTrue( handler.messages.isEmpty() );
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.future.DefaultWriteFuture;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.DefaultWriteRequest;
+import org.apache.mina.core.write.WriteRequest;
+import org.apache.mina.core.write.WriteToClosedSessionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+
+/**
+ * Tests the WriteCoalescingFilter
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@Execution(ExecutionMode.CONCURRENT)
+public class WriteCoalescingFilterTest
+{
+    /** The write requests reaching the head of the chain */
+    private final List<WriteRequest> written = new CopyOnWriteArrayList<>();
+
+
+    private DummySession newSession( int maxBatchSize, long maxDelay )
+    {
+        return newSession( new WriteCoalescingFilter( maxBatchSize, maxDelay ) );
+    }
+
+
+    private DummySession newSession( WriteCoalescingFilter filter )
+    {
+        DummySession session = new DummySession();
+        session.getFilterChain().addFirst( "recorder", new IoFilterAdapter()
+        {
+            @Override
+            public void filterWrite( NextFilter nextFilter, IoSession session, WriteRequest writeRequest )
+            {
+                written.add( writeRequest );
+            }
+        } );
+        session.getFilterChain().addLast( "coalescing", filter );
+
+        return session;
+    }
+
+
+    private WriteRequest write( DummySession session, int length )
+    {
+        WriteRequest writeRequest = new DefaultWriteRequest( IoBuffer.allocate( length ), 
+            new DefaultWriteFuture( session ) );
+        session.getFilterChain().fireFilterWrite( writeRequest );
+
+        return writeRequest;
+    }
+
+
+    @Test
+    public void testFlushOnSize()
+    {
+        DummySession session = newSession( 1000, TimeUnit.SECONDS.toMicros( 10 ) );
+
+        WriteRequest request1 = write( session, 10 );
+        WriteRequest request2 = write( session, 10 );
+        WriteRequest request3 = write( session, 10 );
+
+        assertTrue( written.isEmpty() );
+
+        WriteRequest request4 = write( session, 1000 );
+
+        // One single write
+        assertEquals( 1, written.size() );
+        assertEquals( 1030, ( ( IoBuffer ) written.get( 0 ).getMessage() ).remaining() );
+        assertFalse( request1.getFuture().isWritten() );
+
+        // Once written, all the futures are completed
+        session.getFilterChain().fireMessageSent( written.get( 0 ) );
+
+        assertTrue( request1.getFuture().isWritten() );
+        assertTrue( request2.getFuture().isWritten() );
+        assertTrue( request3.getFuture().isWritten() );
+        assertTrue( request4.getFuture().isWritten() );
+    }
+
+
+    @Test
+    public void testFlushOnDelay() throws Exception
+    {
+        DummySession session = newSession( 1000, TimeUnit.MILLISECONDS.toMicros( 200 ) );
+
+        write( session, 10 );
+        write( session, 10 );
+
+        long deadline = System.currentTimeMillis() + 10000L;
+
+        while ( written.isEmpty() && ( System.currentTimeMillis() < deadline ) )
+        {
+            Thread.sleep( 1L );
+        }
+
+        assertEquals( 1, written.size() );
+        assertEquals( 20, ( ( IoBuffer ) written.get( 0 ).getMessage() ).remaining() );
+    }
+
+
+    @Test
+    public void testPendingWritesFailOnClose()
+    {
+        DummySession session = newSession( 1000, TimeUnit.SECONDS.toMicros( 10 ) );
+
+        WriteRequest request = write( session, 10 );
+        session.getFilterChain().fireSessionClosed();
+
+        assertTrue( written.isEmpty() );
+        assertTrue( request.getFuture().getException() instanceof WriteToClosedSessionException );
+    }
+
+
+    @Test
+    public void testGivenScheduler() throws Exception
+    {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor( 1 );
+
+        try
+        {
+            DummySession session = newSession( new WriteCoalescingFilter( 1000, TimeUnit.MILLISECONDS.toMicros( 200 ), 
+                scheduler ) );
+
+            write( session, 10 );
+            write( session, 10 );
+
+            // The delayed flush runs in the given scheduler
+            assertEquals( 1, scheduler.getQueue().size() );
+
+            long deadline = System.currentTimeMillis() + 10000L;
+
+            while ( written.isEmpty() && ( System.currentTimeMillis() < deadline ) )
+            {
+                Thread.sleep( 1L );
+            }
+
+            assertEquals( 1, written.size() );
+            assertEquals( 20, ( ( IoBuffer ) written.get( 0 ).getMessage() ).remaining() );
+
+            // Closing the session does not shut the given scheduler down
+            session.getFilterChain().fireSessionClosed();
+            assertFalse( scheduler.isShutdown() );
+        }
+        finally
+        {
+            scheduler.shutdownNow();
+        }
+    }
+
+
+    @Test
+    public void testSchedulerRestarted() throws Exception
+    {
+        WriteCoalescingFilter filter = new WriteCoalescingFilter( 1000, TimeUnit.MILLISECONDS.toMicros( 200 ) );
+
+        // The filter thread is stopped when the last session is closed
+        DummySession session1 = newSession( filter );
+        write( session1, 10 );
+        session1.getFilterChain().fireSessionClosed();
+
+        // and started again by the next session
+        DummySession session2 = newSession( filter );
+        write( session2, 10 );
+        write( session2, 10 );
+
+        long deadline = System.currentTimeMillis() + 10000L;
+
+        while ( written.isEmpty() && ( System.currentTimeMillis() < deadline ) )
+        {
+            Thread.sleep( 1L );
+        }
+
+        assertEquals( 1, written.size() );
+        assertEquals( 20, ( ( IoBuffer ) written.get( 0 ).getMessage() ).remaining() );
+    }
+}
@@ -22,18 +22,26 @@ package org.apache.directory.api.ldap.codec.search;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.apache.directory.api.asn1.DecoderException;
 import org.apache.directory.api.asn1.EncoderException;
 import org.apache.directory.api.asn1.ber.Asn1Decoder;
 import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.LazyEntry;
 import org.apache.directory.api.ldap.codec.api.LdapEncoder;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.codec.osgi.AbstractCodecServiceTest;
@@ -44,7 +52,9 @@ import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.message.Control;
 import org.apache.directory.api.ldap.model.message.SearchResultEntry;
 import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.controls.ChangeType;
 import org.apache.directory.api.ldap.model.message.controls.EntryChange;
+import org.apache.directory.api.ldap.model.message.controls.EntryChangeImpl;
 import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.api.util.Strings;
 import org.junit.jupiter.api.Test;
@@ -1009,4 +1019,159 @@ public class SearchResultEntryTest extends AbstractCodecServiceTest
         assertEquals( originalSearchResultEntry, decodedSearchResultEntry );
     }
 
+    /**
+     * Test the lazy decoding of a SearchResultEntry followed by some controls
+     */
+    @Test
+    public void testDecodeSearchResultEntryLazy() throws DecoderException, EncoderException, LdapException
+    {
+        SearchResultEntry original = new SearchResultEntryImpl( 2 );
+        Dn dn = new Dn( "uid=jdoe,ou=people,dc=example,dc=com" );
+        original.setObjectName( dn );
+        original.setEntry( new DefaultEntry( dn,
+            "objectClass: top",
+            "objectClass: person",
+            "cn: John Doe",
+            "sn: Doe",
+            "jpegPhoto", new byte[] { 0x01, 0x02, ( byte ) 0xFF } ) );
+        EntryChange entryChange = new EntryChangeImpl();
+        entryChange.setChangeType( ChangeType.ADD );
+        original.addControl( entryChange );
+
+        ByteBuffer encoded = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, original );
+
+        LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+        ldapMessageContainer.setLazyEntries( true );
+
+        Asn1Decoder.decode( encoded, ldapMessageContainer );
+
+        SearchResultEntry searchResultEntry = ldapMessageContainer.getMessage();
+
+        assertEquals( 2, searchResultEntry.getMessageId() );
+        assertEquals( dn, searchResultEntry.getObjectName() );
+        assertTrue( searchResultEntry.getControls().get( EntryChange.OID ) instanceof EntryChange );
+
+        // Nothing has been decoded yet
+        LazyEntry entry = ( LazyEntry ) searchResultEntry.getEntry();
+        assertEquals( 4, entry.getPendingAttributes() );
+
+        assertTrue( entry.get( "CN" ).contains( "John Doe" ) );
+        assertEquals( 3, entry.getPendingAttributes() );
+        assertTrue( entry.hasObjectClass( "person" ) );
+        assertEquals( 2, entry.getPendingAttributes() );
+        assertArrayEquals( new byte[] { 0x01, 0x02, ( byte ) 0xFF }, entry.get( "jpegPhoto" ).getBytes() );
+        assertFalse( entry.containsAttribute( "mail" ) );
+        assertEquals( 1, entry.getPendingAttributes() );
+
+        // Any other operation decodes everything
+        assertEquals( 4, entry.size() );
+        assertEquals( 0, entry.getPendingAttributes() );
+        assertEquals( original.getEntry(), entry );
+
+        // The container can be reused for an eager decoding
+        ldapMessageContainer.clean();
+        ldapMessageContainer.setLazyEntries( false );
+        encoded.rewind();
+        Asn1Decoder.decode( encoded, ldapMessageContainer );
+
+        assertTrue( ldapMessageContainer.getMessage().getEntry() instanceof DefaultEntry );
+        assertEquals( original.getEntry(), ldapMessageContainer.getMessage().getEntry() );
+    }
+
+
+    /**
+     * Test the lazy decoding of a SearchResultEntry read by many threads
+     */
+    @Test
+    public void testDecodeSearchResultEntryLazyConcurrentReads() throws Exception
+    {
+        SearchResultEntry original = new SearchResultEntryImpl( 2 );
+        Dn dn = new Dn( "uid=jdoe,ou=people,dc=example,dc=com" );
+        original.setObjectName( dn );
+        Entry originalEntry = new DefaultEntry( dn );
+
+        for ( int i = 0; i < 200; i++ )
+        {
+            originalEntry.add( "attr" + i, "value" + i );
+        }
+
+        original.setEntry( originalEntry );
+
+        ByteBuffer encoded = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, original );
+
+        LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+        ldapMessageContainer.setLazyEntries( true );
+
+        Asn1Decoder.decode( encoded, ldapMessageContainer );
+
+        LazyEntry entry = ( LazyEntry ) ldapMessageContainer.getMessage().getEntry();
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+
+        try
+        {
+            // Each thread reads all the attributes, starting with a different one
+            List<Callable<Boolean>> readers = IntStream.range( 0, 4 ).mapToObj( thread -> ( Callable<Boolean> ) () ->
+            {
+                for ( int i = 0; i < 200; i++ )
+                {
+                    int index = ( i + thread * 50 ) % 200;
+
+                    if ( !entry.contains( "attr" + index, "value" + index ) )
+                    {
+                        return false;
+                    }
+                }
+
+                return true;
+            } ).collect( Collectors.toList() );
+
+            for ( Future<Boolean> result : executor.invokeAll( readers ) )
+            {
+                assertTrue( result.get() );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertEquals( 0, entry.getPendingAttributes() );
+        assertEquals( originalEntry, entry );
+    }
+
+
+    /**
+     * Test the lazy decoding of a SearchResultEntry with an invalid attribute list
+     */
+    @Test
+    public void testDecodeSearchResultEntryLazyInvalidAttribute()
+    {
+        ByteBuffer stream = ByteBuffer.allocate( 0x20 );
+
+        stream.put( new byte[]
+            {
+                0x30, 0x1E,                     // LDAPMessage ::=SEQUENCE {
+                  0x02, 0x01, 0x01,             // messageID MessageID
+                  0x64, 0x19,                   // CHOICE { ..., searchResEntry SearchResultEntry,
+                    0x04, 0x04,                 // objectName LDAPDN,
+                      'o', '=', 'a', 'b',
+                    0x30, 0x11,                 // attributes PartialAttributeList }
+                      0x30, 0x0F,
+                        0x04, 0x02,             // type AttributeDescription,
+                          'c', 'n',
+                        0x31, 0x09,             // vals SET OF AttributeValue }
+                          0x04, 0x08,           // AttributeValue ::= OCTET STRING, too long
+                            'J', 'o', 'h', 'n', 0x04, 0x01, 'x'
+            } );
+
+        stream.flip();
+
+        LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+        ldapMessageContainer.setLazyEntries( true );
+
+        assertThrows( DecoderException.class, () ->
+        {
+            Asn1Decoder.decode( stream, ldapMessageContainer );
+        } );
+    }
 }
@@ -24,6 +24,7 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.apache.directory.api.i18n.I18n;
@@ -1311,6 +1312,23 @@ public class Value implements Cloneable, Externalizable, Comparable<Value>
     }
 
 
+    /**
+     * Get a read-only view over the wrapped value's bytes. Unlike {@link #getBytes()},
+     * the bytes are not copied, which matters when big values get encoded.
+     *
+     * @return the wrapped value's bytes, or null if the value is null
+     */
+    public ByteBuffer getByteBuffer()
+    {
+        if ( bytes == null )
+        {
+            return null;
+        }
+
+        return ByteBuffer.wrap( bytes ).asReadOnlyBuffer();
+    }
+
+
     /**
      * Tells if the value is schema aware or not.
      *
@@ -0,0 +1,1425 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.directory.api.ldap.model.filter;
+
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.naming.NamingException;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.name.Ava;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.LdapComparator;
+import org.apache.directory.api.ldap.model.schema.MatchingRule;
+import org.apache.directory.api.ldap.model.schema.Normalizer;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.ldap.model.schema.normalizers.DeepTrimToLowerNormalizer;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * Evaluates a search filter against entries, in memory. The {@link ExprNode} tree is
+ * compiled once into a tree of matchers, which can then be applied to as many entries
+ * as needed, from as many threads as needed : this is what a client post-filtering
+ * cached entries, a proxy or a LDIF grep need.
+ * <br>
+ * When a SchemaManager is provided, the values are compared using the MatchingRules
+ * of the filter's AttributeTypes : the equality rule for equality and approximate
+ * assertions (there is no approximate rule in the schema), the ordering rule for
+ * greater or equal and less or equal assertions, the substring rule for substring
+ * assertions, and the named rule for extensible assertions. An assertion on an
+ * AttributeType also matches the values of its subtypes. The assertion values are
+ * normalized once, when the filter is compiled. The entry values are normalized
+ * when they are evaluated, unless they are schema aware and have already been
+ * normalized the way the MatchingRule expects it.
+ * <br>
+ * Without a SchemaManager, values are compared ignoring the case and the
+ * insignificant spaces, and attribute names are compared ignoring the case.
+ * <br>
+ * The evaluation follows the RFC 4511 three-valued logic : an assertion on an
+ * unknown AttributeType, an AttributeType without the needed MatchingRule or an
+ * invalid assertion value is <em>Undefined</em>, which is not a match, and remains
+ * <em>Undefined</em> when negated.
+ * <br>
+ * The children of AND and OR nodes are reordered when the filter is compiled, so that
+ * the cheapest assertions are evaluated first : presence before equality, equality
+ * before ordering, substrings last. When the children carry a <em>count</em>
+ * annotation, as set by a server side optimizer, it is used instead : the AND node
+ * evaluates its most selective child first, the OR node its least selective one.
+ * Constant children (always true, always false) are folded away.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class FilterEvaluator
+{
+    /** The annotation holding the number of candidates of a filter node */
+    public static final String COUNT_ANNOTATION = "count";
+
+    /** The assertion does not match */
+    private static final int FALSE = 0;
+
+    /** The assertion matches */
+    private static final int TRUE = 1;
+
+    /** The assertion can't be evaluated */
+    private static final int UNDEFINED = 2;
+
+    /** The cost of the assertions, used to order the branches children */
+    private static final int CONSTANT_COST = 0;
+    private static final int PRESENCE_COST = 1;
+    private static final int EQUALITY_COST = 2;
+    private static final int ORDERING_COST = 3;
+    private static final int ASSERTION_COST = 4;
+    private static final int EXTENSIBLE_COST = 5;
+    private static final int SUBSTRING_COST = 6;
+
+    /** The compiled filter */
+    private final Matcher matcher;
+
+    /** The original filter */
+    private final ExprNode filter;
+
+
+    /**
+     * Creates a new FilterEvaluator instance
+     *
+     * @param filter The original filter
+     * @param matcher The compiled filter
+     */
+    private FilterEvaluator( ExprNode filter, Matcher matcher )
+    {
+        this.filter = filter;
+        this.matcher = matcher;
+    }
+
+
+    /**
+     * Compiles a filter, without schema. Values are compared ignoring the case and the
+     * insignificant spaces.
+     *
+     * @param filter The filter to compile
+     * @return The compiled filter
+     * @throws LdapException If the filter contains a node that can't be evaluated on an entry
+     */
+    public static FilterEvaluator compile( ExprNode filter ) throws LdapException
+    {
+        return compile( null, filter );
+    }
+
+
+    /**
+     * Compiles a filter, using the MatchingRules of the provided SchemaManager.
+     *
+     * @param schemaManager The SchemaManager to use. May be null.
+     * @param filter The filter to compile
+     * @return The compiled filter
+     * @throws LdapException If the filter contains a node that can't be evaluated on an entry
+     */
+    public static FilterEvaluator compile( SchemaManager schemaManager, ExprNode filter ) throws LdapException
+    {
+        if ( filter == null )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_13316_EMPTY_FILTER ) );
+        }
+
+        return new FilterEvaluator( filter, new Compiler( schemaManager ).compile( filter ) );
+    }
+
+
+    /**
+     * Parses and compiles a filter, using the MatchingRules of the provided SchemaManager.
+     *
+     * @param schemaManager The SchemaManager to use. May be null.
+     * @param filter The filter to compile
+     * @return The compiled filter
+     * @throws LdapException If the filter is invalid, or contains a node that can't be evaluated on an entry
+     */
+    public static FilterEvaluator compile( SchemaManager schemaManager, String filter ) throws LdapException
+    {
+        try
+        {
+            return compile( schemaManager, FilterParser.parse( schemaManager, filter ) );
+        }
+        catch ( ParseException pe )
+        {
+            throw new LdapException( pe.getMessage(), pe );
+        }
+    }
+
+
+    /**
+     * Tells if an entry matches the filter.
+     *
+     * @param entry The entry to evaluate
+     * @return <code>true</code> if the filter evaluates to TRUE for this entry, <code>false</code>
+     * if it evaluates to FALSE or Undefined
+     */
+    public boolean evaluate( Entry entry )
+    {
+        return matcher.match( entry ) == TRUE;
+    }
+
+
+    /**
+     * @return The compiled filter
+     */
+    public ExprNode getFilter()
+    {
+        return filter;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return matcher.toString();
+    }
+
+
+    /**
+     * Converts a boolean to a TRUE or FALSE result
+     */
+    private static int result( boolean matches )
+    {
+        return matches ? TRUE : FALSE;
+    }
+
+
+    /**
+     * A compiled filter node.
+     */
+    private abstract static class Matcher
+    {
+        /** The estimated cost of this matcher */
+        protected final int cost;
+
+        /** The number of candidates of the filter node, or -1 if unknown */
+        protected long count = -1L;
+
+
+        Matcher( int cost )
+        {
+            this.cost = cost;
+        }
+
+
+        /**
+         * Evaluates the entry.
+         *
+         * @param entry The entry
+         * @return TRUE, FALSE or UNDEFINED
+         */
+        abstract int match( Entry entry );
+    }
+
+
+    /**
+     * A matcher which always return the same result.
+     */
+    private static final class ConstantMatcher extends Matcher
+    {
+        private static final ConstantMatcher ALWAYS_TRUE = new ConstantMatcher( TRUE );
+        private static final ConstantMatcher ALWAYS_FALSE = new ConstantMatcher( FALSE );
+        private static final ConstantMatcher ALWAYS_UNDEFINED = new ConstantMatcher( UNDEFINED );
+
+        private final int result;
+
+
+        private ConstantMatcher( int result )
+        {
+            super( CONSTANT_COST );
+            this.result = result;
+        }
+
+
+        @Override
+        int match( Entry entry )
+        {
+            return result;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            switch ( result )
+            {
+                case TRUE:
+                    return "(TRUE)";
+
+                case FALSE:
+                    return "(FALSE)";
+
+                default:
+                    return "(UNDEFINED)";
+            }
+        }
+    }
+
+
+    /**
+     * A matcher for AND and OR nodes.
+     */
+    private static final class BranchMatcher extends Matcher
+    {
+        private final Matcher[] children;
+
+        /** true for an AND, false for an OR */
+        private final boolean and;
+
+
+        BranchMatcher( Matcher[] children, boolean and, int cost )
+        {
+            super( cost );
+            this.children = children;
+            this.and = and;
+        }
+
+
+        @Override
+        int match( Entry entry )
+        {
+            // An AND stops on the first FALSE child, an OR on the first TRUE child
+            int stop = and ? FALSE : TRUE;
+            int result = and ? TRUE : FALSE;
+
+            for ( Matcher child : children )
+            {
+                int childResult = child.match( entry );
+
+                if ( childResult == stop )
+                {
+                    return stop;
+                }
+
+                if ( childResult == UNDEFINED )
+                {
+                    result = UNDEFINED;
+                }
+            }
+
+            return result;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append( '(' ).append( and ? '&' : '|' );
+
+            for ( Matcher child : children )
+            {
+                sb.append( child );
+            }
+
+            return sb.append( ')' ).toString();
+        }
+    }
+
+
+    /**
+     * A matcher for NOT nodes.
+     */
+    private static final class NotMatcher extends Matcher
+    {
+        private final Matcher child;
+
+
+        NotMatcher( Matcher child )
+        {
+            super( child.cost + 1 );
+            this.child = child;
+        }
+
+
+        @Override
+        int match( Entry entry )
+        {
+            switch ( child.match( entry ) )
+            {
+                case TRUE:
+                    return FALSE;
+
+                case FALSE:
+                    return TRUE;
+
+                default:
+                    return UNDEFINED;
+            }
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "(!" + child + ')';
+        }
+    }
+
+
+    /**
+     * A matcher for AssertionNodes, delegating to their Assertion.
+     */
+    private static final class AssertionMatcher extends Matcher
+    {
+        private final Assertion assertion;
+
+
+        AssertionMatcher( Assertion assertion )
+        {
+            super( ASSERTION_COST );
+            this.assertion = assertion;
+        }
+
+
+        @Override
+        int match( Entry entry )
+        {
+            try
+            {
+                return result( assertion.assertCandidate( entry ) );
+            }
+            catch ( NamingException ne )
+            {
+                return UNDEFINED;
+            }
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "(" + assertion + ')';
+        }
+    }
+
+
+    /**
+     * The rule used to compare values : a Normalizer and, for ordering, a Comparator.
+     */
+    private static final class Rule
+    {
+        /** The rule's normalizer */
+        private final Normalizer normalizer;
+
+        /** The rule's comparator. May be null */
+        private final LdapComparator<? super Object> comparator;
+
+
+        Rule( Normalizer normalizer, LdapComparator<? super Object> comparator )
+        {
+            this.normalizer = normalizer;
+            this.comparator = comparator;
+        }
+
+
+        /**
+         * Normalizes an entry value. Schema aware values have already been normalized
+         * by their equality rule normalizer, we can use that form if it's the same as ours.
+         */
+        String normalize( Value value ) throws LdapException
+        {
+            if ( value.isSchemaAware() )
+            {
+                MatchingRule equality = value.getAttributeType().getEquality();
+
+                if ( ( equality != null ) && ( equality.getNormalizer() != null )
+                    && ( equality.getNormalizer().getClass() == normalizer.getClass() ) )
+                {
+                    return value.getNormalized();
+                }
+            }
+
+            return normalizer.normalize( value.getString() );
+        }
+
+
+        /**
+         * Compares two normalized values
+         */
+        int compare( String value, String assertion )
+        {
+            if ( comparator != null )
+            {
+                return comparator.compare( value, assertion );
+            }
+            else
+            {
+                return value.compareTo( assertion );
+            }
+        }
+    }
+
+
+    /**
+     * The base class for the matchers of leaf nodes : it finds the attributes of the
+     * entry the assertion applies to, and evaluates their values.
+     */
+    private abstract static class LeafMatcher extends Matcher
+    {
+        /** The asserted AttributeType and its subtypes, when we have a schema */
+        private final AttributeType[] attributeTypes;
+
+        /** The lower cased names and OIDs of the asserted AttributeType and its subtypes */
+        private final String[] ids;
+
+        /** The filter node, as a String */
+        private final String display;
+
+
+        LeafMatcher( Selector selector, int cost )
+        {
+            super( cost );
+            this.attributeTypes = selector.attributeTypes;
+            this.ids = selector.ids;
+            this.display = selector.display;
+        }
+
+
+        @Override
+        int match( Entry entry )
+        {
+            int result = FALSE;
+
+            if ( ( attributeTypes != null ) && entry.isSchemaAware() )
+            {
+                for ( AttributeType attributeType : attributeTypes )
+                {
+                    Attribute attr = entry.get( attributeType );
+
+                    if ( attr != null )
+                    {
+                        int attrResult = matchAttribute( attr );
+
+                        if ( attrResult == TRUE )
+                        {
+                            return TRUE;
+                        }
+
+                        if ( attrResult == UNDEFINED )
+                        {
+                            result = UNDEFINED;
+                        }
+                    }
+                }
+            }
+            else
+            {
+                for ( String id : ids )
+                {
+                    Attribute attr = entry.get( id );
+
+                    if ( attr != null )
+                    {
+                        int attrResult = matchAttribute( attr );
+
+                        if ( attrResult == TRUE )
+                        {
+                            return TRUE;
+                        }
+
+                        if ( attrResult == UNDEFINED )
+                        {
+                            result = UNDEFINED;
+                        }
+                    }
+                }
+            }
+
+            return result;
+        }
+
+
+        /**
+         * Evaluates the values of an attribute. Returns TRUE as soon as a value matches.
+         */
+        int matchAttribute( Attribute attr )
+        {
+            int result = FALSE;
+
+            for ( Value value : attr )
+            {
+                int valueResult = matchValue( value );
+
+                if ( valueResult == TRUE )
+                {
+                    return TRUE;
+                }
+
+                if ( valueResult == UNDEFINED )
+                {
+                    result = UNDEFINED;
+                }
+            }
+
+            return result;
+        }
+
+
+        /**
+         * Evaluates one value.
+         *
+         * @param value The value
+         * @return TRUE, FALSE or UNDEFINED
+         */
+        abstract int matchValue( Value value );
+
+
+        @Override
+        public String toString()
+        {
+            return display;
+        }
+    }
+
+
+    /**
+     * A matcher for presence assertions.
+     */
+    private static final class PresenceMatcher extends LeafMatcher
+    {
+        PresenceMatcher( Selector selector )
+        {
+            super( selector, PRESENCE_COST );
+        }
+
+
+        @Override
+        int matchAttribute( Attribute attr )
+        {
+            return TRUE;
+        }
+
+
+        @Override
+        int matchValue( Value value )
+        {
+            return TRUE;
+        }
+
+    }
+
+
+    /**
+     * A matcher for equality and approximate assertions.
+     */
+    private static final class EqualityMatcher extends LeafMatcher
+    {
+        private final Rule rule;
+
+        /** The normalized assertion value, null if the AttributeType is binary */
+        private final String normalized;
+
+        /** The assertion value bytes, compared to the binary values */
+        private final byte[] bytes;
+
+
+        EqualityMatcher( Selector selector, Rule rule, String normalized, byte[] bytes )
+        {
+            super( selector, EQUALITY_COST );
+            this.rule = rule;
+            this.normalized = normalized;
+            this.bytes = bytes;
+        }
+
+
+        @Override
+        int matchValue( Value value )
+        {
+            if ( !value.isHumanReadable() )
+            {
+                return result( Arrays.equals( bytes, value.getBytes() ) );
+            }
+
+            if ( normalized == null )
+            {
+                return FALSE;
+            }
+
+            try
+            {
+                return result( normalized.equals( rule.normalize( value ) ) );
+            }
+            catch ( LdapException le )
+            {
+                return UNDEFINED;
+            }
+        }
+
+    }
+
+
+    /**
+     * A matcher for greater or equal and less or equal assertions.
+     */
+    private static final class OrderingMatcher extends LeafMatcher
+    {
+        private final Rule rule;
+
+        /** The normalized assertion value, null if the AttributeType is binary */
+        private final String normalized;
+
+        /** The assertion value bytes, compared to the binary values */
+        private final byte[] bytes;
+
+        /** true for a greater or equal assertion */
+        private final boolean greater;
+
+
+        OrderingMatcher( Selector selector, Rule rule, String normalized, byte[] bytes, boolean greater )
+        {
+            super( selector, ORDERING_COST );
+            this.rule = rule;
+            this.normalized = normalized;
+            this.bytes = bytes;
+            this.greater = greater;
+        }
+
+
+        @Override
+        int matchValue( Value value )
+        {
+            int comparison;
+
+            try
+            {
+                if ( !value.isHumanReadable() )
+                {
+                    comparison = Strings.compare( value.getBytes(), bytes );
+                }
+                else if ( normalized == null )
+                {
+                    return UNDEFINED;
+                }
+                else
+                {
+                    comparison = rule.compare( rule.normalize( value ), normalized );
+                }
+            }
+            catch ( LdapException | RuntimeException e )
+            {
+                return UNDEFINED;
+            }
+
+            return result( greater ? comparison >= 0 : comparison <= 0 );
+        }
+
+    }
+
+
+    /**
+     * A matcher for substring assertions.
+     */
+    private static final class SubstringMatcher extends LeafMatcher
+    {
+        private final Rule rule;
+
+        /** The normalized assertion, as a regular expression */
+        private final Pattern pattern;
+
+
+        SubstringMatcher( Selector selector, Rule rule, Pattern pattern )
+        {
+            super( selector, SUBSTRING_COST );
+            this.rule = rule;
+            this.pattern = pattern;
+        }
+
+
+        @Override
+        int matchValue( Value value )
+        {
+            if ( !value.isHumanReadable() )
+            {
+                return FALSE;
+            }
+
+            try
+            {
+                return result( pattern.matcher( rule.normalize( value ) ).matches() );
+            }
+            catch ( LdapException le )
+            {
+                return UNDEFINED;
+            }
+        }
+
+    }
+
+
+    /**
+     * A matcher for extensible assertions. It evaluates the asserted attribute, or all the
+     * entry's attributes the MatchingRule applies to when the assertion has no attribute,
+     * and also the entry's Dn AVAs when the assertion has the dnAttributes flag.
+     */
+    private static final class ExtensibleMatcher extends LeafMatcher
+    {
+        private final Rule rule;
+
+        /** The normalized assertion value */
+        private final String normalized;
+
+        /** The syntax of the MatchingRule, when the assertion has no attribute */
+        private final String syntaxOid;
+
+        /** Tells if the Dn AVAs must also be evaluated */
+        private final boolean dnAttributes;
+
+        /** The lower cased names and OIDs of the asserted AttributeType and its subtypes, if any */
+        private final Set<String> idSet;
+
+
+        ExtensibleMatcher( Selector selector, Rule rule, String normalized, String syntaxOid, boolean dnAttributes )
+        {
+            super( selector, EXTENSIBLE_COST );
+            this.rule = rule;
+            this.normalized = normalized;
+            this.syntaxOid = syntaxOid;
+            this.dnAttributes = dnAttributes;
+            this.idSet = selector.attribute == null ? null : new LinkedHashSet<>( Arrays.asList( selector.ids ) );
+        }
+
+
+        @Override
+        int match( Entry entry )
+        {
+            int result;
+
+            if ( idSet != null )
+            {
+                result = super.match( entry );
+            }
+            else
+            {
+                result = FALSE;
+
+                for ( Attribute attr : entry )
+                {
+                    if ( appliesTo( attr.getAttributeType() ) )
+                    {
+                        int attrResult = matchAttribute( attr );
+
+                        if ( attrResult == TRUE )
+                        {
+                            return TRUE;
+                        }
+
+                        if ( attrResult == UNDEFINED )
+                        {
+                            result = UNDEFINED;
+                        }
+                    }
+                }
+            }
+
+            if ( ( result == TRUE ) || !dnAttributes || ( entry.getDn() == null ) )
+            {
+                return result;
+            }
+
+            for ( Rdn rdn : entry.getDn() )
+            {
+                for ( Ava ava : rdn )
+                {
+                    if ( appliesTo( ava ) )
+                    {
+                        int avaResult = matchValue( ava.getValue() );
+
+                        if ( avaResult == TRUE )
+                        {
+                            return TRUE;
+                        }
+
+                        if ( avaResult == UNDEFINED )
+                        {
+                            result = UNDEFINED;
+                        }
+                    }
+                }
+            }
+
+            return result;
+        }
+
+
+        /**
+         * Tells if the MatchingRule applies to an AttributeType, when the assertion has no attribute
+         */
+        private boolean appliesTo( AttributeType attributeType )
+        {
+            return ( syntaxOid == null )
+                || ( ( attributeType != null ) && syntaxOid.equals( attributeType.getSyntaxOid() ) );
+        }
+
+
+        /**
+         * Tells if the assertion applies to a Dn AVA
+         */
+        private boolean appliesTo( Ava ava )
+        {
+            if ( idSet == null )
+            {
+                return appliesTo( ava.getAttributeType() );
+            }
+
+            if ( ava.getAttributeType() != null )
+            {
+                return idSet.contains( ava.getAttributeType().getOid() );
+            }
+
+            return idSet.contains( Strings.toLowerCaseAscii( Strings.trim( ava.getType() ) ) );
+        }
+
+
+        @Override
+        int matchValue( Value value )
+        {
+            if ( ( value == null ) || !value.isHumanReadable() )
+            {
+                return FALSE;
+            }
+
+            try
+            {
+                return result( rule.compare( rule.normalize( value ), normalized ) == 0 );
+            }
+            catch ( LdapException | RuntimeException e )
+            {
+                return UNDEFINED;
+            }
+        }
+
+    }
+
+
+    /**
+     * The attributes a leaf node applies to.
+     */
+    private static final class Selector
+    {
+        private final String attribute;
+        private final String display;
+        private final AttributeType[] attributeTypes;
+        private final String[] ids;
+
+
+        Selector( String attribute, String display, AttributeType[] attributeTypes, String[] ids )
+        {
+            this.attribute = attribute;
+            this.display = display;
+            this.attributeTypes = attributeTypes;
+            this.ids = ids;
+        }
+    }
+
+
+    /**
+     * Compiles the ExprNode tree into a Matcher tree.
+     */
+    private static final class Compiler
+    {
+        /** Sorts the AND children : known counts first, smallest first, then by cost */
+        private static final Comparator<Matcher> AND_ORDER = ( m1, m2 ) ->
+        {
+            if ( ( m1.count >= 0 ) && ( m2.count >= 0 ) )
+            {
+                return Long.compare( m1.count, m2.count );
+            }
+
+            return Integer.compare( m1.cost, m2.cost );
+        };
+
+        /** Sorts the OR children : known counts first, biggest first, then by cost */
+        private static final Comparator<Matcher> OR_ORDER = ( m1, m2 ) ->
+        {
+            if ( ( m1.count >= 0 ) && ( m2.count >= 0 ) )
+            {
+                return Long.compare( m2.count, m1.count );
+            }
+
+            return Integer.compare( m1.cost, m2.cost );
+        };
+
+        private final SchemaManager schemaManager;
+
+        /** The normalizer used when we have no schema */
+        private final Rule defaultRule;
+
+
+        Compiler( SchemaManager schemaManager )
+        {
+            this.schemaManager = schemaManager;
+            this.defaultRule = new Rule( new DeepTrimToLowerNormalizer(), null );
+        }
+
+
+        Matcher compile( ExprNode node ) throws LdapException
+        {
+            // The parser returns null for the assertions on unknown AttributeTypes
+            if ( node == null )
+            {
+                return ConstantMatcher.ALWAYS_UNDEFINED;
+            }
+
+            Matcher matcher = compileNode( node );
+
+            if ( ( matcher != ConstantMatcher.ALWAYS_TRUE ) && ( matcher != ConstantMatcher.ALWAYS_FALSE )
+                && ( matcher != ConstantMatcher.ALWAYS_UNDEFINED ) )
+            {
+                Object count = node.get( COUNT_ANNOTATION );
+
+                if ( count instanceof Number )
+                {
+                    matcher.count = ( ( Number ) count ).longValue();
+                }
+            }
+
+            return matcher;
+        }
+
+
+        private Matcher compileNode( ExprNode node ) throws LdapException
+        {
+            switch ( node.getAssertionType() )
+            {
+                case AND:
+                    return compileBranch( ( BranchNode ) node, true );
+
+                case OR:
+                    return compileBranch( ( BranchNode ) node, false );
+
+                case NOT:
+                    return compileNot( ( NotNode ) node );
+
+                case OBJECTCLASS:
+                    return ConstantMatcher.ALWAYS_TRUE;
+
+                case UNDEFINED:
+                    return ConstantMatcher.ALWAYS_UNDEFINED;
+
+                case ASSERTION:
+                    return new AssertionMatcher( ( ( AssertionNode ) node ).getAssertion() );
+
+                case PRESENCE:
+                    Selector presence = select( ( LeafNode ) node );
+
+                    return presence == null ? ConstantMatcher.ALWAYS_UNDEFINED : new PresenceMatcher( presence );
+
+                case EQUALITY:
+                case APPROXIMATE:
+                    return compileEquality( ( SimpleNode<?> ) node );
+
+                case GREATEREQ:
+                    return compileOrdering( ( SimpleNode<?> ) node, true );
+
+                case LESSEQ:
+                    return compileOrdering( ( SimpleNode<?> ) node, false );
+
+                case SUBSTRING:
+                    return compileSubstring( ( SubstringNode ) node );
+
+                case EXTENSIBLE:
+                    return compileExtensible( ( ExtensibleNode ) node );
+
+                default:
+                    throw new LdapException( I18n.err( I18n.ERR_13319_UNSUPPORTED_FILTER_NODE,
+                        node.getAssertionType() ) );
+            }
+        }
+
+
+        private Matcher compileBranch( BranchNode node, boolean and ) throws LdapException
+        {
+            // An AND is stopped by a FALSE child, an OR by a TRUE child
+            Matcher stop = and ? ConstantMatcher.ALWAYS_FALSE : ConstantMatcher.ALWAYS_TRUE;
+            Matcher neutral = and ? ConstantMatcher.ALWAYS_TRUE : ConstantMatcher.ALWAYS_FALSE;
+            List<Matcher> children = new ArrayList<>( node.getChildren().size() );
+
+            for ( ExprNode child : node.getChildren() )
+            {
+                Matcher matcher = compile( child );
+
+                if ( matcher == stop )
+                {
+                    return stop;
+                }
+
+                if ( matcher != neutral )
+                {
+                    children.add( matcher );
+                }
+            }
+
+            switch ( children.size() )
+            {
+                case 0:
+                    return neutral;
+
+                case 1:
+                    return children.get( 0 );
+
+                default:
+                    // The sort is stable : children with the same cost keep their order
+                    children.sort( and ? AND_ORDER : OR_ORDER );
+                    int cost = 1;
+
+                    for ( Matcher child : children )
+                    {
+                        cost += child.cost;
+                    }
+
+                    return new BranchMatcher( children.toArray( new Matcher[0] ), and, cost );
+            }
+        }
+
+
+        private Matcher compileNot( NotNode node ) throws LdapException
+        {
+            Matcher child = compile( node.getFirstChild() );
+
+            if ( child == ConstantMatcher.ALWAYS_TRUE )
+            {
+                return ConstantMatcher.ALWAYS_FALSE;
+            }
+            else if ( child == ConstantMatcher.ALWAYS_FALSE )
+            {
+                return ConstantMatcher.ALWAYS_TRUE;
+            }
+            else if ( child == ConstantMatcher.ALWAYS_UNDEFINED )
+            {
+                return child;
+            }
+
+            return new NotMatcher( child );
+        }
+
+
+        private Matcher compileEquality( SimpleNode<?> node ) throws LdapException
+        {
+            Selector selector = select( node );
+
+            if ( selector == null )
+            {
+                return ConstantMatcher.ALWAYS_UNDEFINED;
+            }
+
+            Value value = node.getValue();
+
+            if ( !isHumanReadable( selector ) )
+            {
+                return new EqualityMatcher( selector, null, null, value.getBytes() );
+            }
+
+            Rule rule = rule( selector, AssertionType.EQUALITY );
+
+            if ( rule == null )
+            {
+                return ConstantMatcher.ALWAYS_UNDEFINED;
+            }
+
+            String normalized = normalize( rule, value );
+
+            return normalized == null
+                ? ConstantMatcher.ALWAYS_UNDEFINED
+                : new EqualityMatcher( selector, rule, normalized, value.getBytes() );
+        }
+
+
+        private Matcher compileOrdering( SimpleNode<?> node, boolean greater ) throws LdapException
+        {
+            Selector selector = select( node );
+
+            if ( selector == null )
+            {
+                return ConstantMatcher.ALWAYS_UNDEFINED;
+            }
+
+            Value value = node.getValue();
+
+            if ( !isHumanReadable( selector ) )
+            {
+                return new OrderingMatcher( selector, null, null, value.getBytes(), greater );
+            }
+
+            Rule rule = rule( selector, AssertionType.GREATEREQ );
+
+            if ( rule == null )
+            {
+                return ConstantMatcher.ALWAYS_UNDEFINED;
+            }
+
+            String normalized = normalize( rule, value );
+
+            return normalized == null
+                ? ConstantMatcher.ALWAYS_UNDEFINED
+                : new OrderingMatcher( selector, rule, normalized, value.getBytes(), greater );
+        }
+
+
+        private Matcher compileSubstring( SubstringNode node ) throws LdapException
+        {
+            Selector selector = select( node );
+
+            if ( selector == null )
+            {
+                return ConstantMatcher.ALWAYS_UNDEFINED;
+            }
+
+            Rule rule = rule( selector, AssertionType.SUBSTRING );
+
+            if ( rule == null )
+            {
+                return ConstantMatcher.ALWAYS_UNDEFINED;
+            }
+
+            try
+            {
+                return new SubstringMatcher( selector, rule, node.getRegex( rule.normalizer ) );
+            }
+            catch ( LdapException le )
+            {
+                return ConstantMatcher.ALWAYS_UNDEFINED;
+            }
+        }
+
+
+        private Matcher compileExtensible( ExtensibleNode node ) throws LdapException
+        {
+            Selector selector;
+
+            if ( ( node.getAttributeType() == null ) && ( node.getAttribute() == null ) )
+            {
+                selector = new Selector( null, node.toString(), null, new String[0] );
+            }
+            else
+            {
+                selector = select( node );
+
+                if ( selector == null )
+                {
+                    return ConstantMatcher.ALWAYS_UNDEFINED;
+                }
+            }
+
+            Rule rule;
+            String syntaxOid = null;
+
+            if ( node.getMatchingRuleId() == null )
+            {
+                if ( selector.attribute == null )
+                {
+                    return ConstantMatcher.ALWAYS_UNDEFINED;
+                }
+
+                rule = rule( selector, AssertionType.EQUALITY );
+            }
+            else if ( schemaManager == null )
+            {
+                rule = defaultRule;
+            }
+            else
+            {
+                MatchingRule matchingRule;
+
+                try
+                {
+                    matchingRule = schemaManager.lookupMatchingRuleRegistry( node.getMatchingRuleId() );
+                }
+                catch ( LdapException le )
+                {
+                    return ConstantMatcher.ALWAYS_UNDEFINED;
+                }
+
+                rule = new Rule( matchingRule.getNormalizer(), matchingRule.getLdapComparator() );
+
+                if ( selector.attribute == null )
+                {
+                    syntaxOid = matchingRule.getSyntaxOid();
+                }
+            }
+
+            if ( ( rule == null ) || ( rule.normalizer == null ) || ( node.getValue() == null ) )
+            {
+                return ConstantMatcher.ALWAYS_UNDEFINED;
+            }
+
+            String normalized = normalize( rule, node.getValue() );
+
+            return normalized == null
+                ? ConstantMatcher.ALWAYS_UNDEFINED
+                : new ExtensibleMatcher( selector, rule, normalized, syntaxOid, node.hasDnAttributes() );
+        }
+
+
+        /**
+         * Finds the attributes a leaf node applies to. Returns null if the node's
+         * AttributeType is unknown.
+         */
+        private Selector select( LeafNode node ) throws LdapException
+        {
+            String attribute = node.getAttribute();
+
+            if ( schemaManager == null )
+            {
+                return new Selector( attribute, node.toString(), null,
+                    new String[] { Strings.toLowerCaseAscii( Strings.trim( attribute ) ) } );
+            }
+
+            AttributeType attributeType = node.getAttributeType();
+
+            if ( attributeType == null )
+            {
+                attributeType = schemaManager.getAttributeType( attribute );
+
+                if ( attributeType == null )
+                {
+                    return null;
+                }
+            }
+
+            List<AttributeType> attributeTypes = new ArrayList<>();
+            attributeTypes.add( attributeType );
+            Iterator<AttributeType> descendants = schemaManager.getAttributeTypeRegistry().descendants( attributeType );
+
+            while ( descendants.hasNext() )
+            {
+                AttributeType descendant = descendants.next();
+
+                if ( !attributeTypes.contains( descendant ) )
+                {
+                    attributeTypes.add( descendant );
+                }
+            }
+
+            Set<String> ids = new LinkedHashSet<>();
+
+            for ( AttributeType type : attributeTypes )
+            {
+                ids.add( type.getOid() );
+
+                for ( String name : type.getNames() )
+                {
+                    ids.add( Strings.toLowerCaseAscii( name ) );
+                }
+            }
+
+            return new Selector( attribute == null ? attributeType.getName() : attribute, node.toString(),
+                attributeTypes.toArray( new AttributeType[0] ), ids.toArray( new String[0] ) );
+        }
+
+
+        /**
+         * Gets the rule to use for an assertion. Returns null if the AttributeType has
+         * no such MatchingRule.
+         */
+        private Rule rule( Selector selector, AssertionType assertionType )
+        {
+            if ( selector.attributeTypes == null )
+            {
+                return defaultRule;
+            }
+
+            AttributeType attributeType = selector.attributeTypes[0];
+            MatchingRule matchingRule;
+
+            switch ( assertionType )
+            {
+                case GREATEREQ:
+                    matchingRule = attributeType.getOrdering();
+                    break;
+
+                case SUBSTRING:
+                    matchingRule = attributeType.getSubstring();
+                    break;
+
+                default:
+                    matchingRule = attributeType.getEquality();
+                    break;
+            }
+
+            if ( ( matchingRule == null ) || ( matchingRule.getNormalizer() == null ) )
+            {
+                return null;
+            }
+
+            return new Rule( matchingRule.getNormalizer(), matchingRule.getLdapComparator() );
+        }
+
+
+        /**
+         * Tells if the asserted AttributeType is human readable. Without schema, we can't know, and
+         * the assertion values are compared as Strings to the human readable values of the entry.
+         */
+        private boolean isHumanReadable( Selector selector )
+        {
+            if ( selector.attributeTypes == null )
+            {
+                return true;
+            }
+
+            AttributeType attributeType = selector.attributeTypes[0];
+
+            return ( attributeType.getSyntax() == null ) || attributeType.getSyntax().isHumanReadable();
+        }
+
+
+        /**
+         * Normalizes an assertion value. Returns null if the value is invalid. The values
+         * parsed without schema are stored as bytes.
+         */
+        private String normalize( Rule rule, Value value )
+        {
+            try
+            {
+                if ( value.isHumanReadable() )
+                {
+                    return rule.normalizer.normalize( value.getString() );
+                }
+                else
+                {
+                    return rule.normalizer.normalize( Strings.utf8ToString( value.getBytes() ) );
+                }
+            }
+            catch ( LdapException le )
+            {
+                return null;
+            }
+        }
+    }
+}
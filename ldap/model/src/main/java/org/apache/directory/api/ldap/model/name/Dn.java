@@ -90,6 +90,8 @@ public class Dn implements Iterable<Rdn>, Externalizable
      * <li>[1] : dc=b</li>
      * <li>[2] : dc=a</li>
      * </ul>
+     * The Dns derived from another Dn (its parent, for instance) use a view on its RDNs.
+     * As a Dn is immutable, this list is never modified once the Dn has been created.
      */
     protected transient List<Rdn> rdns = new ArrayList<>( 5 );
 
@@ -99,6 +101,19 @@ public class Dn implements Iterable<Rdn>, Externalizable
     /** The normalized name */
     private String normName;
 
+    /**
+     * Tells if the names are computed from the RDNs when first needed. This is the case
+     * for the Dns derived from another one (parent, ancestor, descendant), which share
+     * their RDNs with it.
+     */
+    private transient boolean lazyNames;
+
+    /**
+     * The hashes of the Dn suffixes, computed when first needed : the element at position N
+     * is the hash of the N last RDNs. They are used to quickly reject the ancestry checks.
+     */
+    private transient volatile int[] suffixHashes;
+
     /** A null Dn */
     public static final Dn EMPTY_DN = new Dn();
 
@@ -301,9 +316,38 @@ public class Dn implements Iterable<Rdn>, Externalizable
         // byte[]) and external.
         upName = sbUpName.toString();
 
+        // Reuse the parsed Dn if the SchemaManager caches them. The RDNs can be shared,
+        // as a Dn never modifies them
+        DnCache dnCache = ( schemaManager == null ) ? null : schemaManager.getDnCache();
+
+        if ( dnCache != null )
+        {
+            Dn cached = dnCache.get( upName );
+
+            if ( cached != null )
+            {
+                rdns = cached.rdns;
+                normName = cached.normName;
+                suffixHashes = cached.suffixHashes;
+
+                return;
+            }
+        }
+
         try
         {
             normName = parseInternal( schemaManager, upName, rdns );
+
+            if ( dnCache != null )
+            {
+                // Share the suffix RDNs with the other Dns
+                for ( int i = 1; i < rdns.size(); i++ )
+                {
+                    rdns.set( i, dnCache.intern( rdns.get( i ) ) );
+                }
+
+                dnCache.put( upName, this );
+            }
         }
         catch ( LdapInvalidDnException e )
         {
@@ -423,28 +467,8 @@ public class Dn implements Iterable<Rdn>, Externalizable
         }
         else
         {
-            StringBuilder sbUpName = new StringBuilder();
-            StringBuilder sbNormName = new StringBuilder();
-            boolean isFirst = true;
-
-            for ( Rdn rdn : rdns )
-            {
-                if ( isFirst )
-                {
-                    isFirst = false;
-                }
-                else
-                {
-                    sbUpName.append( ',' );
-                    sbNormName.append( ',' );
-                }
-
-                sbUpName.append( rdn.getName() );
-                sbNormName.append( rdn.getNormName() );
-            }
-
-            upName = sbUpName.toString();
-            normName = sbNormName.toString();
+            upName = joinRdns( false );
+            normName = joinRdns( true );
         }
 
         return upName;
@@ -478,7 +502,9 @@ public class Dn implements Iterable<Rdn>, Externalizable
      */
     public String getName()
     {
-        return upName == null ? "" : upName;
+        String name = upName();
+
+        return name == null ? "" : name;
     }
 
 
@@ -489,7 +515,132 @@ public class Dn implements Iterable<Rdn>, Externalizable
      */
     public String getNormName()
     {
-        return normName == null ? "" : normName;
+        String name = normName();
+
+        return name == null ? "" : name;
+    }
+
+
+    /**
+     * @return The user provided name, computed from the RDNs if needed
+     */
+    private String upName()
+    {
+        String name = upName;
+
+        if ( ( name == null ) && lazyNames )
+        {
+            // Concurrent calls will compute the same String
+            name = joinRdns( false );
+            upName = name;
+        }
+
+        return name;
+    }
+
+
+    /**
+     * @return The normalized name, computed from the RDNs if needed
+     */
+    private String normName()
+    {
+        String name = normName;
+
+        if ( ( name == null ) && lazyNames )
+        {
+            // Concurrent calls will compute the same String
+            name = joinRdns( true );
+            normName = name;
+        }
+
+        return name;
+    }
+
+
+    /**
+     * Builds the user provided or the normalized name from the RDNs.
+     *
+     * @param normalized If we want the normalized name
+     * @return The RDNs names, separated by commas
+     */
+    private String joinRdns( boolean normalized )
+    {
+        StringBuilder sb = new StringBuilder();
+        boolean isFirst = true;
+
+        for ( Rdn rdn : rdns )
+        {
+            if ( isFirst )
+            {
+                isFirst = false;
+            }
+            else
+            {
+                sb.append( ',' );
+            }
+
+            sb.append( normalized ? rdn.getNormName() : rdn.getName() );
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Creates a Dn made of some of the current Dn RDNs. The RDNs are not copied : the
+     * new Dn shares them with the current one, and its names are computed when needed.
+     *
+     * @param from The position of the first RDN, inclusive
+     * @param to The position of the last RDN, exclusive
+     * @return The derived Dn
+     */
+    private Dn subDn( int from, int to )
+    {
+        Dn dn = new Dn( schemaManager );
+        dn.rdns = rdns.subList( from, to );
+        dn.upName = null;
+        dn.normName = null;
+        dn.lazyNames = true;
+
+        if ( to == rdns.size() )
+        {
+            // The derived Dn has the same suffixes
+            dn.suffixHashes = suffixHashes;
+        }
+
+        return dn;
+    }
+
+
+    /**
+     * @return The hashes of the Dn suffixes, computed if needed
+     */
+    private int[] suffixHashes()
+    {
+        int[] hashes = suffixHashes;
+
+        if ( hashes == null )
+        {
+            int size = rdns.size();
+            hashes = new int[size + 1];
+
+            for ( int i = 1; i <= size; i++ )
+            {
+                // The Avas order does not matter when comparing RDNs, so we just add their hashes
+                int rdnHash = 0;
+
+                for ( Ava ava : rdns.get( size - i ) )
+                {
+                    rdnHash += ava.hashCode();
+                }
+
+                hashes[i] = hashes[i - 1] * 31 + rdnHash;
+            }
+
+            suffixHashes = hashes;
+        }
+
+        return hashes;
     }
 
 
@@ -638,6 +789,24 @@ public class Dn implements Iterable<Rdn>, Externalizable
             return false;
         }
 
+        // If both Dns are normalized the same way, the suffixes hashes must be equal. This
+        // is not the case if only one of them is schema aware, as the RDNs may still be equal.
+        boolean normalized = ( schemaManager != null ) && ( schemaManager == dn.schemaManager );
+
+        if ( normalized )
+        {
+            if ( suffixHashes()[dn.size()] != dn.suffixHashes()[dn.size()] )
+            {
+                return false;
+            }
+
+            // The hashes are equal : the normalized names confirm it most of the time
+            if ( isSuffixOf( dn.normName(), normName() ) )
+            {
+                return true;
+            }
+        }
+
         // Ok, iterate through all the Rdn of the name,
         // starting a the end of the current list.
 
@@ -646,7 +815,10 @@ public class Dn implements Iterable<Rdn>, Externalizable
             Rdn nameRdn = dn.rdns.get( dn.rdns.size() - i - 1 );
             Rdn ldapRdn = rdns.get( rdns.size() - i - 1 );
 
-            if ( !nameRdn.equals( ldapRdn ) )
+            // The normalized names are equal most of the time, as the hashes are. Otherwise,
+            // the RDNs may still be equal, if their Avas are not in the same order
+            if ( ( nameRdn != ldapRdn ) && !( normalized && nameRdn.getNormName().equals( ldapRdn.getNormName() ) )
+                && !nameRdn.equals( ldapRdn ) )
             {
                 return false;
             }
@@ -656,6 +828,45 @@ public class Dn implements Iterable<Rdn>, Externalizable
     }
 
 
+    /**
+     * Tells if a normalized name ends with another one, at a RDN boundary : the
+     * suffix is either the whole name, or preceded by a separator which is not escaped.
+     *
+     * @param suffix The normalized suffix
+     * @param name The normalized name
+     * @return <code>true</code> if the name ends with the suffix RDNs
+     */
+    private static boolean isSuffixOf( String suffix, String name )
+    {
+        if ( ( suffix == null ) || ( name == null ) || !name.endsWith( suffix ) )
+        {
+            return false;
+        }
+
+        int separator = name.length() - suffix.length() - 1;
+
+        if ( separator < 0 )
+        {
+            return true;
+        }
+
+        if ( name.charAt( separator ) != ',' )
+        {
+            return false;
+        }
+
+        // The separator is escaped if it follows an odd number of backslashes
+        int backslashes = 0;
+
+        for ( int i = separator - 1; ( i >= 0 ) && ( name.charAt( i ) == '\\' ); i-- )
+        {
+            backslashes++;
+        }
+
+        return ( backslashes & 1 ) == 0;
+    }
+
+
     /**
      * Tells if the Dn contains no Rdn
      *
@@ -793,7 +1004,6 @@ public class Dn implements Iterable<Rdn>, Externalizable
             throw new ArrayIndexOutOfBoundsException( message );
         }
 
-        Dn newDn = new Dn( schemaManager );
         List<Rdn> rdnsAncestor = ancestor.getRdns();
 
         for ( int i = 0; i < ancestor.size(); i++ )
@@ -807,14 +1017,7 @@ public class Dn implements Iterable<Rdn>, Externalizable
             }
         }
 
-        for ( int i = 0; i < rdns.size() - length; i++ )
-        {
-            newDn.rdns.add( rdns.get( i ) );
-        }
-
-        newDn.toUpName();
-
-        return newDn;
+        return subDn( 0, rdns.size() - length );
     }
 
 
@@ -881,7 +1084,6 @@ public class Dn implements Iterable<Rdn>, Externalizable
             throw new ArrayIndexOutOfBoundsException( message );
         }
 
-        Dn newDn = new Dn( schemaManager );
         List<Rdn> rdnsDescendant = descendant.getRdns();
 
         for ( int i = 0; i < descendant.size(); i++ )
@@ -895,14 +1097,7 @@ public class Dn implements Iterable<Rdn>, Externalizable
             }
         }
 
-        for ( int i = length; i < rdns.size(); i++ )
-        {
-            newDn.rdns.add( rdns.get( i ) );
-        }
-
-        newDn.toUpName();
-
-        return newDn;
+        return subDn( length, rdns.size() );
     }
 
 
@@ -933,7 +1128,7 @@ public class Dn implements Iterable<Rdn>, Externalizable
         {
             if ( clonedDn.size() != 0 )
             {
-                clonedDn.upName = rdns.getName() + "," + upName;
+                clonedDn.upName = rdns.getName() + "," + upName();
             }
         }
         else
@@ -1012,18 +1207,8 @@ public class Dn implements Iterable<Rdn>, Externalizable
             return this;
         }
 
-        int posn = rdns.size() - 1;
-
-        Dn newDn = new Dn( schemaManager );
-
-        for ( int i = rdns.size() - posn; i < rdns.size(); i++ )
-        {
-            newDn.rdns.add( rdns.get( i ) );
-        }
-
-        newDn.toUpName();
-
-        return newDn;
+        // The parent shares the RDNs with this Dn
+        return subDn( 1, rdns.size() );
     }
 
 
@@ -1083,12 +1268,14 @@ public class Dn implements Iterable<Rdn>, Externalizable
         // Shortcut if the Dn is normalized
         if ( isSchemaAware() )
         {
-            if ( normName == null )
+            String name = normName();
+
+            if ( name == null )
             {
                 // equals() should never NPE
-                return other.normName == null;
+                return other.normName() == null;
             }
-            return normName.equals( other.normName );
+            return name.equals( other.normName() );
         }
 
         for ( int i = 0; i < this.size(); i++ )
@@ -1245,6 +1432,7 @@ public class Dn implements Iterable<Rdn>, Externalizable
             rdns.add( rdn );
         }
 
+        suffixHashes = null;
         toUpName();
     }
 
@@ -1255,7 +1443,9 @@ public class Dn implements Iterable<Rdn>, Externalizable
     @Override
     public void writeExternal( ObjectOutput out ) throws IOException
     {
-        if ( upName == null )
+        String name = upName();
+
+        if ( name == null )
         {
             String message = I18n.err( I18n.ERR_13624_CANNOT_SERIALIZE_NULL_DN );
             LOG.error( message );
@@ -1263,7 +1453,7 @@ public class Dn implements Iterable<Rdn>, Externalizable
         }
 
         // Write the UPName
-        out.writeUTF( upName );
+        out.writeUTF( name );
 
         // Write the RDNs.
         // First the number of RDNs
@@ -0,0 +1,289 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.model.name;
+
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.directory.api.i18n.I18n;
+
+
+/**
+ * A bounded cache of parsed and normalized {@link Dn}s, keyed by their user provided
+ * name. It can be attached to a SchemaManager, and will then be used when a schema
+ * aware Dn is created from a String, saving the parsing and the normalization of the
+ * same names over and over (group members, manager references, base DNs...).
+ * <br>
+ * The cache also interns the RDNs of the cached Dns suffixes, so that the many Dns
+ * created under the same suffix share the same Rdn instances instead of holding
+ * their own copies.
+ * <br>
+ * Dn instances are immutable, so they can be shared. Reading from the cache does not
+ * lock. When the cache is full, adding a name evicts some other name : the evictions
+ * go round the underlying map, each one starting where the previous one stopped, so
+ * that all the names get evicted in turn. This is cheaper than a true LRU, and is good
+ * enough for the workloads where the same names keep coming back.
+ * <br>
+ * The cache has to be cleared when the schema changes, as the cached names have been
+ * normalized with the previous schema. The SchemaManager takes care of that.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class DnCache
+{
+    /** The default maximum number of cached Dns */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    /** The cached Dns, by user provided name */
+    private final ConcurrentMap<String, Dn> dns;
+
+    /** The interned suffix RDNs, by user provided name */
+    private final ConcurrentMap<String, Rdn> rdns;
+
+    /** The maximum number of cached Dns, and of interned RDNs */
+    private final int maxSize;
+
+    /** The number of lookups which found a Dn */
+    private final LongAdder hits = new LongAdder();
+
+    /** The number of lookups which did not find a Dn */
+    private final LongAdder misses = new LongAdder();
+
+    /** The number of Dns removed to make room for new ones */
+    private final LongAdder evictions = new LongAdder();
+
+    /** The position of the last eviction in the map, guarded by the eviction lock */
+    private Iterator<String> evictionCursor;
+
+    /** The lock protecting the eviction cursor */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+
+    /**
+     * Creates a new DnCache instance, holding up to {@link #DEFAULT_MAX_SIZE} Dns.
+     */
+    public DnCache()
+    {
+        this( DEFAULT_MAX_SIZE );
+    }
+
+
+    /**
+     * Creates a new DnCache instance.
+     *
+     * @param maxSize The maximum number of cached Dns
+     */
+    public DnCache( int maxSize )
+    {
+        if ( maxSize <= 0 )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_13627_INVALID_DN_CACHE_SIZE, maxSize ) );
+        }
+
+        this.maxSize = maxSize;
+        dns = new ConcurrentHashMap<>( Math.min( maxSize, 1024 ) );
+        rdns = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Gets the Dn cached for a user provided name.
+     *
+     * @param upName The user provided name
+     * @return The cached Dn, or null if the name is not cached
+     */
+    public Dn get( String upName )
+    {
+        Dn dn = dns.get( upName );
+
+        if ( dn == null )
+        {
+            misses.increment();
+        }
+        else
+        {
+            hits.increment();
+        }
+
+        return dn;
+    }
+
+
+    /**
+     * Caches a Dn, evicting other Dns if the cache is full.
+     *
+     * @param upName The user provided name
+     * @param dn The parsed Dn
+     */
+    public void put( String upName, Dn dn )
+    {
+        if ( ( dns.putIfAbsent( upName, dn ) == null ) && ( dns.size() > maxSize ) )
+        {
+            evict( upName );
+        }
+    }
+
+
+    /**
+     * Evicts Dns until the cache is not oversized anymore, resuming from the last 
+     * eviction position, and going back to the start of the map at its end.
+     *
+     * @param upName The name just added, which is kept
+     */
+    private void evict( String upName )
+    {
+        evictionLock.lock();
+
+        try
+        {
+            // At most two passes : from the cursor to the end of the map, and from its start
+            for ( int pass = 0; ( pass < 2 ) && ( dns.size() > maxSize ); pass++ )
+            {
+                if ( ( evictionCursor == null ) || !evictionCursor.hasNext() )
+                {
+                    evictionCursor = dns.keySet().iterator();
+                }
+
+                while ( ( dns.size() > maxSize ) && evictionCursor.hasNext() )
+                {
+                    String name = evictionCursor.next();
+
+                    if ( !name.equals( upName ) && ( dns.remove( name ) != null ) )
+                    {
+                        evictions.increment();
+                    }
+                }
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+
+    /**
+     * Gets the interned instance of a suffix RDN. Once the maximum number of RDNs
+     * has been interned, the given RDN is returned as is.
+     *
+     * @param rdn The RDN to intern
+     * @return The RDN instance to use
+     */
+    public Rdn intern( Rdn rdn )
+    {
+        String name = rdn.getName();
+        Rdn interned = rdns.get( name );
+
+        if ( interned != null )
+        {
+            return interned;
+        }
+
+        if ( rdns.size() >= maxSize )
+        {
+            return rdn;
+        }
+
+        interned = rdns.putIfAbsent( name, rdn );
+
+        return ( interned == null ) ? rdn : interned;
+    }
+
+
+    /**
+     * Removes all the cached Dns and interned RDNs. The statistics are kept.
+     */
+    public void clear()
+    {
+        dns.clear();
+        rdns.clear();
+
+        evictionLock.lock();
+
+        try
+        {
+            evictionCursor = null;
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+
+    /**
+     * @return The number of cached Dns
+     */
+    public int size()
+    {
+        return dns.size();
+    }
+
+
+    /**
+     * @return The maximum number of cached Dns
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+
+    /**
+     * @return The number of lookups which found a Dn
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+
+    /**
+     * @return The number of lookups which did not find a Dn
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+
+    /**
+     * @return The number of Dns evicted to make room for new ones
+     */
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return "DnCache[size=" + dns.size() + "/" + maxSize + ", hits=" + hits.sum() + ", misses=" + misses.sum()
+            + ", evictions=" + evictions.sum() + "]";
+    }
+}
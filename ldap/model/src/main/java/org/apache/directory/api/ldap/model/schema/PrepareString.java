@@ -72,6 +72,12 @@ public final class PrepareString
     /** An exception used to get out of the map method quickly */
     private static final ArrayIndexOutOfBoundsException AIOOBE = new ArrayIndexOutOfBoundsException();
     
+    /** The biggest scratch buffer we keep around for the ASCII fast path */
+    private static final int MAX_SCRATCH_SIZE = 4096;
+    
+    /** A per thread buffer used by the ASCII fast path */
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial( () -> new char[256] );
+    
     /**
      * A private constructor, to avoid instance creation of this static class.
      */
@@ -114,6 +120,115 @@ public final class PrepareString
     }
     
     
+    /**
+     * Apply all the RFC 4518 steps to an ASCII String in a single pass. For such a String,
+     * the NFKC normalization does not change anything and no character is prohibited, so
+     * we only have to map the characters and to handle the insignificant spaces. This
+     * produces the same result as the full process, without allocating anything but
+     * the resulting String.
+     * 
+     * @param value The value to prepare
+     * @param caseSensitive {@link #CASE_SENSITIVE} to keep the casing, {@link #IGNORE_CASE}
+     * to lowercase the value
+     * @param assertionType The kind of assertion the value belongs to
+     * @return The prepared value, or null if the value contains a non ASCII char, in which
+     * case the full process must be used
+     */
+    public static String prepareAscii( String value, boolean caseSensitive, AssertionType assertionType )
+    {
+        int length = value.length();
+        char[] target = SCRATCH.get();
+        
+        // Each char may be preceded by a space, and we may add a space at the end
+        if ( target.length < length * 2 + 2 )
+        {
+            target = new char[length * 2 + 2];
+            
+            if ( target.length <= MAX_SCRATCH_SIZE )
+            {
+                SCRATCH.set( target );
+            }
+        }
+        
+        int pos = 0;
+        boolean hasChars = false;
+        boolean spaces = false;
+        
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = value.charAt( i );
+            
+            if ( c >= 0x0080 )
+            {
+                return null;
+            }
+            
+            if ( ( c == ' ' ) || ( ( c >= 0x0009 ) && ( c <= 0x000D ) ) )
+            {
+                // SPACE, and the chars mapped to SPACE
+                spaces = true;
+                continue;
+            }
+            
+            if ( ( c < 0x0020 ) || ( c == 0x007F ) )
+            {
+                // Control chars are mapped to nothing
+                continue;
+            }
+            
+            if ( !caseSensitive && ( c >= 'A' ) && ( c <= 'Z' ) )
+            {
+                c += 0x0020;
+            }
+            
+            if ( hasChars )
+            {
+                if ( spaces )
+                {
+                    // Spaces in the middle are replaced by two spaces
+                    target[pos++] = ' ';
+                    target[pos++] = ' ';
+                }
+            }
+            else
+            {
+                hasChars = true;
+                
+                // Leading spaces are replaced by one space
+                if ( spaces || ( assertionType == AssertionType.ATTRIBUTE_VALUE )
+                    || ( assertionType == AssertionType.SUBSTRING_INITIAL ) )
+                {
+                    target[pos++] = ' ';
+                }
+            }
+            
+            spaces = false;
+            target[pos++] = c;
+        }
+        
+        if ( !hasChars )
+        {
+            // An empty string
+            if ( assertionType == AssertionType.ATTRIBUTE_VALUE )
+            {
+                return "  ";
+            }
+            else
+            {
+                return " ";
+            }
+        }
+        
+        if ( spaces || ( assertionType == AssertionType.ATTRIBUTE_VALUE )
+            || ( assertionType == AssertionType.SUBSTRING_FINAL ) )
+        {
+            target[pos++] = ' ';
+        }
+        
+        return new String( target, 0, pos );
+    }
+    
+    
     /**
      * Apply the RFC 4518 MAP transformation, case sensitive
      * 
@@ -27,6 +27,7 @@ import java.util.Set;
 
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.DnCache;
 import org.apache.directory.api.ldap.model.schema.normalizers.OidNormalizer;
 import org.apache.directory.api.ldap.model.schema.registries.AttributeTypeRegistry;
 import org.apache.directory.api.ldap.model.schema.registries.ComparatorRegistry;
@@ -876,4 +877,26 @@ public interface SchemaManager
      * @return The list of dependent schemas
      */
     Set<String> listDependentSchemaNames( String schemaName );
+
+
+    /**
+     * @return The cache used when creating schema aware Dns from a String, or null
+     * if there is none. By default, there is no cache.
+     */
+    default DnCache getDnCache()
+    {
+        return null;
+    }
+
+
+    /**
+     * Sets the cache to use when creating schema aware Dns from a String. It is
+     * cleared when the schema is modified. By default, the cache is ignored.
+     *
+     * @param dnCache The cache, or null to disable caching
+     */
+    default void setDnCache( DnCache dnCache )
+    {
+        // No cache by default
+    }
 }
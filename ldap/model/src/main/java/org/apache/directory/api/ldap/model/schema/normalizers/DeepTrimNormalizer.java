@@ -83,7 +83,13 @@ public class DeepTrimNormalizer extends Normalizer implements PreparedNormalizer
             return null;
         }
 
-        String normValue = null;
+        // Most values are plain ASCII : they don't need the full process
+        String normValue = PrepareString.prepareAscii( value, PrepareString.CASE_SENSITIVE, assertionType );
+        
+        if ( normValue != null )
+        {
+            return normValue;
+        }
 
         try
         {
@@ -84,7 +84,13 @@ public class DeepTrimToLowerNormalizer extends Normalizer implements PreparedNor
             return null;
         }
 
-        String normValue = null;
+        // Most values are plain ASCII : they don't need the full process
+        String normValue = PrepareString.prepareAscii( value, PrepareString.IGNORE_CASE, assertionType );
+        
+        if ( normValue != null )
+        {
+            return normValue;
+        }
 
         try
         {
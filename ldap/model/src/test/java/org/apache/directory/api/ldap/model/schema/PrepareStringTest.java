@@ -20,12 +20,15 @@
 
 package org.apache.directory.api.ldap.model.schema;
 
+import java.util.Random;
+
 import org.apache.directory.api.util.exception.InvalidCharacterException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  * Tests for the PrepareString class
@@ -473,4 +476,106 @@ public class PrepareStringTest
         char[] empty = new char[]{ ' ', ' ', ' ', 'a', ' ', ' ', 'b', ' ', ' ', ' ', ' ', 'c', ' ', 'd', ' ', ' ', ' ' };
         assertEquals( " a  b  c  d ", PrepareString.insignificantSpacesStringAny( empty ) );
     }
+    
+    
+    //-------------------------------------------------------------------------
+    // Test the PrepareString.prepareAscii method
+    //-------------------------------------------------------------------------
+    /**
+     * The full RFC 4518 process, as done by the normalizers
+     */
+    private static String prepare( String value, boolean caseSensitive, PrepareString.AssertionType assertionType )
+        throws InvalidCharacterException
+    {
+        String mapped = caseSensitive ? PrepareString.mapCaseSensitive( value ) : PrepareString.mapIgnoreCase( value );
+        char[] chars = PrepareString.normalize( mapped ).toCharArray();
+        PrepareString.checkProhibited( chars );
+
+        switch ( assertionType )
+        {
+            case SUBSTRING_INITIAL :
+                return PrepareString.insignificantSpacesStringInitial( chars );
+
+            case SUBSTRING_ANY :
+                return PrepareString.insignificantSpacesStringAny( chars );
+
+            case SUBSTRING_FINAL :
+                return PrepareString.insignificantSpacesStringFinal( chars );
+
+            default :
+                return PrepareString.insignificantSpacesStringValue( chars );
+        }
+    }
+
+
+    private static void assertSameAsFullProcess( String value ) throws InvalidCharacterException
+    {
+        for ( PrepareString.AssertionType assertionType : PrepareString.AssertionType.values() )
+        {
+            assertEquals( prepare( value, PrepareString.CASE_SENSITIVE, assertionType ),
+                PrepareString.prepareAscii( value, PrepareString.CASE_SENSITIVE, assertionType ) );
+            assertEquals( prepare( value, PrepareString.IGNORE_CASE, assertionType ),
+                PrepareString.prepareAscii( value, PrepareString.IGNORE_CASE, assertionType ) );
+        }
+    }
+
+
+    @Test
+    public void testPrepareAsciiAllChars() throws InvalidCharacterException
+    {
+        assertSameAsFullProcess( "" );
+
+        for ( char c = 0; c < 0x80; c++ )
+        {
+            assertSameAsFullProcess( String.valueOf( c ) );
+            assertSameAsFullProcess( " " + c + "a" );
+            assertSameAsFullProcess( "A" + c );
+            assertSameAsFullProcess( "A" + c + " B " );
+        }
+    }
+
+
+    @Test
+    public void testPrepareAsciiRandom() throws InvalidCharacterException
+    {
+        // Mostly spaces, control chars and letters, to get all the space transitions
+        char[] alphabet = { ' ', ' ', '\t', '\n', 0x00, 0x1F, 0x7F, 'a', 'B', 'z', 'Z', '0', '-', '.' };
+        Random random = new Random( 4518 );
+
+        for ( int i = 0; i < 10000; i++ )
+        {
+            char[] chars = new char[random.nextInt( 12 )];
+
+            for ( int j = 0; j < chars.length; j++ )
+            {
+                chars[j] = alphabet[random.nextInt( alphabet.length )];
+            }
+
+            assertSameAsFullProcess( new String( chars ) );
+        }
+    }
+
+
+    @Test
+    public void testPrepareAsciiLongValue() throws InvalidCharacterException
+    {
+        StringBuilder sb = new StringBuilder();
+
+        for ( int i = 0; i < 5000; i++ )
+        {
+            sb.append( "Ab " );
+        }
+
+        assertSameAsFullProcess( sb.toString() );
+    }
+
+
+    @Test
+    public void testPrepareAsciiNonAscii()
+    {
+        assertNull( PrepareString.prepareAscii( "Emmanuel L\u00e9charny", PrepareString.IGNORE_CASE,
+            PrepareString.AssertionType.ATTRIBUTE_VALUE ) );
+        assertNull( PrepareString.prepareAscii( "\uFF21", PrepareString.CASE_SENSITIVE,
+            PrepareString.AssertionType.SUBSTRING_ANY ) );
+    }
 }
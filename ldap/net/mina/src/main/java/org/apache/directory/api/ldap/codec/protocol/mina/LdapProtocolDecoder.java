@@ -26,9 +26,12 @@ import java.util.List;
 
 import org.apache.directory.api.asn1.DecoderException;
 import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.ber.tlv.TLV;
 import org.apache.directory.api.asn1.ber.tlv.TLVStateEnum;
 import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.FastResponseDecoder;
 import org.apache.directory.api.ldap.codec.api.LdapDecoder;
+import org.apache.directory.api.ldap.codec.api.LdapDecodingFilter;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.codec.api.ResponseCarryingException;
 import org.apache.directory.api.ldap.model.constants.Loggers;
@@ -46,6 +49,15 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A LDAP message decoder. It is based on api-ldap decoder.
+ * <p>
+ * The incoming bytes are first framed : we only read the LDAPMessage tag and length to
+ * know where the PDU ends, and the grammar is only run on a complete PDU. A PDU fully
+ * contained in the received buffer is decoded in place, otherwise its bytes are gathered
+ * in a per session buffer until the last fragment is received. This way, the decoder
+ * always works on a contiguous PDU and never has to suspend in the middle of a value.
+ * <p>
+ * When a {@link LdapDecodingFilter} follows the codec filter, the PDUs are only framed :
+ * they are written as {@link ByteBuffer}s, and the filter decodes them in its executor.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -54,6 +66,12 @@ public class LdapProtocolDecoder implements ProtocolDecoder
     /** The logger */
     private static final Logger CODEC_LOG = LoggerFactory.getLogger( Loggers.CODEC_LOG.getName() );
 
+    /** The session attribute storing the bytes of a PDU which has not been fully received */
+    private static final String PENDING_PDU_ATTR = "LDAP-pendingPdu";
+
+    /** The maximum size of a PDU header : the tag, and a length on up to 5 bytes */
+    private static final int MAX_HEADER_SIZE = 6;
+
     /**
      * Creates a new instance of LdapProtocolEncoder.
      */
@@ -80,12 +98,32 @@ public class LdapProtocolDecoder implements ProtocolDecoder
             messageContainer.setMaxPDUSize( maxPDUSize );
         }
 
-        List<Message> decodedMessages = new ArrayList<>();
+        List<Object> decodedMessages = new ArrayList<>();
         ByteBuffer buf = in.buf();
+        boolean framesOnly = session.containsAttribute( LdapDecodingFilter.DECODING_LANES_ATTR );
+
+        try
+        {
+            ByteBuffer pending = decode( buf, ( ByteBuffer ) session.getAttribute( PENDING_PDU_ATTR ),
+                messageContainer, decodedMessages, framesOnly );
+
+            if ( pending == null )
+            {
+                session.removeAttribute( PENDING_PDU_ATTR );
+            }
+            else
+            {
+                session.setAttribute( PENDING_PDU_ATTR, pending );
+            }
+        }
+        catch ( Exception e )
+        {
+            session.removeAttribute( PENDING_PDU_ATTR );
 
-        decode( buf, messageContainer, decodedMessages );
+            throw e;
+        }
 
-        for ( Message message : decodedMessages )
+        for ( Object message : decodedMessages )
         {
             out.write( message );
         }
@@ -97,79 +135,299 @@ public class LdapProtocolDecoder implements ProtocolDecoder
      * LDAP messages, which will be stored into the array the caller has created.
      * 
      * @param buffer The incoming byte buffer
+     * @param pending The bytes already received for the current PDU, if any
      * @param messageContainer The LdapMessageContainer which will be used to store the
-     * message being decoded. If the message is not fully decoded, the ucrrent state
-     * is stored into this container
-     * @param decodedMessages The list of decoded messages
+     * message being decoded
+     * @param decodedMessages The list of decoded messages, or framed PDUs
+     * @param framesOnly If the PDUs must be framed, but not decoded
+     * @return The bytes received for a PDU which is not complete yet, or <code>null</code>
      * @throws DecoderException If the decoding failed
      */
-    private void decode( ByteBuffer buffer, LdapMessageContainer<AbstractMessage> messageContainer,
-        List<Message> decodedMessages ) throws DecoderException
+    private ByteBuffer decode( ByteBuffer buffer, ByteBuffer pending, LdapMessageContainer<AbstractMessage> messageContainer,
+        List<Object> decodedMessages, boolean framesOnly ) throws DecoderException
     {
         buffer.mark();
 
-        while ( buffer.hasRemaining() )
+        try
         {
-            try
+            if ( pending != null )
             {
-                if ( CODEC_LOG.isDebugEnabled() )
+                pending = complete( pending, buffer, messageContainer, decodedMessages, framesOnly );
+
+                if ( pending != null )
                 {
-                    CODEC_LOG.debug( I18n.msg( I18n.MSG_14000_DECODING_PDU ) );
+                    // We still need some more bytes
+                    return pending;
+                }
+            }
 
-                    int size = buffer.limit();
-                    int position = buffer.position();
-                    int pduLength = size - position;
+            while ( buffer.hasRemaining() )
+            {
+                int pduLength = getPduLength( buffer, buffer.position(), buffer.limit(), messageContainer );
+
+                if ( ( pduLength == -1 ) || ( pduLength > buffer.remaining() ) )
+                {
+                    // A fragment : keep it until we get the rest of the PDU
+                    ByteBuffer fragment = ByteBuffer.allocate( MAX_HEADER_SIZE );
 
-                    byte[] array = new byte[pduLength];
+                    return complete( fragment, buffer, messageContainer, decodedMessages, framesOnly );
+                }
 
-                    System.arraycopy( buffer.array(), position, array, 0, pduLength );
+                // The full PDU is available, decode it in place
+                int limit = buffer.limit();
+                buffer.limit( buffer.position() + pduLength );
 
-                    if ( array.length == 0 )
+                try
+                {
+                    if ( framesOnly )
                     {
-                        CODEC_LOG.debug( I18n.msg( I18n.MSG_14001_NULL_BUFFER ) );
+                        // The incoming buffer will be reused, copy the PDU
+                        ByteBuffer pdu = ByteBuffer.allocate( pduLength );
+                        pdu.put( buffer );
+                        pdu.flip();
+                        decodedMessages.add( pdu );
                     }
                     else
                     {
-                        CODEC_LOG.debug( Strings.dumpBytes( array ) );
+                        decodedMessages.add( decodePdu( buffer, messageContainer ) );
                     }
                 }
+                finally
+                {
+                    buffer.limit( limit );
+                }
+            }
 
-                Asn1Decoder.decode( buffer, messageContainer );
+            return null;
+        }
+        catch ( ResponseCarryingException rce )
+        {
+            buffer.clear();
+            messageContainer.clean();
+            
+            // Transform the DecoderException message to a MessageException
+            ResponseCarryingMessageException rcme = new ResponseCarryingMessageException( rce.getMessage(), rce );
+            rcme.setResponse( rce.getResponse() );
 
-                if ( messageContainer.getState() == TLVStateEnum.PDU_DECODED )
-                {
-                    if ( CODEC_LOG.isDebugEnabled() )
-                    {
-                        CODEC_LOG.debug( I18n.msg( I18n.MSG_14002_DECODED_LDAP_MESSAGE, messageContainer.getMessage() ) );
-                    }
+            throw rcme;
+        }
+        catch ( DecoderException de )
+        {
+            buffer.clear();
+            messageContainer.clean();
 
-                    Message message = messageContainer.getMessage();
+            // TODO : This is certainly not the way we should handle such an exception !
+            throw new ResponseCarryingException( de.getMessage(), de );
+        }
+    }
 
-                    decodedMessages.add( message );
 
-                    messageContainer.clean();
-                }
+    /**
+     * Append the incoming bytes to a partially received PDU, up to the end of this PDU.
+     * If the PDU is complete, it gets decoded.
+     *
+     * @param pending The bytes already received for the current PDU
+     * @param buffer The incoming byte buffer
+     * @param messageContainer The LdapMessageContainer which will be used to decode the PDU
+     * @param decodedMessages The list of decoded messages, or framed PDUs
+     * @param framesOnly If the PDU must be framed, but not decoded
+     * @return The pending PDU if it's not complete yet, <code>null</code> if it has been decoded
+     * @throws DecoderException If the decoding failed
+     */
+    private ByteBuffer complete( ByteBuffer pending, ByteBuffer buffer, LdapMessageContainer<AbstractMessage> messageContainer,
+        List<Object> decodedMessages, boolean framesOnly ) throws DecoderException
+    {
+        int pduLength = getPduLength( pending, 0, pending.position(), messageContainer );
+
+        // First get the PDU header, byte per byte
+        while ( ( pduLength == -1 ) && buffer.hasRemaining() )
+        {
+            pending.put( buffer.get() );
+            pduLength = getPduLength( pending, 0, pending.position(), messageContainer );
+        }
+
+        if ( pduLength == -1 )
+        {
+            return pending;
+        }
+
+        int available = Math.min( pduLength - pending.position(), buffer.remaining() );
+
+        if ( pending.remaining() < available )
+        {
+            // Grow the buffer progressively, we don't trust the announced length
+            int capacity = Math.min( pduLength, Math.max( pending.capacity() * 2, pending.position() + available ) );
+            ByteBuffer larger = ByteBuffer.allocate( capacity );
+            pending.flip();
+            larger.put( pending );
+            pending = larger;
+        }
+
+        int limit = buffer.limit();
+        buffer.limit( buffer.position() + available );
+        pending.put( buffer );
+        buffer.limit( limit );
+
+        if ( pending.position() < pduLength )
+        {
+            return pending;
+        }
+
+        pending.flip();
+
+        if ( framesOnly )
+        {
+            // The pending buffer is not used anymore, no need to copy it
+            decodedMessages.add( pending );
+        }
+        else
+        {
+            decodedMessages.add( decodePdu( pending, messageContainer ) );
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Compute the length of the PDU starting at a given position, from its tag and length.
+     *
+     * @param buffer The buffer containing the PDU
+     * @param start The position of the PDU's first byte
+     * @param end The position following the last available byte
+     * @param messageContainer The LdapMessageContainer, which gives the maximum PDU size
+     * @return The full PDU length, or -1 if its header has not been fully received yet
+     * @throws DecoderException If the length is invalid
+     */
+    private static int getPduLength( ByteBuffer buffer, int start, int end,
+        LdapMessageContainer<AbstractMessage> messageContainer ) throws DecoderException
+    {
+        // The LDAPMessage tag is a single byte, followed by at least one length byte
+        if ( end - start < 2 )
+        {
+            return -1;
+        }
+
+        byte octet = buffer.get( start + 1 );
+        int headerLength;
+        int length;
+
+        if ( ( octet & TLV.LENGTH_LONG_FORM ) == 0 )
+        {
+            headerLength = 2;
+            length = octet;
+        }
+        else if ( ( octet & TLV.LENGTH_EXTENSION_RESERVED ) != TLV.LENGTH_EXTENSION_RESERVED )
+        {
+            int nbBytes = octet & TLV.LENGTH_SHORT_MASK;
+
+            if ( nbBytes > 4 )
+            {
+                throw new DecoderException( I18n.err( I18n.ERR_01000_LENGTH_OVERFLOW ) );
+            }
+
+            headerLength = 2 + nbBytes;
+
+            if ( end - start < headerLength )
+            {
+                return -1;
+            }
+
+            length = 0;
+
+            for ( int i = 2; i < headerLength; i++ )
+            {
+                length = ( length << 8 ) | ( buffer.get( start + i ) & 0x00FF );
+            }
+
+            if ( ( length < 0 ) || ( length > Integer.MAX_VALUE - headerLength ) )
+            {
+                throw new DecoderException( I18n.err( I18n.ERR_01000_LENGTH_OVERFLOW ) );
+            }
+        }
+        else
+        {
+            throw new DecoderException( I18n.err( I18n.ERR_01001_LENGTH_EXTENSION_RESERVED ) );
+        }
+
+        int pduLength = headerLength + length;
+
+        if ( pduLength > messageContainer.getMaxPDUSize() )
+        {
+            throw new DecoderException( I18n.err( I18n.ERR_01007_PDU_SIZE_TOO_LONG, pduLength,
+                messageContainer.getMaxPDUSize() ) );
+        }
+
+        return pduLength;
+    }
+
+
+    /**
+     * Decode a complete PDU.
+     *
+     * @param pdu The buffer containing the PDU, and nothing else
+     * @param messageContainer The LdapMessageContainer which will be used to store the
+     * message being decoded
+     * @return The decoded message
+     * @throws DecoderException If the decoding failed
+     */
+    private Message decodePdu( ByteBuffer pdu, LdapMessageContainer<AbstractMessage> messageContainer )
+        throws DecoderException
+    {
+        if ( CODEC_LOG.isDebugEnabled() )
+        {
+            CODEC_LOG.debug( I18n.msg( I18n.MSG_14000_DECODING_PDU ) );
+
+            // Read through a duplicate : the buffer may be a direct one, with no array
+            byte[] array = new byte[pdu.remaining()];
+            pdu.duplicate().get( array );
+
+            if ( array.length == 0 )
+            {
+                CODEC_LOG.debug( I18n.msg( I18n.MSG_14001_NULL_BUFFER ) );
             }
-            catch ( ResponseCarryingException rce )
+            else
             {
-                buffer.clear();
-                messageContainer.clean();
-                
-                // Transform the DecoderException message to a MessageException
-                ResponseCarryingMessageException rcme = new ResponseCarryingMessageException( rce.getMessage(), rce );
-                rcme.setResponse( rce.getResponse() );
-
-                throw rcme;
+                CODEC_LOG.debug( Strings.dumpBytes( array ) );
             }
-            catch ( DecoderException de )
+        }
+
+        if ( messageContainer.isFastDecoding() )
+        {
+            Message message = FastResponseDecoder.decode( pdu, messageContainer );
+
+            if ( message != null )
             {
-                buffer.clear();
-                messageContainer.clean();
+                // The fast decoder does not move the position, the PDU may be decoded in place
+                pdu.position( pdu.limit() );
+
+                if ( CODEC_LOG.isDebugEnabled() )
+                {
+                    CODEC_LOG.debug( I18n.msg( I18n.MSG_14002_DECODED_LDAP_MESSAGE, message ) );
+                }
 
-                // TODO : This is certainly not the way we should handle such an exception !
-                throw new ResponseCarryingException( de.getMessage(), de );
+                return message;
             }
         }
+
+        Asn1Decoder.decode( pdu, messageContainer );
+
+        if ( messageContainer.getState() != TLVStateEnum.PDU_DECODED )
+        {
+            // The grammar does not agree with the PDU length
+            throw new DecoderException( I18n.err( I18n.ERR_01005_TRUNCATED_PDU ) );
+        }
+
+        if ( CODEC_LOG.isDebugEnabled() )
+        {
+            CODEC_LOG.debug( I18n.msg( I18n.MSG_14002_DECODED_LDAP_MESSAGE, messageContainer.getMessage() ) );
+        }
+
+        Message message = messageContainer.getMessage();
+
+        messageContainer.clean();
+
+        return message;
     }
 
 
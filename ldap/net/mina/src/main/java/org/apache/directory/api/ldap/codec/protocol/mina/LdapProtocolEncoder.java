@@ -25,9 +25,12 @@ import java.nio.ByteBuffer;
 import org.apache.directory.api.asn1.EncoderException;
 import org.apache.directory.api.asn1.util.Asn1Buffer;
 import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.AddRequestChunkEncoder;
+import org.apache.directory.api.ldap.codec.api.AddRequestStreamingFilter;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
 import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.api.StreamingAddRequest;
 import org.apache.directory.api.ldap.model.constants.Loggers;
 import org.apache.directory.api.ldap.model.message.Message;
 import org.apache.directory.api.util.Strings;
@@ -41,6 +44,13 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A LDAP message encoder. It is based on api-ldap encoder.
+ * <br>
+ * The PDU is encoded in a thread local Asn1Buffer, then copied once into an IoBuffer
+ * obtained from MINA's buffer allocator (see
+ * {@link IoBuffer#setAllocator(org.apache.mina.core.buffer.IoBufferAllocator)}), which is
+ * handed to the session as is. When {@link IoBuffer#setUseDirectBuffer(boolean)} has been
+ * set, the IoBuffer is a direct one, which saves the copy into a temporary direct buffer
+ * the JDK does when writing a heap buffer into a socket.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -80,6 +90,21 @@ public class LdapProtocolEncoder implements ProtocolEncoder
     @Override
     public void encode( IoSession session, Object message, ProtocolEncoderOutput out ) throws Exception
     {
+        if ( message instanceof StreamingAddRequest )
+        {
+            // Not written by the AddRequestStreamingFilter : its streamed values can't
+            // be encoded in the Asn1Buffer, but we can still write all its chunks at once
+            AddRequestChunkEncoder encoder = new AddRequestChunkEncoder( codec, ( StreamingAddRequest ) message,
+                AddRequestStreamingFilter.DEFAULT_CHUNK_SIZE );
+
+            for ( ByteBuffer chunk = encoder.next(); chunk != null; chunk = encoder.next() )
+            {
+                out.write( IoBuffer.wrap( chunk ) );
+            }
+
+            return;
+        }
+
         Asn1Buffer asn1Buffer = threadLocalStorage.get();
         
         if ( asn1Buffer == null )
@@ -88,12 +113,16 @@ public class LdapProtocolEncoder implements ProtocolEncoder
             threadLocalStorage.set( asn1Buffer );
         }
 
-        ByteBuffer encoded;
+        IoBuffer ioBuffer;
         
         try
         { 
-            LdapEncoder.encodeMessage( asn1Buffer, codec, ( Message ) message );
-            encoded = asn1Buffer.getBytes();
+            LdapEncoder.encodeMessageInBuffer( asn1Buffer, codec, ( Message ) message );
+
+            // Copy the encoded PDU straight into the buffer we give to MINA
+            ioBuffer = IoBuffer.allocate( asn1Buffer.getPos() );
+            asn1Buffer.copyTo( ioBuffer.buf() );
+            ioBuffer.flip();
         }
         catch ( EncoderException e )
         {
@@ -104,14 +133,11 @@ public class LdapProtocolEncoder implements ProtocolEncoder
         {
             asn1Buffer.clear();
         }
-        
-        IoBuffer ioBuffer = IoBuffer.wrap( encoded );
     
         if ( CODEC_LOG.isDebugEnabled() )
         {
-            byte[] dumpBuffer = new byte[encoded.limit()];
-            encoded.get( dumpBuffer );
-            encoded.flip();
+            byte[] dumpBuffer = new byte[ioBuffer.limit()];
+            ioBuffer.duplicate().get( dumpBuffer );
             CODEC_LOG.debug( I18n.msg( I18n.MSG_14003_ENCODED_LDAP_MESSAGE, message, Strings.dumpBytes( dumpBuffer ) ) );
         }
 
@@ -0,0 +1,281 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.protocol.mina;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
+import org.apache.directory.api.ldap.codec.api.LdapDecoder;
+import org.apache.directory.api.ldap.codec.api.LdapDecodingFilter;
+import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.ProtocolDecoderOutput;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the LdapProtocolDecoder framing, with PDUs received in fragments.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapProtocolDecoderTest
+{
+    private static LdapApiService codec;
+
+    /** Three PDUs : a BindResponse, a SearchResultEntry carrying a large value, and a SearchResultDone */
+    private static byte[] pdus;
+
+    private static byte[] photo;
+
+
+    /**
+     * A ProtocolDecoderOutput storing the decoded messages
+     */
+    private static final class CollectingOutput implements ProtocolDecoderOutput
+    {
+        private final List<Object> messages = new ArrayList<>();
+
+
+        @Override
+        public void write( Object message )
+        {
+            messages.add( message );
+        }
+
+
+        @Override
+        public void flush( NextFilter nextFilter, IoSession session )
+        {
+            // Nothing to do
+        }
+    }
+
+
+    @BeforeAll
+    public static void setup() throws Exception
+    {
+        codec = LdapApiServiceFactory.getSingleton();
+        photo = new byte[70000];
+
+        for ( int i = 0; i < photo.length; i++ )
+        {
+            photo[i] = ( byte ) i;
+        }
+
+        BindResponseImpl bindResponse = new BindResponseImpl( 1 );
+        bindResponse.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+
+        SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl( 2 );
+        searchResultEntry.setEntry( new DefaultEntry( "uid=jdoe,ou=people,dc=example,dc=com",
+            "objectClass: person",
+            "cn: John Doe",
+            "sn: Doe",
+            "jpegPhoto", photo ) );
+
+        SearchResultDoneImpl searchResultDone = new SearchResultDoneImpl( 2 );
+        searchResultDone.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+
+        ByteBuffer buffer = ByteBuffer.allocate( 100000 );
+
+        for ( Message message : Arrays.asList( bindResponse, searchResultEntry, searchResultDone ) )
+        {
+            buffer.put( LdapEncoder.encodeMessage( new Asn1Buffer(), codec, message ) );
+        }
+
+        buffer.flip();
+        pdus = new byte[buffer.remaining()];
+        buffer.get( pdus );
+    }
+
+
+    private List<Object> decode( IoSession session, byte[] bytes, int chunkSize ) throws Exception
+    {
+        return decode( session, bytes, chunkSize, false );
+    }
+
+
+    private List<Object> decode( IoSession session, byte[] bytes, int chunkSize, boolean direct ) throws Exception
+    {
+        LdapProtocolDecoder decoder = new LdapProtocolDecoder();
+        CollectingOutput output = new CollectingOutput();
+
+        for ( int start = 0; start < bytes.length; start += chunkSize )
+        {
+            int end = Math.min( bytes.length, start + chunkSize );
+            IoBuffer chunk;
+
+            if ( direct )
+            {
+                chunk = IoBuffer.allocate( end - start, true );
+                chunk.put( bytes, start, end - start );
+                chunk.flip();
+            }
+            else
+            {
+                chunk = IoBuffer.wrap( Arrays.copyOfRange( bytes, start, end ) );
+            }
+
+            decoder.decode( session, chunk, output );
+        }
+
+        return output.messages;
+    }
+
+
+    private IoSession newSession()
+    {
+        IoSession session = new DummySession();
+        session.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR, new LdapMessageContainer<>( codec ) );
+
+        return session;
+    }
+
+
+    @Test
+    public void testDecodeFragmentedPdus() throws Exception
+    {
+        for ( int chunkSize : new int[] { 1, 2, 7, 1000, 65536, pdus.length } )
+        {
+            List<Object> messages = decode( newSession(), pdus, chunkSize );
+
+            assertEquals( 3, messages.size() );
+            assertEquals( 1, ( ( Message ) messages.get( 0 ) ).getMessageId() );
+
+            SearchResultEntry entry = ( SearchResultEntry ) messages.get( 1 );
+            assertEquals( "uid=jdoe,ou=people,dc=example,dc=com", entry.getObjectName().getName() );
+            assertEquals( "John Doe", entry.getEntry().get( "cn" ).getString() );
+            assertArrayEquals( photo, entry.getEntry().get( "jpegPhoto" ).getBytes() );
+
+            assertEquals( ResultCodeEnum.SUCCESS,
+                ( ( SearchResultDone ) messages.get( 2 ) ).getLdapResult().getResultCode() );
+        }
+    }
+
+
+    @Test
+    public void testFastDecoding() throws Exception
+    {
+        for ( int chunkSize : new int[] { 1, 7, 65536, pdus.length } )
+        {
+            IoSession session = newSession();
+            ( ( LdapMessageContainer<?> ) session.getAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR ) )
+                .setFastDecoding( true );
+
+            // Some PDUs are decoded in place, in the received buffer
+            List<Object> messages = decode( session, pdus, chunkSize );
+
+            assertEquals( 3, messages.size() );
+            assertEquals( 1, ( ( Message ) messages.get( 0 ) ).getMessageId() );
+
+            SearchResultEntry entry = ( SearchResultEntry ) messages.get( 1 );
+            assertEquals( "John Doe", entry.getEntry().get( "cn" ).getString() );
+            assertArrayEquals( photo, entry.getEntry().get( "jpegPhoto" ).getBytes() );
+
+            assertEquals( ResultCodeEnum.SUCCESS,
+                ( ( SearchResultDone ) messages.get( 2 ) ).getLdapResult().getResultCode() );
+        }
+    }
+
+
+    @Test
+    public void testDecodeDirectBuffers() throws Exception
+    {
+        for ( boolean fastDecoding : new boolean[] { false, true } )
+        {
+            for ( int chunkSize : new int[] { 3, 1000, pdus.length } )
+            {
+                IoSession session = newSession();
+                ( ( LdapMessageContainer<?> ) session.getAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR ) )
+                    .setFastDecoding( fastDecoding );
+
+                List<Object> messages = decode( session, pdus, chunkSize, true );
+
+                assertEquals( 3, messages.size() );
+
+                SearchResultEntry entry = ( SearchResultEntry ) messages.get( 1 );
+                assertEquals( "uid=jdoe,ou=people,dc=example,dc=com", entry.getObjectName().getName() );
+                assertEquals( "John Doe", entry.getEntry().get( "cn" ).getString() );
+                assertEquals( "Doe", entry.getEntry().get( "sn" ).getString() );
+                assertArrayEquals( photo, entry.getEntry().get( "jpegPhoto" ).getBytes() );
+            }
+        }
+    }
+
+
+    @Test
+    public void testFramesOnly() throws Exception
+    {
+        for ( int chunkSize : new int[] { 1, 7, 65536, pdus.length } )
+        {
+            IoSession session = newSession();
+            session.setAttribute( LdapDecodingFilter.DECODING_LANES_ATTR, Boolean.TRUE );
+
+            List<Object> frames = decode( session, pdus, chunkSize );
+
+            // The PDUs are only framed, not decoded
+            assertEquals( 3, frames.size() );
+            ByteBuffer all = ByteBuffer.allocate( pdus.length );
+
+            for ( Object frame : frames )
+            {
+                all.put( ( ByteBuffer ) frame );
+            }
+
+            assertArrayEquals( pdus, all.array() );
+        }
+    }
+
+
+    @Test
+    public void testPduTooLarge() throws Exception
+    {
+        IoSession session = newSession();
+        session.setAttribute( LdapDecoder.MAX_PDU_SIZE_ATTR, 1024 );
+
+        // The SearchResultEntry is rejected as soon as its header is received
+        assertThrows( DecoderException.class, () -> decode( session, pdus, 5 ) );
+        assertFalse( session.containsAttribute( "LDAP-pendingPdu" ) );
+    }
+}
@@ -40,6 +40,7 @@ import org.apache.directory.api.ldap.model.exception.LdapSchemaExceptionCodes;
 import org.apache.directory.api.ldap.model.exception.LdapUnwillingToPerformException;
 import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.DnCache;
 import org.apache.directory.api.ldap.model.schema.AttributeType;
 import org.apache.directory.api.ldap.model.schema.LdapComparator;
 import org.apache.directory.api.ldap.model.schema.LdapSyntax;
@@ -128,6 +129,9 @@ public class DefaultSchemaManager implements SchemaManager
      */
     private SchemaErrorHandler errorHandler;
 
+    /** The optional cache of parsed Dns, cleared when the schema changes */
+    private volatile DnCache dnCache;
+
     /**
      * Creates a new instance of DefaultSchemaManager with LDIF based SchemaLoader,
      * Strict schema validation
@@ -754,6 +758,9 @@ public class DefaultSchemaManager implements SchemaManager
      */
     private boolean load( Registries registries, Schema schema ) throws LdapException
     {
+        // The cached Dns may have been normalized with a schema we are about to change
+        clearDnCache();
+
         if ( schema == null )
         {
             if ( LOG.isInfoEnabled() )
@@ -852,6 +859,9 @@ public class DefaultSchemaManager implements SchemaManager
      */
     private boolean unload( Registries registries, Schema schema ) throws LdapException
     {
+        // The cached Dns may have been normalized with a schema we are about to change
+        clearDnCache();
+
         if ( schema == null )
         {
             if ( LOG.isInfoEnabled() )
@@ -1304,6 +1314,7 @@ public class DefaultSchemaManager implements SchemaManager
             {
                 // We are golden : let's apply the schema in the real registries
                 registries = clonedRegistries;
+                clearDnCache();
                 registries.setStrict();
                 loaded = true;
             }
@@ -1317,6 +1328,7 @@ public class DefaultSchemaManager implements SchemaManager
         {
             // Relaxed mode
             registries = clonedRegistries;
+            clearDnCache();
             registries.setRelaxed();
             loaded = true;
         }
@@ -1523,6 +1535,7 @@ public class DefaultSchemaManager implements SchemaManager
     public void setRegistries( Registries registries )
     {
         this.registries = registries;
+        clearDnCache();
     }
 
 
@@ -2041,6 +2054,7 @@ public class DefaultSchemaManager implements SchemaManager
         {
             // Apply the addition right away
             registries.add( copy, true );
+            clearDnCache();
 
             return !errorHandler.wasError();
         }
@@ -2118,6 +2132,7 @@ public class DefaultSchemaManager implements SchemaManager
 
                     // Apply the addition to the real registries
                     registries.add( copy, true );
+                    clearDnCache();
 
                     if ( LOG.isDebugEnabled() )
                     {
@@ -2164,6 +2179,7 @@ public class DefaultSchemaManager implements SchemaManager
         {
             // Apply the addition right away
             registries.delete( schemaObject );
+            clearDnCache();
 
             return !errorHandler.wasError();
         }
@@ -2235,6 +2251,7 @@ public class DefaultSchemaManager implements SchemaManager
                 {
                     // Apply the deletion to the real registries
                     registries.delete( toDelete );
+                    clearDnCache();
 
                     if ( LOG.isDebugEnabled() )
                     {
@@ -2325,7 +2342,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterAttributeType( String attributeTypeOid ) throws LdapException
     {
-        return registries.getAttributeTypeRegistry().unregister( attributeTypeOid );
+        SchemaObject unregistered = registries.getAttributeTypeRegistry().unregister( attributeTypeOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2335,7 +2355,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterComparator( String comparatorOid ) throws LdapException
     {
-        return registries.getComparatorRegistry().unregister( comparatorOid );
+        SchemaObject unregistered = registries.getComparatorRegistry().unregister( comparatorOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2345,7 +2368,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterDitControlRule( String ditControlRuleOid ) throws LdapException
     {
-        return registries.getDitContentRuleRegistry().unregister( ditControlRuleOid );
+        SchemaObject unregistered = registries.getDitContentRuleRegistry().unregister( ditControlRuleOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2355,7 +2381,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterDitStructureRule( String ditStructureRuleOid ) throws LdapException
     {
-        return registries.getDitStructureRuleRegistry().unregister( ditStructureRuleOid );
+        SchemaObject unregistered = registries.getDitStructureRuleRegistry().unregister( ditStructureRuleOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2365,7 +2394,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterLdapSyntax( String ldapSyntaxOid ) throws LdapException
     {
-        return registries.getLdapSyntaxRegistry().unregister( ldapSyntaxOid );
+        SchemaObject unregistered = registries.getLdapSyntaxRegistry().unregister( ldapSyntaxOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2375,7 +2407,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterMatchingRule( String matchingRuleOid ) throws LdapException
     {
-        return registries.getMatchingRuleRegistry().unregister( matchingRuleOid );
+        SchemaObject unregistered = registries.getMatchingRuleRegistry().unregister( matchingRuleOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2385,7 +2420,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterMatchingRuleUse( String matchingRuleUseOid ) throws LdapException
     {
-        return registries.getMatchingRuleUseRegistry().unregister( matchingRuleUseOid );
+        SchemaObject unregistered = registries.getMatchingRuleUseRegistry().unregister( matchingRuleUseOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2395,7 +2433,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterNameForm( String nameFormOid ) throws LdapException
     {
-        return registries.getNameFormRegistry().unregister( nameFormOid );
+        SchemaObject unregistered = registries.getNameFormRegistry().unregister( nameFormOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2405,7 +2446,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterNormalizer( String normalizerOid ) throws LdapException
     {
-        return registries.getNormalizerRegistry().unregister( normalizerOid );
+        SchemaObject unregistered = registries.getNormalizerRegistry().unregister( normalizerOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2415,7 +2459,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterObjectClass( String objectClassOid ) throws LdapException
     {
-        return registries.getObjectClassRegistry().unregister( objectClassOid );
+        SchemaObject unregistered = registries.getObjectClassRegistry().unregister( objectClassOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2425,7 +2472,10 @@ public class DefaultSchemaManager implements SchemaManager
     @Override
     public SchemaObject unregisterSyntaxChecker( String syntaxCheckerOid ) throws LdapException
     {
-        return registries.getSyntaxCheckerRegistry().unregister( syntaxCheckerOid );
+        SchemaObject unregistered = registries.getSyntaxCheckerRegistry().unregister( syntaxCheckerOid );
+        clearDnCache();
+
+        return unregistered;
     }
 
 
@@ -2486,6 +2536,40 @@ public class DefaultSchemaManager implements SchemaManager
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DnCache getDnCache()
+    {
+        return dnCache;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setDnCache( DnCache dnCache )
+    {
+        this.dnCache = dnCache;
+    }
+
+
+    /**
+     * Removes the cached Dns, if any, as they are not valid anymore once the schema has changed
+     */
+    private void clearDnCache()
+    {
+        DnCache cache = dnCache;
+
+        if ( cache != null )
+        {
+            cache.clear();
+        }
+    }
+
+
     public SchemaErrorHandler getErrorHandler()
     {
         return errorHandler;